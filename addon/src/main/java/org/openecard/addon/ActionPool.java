@@ -0,0 +1,235 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.addon;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.openecard.addon.manifest.AddonSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Pool of initialised add-on actions with borrow and return semantic.
+ * <p>Each action of an add-on has its own set of idle instances. An instance is handed out to exactly one user at a
+ * time, so actions do not need to be thread safe. Returned instances are kept for the next request, as long as the
+ * number of idle instances does not exceed the configured maximum. Surplus instances are destroyed.</p>
+ *
+ * @author agent
+ */
+class ActionPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ActionPool.class);
+
+    private final int minIdle;
+    private final int maxIdle;
+
+    private final HashMap<Key, ArrayDeque<LifecycleTrait>> idle = new HashMap<>();
+    private final IdentityHashMap<LifecycleTrait, Key> borrowed = new IdentityHashMap<>();
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+
+    /**
+     * Creates a pool with the given bounds.
+     *
+     * @param minIdle Number of instances created when an action is loaded on startup.
+     * @param maxIdle Maximum number of idle instances kept per action.
+     */
+    ActionPool(int minIdle, int maxIdle) {
+	this.minIdle = Math.max(0, minIdle);
+	this.maxIdle = Math.max(this.minIdle, maxIdle);
+    }
+
+    /**
+     * Gets the number of instances which should be available after loading an action on startup.
+     *
+     * @return Minimum number of idle instances.
+     */
+    int getMinIdle() {
+	return minIdle;
+    }
+
+    /**
+     * Borrows an idle instance of the given action.
+     *
+     * @param <T> Type of the action.
+     * @param spec Specification of the add-on containing the action.
+     * @param type Type of the action.
+     * @param id Identifier of the action in the add-on.
+     * @return An idle instance which must be returned with {@link #release(LifecycleTrait)}, or {@code null} if no
+     *   idle instance is available.
+     */
+    @Nullable
+    synchronized <T extends LifecycleTrait> T borrow(@Nonnull AddonSpecification spec, @Nonnull Class<T> type,
+	    @Nonnull String id) {
+	Key key = new Key(spec, type, id);
+	ArrayDeque<LifecycleTrait> instances = idle.get(key);
+	LifecycleTrait obj = instances != null ? instances.pollFirst() : null;
+	if (obj != null) {
+	    borrowed.put(obj, key);
+	    reused.incrementAndGet();
+	    return type.cast(obj);
+	}
+	return null;
+    }
+
+    /**
+     * Registers a newly created instance as borrowed, so that it enters the pool when it is returned.
+     *
+     * @param <T> Type of the action.
+     * @param spec Specification of the add-on containing the action.
+     * @param type Type of the action.
+     * @param id Identifier of the action in the add-on.
+     * @param obj The initialised instance.
+     */
+    synchronized <T extends LifecycleTrait> void add(@Nonnull AddonSpecification spec, @Nonnull Class<T> type,
+	    @Nonnull String id, @Nonnull T obj) {
+	Key key = new Key(spec, type, id);
+	if (! idle.containsKey(key)) {
+	    idle.put(key, new ArrayDeque<LifecycleTrait>());
+	}
+	borrowed.put(obj, key);
+	created.incrementAndGet();
+    }
+
+    /**
+     * Returns a borrowed instance.
+     * Instances which are not managed by this pool, exceed the maximum number of idle instances or belong to an
+     * unloaded add-on are destroyed.
+     *
+     * @param obj The instance to return.
+     */
+    void release(@Nonnull LifecycleTrait obj) {
+	synchronized (this) {
+	    Key key = borrowed.remove(obj);
+	    ArrayDeque<LifecycleTrait> instances = key != null ? idle.get(key) : null;
+	    if (instances != null && instances.size() < maxIdle) {
+		// most recently used instance is handed out first
+		instances.addFirst(obj);
+		return;
+	    }
+	}
+	destroy(obj);
+    }
+
+    /**
+     * Destroys all idle instances of the given add-on.
+     * Instances which are currently borrowed are destroyed when they are returned.
+     *
+     * @param spec Specification of the add-on to unload.
+     */
+    void remove(@Nonnull AddonSpecification spec) {
+	List<LifecycleTrait> toDestroy = new ArrayList<>();
+	synchronized (this) {
+	    Iterator<Map.Entry<Key, ArrayDeque<LifecycleTrait>>> it = idle.entrySet().iterator();
+	    while (it.hasNext()) {
+		Map.Entry<Key, ArrayDeque<LifecycleTrait>> next = it.next();
+		if (next.getKey().spec.equals(spec)) {
+		    toDestroy.addAll(next.getValue());
+		    it.remove();
+		}
+	    }
+	    // borrowed instances must not enter a pool of a newly loaded add-on with the same specification
+	    Iterator<Map.Entry<LifecycleTrait, Key>> bit = borrowed.entrySet().iterator();
+	    while (bit.hasNext()) {
+		if (bit.next().getValue().spec.equals(spec)) {
+		    bit.remove();
+		}
+	    }
+	}
+	for (LifecycleTrait obj : toDestroy) {
+	    destroy(obj);
+	}
+    }
+
+    /**
+     * Gets a snapshot of the pool statistics.
+     *
+     * @return Statistics object.
+     */
+    ActionPoolStatistics getStatistics() {
+	int numIdle = 0;
+	int numBorrowed;
+	synchronized (this) {
+	    for (ArrayDeque<LifecycleTrait> next : idle.values()) {
+		numIdle += next.size();
+	    }
+	    numBorrowed = borrowed.size();
+	}
+	return new ActionPoolStatistics(created.get(), reused.get(), destroyed.get(), numIdle, numBorrowed);
+    }
+
+    private void destroy(LifecycleTrait obj) {
+	destroyed.incrementAndGet();
+	try {
+	    obj.destroy();
+	} catch (RuntimeException ex) {
+	    LOG.error("Failed to destroy add-on action.", ex);
+	}
+    }
+
+
+    private static final class Key {
+
+	private final AddonSpecification spec;
+	private final Class<?> type;
+	private final String id;
+
+	Key(AddonSpecification spec, Class<?> type, String id) {
+	    this.spec = spec;
+	    this.type = type;
+	    this.id = id;
+	}
+
+	@Override
+	public int hashCode() {
+	    int h = spec.hashCode();
+	    h = 31 * h + type.hashCode();
+	    h = 31 * h + id.hashCode();
+	    return h;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (this == obj) {
+		return true;
+	    } else if (! (obj instanceof Key)) {
+		return false;
+	    }
+	    Key other = (Key) obj;
+	    return type == other.type && id.equals(other.id) && spec.equals(other.spec);
+	}
+
+    }
+
+}
@@ -0,0 +1,108 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.addon;
+
+
+/**
+ * Snapshot of the statistics of the add-on action pool.
+ *
+ * @author agent
+ */
+public class ActionPoolStatistics {
+
+    private final long created;
+    private final long reused;
+    private final long destroyed;
+    private final int idle;
+    private final int borrowed;
+
+    ActionPoolStatistics(long created, long reused, long destroyed, int idle, int borrowed) {
+	this.created = created;
+	this.reused = reused;
+	this.destroyed = destroyed;
+	this.idle = idle;
+	this.borrowed = borrowed;
+    }
+
+    /**
+     * Gets the number of action instances which have been created and initialised.
+     *
+     * @return Number of created instances.
+     */
+    public long getCreated() {
+	return created;
+    }
+
+    /**
+     * Gets the number of requests which have been served with an idle instance.
+     *
+     * @return Number of reused instances.
+     */
+    public long getReused() {
+	return reused;
+    }
+
+    /**
+     * Gets the number of instances which have been destroyed.
+     *
+     * @return Number of destroyed instances.
+     */
+    public long getDestroyed() {
+	return destroyed;
+    }
+
+    /**
+     * Gets the number of idle instances in the pool.
+     *
+     * @return Number of idle instances.
+     */
+    public int getIdle() {
+	return idle;
+    }
+
+    /**
+     * Gets the number of instances which are currently in use.
+     *
+     * @return Number of borrowed instances.
+     */
+    public int getBorrowed() {
+	return borrowed;
+    }
+
+    /**
+     * Gets the ratio of reused instances to all handed out instances.
+     *
+     * @return Reuse ratio between 0 and 1, or 0 if no instance has been handed out yet.
+     */
+    public double getReuseRatio() {
+	long total = created + reused;
+	return total == 0 ? 0 : (double) reused / total;
+    }
+
+    @Override
+    public String toString() {
+	return String.format("ActionPoolStatistics[created=%d, reused=%d, destroyed=%d, idle=%d, borrowed=%d]",
+		created, reused, destroyed, idle, borrowed);
+    }
+
+}
@@ -24,7 +24,10 @@ package org.openecard.addon;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import javax.annotation.Nonnull;
 import org.openecard.addon.bind.AppExtensionAction;
@@ -39,9 +42,12 @@ import org.openecard.addon.manifest.AppPluginSpecification;
 import org.openecard.addon.manifest.ProtocolPluginSpecification;
 import org.openecard.addon.sal.SALProtocol;
 import org.openecard.addon.sal.SALProtocolProxy;
+import org.openecard.common.OpenecardProperties;
+import org.openecard.common.event.EventType;
 import org.openecard.common.sal.state.CardStateMap;
 import org.openecard.common.util.FacadeInvocationHandler;
 import org.openecard.common.interfaces.Environment;
+import org.openecard.common.interfaces.EventDispatcher;
 import org.openecard.gui.UserConsent;
 import org.openecard.gui.definition.ViewController;
 import org.openecard.ws.marshal.WSMarshallerException;
@@ -64,6 +70,9 @@ public class AddonManager {
 
     private static final Logger LOG = LoggerFactory.getLogger(AddonManager.class);
 
+    private static final int DEFAULT_MIN_IDLE = 1;
+    private static final int DEFAULT_MAX_IDLE = 4;
+
     private final CombiningRegistry registry;
     private final AddonRegistry protectedRegistry;
     private final Environment env;
@@ -71,8 +80,8 @@ public class AddonManager {
     private final CardStateMap cardStates;
     private final EventHandler eventHandler;
     private final ViewController viewController;
-    // TODO: rework cache to have borrow and return semantic
     private final Cache cache = new Cache();
+    private final ActionPool actionPool;
 
     /**
      * Creates a new AddonManager.
@@ -97,8 +106,10 @@ public class AddonManager {
 	this.userConsent = userConsent;
 	this.cardStates = cardStates;
 	this.eventHandler = new EventHandler();
-	this.env.getEventDispatcher().add(eventHandler);
+	registerStatusEvents(eventHandler, this.env.getEventDispatcher());
 	this.viewController = view;
+	this.actionPool = new ActionPool(getPoolProperty("addon.action_pool.min_idle", DEFAULT_MIN_IDLE),
+		getPoolProperty("addon.action_pool.max_idle", DEFAULT_MAX_IDLE));
 
 	new Thread(() -> {
 	    loadLoadOnStartAddons();
@@ -110,6 +121,34 @@ public class AddonManager {
 	this(env, userConsent, cardStates, view, null);
     }
 
+    private static void registerStatusEvents(EventHandler handler, EventDispatcher dispatcher) {
+	EventType[] ifdTypes = new EventType[] {
+	    EventType.TERMINAL_ADDED, EventType.TERMINAL_REMOVED,
+	    EventType.CARD_INSERTED, EventType.CARD_RECOGNIZED, EventType.CARD_REMOVED
+	};
+	if (Boolean.parseBoolean(OpenecardProperties.getProperty("addon.status.api_call_summary"))) {
+	    // API calls are only reported as summary, the single events are too frequent for some status clients
+	    EventType[] types = Arrays.copyOf(ifdTypes, ifdTypes.length + 1);
+	    types[ifdTypes.length] = EventType.API_CALL_SUMMARY;
+	    handler.register(dispatcher, types);
+	} else {
+	    // the API call events are only created while status clients are connected
+	    handler.register(dispatcher, ifdTypes, EventType.API_CALL_STARTED, EventType.API_CALL_FINISHED);
+	}
+    }
+
+    private static int getPoolProperty(String key, int defaultValue) {
+	String value = OpenecardProperties.getProperty(key);
+	if (value != null) {
+	    try {
+		return Integer.parseInt(value.trim());
+	    } catch (NumberFormatException ex) {
+		LOG.warn("Invalid value '{}' for property {}, using default value.", value, key);
+	    }
+	}
+	return defaultValue;
+    }
+
     /**
      * Load all addons which contain an loadOnStart = true.
      *
@@ -132,7 +171,7 @@ public class AddonManager {
 	if (!addonSpec.getApplicationActions().isEmpty()) {
 	    for (AppExtensionSpecification appExSpec : addonSpec.getApplicationActions()) {
 		if (appExSpec.isLoadOnStartup()) {
-		    getAppExtensionAction(addonSpec, appExSpec.getId());
+		    warmUpAction(addonSpec, AppExtensionAction.class, appExSpec.getId());
 		}
 	    }
 	}
@@ -140,7 +179,7 @@ public class AddonManager {
 	if (!addonSpec.getBindingActions().isEmpty()) {
 	    for (AppPluginSpecification appPlugSpec : addonSpec.getBindingActions()) {
 		if (appPlugSpec.isLoadOnStartup()) {
-		    getAppPluginAction(addonSpec, appPlugSpec.getResourceName());
+		    warmUpAction(addonSpec, AppPluginAction.class, appPlugSpec.getResourceName());
 		}
 	    }
 	}
@@ -162,6 +201,32 @@ public class AddonManager {
 	}
     }
 
+    /**
+     * Creates the minimum number of idle instances of an action, but at least one, and puts them into the pool.
+     *
+     * @param addonSpec The {@link AddonSpecification} of the add-on.
+     * @param type Type of the action.
+     * @param id Identifier of the action.
+     */
+    private void warmUpAction(AddonSpecification addonSpec, Class<? extends LifecycleTrait> type, String id) {
+	List<LifecycleTrait> instances = new ArrayList<>();
+	for (int i = 0; i < Math.max(1, actionPool.getMinIdle()); i++) {
+	    LifecycleTrait obj;
+	    if (type == AppPluginAction.class) {
+		obj = getAppPluginAction(addonSpec, id);
+	    } else {
+		obj = getAppExtensionAction(addonSpec, id);
+	    }
+	    if (obj == null) {
+		break;
+	    }
+	    instances.add(obj);
+	}
+	for (LifecycleTrait obj : instances) {
+	    actionPool.release(obj);
+	}
+    }
+
     /**
      * Unload all add-ons.
      */
@@ -184,6 +249,7 @@ public class AddonManager {
 	}
 
 	cache.removeCompleteAddonCache(addonSpec);
+	actionPool.remove(addonSpec);
     }
 
 
@@ -333,13 +399,11 @@ public class AddonManager {
      * the given {@code actionId} exists.
      */
     public AppExtensionAction getAppExtensionAction(@Nonnull AddonSpecification addonSpec, @Nonnull String actionId) {
-	// get extension from cache
-	AppExtensionAction appExtAction = cache.getAppExtensionAction(addonSpec, actionId);
-	// TODO: find a better way to deal with the reuse of protocol plugins
-//	if (appExtAction != null) {
-//	    // AppExtensionAction cached so return it
-//	    return appExtAction;
-//	}
+	// reuse idle instance if available
+	AppExtensionAction appExtAction = actionPool.borrow(addonSpec, AppExtensionAction.class, actionId);
+	if (appExtAction != null) {
+	    return appExtAction;
+	}
 
 	AppExtensionSpecification protoSpec = addonSpec.searchByActionId(actionId);
 	if (protoSpec == null) {
@@ -351,7 +415,7 @@ public class AddonManager {
 		AppExtensionActionProxy protoFactory = new AppExtensionActionProxy(className, cl);
 		Context aCtx = createContext(addonSpec);
 		protoFactory.init(aCtx);
-		cache.addAppExtensionAction(addonSpec, actionId, protoFactory);
+		actionPool.add(addonSpec, AppExtensionAction.class, actionId, protoFactory);
 		return protoFactory;
 	    } catch (ActionInitializationException e) {
 		LOG.error("Initialization of AppExtensionAction failed", e);
@@ -362,8 +426,14 @@ public class AddonManager {
 	return null;
     }
 
+    /**
+     * Returns an AppExtensionAction obtained by {@link #getAppExtensionAction(AddonSpecification, String)}.
+     * The instance is kept for the next request or destroyed if enough idle instances are available.
+     *
+     * @param obj The action to return.
+     */
     public void returnAppExtensionAction(AppExtensionAction obj) {
-	obj.destroy();
+	actionPool.release(obj);
     }
 
     /**
@@ -376,12 +446,11 @@ public class AddonManager {
      * such AppPluginAction exists NULL is returned.
      */
     public AppPluginAction getAppPluginAction(@Nonnull AddonSpecification addonSpec, @Nonnull String resourceName) {
-	AppPluginAction appPluginAction = cache.getAppPluginAction(addonSpec, resourceName);
-	// TODO: find a better way to deal with the reuse of protocol plugins
-//	if (appPluginAction != null) {
-//	    // AppExtensionAction cached so return it
-//	    return appPluginAction;
-//	}
+	// reuse idle instance if available
+	AppPluginAction appPluginAction = actionPool.borrow(addonSpec, AppPluginAction.class, resourceName);
+	if (appPluginAction != null) {
+	    return appPluginAction;
+	}
 
 	AppPluginSpecification protoSpec = addonSpec.searchByResourceName(resourceName);
 	if (protoSpec == null) {
@@ -393,7 +462,7 @@ public class AddonManager {
 		AppPluginActionProxy protoFactory = new AppPluginActionProxy(className, cl);
 		Context aCtx = createContext(addonSpec);
 		protoFactory.init(aCtx);
-		cache.addAppPluginAction(addonSpec, resourceName, protoFactory);
+		actionPool.add(addonSpec, AppPluginAction.class, resourceName, protoFactory);
 		return protoFactory;
 	    } catch (ActionInitializationException e) {
 		LOG.error("Initialization of AppPluginAction failed", e);
@@ -404,8 +473,23 @@ public class AddonManager {
 	return null;
     }
 
+    /**
+     * Returns an AppPluginAction obtained by {@link #getAppPluginAction(AddonSpecification, String)}.
+     * The instance is kept for the next request or destroyed if enough idle instances are available.
+     *
+     * @param obj The action to return.
+     */
     public void returnAppPluginAction(AppPluginAction obj) {
-	obj.destroy();
+	actionPool.release(obj);
+    }
+
+    /**
+     * Gets the statistics of the pool holding the AppPluginAction and AppExtensionAction instances.
+     *
+     * @return Snapshot of the pool statistics.
+     */
+    public ActionPoolStatistics getActionPoolStatistics() {
+	return actionPool.getStatistics();
     }
 
     private Context createContext(@Nonnull AddonSpecification addonSpec) {
@@ -1,5 +1,5 @@
 /****************************************************************************
- * Copyright (C) 2012-2016 ecsec GmbH.
+ * Copyright (C) 2012-2018 ecsec GmbH.
  * All rights reserved.
  * Contact: ecsec GmbH (info@ecsec.de)
  *
@@ -23,19 +23,37 @@
 package org.openecard.addon;
 
 import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import org.openecard.common.event.EventType;
 import org.openecard.common.interfaces.EventCallback;
 import org.openecard.common.event.EventObject;
+import org.openecard.common.interfaces.EventDispatcher;
+import org.openecard.common.util.Pair;
 import org.openecard.ws.schema.StatusChange;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
+ * Event handler delivering StatusChange events to the sessions of the status interface.
+ * <p>All events are written once into a shared ring buffer. Each session only keeps a cursor into this buffer, so the
+ * memory used by the handler is bounded by the buffer capacity and the maximum number of sessions. Sessions lagging
+ * behind by more than the buffer capacity lose their oldest events. Idle sessions are removed by a single sweep task
+ * which is shared by all handlers.</p>
+ * <p>Events which are only of interest for connected clients, such as the frequent API call events, can be subscribed
+ * on demand. They are only subscribed while at least one session exists, so that emitters can skip them
+ * otherwise.</p>
  *
  * @author Johannes Schmölz
  * @author Benedikt Biallowons
@@ -46,17 +64,91 @@ public class EventHandler implements EventCallback {
 
     private static final Logger LOG = LoggerFactory.getLogger(EventHandler.class);
 
-    private final Map<String, LinkedBlockingQueue<StatusChange>> eventQueues;
-    private final Map<String, ReschedulableTimer> timers;
-    // after this delay of inactivity an event queue (and it's timer) will be deleted
+    // number of events kept in the ring buffer
+    private static final int LOG_CAPACITY = 256;
+    // maximum number of sessions before idle sessions are evicted
+    private static final int MAX_SESSIONS = 1024;
+    // after this delay of inactivity a session will be deleted
     private static final int deleteDelay = 60 * 1000;
+    // interval in which idle sessions are searched
+    private static final int sweepInterval = 10 * 1000;
+    // time a blocking next call waits before refreshing the session
+    private static final int pollTimeout = 30 * 1000;
+
+    private static final ScheduledExecutorService EXPIRY_EXECUTOR;
+
+    static {
+	EXPIRY_EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+	    @Override
+	    public Thread newThread(Runnable r) {
+		Thread t = new Thread(r, "Event-Session-Expiry");
+		t.setDaemon(true);
+		return t;
+	    }
+	});
+    }
+
+    private final long deleteDelayMillis;
+    private final long sweepIntervalMillis;
+    private final int maxSessions;
+
+    // all fields below are guarded by the lock
+    private final Object lock = new Object();
+    private final StatusChange[] eventLog;
+    private final Map<String, Session> sessions;
+    // sessions with parked listeners
+    private final Set<Session> waiting;
+    private ScheduledFuture<?> sweepTask;
+    // sequence number of the next event written to the log
+    private long head;
+    private long expiredSessions;
+    private long evictedSessions;
+    private long droppedEvents;
+
+    // subscription of the on demand events, guarded by the subscription lock
+    private final Object subscriptionLock = new Object();
+    private final EventCallback onDemandCallback = new EventCallback() {
+	@Override
+	public void signalEvent(EventType eventType, EventObject eventData) {
+	    EventHandler.this.signalEvent(eventType, eventData);
+	}
+    };
+    private EventDispatcher dispatcher;
+    private EventType[] onDemandTypes;
+    private boolean onDemandSubscribed;
 
     /**
      * Create a new EventHandler.
      */
     public EventHandler() {
-	eventQueues = new HashMap<>();
-	timers = new HashMap<>();
+	this(LOG_CAPACITY, MAX_SESSIONS, deleteDelay, sweepInterval);
+    }
+
+    EventHandler(int capacity, int maxSessions, long deleteDelayMillis, long sweepIntervalMillis) {
+	this.eventLog = new StatusChange[capacity];
+	this.maxSessions = maxSessions;
+	this.deleteDelayMillis = deleteDelayMillis;
+	this.sweepIntervalMillis = sweepIntervalMillis;
+	// access order, so that the least recently used session is evicted first
+	this.sessions = new LinkedHashMap<>(16, 0.75f, true);
+	this.waiting = new HashSet<>();
+    }
+
+    /**
+     * Registers this handler at the given dispatcher.
+     * The events of the on demand types are only subscribed while at least one session exists.
+     *
+     * @param dispatcher Dispatcher delivering the events.
+     * @param types Event types which are always subscribed.
+     * @param onDemandTypes Event types which are only subscribed while sessions exist.
+     */
+    public void register(EventDispatcher dispatcher, EventType[] types, EventType... onDemandTypes) {
+	synchronized (subscriptionLock) {
+	    this.dispatcher = dispatcher;
+	    this.onDemandTypes = onDemandTypes.clone();
+	}
+	dispatcher.add(this, types);
+	updateSubscription();
     }
 
     /**
@@ -66,69 +158,313 @@ public class EventHandler implements EventCallback {
      *   interrupted
      */
     public StatusChange next(String session) {
-	//String session = statusChangeRequest.getSessionIdentifier();
-	StatusChange handle = null;
-	LinkedBlockingQueue<StatusChange> queue = eventQueues.get(session);
-	if (queue == null) {
-	    LOG.error("No queue found for session {}", session);
-	    return null;
-	}
-	do {
+	synchronized (lock) {
+	    Session s = sessions.get(session);
+	    if (s == null) {
+		LOG.error("No queue found for session {}", session);
+		return null;
+	    }
+
+	    // blocked sessions are in use and must not be expired
+	    s.blocked++;
 	    try {
-		timers.get(session).reschedule(deleteDelay);
-		handle = eventQueues.get(session).poll(30, TimeUnit.SECONDS);
+		StatusChange handle;
+		while ((handle = read(s)) == null) {
+		    s.lastAccess = System.currentTimeMillis();
+		    lock.wait(pollTimeout);
+		}
+		s.lastAccess = System.currentTimeMillis();
 		LOG.debug("WaitForChange event pulled from event queue.");
+		return handle;
 	    } catch (InterruptedException ex) {
 		return null;
+	    } finally {
+		s.blocked--;
+	    }
+	}
+    }
+
+    /**
+     * Passes the next StatusChange of the given session to the listener.
+     * In contrast to {@link #next(String)}, this method does not block. If no event is available yet, the listener is
+     * called as soon as the next event for the session arrives.
+     *
+     * @param session Session identifier.
+     * @param listener Listener receiving the StatusChange, or {@code null} if no eventQueue for the given session
+     *   exists.
+     */
+    public void next(String session, StatusChangeListener listener) {
+	StatusChange change;
+	synchronized (lock) {
+	    Session s = sessions.get(session);
+	    if (s == null) {
+		change = null;
+	    } else {
+		s.lastAccess = System.currentTimeMillis();
+		change = read(s);
+		if (change == null) {
+		    if (s.waiters == null) {
+			s.waiters = new ArrayList<>();
+		    }
+		    s.waiters.add(listener);
+		    waiting.add(s);
+		    LOG.debug("Waiting asynchronously for WaitForChange event.");
+		    return;
+		}
+	    }
+	}
+
+	if (change == null) {
+	    LOG.error("No queue found for session {}", session);
+	} else {
+	    LOG.debug("WaitForChange event pulled from event queue.");
+	}
+	listener.statusChanged(change);
+    }
+
+    /**
+     * Removes a listener parked by {@link #next(String, StatusChangeListener)}.
+     * This method is called when the client is no longer waiting for the event, e.g. because it disconnected or its
+     * request timed out. The session stays available, so the client may continue with its next request.
+     *
+     * @param session Session identifier.
+     * @param listener The parked listener.
+     * @return {@code true} if the listener has been removed and is not called anymore, {@code false} if it is not
+     *   parked, e.g. because the next StatusChange is already being delivered.
+     */
+    public boolean cancel(String session, StatusChangeListener listener) {
+	synchronized (lock) {
+	    Session s = sessions.get(session);
+	    if (s == null || s.waiters == null || ! s.waiters.remove(listener)) {
+		return false;
+	    }
+	    if (s.waiters.isEmpty()) {
+		s.waiters = null;
+		waiting.remove(s);
 	    }
-	} while (handle == null);
-	return handle;
+	    // the session is idle from now on
+	    s.lastAccess = System.currentTimeMillis();
+	    LOG.debug("Removed parked WaitForChange listener of session {}.", session);
+	    return true;
+	}
     }
 
     @Override
     public void signalEvent(EventType eventType, EventObject eventData) {
 	ConnectionHandleType connectionHandle = eventData.getHandle();
+	// the same instance is handed out to all sessions
+	StatusChange statusChange = new StatusChange();
+	statusChange.setAction(eventType.getEventTypeIdentifier());
+	statusChange.setConnectionHandle(connectionHandle);
 
-	for (Map.Entry<String, LinkedBlockingQueue<StatusChange>> entry : eventQueues.entrySet()) {
-	    try {
-		LinkedBlockingQueue<StatusChange> queue = entry.getValue();
-		StatusChange statusChange = new StatusChange();
-		statusChange.setAction(eventType.getEventTypeIdentifier());
-		statusChange.setConnectionHandle(connectionHandle);
-		queue.put(statusChange);
-	    } catch (InterruptedException ignore) {
+	ArrayList<Pair<StatusChangeListener, StatusChange>> ready = new ArrayList<>();
+	synchronized (lock) {
+	    if (sessions.isEmpty()) {
+		// new sessions only see events after their creation
+		return;
+	    }
+	    eventLog[(int) (head % eventLog.length)] = statusChange;
+	    head++;
+	    lock.notifyAll();
+
+	    Iterator<Session> it = waiting.iterator();
+	    while (it.hasNext()) {
+		Session s = it.next();
+		while (! s.waiters.isEmpty()) {
+		    StatusChange change = read(s);
+		    if (change == null) {
+			break;
+		    }
+		    ready.add(new Pair<>(s.waiters.remove(0), change));
+		}
+		if (s.waiters.isEmpty()) {
+		    s.waiters = null;
+		    it.remove();
+		}
 	    }
 	}
+
+	// call listeners without holding the lock
+	for (Pair<StatusChangeListener, StatusChange> next : ready) {
+	    next.p1.statusChanged(next.p2);
+	}
     }
 
     /**
      * Adds a new EventQueue for a given session.
+     * The session receives all events signalled after this call.
      *
      * @param sessionIdentifier session identifier
      */
     public void addQueue(final String sessionIdentifier) {
-	if (eventQueues.get(sessionIdentifier) == null) {
-	    eventQueues.put(sessionIdentifier, new LinkedBlockingQueue<StatusChange>());
-	    ReschedulableTimer timer = new ReschedulableTimer();
-	    timer.schedule(new DeleteTask(sessionIdentifier), deleteDelay);
-	    timers.put(sessionIdentifier, timer);
-	} else {
-	    timers.get(sessionIdentifier).reschedule(deleteDelay);
+	boolean first;
+	synchronized (lock) {
+	    long now = System.currentTimeMillis();
+	    Session s = sessions.get(sessionIdentifier);
+	    first = sessions.isEmpty();
+	    if (s == null) {
+		if (sessions.size() >= maxSessions) {
+		    evictSession();
+		}
+		sessions.put(sessionIdentifier, new Session(head, now));
+		if (sweepTask == null) {
+		    sweepTask = EXPIRY_EXECUTOR.scheduleWithFixedDelay(new SweepTask(), sweepIntervalMillis,
+			    sweepIntervalMillis, TimeUnit.MILLISECONDS);
+		}
+	    } else {
+		s.lastAccess = now;
+	    }
+	}
+	if (first) {
+	    updateSubscription();
+	}
+    }
+
+    /**
+     * Subscribes the on demand events if sessions exist and removes the subscription otherwise.
+     * Must not be called while holding the lock.
+     */
+    private void updateSubscription() {
+	synchronized (subscriptionLock) {
+	    if (dispatcher == null || onDemandTypes.length == 0) {
+		return;
+	    }
+	    boolean needed;
+	    synchronized (lock) {
+		needed = ! sessions.isEmpty();
+	    }
+	    if (needed && ! onDemandSubscribed) {
+		LOG.debug("Subscribing on demand events for status clients.");
+		dispatcher.add(onDemandCallback, onDemandTypes);
+		onDemandSubscribed = true;
+	    } else if (! needed && onDemandSubscribed) {
+		LOG.debug("Removing subscription of on demand events, no status client is left.");
+		dispatcher.del(onDemandCallback);
+		onDemandSubscribed = false;
+	    }
+	}
+    }
+
+    /**
+     * Gets a snapshot of the statistics of this event handler.
+     *
+     * @return The current statistics.
+     */
+    public EventHandlerStatistics getStatistics() {
+	synchronized (lock) {
+	    int waitingSessions = 0;
+	    long maxLag = 0;
+	    for (Session s : sessions.values()) {
+		if (s.isInUse()) {
+		    waitingSessions++;
+		}
+		maxLag = Math.max(maxLag, head - s.cursor);
+	    }
+	    return new EventHandlerStatistics(sessions.size(), waitingSessions, head, maxLag, expiredSessions,
+		    evictedSessions, droppedEvents);
 	}
     }
 
-    private final class DeleteTask implements Runnable {
-	private final String sessionIdentifier;
+    /**
+     * Reads the next event of the session and advances its cursor.
+     * Must be called while holding the lock.
+     *
+     * @param s Session whose next event is read.
+     * @return The next event, or {@code null} if the session has already seen all events.
+     */
+    private StatusChange read(Session s) {
+	if (s.cursor >= head) {
+	    return null;
+	}
+	long oldest = head - eventLog.length;
+	if (s.cursor < oldest) {
+	    // the events of the session have been overwritten in the mean time
+	    LOG.warn("Session lagged behind by {} events, dropping the oldest ones.", head - s.cursor);
+	    droppedEvents += oldest - s.cursor;
+	    s.cursor = oldest;
+	}
+	StatusChange change = eventLog[(int) (s.cursor % eventLog.length)];
+	s.cursor++;
+	return change;
+    }
 
-	public DeleteTask(String sessionIdentifier) {
-	    this.sessionIdentifier = sessionIdentifier;
+    /**
+     * Removes the least recently used session which is not in use.
+     * Must be called while holding the lock.
+     */
+    private void evictSession() {
+	Iterator<Map.Entry<String, Session>> it = sessions.entrySet().iterator();
+	while (it.hasNext()) {
+	    Map.Entry<String, Session> entry = it.next();
+	    if (! entry.getValue().isInUse()) {
+		LOG.debug("Evicting session {} as the maximum number of sessions is reached.", entry.getKey());
+		it.remove();
+		evictedSessions++;
+		return;
+	    }
 	}
+    }
+
+    private final class SweepTask implements Runnable {
 
 	@Override
 	public void run() {
-	    eventQueues.remove(sessionIdentifier);
-	    timers.remove(sessionIdentifier);
+	    boolean empty;
+	    synchronized (lock) {
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<String, Session>> it = sessions.entrySet().iterator();
+		while (it.hasNext()) {
+		    Session s = it.next().getValue();
+		    // sessions with parked listeners are still in use
+		    if (! s.isInUse() && now - s.lastAccess >= deleteDelayMillis) {
+			it.remove();
+			expiredSessions++;
+		    }
+		}
+		empty = sessions.isEmpty();
+		if (empty && sweepTask != null) {
+		    sweepTask.cancel(false);
+		    sweepTask = null;
+		}
+	    }
+	    if (empty) {
+		updateSubscription();
+	    }
+	}
+
+    }
+
+    private static final class Session {
+
+	private long cursor;
+	private long lastAccess;
+	private int blocked;
+	private List<StatusChangeListener> waiters;
+
+	Session(long cursor, long lastAccess) {
+	    this.cursor = cursor;
+	    this.lastAccess = lastAccess;
+	}
+
+	boolean isInUse() {
+	    return blocked > 0 || waiters != null;
 	}
+
+    }
+
+
+    /**
+     * Listener receiving the result of {@link EventHandler#next(String, StatusChangeListener)}.
+     */
+    public interface StatusChangeListener {
+
+	/**
+	 * Called with the next StatusChange of the session.
+	 *
+	 * @param change The StatusChange, or {@code null} if no eventQueue for the session exists.
+	 */
+	void statusChanged(StatusChange change);
+
     }
 
 }
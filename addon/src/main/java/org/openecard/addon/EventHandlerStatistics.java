@@ -0,0 +1,122 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.addon;
+
+
+/**
+ * Snapshot of the statistics of the {@link EventHandler}.
+ *
+ * @author agent
+ */
+public class EventHandlerStatistics {
+
+    private final int sessions;
+    private final int waitingSessions;
+    private final long events;
+    private final long maxLag;
+    private final long expiredSessions;
+    private final long evictedSessions;
+    private final long droppedEvents;
+
+    EventHandlerStatistics(int sessions, int waitingSessions, long events, long maxLag, long expiredSessions,
+	    long evictedSessions, long droppedEvents) {
+	this.sessions = sessions;
+	this.waitingSessions = waitingSessions;
+	this.events = events;
+	this.maxLag = maxLag;
+	this.expiredSessions = expiredSessions;
+	this.evictedSessions = evictedSessions;
+	this.droppedEvents = droppedEvents;
+    }
+
+    /**
+     * Gets the number of active sessions.
+     *
+     * @return Number of sessions.
+     */
+    public int getSessions() {
+	return sessions;
+    }
+
+    /**
+     * Gets the number of sessions currently waiting for an event.
+     *
+     * @return Number of waiting sessions.
+     */
+    public int getWaitingSessions() {
+	return waitingSessions;
+    }
+
+    /**
+     * Gets the number of events which have been written to the event log.
+     *
+     * @return Number of events.
+     */
+    public long getEvents() {
+	return events;
+    }
+
+    /**
+     * Gets the number of events the slowest session has not yet read.
+     *
+     * @return Maximum lag of all sessions.
+     */
+    public long getMaxLag() {
+	return maxLag;
+    }
+
+    /**
+     * Gets the number of sessions which have been removed due to inactivity.
+     *
+     * @return Number of expired sessions.
+     */
+    public long getExpiredSessions() {
+	return expiredSessions;
+    }
+
+    /**
+     * Gets the number of sessions which have been removed because the maximum number of sessions was reached.
+     *
+     * @return Number of evicted sessions.
+     */
+    public long getEvictedSessions() {
+	return evictedSessions;
+    }
+
+    /**
+     * Gets the number of events which have been overwritten before a lagging session could read them.
+     *
+     * @return Number of dropped events.
+     */
+    public long getDroppedEvents() {
+	return droppedEvents;
+    }
+
+    @Override
+    public String toString() {
+	return String.format("EventHandlerStatistics[sessions=%d, waiting=%d, events=%d, maxLag=%d, expired=%d, "
+		+ "evicted=%d, dropped=%d]", sessions, waitingSessions, events, maxLag, expiredSessions,
+		evictedSessions, droppedEvents);
+    }
+
+}
@@ -60,6 +60,8 @@ public class FileRegistry implements AddonRegistry {
 
     private static final HashMap<String, AddonSpecification> registeredAddons = new HashMap<>();
     private static final HashMap<String, File> files = new HashMap<>();
+    // one class loader per installed add-on, so classes are only loaded once
+    private static final HashMap<String, URLClassLoader> classLoaders = new HashMap<>();
     private final AddonManager manager;
     private final Future<Void> initComplete;
 
@@ -176,6 +178,7 @@ public class FileRegistry implements AddonRegistry {
 		String id = next.getKey();
 		registeredAddons.remove(file.getName());
 		files.remove(id);
+		closeClassLoader(id);
 		logger.debug("Successfully removed addon {}", file.getName());
 		break;
 	    }
@@ -239,15 +242,36 @@ public class FileRegistry implements AddonRegistry {
     @Override
     public ClassLoader downloadAddon(AddonSpecification addonSpec) throws AddonException {
 	String aId = addonSpec.getId();
-	// TODO: use other own classloader impl with security features
-	ClassLoader cl = getClass().getClassLoader();
-	try {
-	    URL[] url = new URL[] { files.get(aId).toURI().toURL() };
-	    URLClassLoader ucl = new URLClassLoader(url, cl);
-	    return ucl;
-	} catch (MalformedURLException e) {
-	    logger.error(e.getMessage(), e);
-	    throw new AddonException("Failed to convert Add-on location URI to URL.");
+	synchronized (classLoaders) {
+	    URLClassLoader ucl = classLoaders.get(aId);
+	    if (ucl != null) {
+		return ucl;
+	    }
+	    // TODO: use other own classloader impl with security features
+	    ClassLoader cl = getClass().getClassLoader();
+	    try {
+		URL[] url = new URL[] { files.get(aId).toURI().toURL() };
+		ucl = new URLClassLoader(url, cl);
+		classLoaders.put(aId, ucl);
+		return ucl;
+	    } catch (MalformedURLException e) {
+		logger.error(e.getMessage(), e);
+		throw new AddonException("Failed to convert Add-on location URI to URL.");
+	    }
+	}
+    }
+
+    private void closeClassLoader(String addonId) {
+	URLClassLoader ucl;
+	synchronized (classLoaders) {
+	    ucl = classLoaders.remove(addonId);
+	}
+	if (ucl != null) {
+	    try {
+		ucl.close();
+	    } catch (IOException ex) {
+		logger.warn("Failed to close class loader of add-on {}.", addonId, ex);
+	    }
 	}
     }
 
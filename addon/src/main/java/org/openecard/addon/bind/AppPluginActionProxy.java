@@ -33,11 +33,13 @@ import org.openecard.addon.ActionInitializationException;
  * Proxy class wrapping a AppPluginAction.
  * The proxy loads the action and calls the actual execute function of the plug-in implementation. <br>
  * If the plug-in has a custom function and it is found by the proxy, then this one is called directly (not implemented).
+ * Plug-ins which do not implement {@link AsyncAppPluginAction} are executed synchronously, when the asynchronous
+ * execute function is called.
  *
  * @author Tobias Wich
  * @author Dirk Petrautzki
  */
-public class AppPluginActionProxy  extends AbstractFactory<AppPluginAction> implements AppPluginAction {
+public class AppPluginActionProxy  extends AbstractFactory<AppPluginAction> implements AsyncAppPluginAction {
 
     private AppPluginAction c;
 
@@ -55,6 +57,17 @@ public class AppPluginActionProxy  extends AbstractFactory<AppPluginAction> impl
 	return c.execute(body, parameters, headers, attachments);
     }
 
+    @Override
+    public Cancellable executeAsync(RequestBody body, Map<String, String> parameters, Headers headers,
+	    List<Attachment> attachments, BindingResultCallback callback) {
+	if (c instanceof AsyncAppPluginAction) {
+	    return ((AsyncAppPluginAction) c).executeAsync(body, parameters, headers, attachments, callback);
+	} else {
+	    callback.done(c.execute(body, parameters, headers, attachments));
+	    return null;
+	}
+    }
+
     @Override
     public void init(Context ctx) throws ActionInitializationException {
 	c = loadInstance(ctx, AppPluginAction.class);
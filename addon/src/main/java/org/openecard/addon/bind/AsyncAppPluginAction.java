@@ -0,0 +1,54 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.addon.bind;
+
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+
+/**
+ * AppPluginAction which is able to deliver its result asynchronously.
+ * Actions which wait for external events, such as long polling requests, implement this interface so that bindings
+ * supporting it do not have to block a thread while waiting.
+ *
+ * @author agent
+ */
+public interface AsyncAppPluginAction extends AppPluginAction {
+
+    /**
+     * Executes the action and passes the result to the given callback.
+     * The callback may be called before this method returns or later from any other thread.
+     *
+     * @param body Body of the request, may be {@code null}.
+     * @param parameters Query parameters of the request.
+     * @param headers Headers of the request.
+     * @param attachments Attachments of the request, may be {@code null}.
+     * @param callback Callback receiving the result of the action.
+     * @return Handle to cancel the action, or {@code null} if the action can not be cancelled.
+     */
+    @Nullable
+    Cancellable executeAsync(RequestBody body, Map<String, String> parameters, Headers headers, List<Attachment> attachments,
+	    BindingResultCallback callback);
+
+}
@@ -46,6 +46,11 @@ public enum BindingResultCode {
      */
     MISSING_PARAMETER,
 
+    /**
+     * Indicates that the requested resource has not changed since the version known to the caller.
+     */
+    NOT_MODIFIED,
+
     /**
      * Indicates that the request was processed successfully.
      */
@@ -0,0 +1,42 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.addon.bind;
+
+
+/**
+ * Handle of an asynchronously executed {@link AsyncAppPluginAction}.
+ * The binding cancels the action when its result is no longer needed, e.g. because the client disconnected.
+ *
+ * @author agent
+ */
+public interface Cancellable {
+
+    /**
+     * Cancels the action, so that the {@link BindingResultCallback} is not called anymore.
+     *
+     * @return {@code true} if the action has been cancelled, {@code false} if the callback has already been called or
+     *   is about to be called.
+     */
+    boolean cancel();
+
+}
@@ -27,19 +27,23 @@ import iso.std.iso_iec._24727.tech.schema.ChannelHandleType;
 import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
 import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType.RecognitionInfo;
 import java.math.BigInteger;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentSkipListMap;
-import org.openecard.common.util.ByteComparator;
+import org.openecard.common.util.ByteArrayWrapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
+ * Registry of the card state entries of the SAL.
+ * Lookups are performed without locking on an immutable snapshot of the indexes. Modifications are serialized and
+ * publish a new snapshot, which is cheap as there are only a few entries at any time.
  *
  * @author Tobias Wich
  */
@@ -47,16 +51,20 @@ public class CardStateMap {
 
     private static final Logger LOG = LoggerFactory.getLogger(CardStateMap.class);
 
+    // primary indexes, only accessed while holding the lock of this instance
     private final TreeSet<CardStateEntry> allEntries = new TreeSet<>();
-    private final ConcurrentSkipListMap<String,Set<CardStateEntry>> sessionMap = new ConcurrentSkipListMap<>();
-    private final ConcurrentSkipListMap<byte[],Set<CardStateEntry>> contextMap = new ConcurrentSkipListMap<>(new ByteComparator());
-    private final ConcurrentSkipListMap<byte[],Set<CardStateEntry>> slothandleMap = new ConcurrentSkipListMap<>(new ByteComparator());
+    private final Map<String, Set<CardStateEntry>> sessionMap = new HashMap<>();
+    private final Map<ByteArrayWrapper, Set<CardStateEntry>> contextMap = new HashMap<>();
+    private final Map<ByteArrayWrapper, Set<CardStateEntry>> slothandleMap = new HashMap<>();
 
+    private volatile Snapshot snapshot = new Snapshot(allEntries, sessionMap, contextMap, slothandleMap);
+    private volatile long modCount = 0;
 
-    public synchronized CardStateEntry getEntry(ConnectionHandleType handle) {
+
+    public CardStateEntry getEntry(ConnectionHandleType handle) {
 	return getEntry(handle, true);
     }
-    public synchronized CardStateEntry getEntry(ConnectionHandleType handle, boolean filterAppId) {
+    public CardStateEntry getEntry(ConnectionHandleType handle, boolean filterAppId) {
 	Set<CardStateEntry> entry = getMatchingEntries(handle, filterAppId);
 	switch (entry.size()) {
 	    case 1:
@@ -78,9 +86,10 @@ public class CardStateMap {
 	if (channel != null) {
 	    addMapEntry(channel.getSessionIdentifier(), sessionMap, entry);
 	}
-	addMapEntry(handle.getContextHandle(), contextMap, entry);
-	addMapEntry(handle.getSlotHandle(), slothandleMap, entry);
+	addMapEntry(wrap(handle.getContextHandle()), contextMap, entry);
+	addMapEntry(wrap(handle.getSlotHandle()), slothandleMap, entry);
 	allEntries.add(entry);
+	publish();
     }
 
 
@@ -98,6 +107,7 @@ public class CardStateMap {
 	    CardStateEntry entry = it.next();
 	    removeEntry(entry, removeSlotHandles);
 	}
+	publish();
     }
 
     /**
@@ -114,9 +124,10 @@ public class CardStateMap {
 
 	if (it.hasNext()) {
 	    CardStateEntry entry = it.next();
-	    removeMapEntry(handle.getSlotHandle(), slothandleMap, entry);
+	    removeMapEntry(wrap(handle.getSlotHandle()), slothandleMap, entry);
 
 	    clearProtocolsForEntry(entry);
+	    publish();
 	}
     }
 
@@ -135,43 +146,68 @@ public class CardStateMap {
      * @param entry Entry to delete.
      * @param removeSlotHandles When set remove all occurrences of this entry in the slotHandle index.
      */
-    private synchronized void removeEntry(CardStateEntry entry, boolean removeSlotHandles) {
+    private void removeEntry(CardStateEntry entry, boolean removeSlotHandles) {
 	ConnectionHandleType handle = entry.handleCopy();
 	ChannelHandleType channel = handle.getChannelHandle();
 
 	if (channel != null) {
 	    removeMapEntry(channel.getSessionIdentifier(), sessionMap, entry);
 	}
-	removeMapEntry(handle.getContextHandle(), contextMap, entry);
+	removeMapEntry(wrap(handle.getContextHandle()), contextMap, entry);
 	// remove all or just the one a key is given for
 	if (removeSlotHandles) {
-	    Iterator<byte[]> it = slothandleMap.keySet().iterator();
+	    Iterator<Set<CardStateEntry>> it = slothandleMap.values().iterator();
 	    while (it.hasNext()) {
-		byte[] key = it.next();
-		removeMapEntry(key, slothandleMap, entry);
+		Set<CardStateEntry> entrySet = it.next();
+		entrySet.remove(entry);
+		if (entrySet.isEmpty()) {
+		    it.remove();
+		}
 	    }
 	} else {
-	    removeMapEntry(handle.getSlotHandle(), slothandleMap, entry);
+	    removeMapEntry(wrap(handle.getSlotHandle()), slothandleMap, entry);
 	}
 	allEntries.remove(entry);
     }
 
+    /**
+     * Makes the current state of the indexes visible to readers.
+     */
+    /**
+     * Gets a counter which is incremented on every modification of this map.
+     * Callers can compare the value with an earlier one to find out whether data derived from the entries is stale.
+     *
+     * @return The current modification count.
+     */
+    public long getModificationCount() {
+	return modCount;
+    }
 
-    private <K> void addMapEntry(K key, ConcurrentSkipListMap<K,Set<CardStateEntry>> map, CardStateEntry entry) {
+    private void publish() {
+	snapshot = new Snapshot(allEntries, sessionMap, contextMap, slothandleMap);
+	modCount++;
+    }
+
+
+    private static ByteArrayWrapper wrap(byte[] key) {
+	return key != null ? new ByteArrayWrapper(key.clone()) : null;
+    }
+
+    private static <K> void addMapEntry(K key, Map<K, Set<CardStateEntry>> map, CardStateEntry entry) {
 	if (key != null) {
-	    Set<CardStateEntry> entrySet = setFromMap(map, key);
-	    boolean empty = entrySet.isEmpty();
-	    entrySet.add(entry);
-	    if (empty) {
+	    Set<CardStateEntry> entrySet = map.get(key);
+	    if (entrySet == null) {
+		entrySet = new HashSet<>();
 		map.put(key, entrySet);
 	    }
+	    entrySet.add(entry);
 	}
     }
 
-    private <K> void removeMapEntry(K key, ConcurrentSkipListMap<K,Set<CardStateEntry>> map, CardStateEntry entry) {
+    private static <K> void removeMapEntry(K key, Map<K, Set<CardStateEntry>> map, CardStateEntry entry) {
 	if (key != null) {
-	    if (map.containsKey(key)) {
-		Set<CardStateEntry> entrySet = map.get(key);
+	    Set<CardStateEntry> entrySet = map.get(key);
+	    if (entrySet != null) {
 		entrySet.remove(entry);
 		if (entrySet.isEmpty()) {
 		    map.remove(key);
@@ -195,7 +231,7 @@ public class CardStateMap {
 	return getMatchingEntries(cHandle, null, null, filterAppId);
     }
 
-    private synchronized Set<CardStateEntry> getMatchingEntries(CardApplicationPathType cHandle, byte[] slotHandle,
+    private Set<CardStateEntry> getMatchingEntries(CardApplicationPathType cHandle, byte[] slotHandle,
 	    RecognitionInfo recInfo, boolean filterAppId) {
 	// extract values from map
 	ChannelHandleType channel = cHandle.getChannelHandle();
@@ -203,168 +239,133 @@ public class CardStateMap {
 	byte[] ctx = cHandle.getContextHandle();
 	String ifdname = cHandle.getIFDName();
 	BigInteger slotIdx = cHandle.getSlotIndex();
-	byte[] cardApplication = cHandle.getCardApplication();
-
-	// when nothing has been specified, return all elements
-	Set<CardStateEntry> mergedSets;
-	if (session == null && ctx == null && slotHandle == null) {
-	    mergedSets = new TreeSet<>(allEntries);
-	} else {
-	    // fetch applicable lists from maps
-	    Set<CardStateEntry> sessionEntries = setFromMap(sessionMap, session);
-	    Set<CardStateEntry> ctxEntries = setFromMap(contextMap, ctx);
-	    Set<CardStateEntry> slothandleEntries = setFromMap(slothandleMap, slotHandle);
-
-	    // merge entries
-	    ArrayList<Set<CardStateEntry>> setsToMerge = new ArrayList<>(3);
-	    if (session != null) {
-		setsToMerge.add(sessionEntries);
-	    }
-	    if (ctx != null) {
-		setsToMerge.add(ctxEntries);
-	    }
-	    if (slotHandle != null) {
-		setsToMerge.add(slothandleEntries);
-	    }
-
-	    mergedSets = mergeSets(setsToMerge);
-	}
+	byte[] cardApplication = filterAppId ? cHandle.getCardApplication() : null;
+	// [TR-03112-4] If no card application is specified, paths to all
+	// available cards (alpha-card applications) and unused card
+	// terminal slots are returned.
+	String cardType = (recInfo != null) ? recInfo.getCardType() : null;
 
-	// filter maps for slotIndex if any is given
-	if (slotIdx != null) {
-	    filterIdx(mergedSets, slotIdx);
-	}
-	if (ifdname != null) {
-	    filterIfdname(mergedSets, ifdname);
-	}
-
-	if (filterAppId && cardApplication != null) {
-	    filterCardApplication(mergedSets, cardApplication);
-	} else {
-	    // [TR-03112-4] If no card application is specified, paths to all
-	    // available cards (alpha-card applications) and unused card
-	    // terminal slots are returned.
-	}
-
-	if (recInfo != null && recInfo.getCardType() != null) {
-	    filterCardType(mergedSets, recInfo.getCardType());
-	}
-
-	return mergedSets;
+	return snapshot.find(session, ctx, slotHandle, ifdname, slotIdx, cardApplication, cardType);
     }
 
 
     /**
-     * Simplify returning a result from the map.<br>
-     * If key is null or no key is present, the empty list is returned.
-     *
-     * @param <K>
-     * @param map
-     * @param key
-     * @return
+     * Immutable view of the indexes.
+     * Besides the primary indexes, which reflect the handles the entries have been added with, secondary indexes for
+     * the IFD name, slot index and card type are maintained. The current card application of an entry may change at
+     * any time, so it is only evaluated for the candidates selected by the indexes.
      */
-    private static <K> Set<CardStateEntry> setFromMap(ConcurrentSkipListMap<K, Set<CardStateEntry>> map, K key) {
-	Set<CardStateEntry> result = null;
-	if (key != null) {
-	    result = map.get(key);
+    private static class Snapshot {
+
+	private final Set<CardStateEntry> all;
+	private final Map<String, Set<CardStateEntry>> bySession;
+	private final Map<ByteArrayWrapper, Set<CardStateEntry>> byContext;
+	private final Map<ByteArrayWrapper, Set<CardStateEntry>> bySlotHandle;
+	private final Map<String, Set<CardStateEntry>> byIfdName;
+	private final Map<BigInteger, Set<CardStateEntry>> bySlotIdx;
+	private final Map<String, Set<CardStateEntry>> byCardType;
+	// entries without IFD name or slot index match every requested value
+	private final Set<CardStateEntry> anyIfdName;
+	private final Set<CardStateEntry> anySlotIdx;
+
+	Snapshot(Set<CardStateEntry> allEntries, Map<String, Set<CardStateEntry>> sessionMap,
+		Map<ByteArrayWrapper, Set<CardStateEntry>> contextMap,
+		Map<ByteArrayWrapper, Set<CardStateEntry>> slothandleMap) {
+	    all = Collections.unmodifiableSet(new HashSet<>(allEntries));
+	    bySession = copy(sessionMap);
+	    byContext = copy(contextMap);
+	    bySlotHandle = copy(slothandleMap);
+
+	    HashMap<String, Set<CardStateEntry>> ifdNames = new HashMap<>();
+	    HashMap<BigInteger, Set<CardStateEntry>> slotIdxs = new HashMap<>();
+	    HashMap<String, Set<CardStateEntry>> cardTypes = new HashMap<>();
+	    HashSet<CardStateEntry> noIfdName = new HashSet<>();
+	    HashSet<CardStateEntry> noSlotIdx = new HashSet<>();
+	    for (CardStateEntry next : allEntries) {
+		ConnectionHandleType handle = next.handleCopy();
+		if (handle.getIFDName() != null) {
+		    addMapEntry(handle.getIFDName(), ifdNames, next);
+		} else {
+		    noIfdName.add(next);
+		}
+		if (handle.getSlotIndex() != null) {
+		    addMapEntry(handle.getSlotIndex(), slotIdxs, next);
+		} else {
+		    noSlotIdx.add(next);
+		}
+		addMapEntry(next.getCardType(), cardTypes, next);
+	    }
+	    byIfdName = ifdNames;
+	    bySlotIdx = slotIdxs;
+	    byCardType = cardTypes;
+	    anyIfdName = noIfdName;
+	    anySlotIdx = noSlotIdx;
 	}
 
-	return (result != null) ? result : new TreeSet<CardStateEntry>();
-    }
-
-    /**
-     * Remove non matching entries (slotIndex) from given list.
-     *
-     * @param entries
-     * @param idx
-     */
-    private static void filterIdx(Set<CardStateEntry> entries, BigInteger idx) {
-	Iterator<CardStateEntry> it = entries.iterator();
-	while (it.hasNext()) {
-	    CardStateEntry next = it.next();
-	    // other index is not equal to this one
-	    if (next.hasSlotIdx() && ! next.matchSlotIdx(idx)) {
-		it.remove();
+	private static <K> Map<K, Set<CardStateEntry>> copy(Map<K, Set<CardStateEntry>> map) {
+	    HashMap<K, Set<CardStateEntry>> result = new HashMap<>();
+	    for (Map.Entry<K, Set<CardStateEntry>> next : map.entrySet()) {
+		result.put(next.getKey(), new HashSet<>(next.getValue()));
 	    }
+	    return result;
 	}
-    }
 
-    /**
-     * Remove non matching entries (cardApplication) from given list.
-     *
-     * @param entries
-     * @param cardApplication
-     */
-    private static void filterCardApplication(Set<CardStateEntry> entries, byte[] cardApplication) {
-	Iterator<CardStateEntry> it = entries.iterator();
-	while (it.hasNext()) {
-	    CardStateEntry next = it.next();
-	    if (! Arrays.equals(next.getCurrentCardApplication().getApplicationIdentifier(), cardApplication)) {
-		it.remove();
-	    }
+	private static <K> Set<CardStateEntry> get(Map<K, Set<CardStateEntry>> map, K key) {
+	    Set<CardStateEntry> result = map.get(key);
+	    return result != null ? result : Collections.<CardStateEntry>emptySet();
 	}
-    }
 
-    /**
-     * Remove non matching entries (ifdName) from given list.
-     *
-     * @param entries
-     * @param ifdname
-     */
-    private static void filterIfdname(Set<CardStateEntry> entries, String ifdName) {
-	Iterator<CardStateEntry> it = entries.iterator();
-	while (it.hasNext()) {
-	    CardStateEntry next = it.next();
-	    String otherName = next.getIfdName();
-	    // other ifdName is not equal to this one
-	    if (otherName != null && ! otherName.equals(ifdName)) {
-		it.remove();
+	Set<CardStateEntry> find(String session, byte[] ctx, byte[] slotHandle, String ifdName, BigInteger slotIdx,
+		byte[] cardApplication, String cardType) {
+	    // select the smallest candidate set of the given criteria
+	    Set<CardStateEntry> sessionEntries = session != null ? get(bySession, session) : null;
+	    Set<CardStateEntry> ctxEntries = ctx != null ? get(byContext, new ByteArrayWrapper(ctx)) : null;
+	    Set<CardStateEntry> slotHandleEntries = slotHandle != null ? get(bySlotHandle, new ByteArrayWrapper(slotHandle)) : null;
+	    Set<CardStateEntry> cardTypeEntries = cardType != null ? get(byCardType, cardType) : null;
+	    Set<CardStateEntry> ifdNameEntries = ifdName != null ? get(byIfdName, ifdName) : null;
+	    Set<CardStateEntry> slotIdxEntries = slotIdx != null ? get(bySlotIdx, slotIdx) : null;
+
+	    Set<CardStateEntry> candidates = all;
+	    candidates = smaller(candidates, sessionEntries);
+	    candidates = smaller(candidates, ctxEntries);
+	    candidates = smaller(candidates, slotHandleEntries);
+	    candidates = smaller(candidates, cardTypeEntries);
+	    if (anyIfdName.isEmpty()) {
+		candidates = smaller(candidates, ifdNameEntries);
+	    }
+	    if (anySlotIdx.isEmpty()) {
+		candidates = smaller(candidates, slotIdxEntries);
 	    }
-	}
-    }
 
-    /**
-     * Remove non matching entries (cardType) from given list.
-     *
-     * @param entries
-     * @param cardType
-     */
-    private static void filterCardType(Set<CardStateEntry> entries, String cardType) {
-	Iterator<CardStateEntry> it = entries.iterator();
-	while (it.hasNext()) {
-	    CardStateEntry next = it.next();
-	    String otherType = next.getCardType();
-	    // other ifdName is not equal to this one
-	    if (! otherType.equals(cardType)) {
-		it.remove();
+	    TreeSet<CardStateEntry> result = new TreeSet<>();
+	    for (CardStateEntry next : candidates) {
+		if (contains(sessionEntries, next) && contains(ctxEntries, next) && contains(slotHandleEntries, next)
+			&& contains(cardTypeEntries, next)
+			&& (contains(ifdNameEntries, next) || anyIfdName.contains(next))
+			&& (contains(slotIdxEntries, next) || anySlotIdx.contains(next))
+			&& matchCardApplication(next, cardApplication)) {
+		    result.add(next);
+		}
 	    }
+	    return result;
 	}
-    }
 
+	private static Set<CardStateEntry> smaller(Set<CardStateEntry> current, Set<CardStateEntry> other) {
+	    return other != null && other.size() < current.size() ? other : current;
+	}
 
-    private static Set<CardStateEntry> mergeSets(ArrayList<Set<CardStateEntry>> setsToMerge) {
-	TreeSet<CardStateEntry> result = new TreeSet<>();
+	private static boolean contains(Set<CardStateEntry> entries, CardStateEntry entry) {
+	    // no criterion given
+	    return entries == null || entries.contains(entry);
+	}
 
-	if (setsToMerge.isEmpty()) {
-	    return Collections.emptySet();
-	} else {
-	    // add first then try to merge the others
-	    result.addAll(setsToMerge.get(0));
-	    if (setsToMerge.size() >= 2) {
-		for (Set<CardStateEntry> nextSet : setsToMerge.subList(1, setsToMerge.size())) {
-		    Iterator<CardStateEntry> it = result.iterator();
-		    while (it.hasNext()) {
-			CardStateEntry nextEntry = it.next();
-			// remove entry from results if it is not present in the next set
-			if (! nextSet.contains(nextEntry)) {
-			    it.remove();
-			}
-		    }
-		}
+	private static boolean matchCardApplication(CardStateEntry entry, byte[] cardApplication) {
+	    if (cardApplication == null) {
+		return true;
 	    }
-	    // done
-	    return result;
+	    return Arrays.equals(entry.getCurrentCardApplication().getApplicationIdentifier(), cardApplication);
 	}
+
     }
 
 }
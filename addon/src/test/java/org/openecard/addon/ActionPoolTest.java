@@ -0,0 +1,132 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.addon;
+
+import org.openecard.addon.bind.AppExtensionAction;
+import org.openecard.addon.bind.AppPluginAction;
+import org.openecard.addon.bind.AppPluginActionProxy;
+import org.openecard.addon.manifest.AddonSpecification;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ *
+ * @author agent
+ */
+public class ActionPoolTest {
+
+    private static AddonSpecification spec(String id) {
+	AddonSpecification spec = new AddonSpecification();
+	spec.setId(id);
+	spec.setVersion("1.0.0");
+	return spec;
+    }
+
+    private static class TestAction extends AppPluginActionProxy {
+	private int destroyed = 0;
+
+	TestAction() {
+	    super(null, null);
+	}
+
+	@Override
+	public void destroy() {
+	    destroyed++;
+	}
+    }
+
+    @Test
+    public void testBorrowAndReturn() {
+	ActionPool pool = new ActionPool(1, 2);
+	AddonSpecification spec = spec("addon");
+	assertNull(pool.borrow(spec, AppPluginAction.class, "res"));
+
+	TestAction a1 = new TestAction();
+	pool.add(spec, AppPluginAction.class, "res", a1);
+	pool.release(a1);
+	assertEquals(a1.destroyed, 0);
+
+	// same action is handed out again, but not for a different id or type
+	assertNull(pool.borrow(spec, AppPluginAction.class, "other"));
+	assertNull(pool.borrow(spec, AppExtensionAction.class, "res"));
+	assertSame(pool.borrow(spec, AppPluginAction.class, "res"), a1);
+	assertNull(pool.borrow(spec, AppPluginAction.class, "res"));
+
+	ActionPoolStatistics stats = pool.getStatistics();
+	assertEquals(stats.getCreated(), 1);
+	assertEquals(stats.getReused(), 1);
+	assertEquals(stats.getBorrowed(), 1);
+	assertEquals(stats.getIdle(), 0);
+    }
+
+    @Test
+    public void testMaxIdle() {
+	ActionPool pool = new ActionPool(1, 2);
+	AddonSpecification spec = spec("addon");
+	TestAction[] actions = new TestAction[3];
+	for (int i = 0; i < actions.length; i++) {
+	    actions[i] = new TestAction();
+	    pool.add(spec, AppPluginAction.class, "res", actions[i]);
+	}
+	for (TestAction a : actions) {
+	    pool.release(a);
+	}
+
+	assertEquals(actions[0].destroyed, 0);
+	assertEquals(actions[1].destroyed, 0);
+	assertEquals(actions[2].destroyed, 1);
+	assertEquals(pool.getStatistics().getIdle(), 2);
+	assertEquals(pool.getStatistics().getDestroyed(), 1);
+    }
+
+    @Test
+    public void testUnknownInstance() {
+	ActionPool pool = new ActionPool(1, 2);
+	TestAction a = new TestAction();
+	pool.release(a);
+	assertEquals(a.destroyed, 1);
+    }
+
+    @Test
+    public void testRemove() {
+	ActionPool pool = new ActionPool(1, 2);
+	AddonSpecification spec = spec("addon");
+	TestAction idle = new TestAction();
+	TestAction used = new TestAction();
+	pool.add(spec, AppPluginAction.class, "res", idle);
+	pool.add(spec, AppPluginAction.class, "res", used);
+	pool.release(idle);
+
+	pool.remove(spec);
+	assertEquals(idle.destroyed, 1);
+	assertEquals(used.destroyed, 0);
+
+	// instances of the unloaded add-on must not be pooled again
+	pool.add(spec("addon"), AppPluginAction.class, "res", new TestAction());
+	pool.release(used);
+	assertEquals(used.destroyed, 1);
+	assertNull(pool.borrow(spec, AppPluginAction.class, "res"));
+    }
+
+}
@@ -0,0 +1,227 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.addon;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.openecard.common.event.EventDispatcherImpl;
+import org.openecard.common.event.EventObject;
+import org.openecard.common.event.EventType;
+import org.openecard.ws.schema.StatusChange;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ *
+ * @author agent
+ */
+public class EventHandlerTest {
+
+    private static void signal(EventHandler handler, EventType type) {
+	handler.signalEvent(type, new EventObject(null) { });
+    }
+
+    private static class CollectingListener implements EventHandler.StatusChangeListener {
+	private final List<StatusChange> changes = new ArrayList<>();
+	private int calls = 0;
+
+	@Override
+	public void statusChanged(StatusChange change) {
+	    calls++;
+	    changes.add(change);
+	}
+    }
+
+    @Test
+    public void testSharedEvents() {
+	EventHandler handler = new EventHandler();
+	handler.addQueue("a");
+	handler.addQueue("b");
+	signal(handler, EventType.CARD_INSERTED);
+	signal(handler, EventType.CARD_REMOVED);
+
+	StatusChange a1 = handler.next("a");
+	assertEquals(a1.getAction(), EventType.CARD_INSERTED.getEventTypeIdentifier());
+	assertEquals(handler.next("a").getAction(), EventType.CARD_REMOVED.getEventTypeIdentifier());
+	// both sessions see the same event instance
+	assertSame(handler.next("b"), a1);
+
+	EventHandlerStatistics stats = handler.getStatistics();
+	assertEquals(stats.getSessions(), 2);
+	assertEquals(stats.getEvents(), 2);
+	assertEquals(stats.getMaxLag(), 1);
+    }
+
+    @Test
+    public void testNewSessionOnlySeesLaterEvents() {
+	EventHandler handler = new EventHandler();
+	handler.addQueue("a");
+	signal(handler, EventType.CARD_INSERTED);
+	handler.addQueue("b");
+
+	CollectingListener l = new CollectingListener();
+	handler.next("b", l);
+	assertEquals(l.calls, 0);
+	signal(handler, EventType.CARD_REMOVED);
+	assertEquals(l.calls, 1);
+	assertEquals(l.changes.get(0).getAction(), EventType.CARD_REMOVED.getEventTypeIdentifier());
+    }
+
+    @Test
+    public void testUnknownSession() {
+	EventHandler handler = new EventHandler();
+	assertNull(handler.next("unknown"));
+
+	CollectingListener l = new CollectingListener();
+	handler.next("unknown", l);
+	assertEquals(l.calls, 1);
+	assertNull(l.changes.get(0));
+    }
+
+    @Test
+    public void testLaggingSessionDropsOldestEvents() {
+	EventHandler handler = new EventHandler(4, 16, 60000, 10000);
+	handler.addQueue("a");
+	signal(handler, EventType.TERMINAL_ADDED);
+	signal(handler, EventType.TERMINAL_ADDED);
+	for (int i = 0; i < 4; i++) {
+	    signal(handler, EventType.CARD_INSERTED);
+	}
+	assertEquals(handler.getStatistics().getMaxLag(), 6);
+
+	for (int i = 0; i < 4; i++) {
+	    assertEquals(handler.next("a").getAction(), EventType.CARD_INSERTED.getEventTypeIdentifier());
+	}
+	EventHandlerStatistics stats = handler.getStatistics();
+	assertEquals(stats.getDroppedEvents(), 2);
+	assertEquals(stats.getMaxLag(), 0);
+    }
+
+    @Test
+    public void testBlockingNext() throws InterruptedException {
+	final EventHandler handler = new EventHandler();
+	handler.addQueue("a");
+	final StatusChange[] result = new StatusChange[1];
+	Thread t = new Thread(new Runnable() {
+	    @Override
+	    public void run() {
+		result[0] = handler.next("a");
+	    }
+	});
+	t.start();
+	while (handler.getStatistics().getWaitingSessions() == 0) {
+	    Thread.sleep(1);
+	}
+	signal(handler, EventType.CARD_RECOGNIZED);
+	t.join(5000);
+	assertNotNull(result[0]);
+	assertEquals(result[0].getAction(), EventType.CARD_RECOGNIZED.getEventTypeIdentifier());
+    }
+
+    @Test
+    public void testCancel() {
+	EventHandler handler = new EventHandler();
+	handler.addQueue("a");
+	CollectingListener l1 = new CollectingListener();
+	CollectingListener l2 = new CollectingListener();
+	handler.next("a", l1);
+	handler.next("a", l2);
+	assertTrue(handler.cancel("a", l1));
+	assertFalse(handler.cancel("a", l1));
+	assertFalse(handler.cancel("unknown", l1));
+	assertEquals(handler.getStatistics().getWaitingSessions(), 1);
+
+	// the remaining listener receives the event, the cancelled one is not called
+	signal(handler, EventType.CARD_INSERTED);
+	assertEquals(l1.calls, 0);
+	assertEquals(l2.calls, 1);
+	assertFalse(handler.cancel("a", l2));
+
+	// the session is still usable
+	CollectingListener l3 = new CollectingListener();
+	handler.next("a", l3);
+	assertEquals(l3.calls, 0);
+	assertTrue(handler.cancel("a", l3));
+	assertEquals(handler.getStatistics().getWaitingSessions(), 0);
+    }
+
+    @Test
+    public void testSessionLimit() {
+	EventHandler handler = new EventHandler(4, 2, 60000, 10000);
+	handler.addQueue("a");
+	handler.addQueue("b");
+	// session a is in use and must not be evicted
+	handler.next("a", new CollectingListener());
+	handler.addQueue("c");
+
+	EventHandlerStatistics stats = handler.getStatistics();
+	assertEquals(stats.getSessions(), 2);
+	assertEquals(stats.getEvictedSessions(), 1);
+	assertNull(handler.next("b"));
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+	EventHandler handler = new EventHandler(4, 16, 50, 10);
+	handler.addQueue("a");
+	handler.addQueue("b");
+	CollectingListener l = new CollectingListener();
+	handler.next("b", l);
+
+	long end = System.currentTimeMillis() + 5000;
+	while (handler.getStatistics().getExpiredSessions() == 0 && System.currentTimeMillis() < end) {
+	    Thread.sleep(10);
+	}
+	Thread.sleep(100);
+	EventHandlerStatistics stats = handler.getStatistics();
+	assertEquals(stats.getExpiredSessions(), 1);
+	// the session with the parked listener is kept
+	assertEquals(stats.getSessions(), 1);
+	signal(handler, EventType.CARD_INSERTED);
+	assertEquals(l.calls, 1);
+    }
+
+    @Test
+    public void testOnDemandSubscription() throws InterruptedException {
+	EventHandler handler = new EventHandler(4, 16, 50, 10);
+	EventDispatcherImpl disp = new EventDispatcherImpl();
+	handler.register(disp, new EventType[] { EventType.CARD_INSERTED }, EventType.API_CALL_STARTED);
+	assertTrue(disp.hasSubscribers(EventType.CARD_INSERTED));
+	// no status client, so API call events need not be created
+	assertFalse(disp.hasSubscribers(EventType.API_CALL_STARTED));
+
+	handler.addQueue("a");
+	assertTrue(disp.hasSubscribers(EventType.API_CALL_STARTED));
+
+	// the subscription ends with the last session
+	long end = System.currentTimeMillis() + 5000;
+	while (disp.hasSubscribers(EventType.API_CALL_STARTED) && System.currentTimeMillis() < end) {
+	    Thread.sleep(10);
+	}
+	assertFalse(disp.hasSubscribers(EventType.API_CALL_STARTED));
+	assertTrue(disp.hasSubscribers(EventType.CARD_INSERTED));
+	assertEquals(handler.getStatistics().getExpiredSessions(), 1);
+    }
+
+}
@@ -0,0 +1,153 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.sal.state;
+
+import iso.std.iso_iec._24727.tech.schema.ApplicationCapabilitiesType;
+import iso.std.iso_iec._24727.tech.schema.CardApplicationPathType;
+import iso.std.iso_iec._24727.tech.schema.CardApplicationType;
+import iso.std.iso_iec._24727.tech.schema.CardInfoType;
+import iso.std.iso_iec._24727.tech.schema.CardTypeType;
+import iso.std.iso_iec._24727.tech.schema.ChannelHandleType;
+import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
+import java.math.BigInteger;
+import java.util.Set;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the lookup of entries in the CardStateMap.
+ *
+ * @author agent
+ */
+public class CardStateMapTest {
+
+    private static final byte[] CTX = { 1, 2, 3, 4 };
+    private static final byte[] ROOT_APP = { 0x3F, 0x00 };
+    private static final byte[] OTHER_APP = { 0x0A, 0x0B };
+
+    @Test
+    public void testLookup() {
+	CardStateMap states = new CardStateMap();
+	CardStateEntry e1 = entry("Reader 1", 0, new byte[] { 1 }, "session", "http://card/a");
+	CardStateEntry e2 = entry("Reader 2", 0, new byte[] { 2 }, null, "http://card/b");
+	CardStateEntry e3 = entry("Reader 2", 1, new byte[] { 3 }, null, "http://card/a");
+	states.addEntry(e1);
+	states.addEntry(e2);
+	states.addEntry(e3);
+
+	// everything
+	assertEquals(states.getMatchingEntries(new ConnectionHandleType()).size(), 3);
+	// primary indexes
+	ConnectionHandleType h = new ConnectionHandleType();
+	h.setSlotHandle(new byte[] { 2 });
+	assertSame(states.getEntry(h), e2);
+	h = new ConnectionHandleType();
+	h.setContextHandle(CTX.clone());
+	assertEquals(states.getMatchingEntries(h).size(), 3);
+	h.setChannelHandle(new ChannelHandleType());
+	h.getChannelHandle().setSessionIdentifier("session");
+	assertSame(states.getEntry(h), e1);
+	// secondary indexes
+	CardApplicationPathType p = new CardApplicationPathType();
+	p.setIFDName("Reader 2");
+	assertEquals(states.getMatchingEntries(p).size(), 2);
+	p.setSlotIndex(BigInteger.ONE);
+	assertEquals(states.getMatchingEntries(p).iterator().next(), e3);
+	h = new ConnectionHandleType();
+	h.setRecognitionInfo(new ConnectionHandleType.RecognitionInfo());
+	h.getRecognitionInfo().setCardType("http://card/a");
+	Set<CardStateEntry> matches = states.getMatchingEntries(h);
+	assertEquals(matches.size(), 2);
+	assertTrue(matches.contains(e1) && matches.contains(e3));
+	h.setIFDName("Unknown");
+	assertTrue(states.getMatchingEntries(h).isEmpty());
+    }
+
+    @Test
+    public void testCardApplicationChange() {
+	CardStateMap states = new CardStateMap();
+	CardStateEntry e1 = entry("Reader 1", 0, new byte[] { 1 }, null, "http://card/a");
+	states.addEntry(e1);
+
+	CardApplicationPathType p = new CardApplicationPathType();
+	p.setCardApplication(OTHER_APP);
+	assertTrue(states.getMatchingEntries(p).isEmpty());
+	assertEquals(states.getMatchingEntries(p, false).size(), 1);
+	// selecting another application is visible without updating the map
+	e1.setCurrentCardApplication(OTHER_APP);
+	assertEquals(states.getMatchingEntries(p).size(), 1);
+    }
+
+    @Test
+    public void testRemove() {
+	CardStateMap states = new CardStateMap();
+	CardStateEntry e1 = entry("Reader 1", 0, new byte[] { 1 }, null, "http://card/a");
+	CardStateEntry e2 = entry("Reader 2", 0, new byte[] { 2 }, null, "http://card/a");
+	states.addEntry(e1);
+	states.addEntry(e2);
+
+	// removing the slot handle keeps the entry
+	states.removeSlotHandleEntry(new byte[] { 1 });
+	ConnectionHandleType h = new ConnectionHandleType();
+	h.setSlotHandle(new byte[] { 1 });
+	assertTrue(states.getMatchingEntries(h).isEmpty());
+	assertEquals(states.getMatchingEntries(new ConnectionHandleType()).size(), 2);
+
+	h = new ConnectionHandleType();
+	h.setIFDName("Reader 2");
+	states.removeEntry(h);
+	Set<CardStateEntry> rest = states.getMatchingEntries(new ConnectionHandleType());
+	assertEquals(rest.size(), 1);
+	assertSame(rest.iterator().next(), e1);
+    }
+
+    private static CardStateEntry entry(String ifdName, int slotIdx, byte[] slotHandle, String session,
+	    String cardType) {
+	ConnectionHandleType handle = new ConnectionHandleType();
+	handle.setContextHandle(CTX.clone());
+	handle.setIFDName(ifdName);
+	handle.setSlotIndex(BigInteger.valueOf(slotIdx));
+	handle.setSlotHandle(slotHandle);
+	if (session != null) {
+	    handle.setChannelHandle(new ChannelHandleType());
+	    handle.getChannelHandle().setSessionIdentifier(session);
+	}
+	return new CardStateEntry(handle, cif(cardType), null);
+    }
+
+    private static CardInfoType cif(String cardType) {
+	CardInfoType cif = new CardInfoType();
+	cif.setCardType(new CardTypeType());
+	cif.getCardType().setObjectIdentifier(cardType);
+	cif.setApplicationCapabilities(new ApplicationCapabilitiesType());
+	cif.getApplicationCapabilities().setImplicitlySelectedApplication(ROOT_APP);
+	for (byte[] aid : new byte[][] { ROOT_APP, OTHER_APP }) {
+	    CardApplicationType app = new CardApplicationType();
+	    app.setApplicationIdentifier(aid);
+	    cif.getApplicationCapabilities().getCardApplication().add(app);
+	}
+	return cif;
+    }
+
+}
@@ -24,12 +24,9 @@ package org.openecard.addons.cg.activate;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
-import java.security.cert.CertPath;
 import java.security.cert.CertPathValidatorException;
-import java.security.cert.PKIXCertPathValidatorResult;
 import java.security.cert.PKIXParameters;
 import java.security.cert.PKIXRevocationChecker;
-import java.security.cert.TrustAnchor;
 import java.security.cert.X509Certificate;
 import java.util.HashSet;
 import java.util.Set;
@@ -39,6 +36,7 @@ import org.openecard.addons.cg.impl.ChipGatewayProperties;
 import org.openecard.bouncycastle.tls.TlsServerCertificate;
 import org.openecard.crypto.tls.CertificateVerificationException;
 import org.openecard.crypto.tls.verify.JavaSecVerifier;
+import org.openecard.crypto.tls.verify.TrustStoreLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,35 +54,35 @@ public class CGJavaSecVerifier extends JavaSecVerifier {
     }
 
     @Override
-    protected Set<TrustAnchor> getTrustStore() {
-	return new CGTrustStoreLoader().getTrustAnchors();
+    protected TrustStoreLoader getTrustStoreLoader() {
+	return new CGTrustStoreLoader();
     }
 
     @Override
-    public void isValid(TlsServerCertificate chain, String hostname) throws CertificateVerificationException {
-	try {
-	    CertPath certPath = convertChain(chain);
-
-	    // create the parameters for the validator
-	    PKIXParameters params = new PKIXParameters(getTrustStore());
-	    params.setRevocationEnabled(false);
+    protected PKIXParameters createParameters(TrustStoreLoader loader) throws GeneralSecurityException {
+	PKIXParameters params = loader.getTrustParameters();
+	params.setRevocationEnabled(false);
 
-	    if (checkRevocation) {
-		PKIXRevocationChecker revChecker = (PKIXRevocationChecker) certPathValidator.getRevocationChecker();
-		Set<PKIXRevocationChecker.Option> revOpts = new HashSet<>();
-		//revOpts.add(PKIXRevocationChecker.Option.ONLY_END_ENTITY);
-		revChecker.setOptions(revOpts);
-		// TODO: add OCSP responses
-		//revChecker.setOcspResponses(responses);
-		params.setCertPathCheckers(null);
-		params.addCertPathChecker(revChecker);
-	    }
+	if (checkRevocation) {
+	    PKIXRevocationChecker revChecker = (PKIXRevocationChecker) certPathValidator.getRevocationChecker();
+	    Set<PKIXRevocationChecker.Option> revOpts = new HashSet<>();
+	    //revOpts.add(PKIXRevocationChecker.Option.ONLY_END_ENTITY);
+	    revChecker.setOptions(revOpts);
+	    // TODO: add OCSP responses
+	    //revChecker.setOcspResponses(responses);
+	    params.setCertPathCheckers(null);
+	    params.addCertPathChecker(revChecker);
+	}
+	return params;
+    }
 
-	    // validate - exception marks failure
-	    PKIXCertPathValidatorResult r = (PKIXCertPathValidatorResult) certPathValidator.validate(certPath, params);
+    @Override
+    public void isValid(TlsServerCertificate chain, String hostname) throws CertificateVerificationException {
+	try {
+	    validate(chain, hostname);
 
 	    if (ChipGatewayProperties.isUseApiEndpointWhitelist()) {
-		X509Certificate cert = (X509Certificate) certPath.getCertificates().get(0);
+		X509Certificate cert = (X509Certificate) convertCertificate(chain.getCertificate().getCertificateAt(0));
 		X500Principal subj = cert.getSubjectX500Principal();
 		if (! AllowedApiEndpoints.instance().isInSubjects(subj)) {
 		    String msg = "The certificate used in the signature has an invalid subject: " + subj.getName();
@@ -54,6 +54,9 @@ public class StatusAction implements AppPluginAction {
 
     @Override
     public void destroy() {
+	if (statusHandler != null) {
+	    statusHandler.destroy();
+	}
 	statusHandler = null;
     }
 
@@ -61,7 +64,7 @@ public class StatusAction implements AppPluginAction {
     public BindingResult execute(RequestBody body, Map<String, String> parameters, Headers headers, List<Attachment> attachments) {
 	BindingResult response;
 	try {
-	    StatusRequest statusRequest = StatusRequest.convert(parameters);
+	    StatusRequest statusRequest = StatusRequest.convert(parameters, headers);
 	    response = statusHandler.handleRequest(statusRequest);
 	} catch (Exception e) {
 	    response = new BindingResult(BindingResultCode.INTERNAL_ERROR);
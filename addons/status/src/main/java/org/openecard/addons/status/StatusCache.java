@@ -0,0 +1,373 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.addons.status;
+
+import iso.std.iso_iec._24727.tech.schema.CardApplicationType;
+import iso.std.iso_iec._24727.tech.schema.CardInfoType;
+import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
+import iso.std.iso_iec._24727.tech.schema.DIDInfoType;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.xml.transform.TransformerException;
+import org.openecard.addon.Context;
+import org.openecard.addon.EventHandler;
+import org.openecard.common.AppVersion;
+import org.openecard.common.ECardConstants;
+import org.openecard.common.event.EventObject;
+import org.openecard.common.event.EventType;
+import org.openecard.common.interfaces.CardRecognition;
+import org.openecard.common.interfaces.EventCallback;
+import org.openecard.common.interfaces.EventDispatcher;
+import org.openecard.common.sal.state.CardStateEntry;
+import org.openecard.common.sal.state.CardStateMap;
+import org.openecard.ws.marshal.WSMarshallerException;
+import org.openecard.ws.schema.Status;
+import org.openecard.ws.schema.StatusChange;
+import org.openecard.ws.schema.StatusDelta;
+import org.openecard.ws.schema.StatusType;
+
+
+/**
+ * Versioned cache of the status message.
+ * The cache is shared by all status actions of an add-on manager. Its version changes when IFD events are received or
+ * the card states are modified. The connection handles are only collected and the message is only marshalled once
+ * per version, while the remaining parts of the message are kept until the supported protocols change. The last
+ * changes are retained, so that clients knowing an older version can be answered with a delta.
+ *
+ * @author agent
+ */
+final class StatusCache implements EventCallback {
+
+    // number of changes retained for delta responses
+    private static final int MAX_CHANGES = 64;
+    private static final Map<EventHandler, StatusCache> INSTANCES = new WeakHashMap<>();
+
+    private final CardStateMap cardStates;
+    // distinguishes versions of different instances, e.g. after a restart of the app
+    private final String instanceId;
+    private final ArrayDeque<Change> changes;
+
+    private List<String> protocols;
+    private List<StatusType.SupportedCards> supportedCards;
+    private long version;
+    // oldest version from which a delta can be computed
+    private long deltaBase;
+    private boolean dirty;
+    private long cardStatesCount;
+    private Snapshot current;
+    private StatusResponseBody marshallingBody;
+    // number of status handlers using this cache, guarded by INSTANCES
+    private int users;
+
+    StatusCache(@Nonnull CardStateMap cardStates) {
+	this.cardStates = cardStates;
+	this.instanceId = Long.toString(System.currentTimeMillis(), 36);
+	this.changes = new ArrayDeque<>(MAX_CHANGES);
+	this.protocols = Collections.emptyList();
+	this.supportedCards = Collections.emptyList();
+	this.dirty = true;
+    }
+
+    /**
+     * Gets the cache belonging to the add-on manager of the given context.
+     * The cache is created and registered for IFD events on first use. Each call must be paired with a call to
+     * {@link #release(Context)}.
+     *
+     * @param ctx Context of the status action.
+     * @return The shared cache instance.
+     */
+    static StatusCache getInstance(@Nonnull Context ctx) {
+	return getInstance(ctx.getEventHandler(), ctx.getEventDispatcher(), ctx.getCardStates());
+    }
+
+    static StatusCache getInstance(@Nonnull EventHandler handler, @Nonnull EventDispatcher dispatcher,
+	    @Nonnull CardStateMap cardStates) {
+	synchronized (INSTANCES) {
+	    StatusCache cache = INSTANCES.get(handler);
+	    if (cache == null) {
+		cache = new StatusCache(cardStates);
+		dispatcher.add(cache,
+			EventType.TERMINAL_ADDED, EventType.TERMINAL_REMOVED,
+			EventType.CARD_INSERTED, EventType.CARD_RECOGNIZED, EventType.CARD_REMOVED);
+		INSTANCES.put(handler, cache);
+	    }
+	    cache.users++;
+	    return cache;
+	}
+    }
+
+    /**
+     * Releases the cache obtained by {@link #getInstance(Context)}.
+     * When the last user of the cache releases it, the cache is removed from the event dispatcher.
+     *
+     * @param ctx Context of the status action.
+     */
+    static void release(@Nonnull Context ctx) {
+	release(ctx.getEventHandler(), ctx.getEventDispatcher());
+    }
+
+    static void release(@Nonnull EventHandler handler, @Nonnull EventDispatcher dispatcher) {
+	synchronized (INSTANCES) {
+	    StatusCache cache = INSTANCES.get(handler);
+	    if (cache != null && --cache.users == 0) {
+		INSTANCES.remove(handler);
+		dispatcher.del(cache);
+	    }
+	}
+    }
+
+    /**
+     * Sets the protocols supported by the installed add-ons.
+     * The list of supported cards is only recomputed and a new version is only created if the protocols changed.
+     * Clients must fetch the full message after such a change.
+     *
+     * @param protocols Sorted list of supported protocol URIs.
+     * @param rec Recognition used to determine the supported cards.
+     */
+    synchronized void updateProtocols(@Nonnull List<String> protocols, @Nonnull CardRecognition rec) {
+	if (! protocols.equals(this.protocols)) {
+	    this.protocols = protocols;
+	    this.supportedCards = getSupportedCards(protocols, rec.getCardInfos());
+	    version++;
+	    deltaBase = version;
+	    changes.clear();
+	    dirty = true;
+	}
+    }
+
+    @Override
+    public synchronized void signalEvent(EventType eventType, EventObject eventData) {
+	StatusChange change = new StatusChange();
+	change.setAction(eventType.getEventTypeIdentifier());
+	change.setConnectionHandle(eventData.getHandle());
+
+	version++;
+	changes.addLast(new Change(version, change));
+	if (changes.size() > MAX_CHANGES) {
+	    // the versions before the removed change can not be answered with a delta anymore
+	    deltaBase = changes.removeFirst().version;
+	}
+	dirty = true;
+    }
+
+    /**
+     * Gets the current version of the status message.
+     * The message is only rebuilt if an event was received or the card states changed since the last call.
+     *
+     * @return The current snapshot.
+     * @throws WSMarshallerException Thrown in case the marshaller could not be created or failed.
+     * @throws TransformerException Thrown in case the message could not be serialized.
+     */
+    @Nonnull
+    synchronized Snapshot getCurrent() throws WSMarshallerException, TransformerException {
+	long count = cardStates.getModificationCount();
+	if (current == null || dirty || count != cardStatesCount) {
+	    if (current != null && ! dirty) {
+		// the card states changed without an event, the content differs nevertheless
+		// there is no change describing the difference, so clients must fetch the full message
+		version++;
+		deltaBase = version;
+		changes.clear();
+	    }
+	    dirty = false;
+	    cardStatesCount = count;
+
+	    if (marshallingBody == null) {
+		marshallingBody = new StatusResponseBody();
+	    }
+	    marshallingBody.setJAXBObjectValue(buildStatus(), "text/xml");
+	    current = new Snapshot(version, getTag(version), marshallingBody.getValue());
+	}
+	return current;
+    }
+
+    /**
+     * Gets the changes which happened after the given version.
+     *
+     * @param baseTag Tag of the version known to the client.
+     * @return The delta, or {@code null} if no delta can be given for the version and the full message must be sent.
+     * @throws WSMarshallerException Thrown in case the marshaller could not be created or failed.
+     * @throws TransformerException Thrown in case the message could not be serialized.
+     */
+    @Nullable
+    synchronized StatusDelta getDelta(@Nonnull String baseTag) throws WSMarshallerException, TransformerException {
+	Snapshot snapshot = getCurrent();
+	long base = parseTag(baseTag);
+	if (base < deltaBase || base > snapshot.getVersion()) {
+	    return null;
+	}
+
+	StatusDelta delta = new StatusDelta();
+	delta.setBaseVersion(baseTag);
+	delta.setVersion(snapshot.getTag());
+	for (Change next : changes) {
+	    if (next.version > base) {
+		delta.getStatusChange().add(next.change);
+	    }
+	}
+	return delta;
+    }
+
+    private String getTag(long version) {
+	return instanceId + "-" + version;
+    }
+
+    private long parseTag(String tag) {
+	String prefix = instanceId + "-";
+	if (tag.startsWith(prefix)) {
+	    try {
+		return Long.parseLong(tag.substring(prefix.length()));
+	    } catch (NumberFormatException ex) {
+		// treat as unknown version
+	    }
+	}
+	return -1;
+    }
+
+    private Status buildStatus() {
+	Status status = new Status();
+
+	// user agent
+	StatusType.UserAgent ua = new StatusType.UserAgent();
+	ua.setName(AppVersion.getName());
+	ua.setVersionMajor(BigInteger.valueOf(AppVersion.getMajor()));
+	ua.setVersionMinor(BigInteger.valueOf(AppVersion.getMinor()));
+	ua.setVersionSubminor(BigInteger.valueOf(AppVersion.getPatch()));
+	status.setUserAgent(ua);
+
+	// API versions
+	StatusType.SupportedAPIVersions apiVersion = new StatusType.SupportedAPIVersions();
+	apiVersion.setName("http://www.bsi.bund.de/ecard/api");
+	apiVersion.setVersionMajor(ECardConstants.ECARD_API_VERSION_MAJOR);
+	apiVersion.setVersionMinor(ECardConstants.ECARD_API_VERSION_MINOR);
+	apiVersion.setVersionSubminor(ECardConstants.ECARD_API_VERSION_SUBMINOR);
+	status.getSupportedAPIVersions().add(apiVersion);
+
+	// supported cards
+	status.getSupportedCards().addAll(supportedCards);
+
+	// supported DID protocols
+	status.getSupportedDIDProtocols().addAll(protocols);
+
+	// TODO: additional features
+
+	// add available cards
+	status.getConnectionHandle().addAll(getCardHandles());
+
+	return status;
+    }
+
+    @Nonnull
+    private static List<StatusType.SupportedCards> getSupportedCards(List<String> protocols, List<CardInfoType> cifs) {
+	List<StatusType.SupportedCards> result = new ArrayList<>();
+
+	for (CardInfoType cif : cifs) {
+	    StatusType.SupportedCards supportedCard = new StatusType.SupportedCards();
+	    result.add(supportedCard);
+	    String name = cif.getCardType().getObjectIdentifier();
+	    supportedCard.setCardType(name);
+
+	    for (CardApplicationType app : cif.getApplicationCapabilities().getCardApplication()) {
+		for (DIDInfoType did : app.getDIDInfo()) {
+		    String proto = did.getDifferentialIdentity().getDIDProtocol();
+		    // add protocol to list only if it is supported by the application and not yet added
+		    if (protocols.contains(proto) && ! supportedCard.getDIDProtocols().contains(proto)) {
+			supportedCard.getDIDProtocols().add(proto);
+		    }
+		}
+	    }
+	}
+
+	return result;
+    }
+
+    @Nonnull
+    private List<ConnectionHandleType> getCardHandles() {
+	ConnectionHandleType handle = new ConnectionHandleType();
+	Set<CardStateEntry> entries = cardStates.getMatchingEntries(handle, false);
+
+	ArrayList<ConnectionHandleType> result = new ArrayList<>(entries.size());
+	for (CardStateEntry entry : entries) {
+	    result.add(entry.handleCopy());
+	}
+
+	return result;
+    }
+
+
+    /**
+     * Marshalled status message of one version.
+     */
+    static final class Snapshot {
+
+	private final long version;
+	private final String tag;
+	private final String value;
+
+	Snapshot(long version, String tag, String value) {
+	    this.version = version;
+	    this.tag = tag;
+	    this.value = value;
+	}
+
+	long getVersion() {
+	    return version;
+	}
+
+	/**
+	 * Gets the tag identifying this version.
+	 * The tag is used as entity tag and as base version of delta requests.
+	 *
+	 * @return The tag of this version.
+	 */
+	String getTag() {
+	    return tag;
+	}
+
+	String getValue() {
+	    return value;
+	}
+
+    }
+
+    private static final class Change {
+
+	private final long version;
+	private final StatusChange change;
+
+	Change(long version, StatusChange change) {
+	    this.version = version;
+	    this.change = change;
+	}
+
+    }
+
+}
@@ -0,0 +1,54 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.addons.status;
+
+import javax.xml.transform.TransformerException;
+import org.openecard.addon.bind.AuxDataKeys;
+import org.openecard.addon.bind.BindingResult;
+import org.openecard.addon.bind.BindingResultCode;
+import org.openecard.addon.bind.ResponseBody;
+import org.openecard.ws.marshal.WSMarshallerException;
+import org.openecard.ws.schema.StatusDelta;
+
+
+/**
+ * Wrapper for status delta response taking care of the marshalling of the status delta message.
+ *
+ * @author agent
+ */
+public final class StatusDeltaResponse extends BindingResult {
+
+    public StatusDeltaResponse(StatusDelta delta) {
+	try {
+	    ResponseBody body = new StatusResponseBody();
+	    body.setJAXBObjectValue(delta, "text/xml");
+	    setBody(body);
+	    setResultCode(BindingResultCode.OK);
+	    addAuxResultData(AuxDataKeys.ENTITY_TAG, StatusResponse.toEntityTag(delta.getVersion()));
+	} catch (WSMarshallerException | TransformerException ex) {
+	    setResultCode(BindingResultCode.INTERNAL_ERROR);
+	    setResultMessage("Failed to marshal StatusDelta message.\n  " + ex.getMessage());
+	}
+    }
+
+}
@@ -22,30 +22,23 @@
 
 package org.openecard.addons.status;
 
-import iso.std.iso_iec._24727.tech.schema.CardApplicationType;
-import iso.std.iso_iec._24727.tech.schema.CardInfoType;
-import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
-import iso.std.iso_iec._24727.tech.schema.DIDInfoType;
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 import javax.annotation.Nonnull;
+import javax.xml.transform.TransformerException;
 import org.openecard.addon.AddonManager;
 import org.openecard.addon.AddonRegistry;
 import org.openecard.addon.Context;
 import org.openecard.addon.EventHandler;
+import org.openecard.addon.bind.AuxDataKeys;
+import org.openecard.addon.bind.BindingResult;
+import org.openecard.addon.bind.BindingResultCode;
 import org.openecard.addon.manifest.AddonSpecification;
 import org.openecard.addon.manifest.ProtocolPluginSpecification;
-import org.openecard.common.ECardConstants;
-import org.openecard.common.AppVersion;
-import org.openecard.common.interfaces.CardRecognition;
-import org.openecard.common.interfaces.Dispatcher;
-import org.openecard.common.sal.state.CardStateEntry;
-import org.openecard.common.sal.state.CardStateMap;
-import org.openecard.ws.schema.Status;
-import org.openecard.ws.schema.StatusType;
+import org.openecard.ws.marshal.WSMarshallerException;
+import org.openecard.ws.schema.StatusDelta;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,90 +53,65 @@ public class StatusHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(StatusHandler.class);
 
-    private final CardStateMap cardStates;
-    private final Dispatcher dispatcher;
+    private final Context ctx;
     private final EventHandler eventHandler;
-    private final List<String> protocols;
-    private final CardRecognition rec;
+    private final StatusCache cache;
 
 
     public StatusHandler(Context ctx) {
-	cardStates = ctx.getCardStates();
-	dispatcher = ctx.getDispatcher();
+	this.ctx = ctx;
 	eventHandler = ctx.getEventHandler();
-	protocols = getProtocolInfo(ctx.getManager());
-	rec = ctx.getRecognition();
+	cache = StatusCache.getInstance(ctx);
+	cache.updateProtocols(getProtocolInfo(ctx.getManager()), ctx.getRecognition());
+    }
+
+    /**
+     * Releases the status cache, so that it is no longer notified about events once all handlers are destroyed.
+     */
+    public void destroy() {
+	StatusCache.release(ctx);
     }
 
     /**
      * Handles a Status-Request by returning a status message describing the capabilities if the App.
+     * If the client already knows the current version of the message, a not modified result is returned. If the client
+     * requests the changes since a version which is still retained, only these changes are returned.
      *
      * @param statusRequest Status Request possibly containing a session identifier for event registration.
      * @return Status message.
      */
-    public StatusResponse handleRequest(StatusRequest statusRequest) {
-	Status status = new Status();
-
-	// user agent
-	StatusType.UserAgent ua = new StatusType.UserAgent();
-	ua.setName(AppVersion.getName());
-	ua.setVersionMajor(BigInteger.valueOf(AppVersion.getMajor()));
-	ua.setVersionMinor(BigInteger.valueOf(AppVersion.getMinor()));
-	ua.setVersionSubminor(BigInteger.valueOf(AppVersion.getPatch()));
-	status.setUserAgent(ua);
-
-	// API versions
-	StatusType.SupportedAPIVersions apiVersion = new StatusType.SupportedAPIVersions();
-	apiVersion.setName("http://www.bsi.bund.de/ecard/api");
-	apiVersion.setVersionMajor(ECardConstants.ECARD_API_VERSION_MAJOR);
-	apiVersion.setVersionMinor(ECardConstants.ECARD_API_VERSION_MINOR);
-	apiVersion.setVersionSubminor(ECardConstants.ECARD_API_VERSION_SUBMINOR);
-	status.getSupportedAPIVersions().add(apiVersion);
-
-	// supported cards
-	List<CardInfoType> cifs = rec.getCardInfos();
-	List<StatusType.SupportedCards> supportedCards = getSupportedCards(protocols, cifs);
-	status.getSupportedCards().addAll(supportedCards);
-
-	// supported DID protocols
-	status.getSupportedDIDProtocols().addAll(protocols);
-
-	// TODO: additional features
-
-	// add available cards
-	status.getConnectionHandle().addAll(getCardHandles());
-
+    public BindingResult handleRequest(StatusRequest statusRequest) {
 	// register session for wait for change
 	if (statusRequest.hasSessionIdentifier()) {
 	    String sessionIdentifier = statusRequest.getSessionIdentifier();
 	    eventHandler.addQueue(sessionIdentifier);
 	}
 
-	return new StatusResponse(status);
-    }
+	try {
+	    StatusCache.Snapshot snapshot = cache.getCurrent();
+	    String tag = snapshot.getTag();
+	    String baseVersion = statusRequest.getBaseVersion();
+	    if (tag.equals(baseVersion) || statusRequest.isKnownVersion(tag)) {
+		logger.debug("Status version {} is known to the client.", tag);
+		BindingResult result = new BindingResult(BindingResultCode.NOT_MODIFIED);
+		result.addAuxResultData(AuxDataKeys.ENTITY_TAG, StatusResponse.toEntityTag(tag));
+		return result;
+	    }
 
-    @Nonnull
-    private static List<StatusType.SupportedCards> getSupportedCards(List<String> protocols, List<CardInfoType> cifs) {
-	List<StatusType.SupportedCards> result = new ArrayList<>();
-
-	for (CardInfoType cif : cifs) {
-	    StatusType.SupportedCards supportedCard = new StatusType.SupportedCards();
-	    result.add(supportedCard);
-	    String name = cif.getCardType().getObjectIdentifier();
-	    supportedCard.setCardType(name);
-
-	    for (CardApplicationType app : cif.getApplicationCapabilities().getCardApplication()) {
-		for (DIDInfoType did : app.getDIDInfo()) {
-		    String proto = did.getDifferentialIdentity().getDIDProtocol();
-		    // add protocol to list only if it is supported by the application and not yet added
-		    if (protocols.contains(proto) && ! supportedCard.getDIDProtocols().contains(proto)) {
-			supportedCard.getDIDProtocols().add(proto);
-		    }
+	    if (baseVersion != null) {
+		StatusDelta delta = cache.getDelta(baseVersion);
+		if (delta != null) {
+		    return new StatusDeltaResponse(delta);
 		}
+		logger.debug("No delta available for status version {}.", baseVersion);
 	    }
-	}
 
-	return result;
+	    return new StatusResponse(snapshot);
+	} catch (WSMarshallerException | TransformerException ex) {
+	    BindingResult result = new BindingResult(BindingResultCode.INTERNAL_ERROR);
+	    result.setResultMessage("Failed to marshal Status message.\n  " + ex.getMessage());
+	    return result;
+	}
     }
 
     @Nonnull
@@ -162,17 +130,4 @@ public class StatusHandler {
 	return new ArrayList<>(result);
     }
 
-    @Nonnull
-    private List<ConnectionHandleType> getCardHandles() {
-	ConnectionHandleType handle = new ConnectionHandleType();
-	Set<CardStateEntry> entries = cardStates.getMatchingEntries(handle, false);
-
-	ArrayList<ConnectionHandleType> result = new ArrayList<>(entries.size());
-	for (CardStateEntry entry : entries) {
-	    result.add(entry.handleCopy());
-	}
-
-	return result;
-    }
-
 }
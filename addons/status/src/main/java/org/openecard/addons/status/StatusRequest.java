@@ -22,9 +22,13 @@
 
 package org.openecard.addons.status;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.openecard.addon.bind.Headers;
 
 
 /**
@@ -37,9 +41,25 @@ import javax.annotation.Nullable;
 public final class StatusRequest {
 
     private final String sessionIdentifier;
+    private final String baseVersion;
+    private final List<String> knownVersions;
 
     public StatusRequest(@Nullable String sessionIdentifier) {
+	this(sessionIdentifier, null, Collections.<String>emptyList());
+    }
+
+    /**
+     * Creates a status request.
+     *
+     * @param sessionIdentifier Session identifier for event registration, or {@code null}.
+     * @param baseVersion Version of the status known to the client for which a delta is requested, or {@code null}.
+     * @param knownVersions Versions cached by the client taken from the If-None-Match header.
+     */
+    public StatusRequest(@Nullable String sessionIdentifier, @Nullable String baseVersion,
+	    @Nonnull List<String> knownVersions) {
 	this.sessionIdentifier = sessionIdentifier;
+	this.baseVersion = baseVersion;
+	this.knownVersions = knownVersions;
     }
 
     public boolean hasSessionIdentifier() {
@@ -60,6 +80,26 @@ public final class StatusRequest {
 	return sessionIdentifier;
     }
 
+    /**
+     * Returns the version of the status for which the client requests a delta.
+     *
+     * @return The version, or {@code null} if the full status is requested.
+     */
+    @Nullable
+    public String getBaseVersion() {
+	return baseVersion;
+    }
+
+    /**
+     * Checks whether the client already knows the given version of the status.
+     *
+     * @param version The version to check.
+     * @return {@code true} if the version is named in the If-None-Match header, {@code false} otherwise.
+     */
+    public boolean isKnownVersion(@Nonnull String version) {
+	return knownVersions.contains(version) || knownVersions.contains("*");
+    }
+
     /**
      * Check the request parameters and wrap them in a {@code StatusRequest} class.
      *
@@ -67,17 +107,60 @@ public final class StatusRequest {
      * @return A StatusRequest wrapping the parameters.
      */
     public static StatusRequest convert(Map<String, String> parameters) {
-	String session = null;
+	return convert(parameters, new Headers());
+    }
+
+    /**
+     * Check the request parameters and headers and wrap them in a {@code StatusRequest} class.
+     *
+     * @param parameters The request parameters.
+     * @param headers The request headers.
+     * @return A StatusRequest wrapping the parameters.
+     */
+    public static StatusRequest convert(Map<String, String> parameters, Headers headers) {
+	String session = getParameter(parameters, "session");
+	String since = getParameter(parameters, "since");
+	if (since != null) {
+	    since = unquote(since);
+	}
 
-	if (parameters.containsKey("session")) {
-	    String value = parameters.get("session");
-	    if (value != null && ! value.isEmpty()) {
-		session = value;
+	List<String> known = new ArrayList<>();
+	for (String name : headers.getHeaderNames()) {
+	    // header names are case insensitive
+	    if ("If-None-Match".equalsIgnoreCase(name)) {
+		for (String value : headers.getHeaderValues(name)) {
+		    for (String tag : value.split(",")) {
+			tag = tag.trim();
+			if (! tag.isEmpty()) {
+			    known.add(unquote(tag));
+			}
+		    }
+		}
 	    }
 	}
 
-	StatusRequest statusRequest = new StatusRequest(session);
+	StatusRequest statusRequest = new StatusRequest(session, since, known);
 	return statusRequest;
     }
 
+    @Nullable
+    private static String getParameter(Map<String, String> parameters, String name) {
+	String value = parameters.get(name);
+	if (value != null && ! value.isEmpty()) {
+	    return value;
+	}
+	return null;
+    }
+
+    private static String unquote(String tag) {
+	// weak tags are compared like strong ones, as the status is not modified by content codings
+	if (tag.startsWith("W/")) {
+	    tag = tag.substring(2);
+	}
+	if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+	    tag = tag.substring(1, tag.length() - 1);
+	}
+	return tag;
+    }
+
 }
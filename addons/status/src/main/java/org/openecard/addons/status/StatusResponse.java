@@ -22,7 +22,9 @@
 
 package org.openecard.addons.status;
 
+import javax.annotation.Nonnull;
 import javax.xml.transform.TransformerException;
+import org.openecard.addon.bind.AuxDataKeys;
 import org.openecard.addon.bind.BindingResult;
 import org.openecard.addon.bind.BindingResultCode;
 import org.openecard.addon.bind.ResponseBody;
@@ -50,4 +52,16 @@ public final class StatusResponse extends BindingResult {
 	}
     }
 
+    StatusResponse(StatusCache.Snapshot snapshot) {
+	// the message is already marshalled, so no marshaller is needed for the body
+	setBody(new ResponseBody(snapshot.getValue(), "text/xml", false, null));
+	setResultCode(BindingResultCode.OK);
+	addAuxResultData(AuxDataKeys.ENTITY_TAG, toEntityTag(snapshot.getTag()));
+    }
+
+    @Nonnull
+    static String toEntityTag(@Nonnull String tag) {
+	return "\"" + tag + "\"";
+    }
+
 }
@@ -26,10 +26,12 @@ import java.util.List;
 import java.util.Map;
 import org.openecard.addon.Context;
 import org.openecard.addon.EventHandler;
-import org.openecard.addon.bind.AppPluginAction;
+import org.openecard.addon.bind.AsyncAppPluginAction;
 import org.openecard.addon.bind.Attachment;
 import org.openecard.addon.bind.BindingResult;
+import org.openecard.addon.bind.BindingResultCallback;
 import org.openecard.addon.bind.BindingResultCode;
+import org.openecard.addon.bind.Cancellable;
 import org.openecard.addon.bind.Headers;
 import org.openecard.addon.bind.RequestBody;
 import org.openecard.ws.schema.StatusChange;
@@ -39,11 +41,13 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Action processing WaitForChange messages.
+ * When executed asynchronously, the request is parked until the next event of the session arrives, so that no
+ * thread of the binding is blocked while waiting.
  *
  * @author Dirk Petrautzki
  * @author Tobias Wich
  */
-public class WaitForChangeAction implements AppPluginAction {
+public class WaitForChangeAction implements AsyncAppPluginAction {
 
     private static final Logger LOG = LoggerFactory.getLogger(WaitForChangeAction.class);
 
@@ -76,4 +80,37 @@ public class WaitForChangeAction implements AppPluginAction {
 	return response;
     }
 
+    @Override
+    public Cancellable executeAsync(RequestBody body, Map<String, String> parameters, Headers headers,
+	    List<Attachment> attachments, final BindingResultCallback callback) {
+	BindingResult response;
+	try {
+	    WaitForChangeRequest statusRequest = WaitForChangeRequest.convert(parameters);
+	    final String session = statusRequest.getSessionIdentifier();
+	    final EventHandler handler = eventHandler;
+	    final EventHandler.StatusChangeListener listener = new EventHandler.StatusChangeListener() {
+		@Override
+		public void statusChanged(StatusChange change) {
+		    callback.done(new WaitForChangeResponse(change));
+		}
+	    };
+	    handler.next(session, listener);
+	    // lets the binding withdraw the parked listener, e.g. when the client disconnected
+	    return new Cancellable() {
+		@Override
+		public boolean cancel() {
+		    return handler.cancel(session, listener);
+		}
+	    };
+	} catch (StatusException e) {
+	    response = new BindingResult(BindingResultCode.WRONG_PARAMETER);
+	    response.setResultMessage(e.getMessage());
+	} catch (Exception e) {
+	    response = new BindingResult(BindingResultCode.INTERNAL_ERROR);
+	    LOG.error(e.getMessage(), e);
+	}
+	callback.done(response);
+	return null;
+    }
+
 }
@@ -0,0 +1,146 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.addons.status;
+
+import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
+import org.openecard.addon.EventHandler;
+import org.openecard.common.event.EventDispatcherImpl;
+import org.openecard.common.event.EventObject;
+import org.openecard.common.event.EventType;
+import org.openecard.common.interfaces.EventDispatcher;
+import org.openecard.common.sal.state.CardStateMap;
+import org.openecard.ws.schema.StatusDelta;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ *
+ * @author agent
+ */
+public class StatusCacheTest {
+
+    private static void signal(StatusCache cache, EventType type) {
+	cache.signalEvent(type, new EventObject(new ConnectionHandleType()) { });
+    }
+
+    @Test
+    public void testSnapshotIsReused() throws Exception {
+	StatusCache cache = new StatusCache(new CardStateMap());
+	StatusCache.Snapshot s1 = cache.getCurrent();
+	assertTrue(s1.getValue().contains("Status"));
+	assertSame(cache.getCurrent(), s1);
+
+	signal(cache, EventType.CARD_INSERTED);
+	StatusCache.Snapshot s2 = cache.getCurrent();
+	assertNotSame(s2, s1);
+	assertNotEquals(s2.getTag(), s1.getTag());
+	assertSame(cache.getCurrent(), s2);
+    }
+
+    @Test
+    public void testCardStateModification() throws Exception {
+	CardStateMap cardStates = new CardStateMap();
+	StatusCache cache = new StatusCache(cardStates);
+	StatusCache.Snapshot s1 = cache.getCurrent();
+
+	// modifications without a corresponding event must change the version as well
+	ConnectionHandleType handle = new ConnectionHandleType();
+	handle.setSlotHandle(new byte[] { 1, 2, 3 });
+	cardStates.removeEntry(handle);
+	assertNotEquals(cache.getCurrent().getTag(), s1.getTag());
+    }
+
+    @Test
+    public void testCardStateModificationRequiresFullMessage() throws Exception {
+	CardStateMap cardStates = new CardStateMap();
+	StatusCache cache = new StatusCache(cardStates);
+	String base = cache.getCurrent().getTag();
+	signal(cache, EventType.TERMINAL_ADDED);
+	String afterEvent = cache.getCurrent().getTag();
+	assertEquals(cache.getDelta(base).getStatusChange().size(), 1);
+
+	// there is no change describing the modification, so no delta may be given for older versions
+	ConnectionHandleType handle = new ConnectionHandleType();
+	handle.setSlotHandle(new byte[] { 1, 2, 3 });
+	cardStates.removeEntry(handle);
+	String current = cache.getCurrent().getTag();
+	assertNull(cache.getDelta(base));
+	assertNull(cache.getDelta(afterEvent));
+	assertTrue(cache.getDelta(current).getStatusChange().isEmpty());
+
+	// later events are answered with a delta again
+	signal(cache, EventType.CARD_INSERTED);
+	assertEquals(cache.getDelta(current).getStatusChange().size(), 1);
+    }
+
+    @Test
+    public void testRelease() {
+	EventHandler handler = new EventHandler();
+	EventDispatcher dispatcher = new EventDispatcherImpl();
+	CardStateMap cardStates = new CardStateMap();
+
+	StatusCache cache = StatusCache.getInstance(handler, dispatcher, cardStates);
+	assertSame(StatusCache.getInstance(handler, dispatcher, cardStates), cache);
+	assertTrue(dispatcher.hasSubscribers(EventType.CARD_INSERTED));
+
+	StatusCache.release(handler, dispatcher);
+	assertTrue(dispatcher.hasSubscribers(EventType.CARD_INSERTED));
+	StatusCache.release(handler, dispatcher);
+	assertFalse(dispatcher.hasSubscribers(EventType.CARD_INSERTED));
+	assertNotSame(StatusCache.getInstance(handler, dispatcher, cardStates), cache);
+	StatusCache.release(handler, dispatcher);
+    }
+
+    @Test
+    public void testDelta() throws Exception {
+	StatusCache cache = new StatusCache(new CardStateMap());
+	String base = cache.getCurrent().getTag();
+	signal(cache, EventType.TERMINAL_ADDED);
+	signal(cache, EventType.CARD_INSERTED);
+
+	StatusDelta delta = cache.getDelta(base);
+	assertNotNull(delta);
+	assertEquals(delta.getBaseVersion(), base);
+	assertEquals(delta.getVersion(), cache.getCurrent().getTag());
+	assertEquals(delta.getStatusChange().size(), 2);
+	assertEquals(delta.getStatusChange().get(1).getAction(), EventType.CARD_INSERTED.getEventTypeIdentifier());
+
+	// delta to the current version is empty
+	assertTrue(cache.getDelta(delta.getVersion()).getStatusChange().isEmpty());
+	// unknown versions require the full message
+	assertNull(cache.getDelta("unknown-1"));
+	assertNull(cache.getDelta(base.substring(0, base.lastIndexOf('-')) + "-99"));
+    }
+
+    @Test
+    public void testDeltaOfEvictedVersion() throws Exception {
+	StatusCache cache = new StatusCache(new CardStateMap());
+	String base = cache.getCurrent().getTag();
+	for (int i = 0; i < 100; i++) {
+	    signal(cache, EventType.CARD_RECOGNIZED);
+	}
+	assertNull(cache.getDelta(base));
+    }
+
+}
@@ -0,0 +1,67 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.addons.status;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.openecard.addon.bind.Headers;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ *
+ * @author agent
+ */
+public class StatusRequestTest {
+
+    @Test
+    public void testConvert() {
+	Map<String, String> params = new HashMap<>();
+	params.put("session", "1234");
+	params.put("since", "\"abc-1\"");
+	Headers headers = new Headers();
+	headers.addHeader("if-none-match", "W/\"abc-2\", \"abc-3\"");
+
+	StatusRequest req = StatusRequest.convert(params, headers);
+	assertEquals(req.getSessionIdentifier(), "1234");
+	assertEquals(req.getBaseVersion(), "abc-1");
+	assertTrue(req.isKnownVersion("abc-2"));
+	assertTrue(req.isKnownVersion("abc-3"));
+	assertFalse(req.isKnownVersion("abc-1"));
+    }
+
+    @Test
+    public void testConvertWithoutVersions() {
+	StatusRequest req = StatusRequest.convert(new HashMap<String, String>());
+	assertFalse(req.hasSessionIdentifier());
+	assertNull(req.getBaseVersion());
+	assertFalse(req.isKnownVersion("abc-1"));
+
+	Headers headers = new Headers();
+	headers.addHeader("If-None-Match", "*");
+	req = StatusRequest.convert(new HashMap<String, String>(), headers);
+	assertTrue(req.isKnownVersion("abc-1"));
+    }
+
+}
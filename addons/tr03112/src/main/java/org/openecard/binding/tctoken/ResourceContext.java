@@ -61,6 +61,7 @@ import org.openecard.crypto.common.ReusableSecureRandom;
 import org.openecard.transport.httpcore.cookies.CookieException;
 import org.openecard.transport.httpcore.cookies.CookieManager;
 import org.openecard.crypto.tls.ClientCertDefaultTlsClient;
+import org.openecard.crypto.tls.TlsSessionCache;
 import org.openecard.crypto.tls.ClientCertTlsClient;
 import org.openecard.crypto.tls.auth.DynamicAuthentication;
 import org.openecard.crypto.tls.verify.JavaSecVerifier;
@@ -234,7 +235,8 @@ public class ResourceContext {
 	    // FIXME: validate certificate chain as soon as a usable solution exists for the trust problem
 	    // tlsAuth.setCertificateVerifier(new JavaSecVerifier());
 	    TlsCrypto crypto = new BcTlsCrypto(ReusableSecureRandom.getInstance());
-	    ClientCertTlsClient tlsClient = new ClientCertDefaultTlsClient(crypto, hostname, true);
+	    ClientCertDefaultTlsClient tlsClient = new ClientCertDefaultTlsClient(crypto, hostname, true);
+	    tlsClient.setSessionCacheKey(new TlsSessionCache.Key(hostname, port, null));
 	    tlsClient.setAuthentication(tlsAuth);
 
 	    // connect tls client
@@ -40,6 +40,7 @@ import org.openecard.common.interfaces.Dispatcher;
 import org.openecard.crypto.tls.ClientCertDefaultTlsClient;
 import org.openecard.crypto.tls.ClientCertPSKTlsClient;
 import org.openecard.crypto.tls.ClientCertTlsClient;
+import org.openecard.crypto.tls.TlsSessionCache;
 import org.openecard.crypto.tls.auth.CredentialFactory;
 import org.openecard.crypto.tls.auth.DynamicAuthentication;
 import org.openecard.crypto.tls.verify.SameCertVerifier;
@@ -50,6 +51,7 @@ import org.openecard.bouncycastle.tls.BasicTlsPSKIdentity;
 import org.openecard.bouncycastle.tls.crypto.TlsCrypto;
 import org.openecard.bouncycastle.tls.crypto.impl.bc.BcTlsCrypto;
 import org.openecard.common.OpenecardProperties;
+import org.openecard.common.util.ByteUtils;
 import org.openecard.common.util.UrlBuilder;
 import org.openecard.crypto.common.ReusableSecureRandom;
 import org.openecard.crypto.tls.verify.JavaSecVerifier;
@@ -148,7 +150,10 @@ public class TlsConnectionHandler {
 			{
 			    byte[] psk = token.getPathSecurityParameters().getPSK();
 			    TlsPSKIdentity pskId = new BasicTlsPSKIdentity(sessionId, psk);
-			    tlsClient = new ClientCertPSKTlsClient(crypto, pskId, serverHost, doSni);
+			    ClientCertPSKTlsClient pskClient = new ClientCertPSKTlsClient(crypto, pskId, serverHost, doSni);
+			    // sessions can only be resumed for the same PSK identity
+			    pskClient.setSessionCacheKey(new TlsSessionCache.Key(hostname, port, "psk:" + sessionId));
+			    tlsClient = pskClient;
 			    tlsClient.setClientVersion(version);
 			    tlsClient.setMinimumVersion(minVersion);
 			    break;
@@ -157,7 +162,10 @@ public class TlsConnectionHandler {
 			{
 			    // use a smartcard for client authentication if needed
 			    tlsAuth.setCredentialFactory(makeSmartCardCredential());
-			    tlsClient = new ClientCertDefaultTlsClient(crypto, serverHost, doSni);
+			    ClientCertDefaultTlsClient defaultClient = new ClientCertDefaultTlsClient(crypto, serverHost, doSni);
+			    // sessions can only be resumed with the card used for client authentication
+			    defaultClient.setSessionCacheKey(new TlsSessionCache.Key(hostname, port, getCredentialId()));
+			    tlsClient = defaultClient;
 			    tlsClient.setClientVersion(version);
 			    tlsClient.setMinimumVersion(minVersion);
 			    // add PKIX verifier
@@ -259,6 +267,15 @@ public class TlsConnectionHandler {
 	return handler;
     }
 
+    @Nullable
+    private String getCredentialId() {
+	if (handle != null && handle.getSlotHandle() != null) {
+	    return "card:" + ByteUtils.toHexString(handle.getSlotHandle());
+	} else {
+	    return null;
+	}
+    }
+
     @Nullable
     private CredentialFactory makeSmartCardCredential() {
 	if (handle != null) {
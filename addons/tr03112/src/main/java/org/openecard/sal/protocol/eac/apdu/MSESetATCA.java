@@ -22,12 +22,9 @@
 
 package org.openecard.sal.protocol.eac.apdu;
 
-import java.io.IOException;
 import org.openecard.common.apdu.ManageSecurityEnvironment;
-import org.openecard.common.apdu.common.CardAPDUOutputStream;
+import org.openecard.common.tlv.TLVWriter;
 import org.openecard.common.util.ByteUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 
 /**
@@ -39,8 +36,6 @@ import org.slf4j.LoggerFactory;
  */
 public class MSESetATCA extends ManageSecurityEnvironment {
 
-    private static final Logger logger = LoggerFactory.getLogger(MSESetATCA.class);
-
     /**
      * Creates a MSE:Set AT APDU for Chip Authentication.
      */
@@ -66,25 +61,14 @@ public class MSESetATCA extends ManageSecurityEnvironment {
     public MSESetATCA(byte[] oID, byte[] keyID) {
 	super((byte) 0x41, AT);
 
-	CardAPDUOutputStream caos = new CardAPDUOutputStream();
-	try {
-	    caos.writeTLV((byte) 0x80, oID);
-
-	    if (keyID != null) {
-		caos.writeTLV((byte) 0x84, ByteUtils.cutLeadingNullBytes(keyID));
-	    }
+	TLVWriter writer = new TLVWriter();
+	writer.writeTLV(0x80, oID);
 
-	    caos.flush();
-	} catch (IOException e) {
-	    logger.error(e.getMessage(), e);
-	} finally {
-	    try {
-		caos.close();
-	    } catch (IOException ignore) {
-	    }
+	if (keyID != null) {
+	    writer.writeTLV(0x84, ByteUtils.cutLeadingNullBytes(keyID));
 	}
 
-	setData(caos.toByteArray());
+	setData(writer.toByteArray());
     }
 
 }
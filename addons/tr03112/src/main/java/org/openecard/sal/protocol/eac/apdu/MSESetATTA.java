@@ -22,11 +22,8 @@
 
 package org.openecard.sal.protocol.eac.apdu;
 
-import java.io.IOException;
 import org.openecard.common.apdu.ManageSecurityEnvironment;
-import org.openecard.common.apdu.common.CardAPDUOutputStream;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.openecard.common.tlv.TLVWriter;
 
 
 /**
@@ -38,8 +35,6 @@ import org.slf4j.LoggerFactory;
  */
 public class MSESetATTA extends ManageSecurityEnvironment {
 
-    private static final Logger logger = LoggerFactory.getLogger(MSESetATTA.class);
-
     /**
      * Creates a new MSE:Set AT for Terminal Authentication.
      */
@@ -58,31 +53,20 @@ public class MSESetATTA extends ManageSecurityEnvironment {
     public MSESetATTA(byte[] oID, byte[] chr, byte[] pkPCD, byte[] aad) {
 	super((byte) 0x81, AT);
 
-	CardAPDUOutputStream caos = new CardAPDUOutputStream();
-	try {
-	    caos.writeTLV((byte) 0x80, oID);
-
-	    if (chr != null) {
-		caos.writeTLV((byte) 0x83, chr);
-	    }
-	    if (pkPCD != null) {
-		caos.writeTLV((byte) 0x91, pkPCD);
-	    }
-	    if (aad != null) {
-		caos.write(aad);
-	    }
+	TLVWriter writer = new TLVWriter();
+	writer.writeTLV(0x80, oID);
 
-	    caos.flush();
-	} catch (IOException e) {
-	    logger.error(e.getMessage(), e);
-	} finally {
-	    try {
-		caos.close();
-	    } catch (IOException ignore) {
-	    }
+	if (chr != null) {
+	    writer.writeTLV(0x83, chr);
+	}
+	if (pkPCD != null) {
+	    writer.writeTLV(0x91, pkPCD);
+	}
+	if (aad != null) {
+	    writer.write(aad);
 	}
 
-	setData(caos.toByteArray());
+	setData(writer.toByteArray());
     }
 
 }
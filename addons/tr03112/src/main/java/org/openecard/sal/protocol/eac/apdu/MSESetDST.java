@@ -22,11 +22,8 @@
 
 package org.openecard.sal.protocol.eac.apdu;
 
-import java.io.IOException;
 import org.openecard.common.apdu.ManageSecurityEnvironment;
-import org.openecard.common.apdu.common.CardAPDUOutputStream;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.openecard.common.tlv.TLVWriter;
 
 
 /**
@@ -37,8 +34,6 @@ import org.slf4j.LoggerFactory;
  */
 public class MSESetDST extends ManageSecurityEnvironment {
 
-    private static final Logger logger = LoggerFactory.getLogger(MSESetATCA.class);
-
     /**
      * Creates a new MSE:Set DST APDU.
      */
@@ -54,21 +49,10 @@ public class MSESetDST extends ManageSecurityEnvironment {
     public MSESetDST(byte[] chr) {
 	super((byte) 0x81, DST);
 
-	CardAPDUOutputStream caos = new CardAPDUOutputStream();
-	try {
-	    caos.writeTLV((byte) 0x83, chr);
-
-	    caos.flush();
-	} catch (IOException e) {
-	    logger.error(e.getMessage(), e);
-	} finally {
-	    try {
-		caos.close();
-	    } catch (IOException ignore) {
-	    }
-	}
+	TLVWriter writer = new TLVWriter();
+	writer.writeTLV(0x83, chr);
 
-	setData(caos.toByteArray());
+	setData(writer.toByteArray());
     }
 
 }
@@ -36,7 +36,7 @@ import org.openecard.bouncycastle.crypto.params.ElGamalPublicKeyParameters;
 import org.openecard.bouncycastle.jce.spec.ECParameterSpec;
 import org.openecard.bouncycastle.jce.spec.ElGamalParameterSpec;
 import org.openecard.bouncycastle.math.ec.ECPoint;
-import org.openecard.common.tlv.TLV;
+import org.openecard.common.tlv.TLVView;
 import org.openecard.common.tlv.TLVException;
 import org.openecard.common.util.ByteUtils;
 import org.openecard.common.util.SecureRandomFactory;
@@ -93,7 +93,8 @@ public final class CAKey {
 	byte[] keyBytes;
 
 	if (data[0] == (byte) 0x7C) {
-	    keyBytes = TLV.fromBER(data).getChild().getValue();
+	    TLVView tlv = TLVView.parse(data);
+	    keyBytes = tlv.getValue(tlv.getChild(tlv.getFirst()));
 	} else if (data[0] != 04) {
 	    keyBytes = ByteUtils.concatenate((byte) 0x04, data);
 	} else {
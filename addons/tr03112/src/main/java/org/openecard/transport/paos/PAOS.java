@@ -25,6 +25,7 @@ package org.openecard.transport.paos;
 import iso.std.iso_iec._24727.tech.schema.StartPAOS;
 import iso.std.iso_iec._24727.tech.schema.StartPAOSResponse;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
@@ -36,6 +37,7 @@ import oasis.names.tc.dss._1_0.core.schema.ResponseBaseType;
 import org.openecard.apache.http.HttpEntity;
 import org.openecard.apache.http.HttpException;
 import org.openecard.apache.http.HttpResponse;
+import org.openecard.apache.http.entity.ByteArrayEntity;
 import org.openecard.apache.http.entity.ContentType;
 import org.openecard.apache.http.entity.StringEntity;
 import org.openecard.apache.http.impl.DefaultConnectionReuseStrategy;
@@ -43,6 +45,7 @@ import org.openecard.apache.http.message.BasicHttpEntityEnclosingRequest;
 import org.openecard.apache.http.protocol.BasicHttpContext;
 import org.openecard.apache.http.protocol.HttpContext;
 import org.openecard.apache.http.protocol.HttpRequestExecutor;
+import org.openecard.apache.http.util.EntityUtils;
 import org.openecard.bouncycastle.tls.TlsClientProtocol;
 import org.openecard.common.ECardConstants;
 import org.openecard.common.WSHelper;
@@ -58,9 +61,12 @@ import org.openecard.ws.marshal.MarshallingTypeException;
 import org.openecard.ws.marshal.WSMarshaller;
 import org.openecard.ws.marshal.WSMarshallerException;
 import org.openecard.ws.marshal.WSMarshallerFactory;
+import org.openecard.ws.soap.MessageFactory;
 import org.openecard.ws.soap.SOAPException;
 import org.openecard.ws.soap.SOAPHeader;
 import org.openecard.ws.soap.SOAPMessage;
+import org.openecard.ws.soap.SOAPStreamCodec;
+import org.openecard.ws.soap.StreamedSOAPMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -100,6 +106,9 @@ public class PAOS {
     private final String headerValuePaos;
     private final MessageIdGenerator idGenerator;
     private final WSMarshaller m;
+    // streaming codec of the marshaller, null if the marshaller only supports the DOM functions
+    private final SOAPStreamCodec codec;
+    private final MessageFactory soapFactory;
     private final Dispatcher dispatcher;
     private final TlsConnectionHandler tlsHandler;
 
@@ -123,6 +132,8 @@ public class PAOS {
 	try {
 	    this.idGenerator = new MessageIdGenerator();
 	    this.m = WSMarshallerFactory.createInstance();
+	    this.codec = m instanceof SOAPStreamCodec ? (SOAPStreamCodec) m : null;
+	    this.soapFactory = MessageFactory.newInstance();
 	} catch (WSMarshallerException ex) {
 	    LOG.error(ex.getMessage(), ex);
 	    throw new PAOSException(ex);
@@ -199,6 +210,12 @@ public class PAOS {
 
     private Object processPAOSRequest(InputStream content) throws PAOSException {
 	try {
+	    if (codec != null) {
+		StreamedSOAPMessage msg = codec.readSOAP(content);
+		updateMessageID(msg.getMessage());
+		return msg.getContent();
+	    }
+
 	    Document doc = m.str2doc(content);
 	    SOAPMessage msg = m.doc2soap(doc);
 	   // msg.getSOAPHeader().
@@ -227,18 +244,39 @@ public class PAOS {
 	}
     }
 
-    private String createPAOSResponse(Object obj) throws MarshallingTypeException, SOAPException, TransformerException {
-	SOAPMessage msg = createSOAPMessage(obj);
-	String result = m.doc2str(msg.getDocument());
+    private HttpEntity createPAOSResponse(Object obj, ContentType contentType) throws MarshallingTypeException,
+	    SOAPException, TransformerException, IOException {
+	if (codec != null) {
+	    // write the body content directly, only the header is built as DOM
+	    SOAPMessage msg = soapFactory.createMessage();
+	    addPAOSHeader(msg);
+	    ByteArrayOutputStream out = new ByteArrayOutputStream();
+	    codec.writeSOAP(msg, obj, out);
+	    byte[] result = out.toByteArray();
 
-	LOG.debug("Message sent:\n{}", result);
+	    if (LOG.isDebugEnabled()) {
+		LOG.debug("Message sent:\n{}", new String(result, "UTF-8"));
+	    }
 
-	return result;
+	    return new ByteArrayEntity(result, contentType);
+	} else {
+	    SOAPMessage msg = createSOAPMessage(obj);
+	    String result = m.doc2str(msg.getDocument());
+
+	    LOG.debug("Message sent:\n{}", result);
+
+	    return new StringEntity(result, contentType);
+	}
     }
 
     private SOAPMessage createSOAPMessage(Object content) throws MarshallingTypeException, SOAPException {
 	Document contentDoc = m.marshal(content);
 	SOAPMessage msg = m.add2soap(contentDoc);
+	addPAOSHeader(msg);
+	return msg;
+    }
+
+    private void addPAOSHeader(SOAPMessage msg) throws SOAPException {
 	SOAPHeader header = msg.getSOAPHeader();
 
 	// fill header with paos stuff
@@ -262,7 +300,6 @@ public class PAOS {
 
 	// add message IDs
 	addMessageIDs(msg);
-	return msg;
     }
 
     /**
@@ -309,8 +346,7 @@ public class PAOS {
 
 			ContentType reqContentType = ContentType.create("application/vnd.paos+xml", "UTF-8");
 			HttpUtils.dumpHttpRequest(LOG, "before adding content", req);
-			String reqMsgStr = createPAOSResponse(msg);
-			StringEntity reqMsg = new StringEntity(reqMsgStr, reqContentType);
+			HttpEntity reqMsg = createPAOSResponse(msg, reqContentType);
 			req.setEntity(reqMsg);
 			req.setHeader(reqMsg.getContentType());
 			req.setHeader("Content-Length", Long.toString(reqMsg.getContentLength()));
@@ -333,10 +369,21 @@ public class PAOS {
 
 			conn.receiveResponseEntity(response);
 			HttpEntity entity = response.getEntity();
-			byte[] entityData = FileUtils.toByteArray(entity.getContent());
-			HttpUtils.dumpHttpResponse(LOG, response, entityData);
-			// consume entity
-			Object requestObj = processPAOSRequest(new ByteArrayInputStream(entityData));
+			Object requestObj;
+			if (codec != null && ! LOG.isDebugEnabled()) {
+			    // read the message directly from the connection, the rest of the entity is consumed so
+			    // that the connection can be reused
+			    try {
+				requestObj = processPAOSRequest(entity.getContent());
+			    } finally {
+				EntityUtils.consume(entity);
+			    }
+			} else {
+			    byte[] entityData = FileUtils.toByteArray(entity.getContent());
+			    HttpUtils.dumpHttpResponse(LOG, response, entityData);
+			    // consume entity
+			    requestObj = processPAOSRequest(new ByteArrayInputStream(entityData));
+			}
 
 			// break when message is startpaosresponse
 			if (requestObj instanceof StartPAOSResponse) {
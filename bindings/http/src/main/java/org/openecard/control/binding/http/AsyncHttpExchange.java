@@ -0,0 +1,190 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.control.binding.http;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.openecard.apache.http.protocol.HttpContext;
+
+
+/**
+ * Handle to complete a HTTP request after its handler has returned.
+ * Servers supporting asynchronous processing put an instance of this class in the {@link HttpContext} of each request.
+ * A handler may call {@link #suspend()} to park the request and {@link #resume()} as soon as it has filled in the
+ * response. The response is sent not before both, the handler has returned and the exchange has been resumed.
+ * <p>
+ * The server cancels a suspended request when the client disconnects or the request is parked for too long. A
+ * {@link CancelHandler} lets the handler withdraw its pending work in that case.
+ * </p>
+ *
+ * @author agent
+ */
+public final class AsyncHttpExchange {
+
+    /** Name of the context attribute holding the exchange. */
+    public static final String CONTEXT_ATTR = "org.openecard.binding.http.async-exchange";
+
+    private final Runnable completion;
+    private final AtomicInteger parkedCounter;
+    private CancelHandler cancelHandler;
+    private boolean suspended = false;
+    private boolean resumed = false;
+    private boolean returned = false;
+    private boolean cancelled = false;
+
+    AsyncHttpExchange(Runnable completion, AtomicInteger parkedCounter) {
+	this.completion = completion;
+	this.parkedCounter = parkedCounter;
+    }
+
+    /**
+     * Gets the exchange of the request, if the server supports asynchronous processing.
+     *
+     * @param context The context of the request.
+     * @return The exchange, or {@code null} if the request can only be processed synchronously.
+     */
+    @Nullable
+    public static AsyncHttpExchange get(HttpContext context) {
+	Object exchange = context.getAttribute(CONTEXT_ATTR);
+	return exchange instanceof AsyncHttpExchange ? (AsyncHttpExchange) exchange : null;
+    }
+
+    /**
+     * Parks the request, so that the response is not sent when the handler returns.
+     *
+     * @throws IllegalStateException Thrown in case the exchange is already suspended or the handler has returned.
+     */
+    public synchronized void suspend() {
+	if (suspended || returned) {
+	    throw new IllegalStateException("Exchange can not be suspended anymore.");
+	}
+	suspended = true;
+    }
+
+    /**
+     * Completes a suspended request.
+     * The response object which has been passed to the handler must be filled in before this method is called.
+     *
+     * @throws IllegalStateException Thrown in case the exchange is not suspended or has already been resumed.
+     */
+    public void resume() {
+	synchronized (this) {
+	    if (cancelled) {
+		// the response is not needed anymore
+		return;
+	    }
+	    if (! suspended || resumed) {
+		throw new IllegalStateException("Exchange is not suspended.");
+	    }
+	    resumed = true;
+	    if (! returned) {
+		// the handler thread sends the response
+		return;
+	    }
+	    parkedCounter.decrementAndGet();
+	}
+	completion.run();
+    }
+
+    /**
+     * Sets the handler which is called when the server cancels the suspended request.
+     *
+     * @param cancelHandler The handler, or {@code null} to remove the handler.
+     */
+    public synchronized void setCancelHandler(@Nullable CancelHandler cancelHandler) {
+	this.cancelHandler = cancelHandler;
+    }
+
+    /**
+     * Checks whether the request is parked, i.e. the handler has returned and the exchange is not yet resumed.
+     *
+     * @return {@code true} if the request is parked, {@code false} otherwise.
+     */
+    synchronized boolean isParked() {
+	return suspended && returned && ! resumed && ! cancelled;
+    }
+
+    /**
+     * Cancels the suspended request.
+     * After a successful cancellation, the response of the request is never sent.
+     *
+     * @return {@code true} if the request has been cancelled, {@code false} if it is not suspended or it has already
+     *   been resumed or is about to be resumed.
+     */
+    boolean cancel() {
+	CancelHandler handler;
+	synchronized (this) {
+	    if (! suspended || resumed || cancelled) {
+		return false;
+	    }
+	    handler = cancelHandler;
+	}
+	// called without holding the monitor, as the handler may resume the exchange
+	if (handler != null && ! handler.cancel()) {
+	    return false;
+	}
+	synchronized (this) {
+	    if (resumed) {
+		return false;
+	    }
+	    cancelled = true;
+	    if (returned) {
+		parkedCounter.decrementAndGet();
+	    }
+	    return true;
+	}
+    }
+
+    /**
+     * Signals that the handler has returned.
+     *
+     * @return {@code true} if the response must be sent by the calling thread, {@code false} if it is sent on
+     *   {@link #resume()}.
+     */
+    synchronized boolean handlerReturned() {
+	returned = true;
+	if (cancelled) {
+	    return false;
+	} else if (suspended && ! resumed) {
+	    parkedCounter.incrementAndGet();
+	    return false;
+	}
+	return true;
+    }
+
+
+    /**
+     * Handler withdrawing the pending work of a cancelled request.
+     */
+    public interface CancelHandler {
+
+	/**
+	 * Withdraws the pending work of the request.
+	 *
+	 * @return {@code true} if the work has been withdrawn, {@code false} if the exchange is about to be resumed.
+	 */
+	boolean cancel();
+
+    }
+
+}
@@ -51,7 +51,8 @@ public class HttpBinding {
     private final DocumentRoot documentRoot;
     private List<HttpRequestInterceptor> reqInterceptors;
     private List<HttpResponseInterceptor> respInterceptors;
-    private HttpService service;
+    private HttpServer service;
+    private HttpServiceConfig serviceConfig;
     private AddonManager addonManager;
 
     public void setAddonManager(AddonManager addonManager) {
@@ -93,6 +94,16 @@ public class HttpBinding {
 	this.respInterceptors = respInterceptors;
     }
 
+    /**
+     * Sets the worker configuration of the HTTP service.
+     * The configuration must be set before the binding is started, otherwise the default configuration is used.
+     *
+     * @param serviceConfig Configuration of the workers processing the connections.
+     */
+    public void setServiceConfig(HttpServiceConfig serviceConfig) {
+	this.serviceConfig = serviceConfig;
+    }
+
     public void start() throws Exception {
 	// Add default interceptors if none are given
 	if (reqInterceptors == null) {
@@ -111,7 +122,12 @@ public class HttpBinding {
 	    throw new HttpServiceError("Trying to use uninitialized GttpBinding instance.");
 	} else {
 	    HttpAppPluginActionHandler handler = new HttpAppPluginActionHandler(addonManager);
-	    service = new HttpService(port, handler, reqInterceptors, respInterceptors);
+	    HttpServiceConfig config = serviceConfig != null ? serviceConfig : new HttpServiceConfig();
+	    if (config.isNonBlocking()) {
+		service = new NioHttpService(port, handler, reqInterceptors, respInterceptors, config);
+	    } else {
+		service = new HttpService(port, handler, reqInterceptors, respInterceptors, config);
+	    }
 	    service.start();
 	}
     }
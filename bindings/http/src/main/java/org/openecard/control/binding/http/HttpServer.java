@@ -1,5 +1,5 @@
 /****************************************************************************
- * Copyright (C) 2016 ecsec GmbH.
+ * Copyright (C) 2012-2018 ecsec GmbH.
  * All rights reserved.
  * Contact: ecsec GmbH (info@ecsec.de)
  *
@@ -20,27 +20,31 @@
  *
  ***************************************************************************/
 
-package org.openecard.common.event;
+package org.openecard.control.binding.http;
 
-import org.openecard.common.interfaces.EventCallback;
 
 /**
+ * Server implementation of the localhost binding.
  *
  * @author Tobias Wich
  */
-class EventRunner implements Runnable {
+public interface HttpServer {
 
-    private final EventCallback cb;
-    private final EventType t;
-    private final EventObject o;
+    /**
+     * Starts the server.
+     */
+    void start();
 
-    public EventRunner(EventCallback cb, EventType t, EventObject o) {
-	this.cb = cb; this.t = t; this.o = o;
-    }
+    /**
+     * Stops the server and releases all its resources.
+     */
+    void interrupt();
 
-    @Override
-    public void run() {
-	cb.signalEvent(t, o);
-    }
+    /**
+     * Returns the port number on which the server is listening.
+     *
+     * @return Port
+     */
+    int getPort();
 
 }
@@ -23,46 +23,109 @@
 package org.openecard.control.binding.http;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetDecoder;
-import java.nio.charset.CharsetEncoder;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import org.openecard.apache.http.ConnectionClosedException;
 import org.openecard.apache.http.ConnectionReuseStrategy;
+import org.openecard.apache.http.HttpEntityEnclosingRequest;
+import org.openecard.apache.http.HttpException;
+import org.openecard.apache.http.HttpRequest;
 import org.openecard.apache.http.HttpRequestInterceptor;
+import org.openecard.apache.http.HttpResponse;
 import org.openecard.apache.http.HttpResponseFactory;
 import org.openecard.apache.http.HttpResponseInterceptor;
+import org.openecard.apache.http.HttpStatus;
+import org.openecard.apache.http.HttpVersion;
+import org.openecard.apache.http.MethodNotSupportedException;
+import org.openecard.apache.http.ProtocolException;
+import org.openecard.apache.http.UnsupportedHttpVersionException;
 import org.openecard.apache.http.impl.DefaultBHttpServerConnection;
 import org.openecard.apache.http.impl.DefaultConnectionReuseStrategy;
 import org.openecard.apache.http.impl.DefaultHttpResponseFactory;
+import org.openecard.apache.http.message.BasicHttpResponse;
 import org.openecard.apache.http.protocol.BasicHttpContext;
+import org.openecard.apache.http.protocol.HTTP;
+import org.openecard.apache.http.protocol.HttpContext;
+import org.openecard.apache.http.protocol.HttpCoreContext;
 import org.openecard.apache.http.protocol.HttpProcessor;
 import org.openecard.apache.http.protocol.HttpRequestHandler;
 import org.openecard.apache.http.protocol.ImmutableHttpProcessor;
 import org.openecard.apache.http.protocol.UriHttpRequestHandlerMapper;
+import org.openecard.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
+ * HTTP server of the localhost binding.
+ * Accepted connections are processed by a bounded pool of reusable workers, which is configured by a
+ * {@link HttpServiceConfig}. Connections which can neither be processed nor queued are answered with
+ * {@code 503 Service Unavailable}.
+ * <p>
+ * Handlers may park a request with the {@link AsyncHttpExchange} found in the context of the request, so that waiting
+ * requests (e.g. long polling of the status) do not hold a worker. The response of a parked request is sent by the
+ * thread resuming the exchange, afterwards the connection is handed back to the pool. Parked requests are cancelled
+ * and answered with {@code 503 Service Unavailable} when they are parked longer than the park timeout. As the
+ * connection is not read while its request is parked, a disconnected client is only noticed then.
+ * </p>
+ * <p>
+ * Idle keep-alive connections only keep their worker as long as no other connection waits for one. A connection
+ * arriving while all workers are busy, including the connection of a resumed request, is handed directly to the worker
+ * of an idle keep-alive connection, which closes the idle connection and continues with the new one. A connection which has been queued nevertheless releases the
+ * worker of an idle keep-alive connection.
+ * </p>
  *
  * @author Moritz Horsch
  * @author Tobias Wich
  */
-public class HttpService implements Runnable {
+public class HttpService implements HttpServer, Runnable {
 
     private static final Logger LOG = LoggerFactory.getLogger(HttpService.class);
     private static final int BACKLOG = 10;
+    private static final int BUFFER_SIZE = 8192;
+    // states of a worker waiting for the next request of its keep-alive connection
+    private static final Object PENDING = new Object();
+    private static final Object CLAIMED = new Object();
+    private static final Object RELEASED = new Object();
+    /** Context attribute marking the last request which is processed on a connection. */
+    static final String LAST_REQUEST_ATTR = "org.openecard.binding.http.last-request";
 
     private final Thread thread;
-    private final org.openecard.apache.http.protocol.HttpService service;
+    private final HttpServiceConfig config;
+    private final HttpProcessor httpProcessor;
+    private final UriHttpRequestHandlerMapper handlerRegistry;
+    private final HttpResponseFactory responseFactory;
+    private final ConnectionReuseStrategy reuseStrategy;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledThreadPoolExecutor parkTimer;
+    // workers waiting for the next request of their keep-alive connection, oldest first
+    private final ConcurrentLinkedQueue<ConnectionWorker> idleWorkers;
+    private final AtomicInteger activeConnections;
+    private final AtomicInteger parkedRequests;
+    private final AtomicLong rejectedConnections;
     protected final ServerSocket server;
 
     /**
-     * Creates a new HTTPService.
+     * Creates a new HTTPService with the default worker configuration.
      *
      * @param port Port
      * @param handler Handler
@@ -72,29 +135,121 @@ public class HttpService implements Runnable {
      */
     public HttpService(int port, HttpRequestHandler handler, List<HttpRequestInterceptor> reqInterceptors,
 	    List<HttpResponseInterceptor> respInterceptors) throws Exception {
+	this(port, handler, reqInterceptors, respInterceptors, new HttpServiceConfig());
+    }
+
+    /**
+     * Creates a new HTTPService.
+     *
+     * @param port Port
+     * @param handler Handler
+     * @param reqInterceptors
+     * @param respInterceptors
+     * @param config Configuration of the workers processing the connections.
+     * @throws Exception
+     */
+    public HttpService(int port, HttpRequestHandler handler, List<HttpRequestInterceptor> reqInterceptors,
+	    List<HttpResponseInterceptor> respInterceptors, HttpServiceConfig config) throws Exception {
 	server = new ServerSocket(port, BACKLOG, InetAddress.getByName("127.0.0.1"));
 	LOG.debug("Starting HTTP Binding on port {}", getPort());
-	thread = new Thread(this, "Open-eCard Localhost-Binding-" + getPort());
+	String name = "Open-eCard Localhost-Binding-" + getPort();
+	thread = new Thread(this, name);
+	this.config = config;
+	this.workers = createWorkers(config, name + "-Worker-");
+	this.parkTimer = new ScheduledThreadPoolExecutor(1, (Runnable r) -> {
+	    Thread t = new Thread(r, name + "-Park-Timer");
+	    t.setDaemon(true);
+	    return t;
+	});
+	this.parkTimer.setRemoveOnCancelPolicy(true);
+	this.idleWorkers = new ConcurrentLinkedQueue<>();
+	this.activeConnections = new AtomicInteger();
+	this.parkedRequests = new AtomicInteger();
+	this.rejectedConnections = new AtomicLong();
 
-	// Reuse strategy
-	ConnectionReuseStrategy connectionReuseStrategy = new DefaultConnectionReuseStrategy();
+	// Reuse strategy, closing the connection after the maximum number of requests
+	reuseStrategy = new ConnectionReuseStrategy() {
+	    @Override
+	    public boolean keepAlive(HttpResponse response, HttpContext context) {
+		return context.getAttribute(LAST_REQUEST_ATTR) == null
+			&& DefaultConnectionReuseStrategy.INSTANCE.keepAlive(response, context);
+	    }
+	};
 	// Response factory
-	HttpResponseFactory responseFactory = new DefaultHttpResponseFactory();
-	// Interceptors
-	HttpProcessor httpProcessor = new ImmutableHttpProcessor(reqInterceptors, respInterceptors);
+	responseFactory = new DefaultHttpResponseFactory();
+	// Interceptors, announce the end of the connection to the client
+	ArrayList<HttpResponseInterceptor> allRespInterceptors = new ArrayList<>(respInterceptors);
+	allRespInterceptors.add((HttpResponse response, HttpContext context) -> {
+	    if (context.getAttribute(LAST_REQUEST_ATTR) != null) {
+		response.setHeader(HTTP.CONN_DIRECTIVE, HTTP.CONN_CLOSE);
+	    }
+	});
+	httpProcessor = new ImmutableHttpProcessor(reqInterceptors, allRespInterceptors);
 
 	// Set up handler registry
-	UriHttpRequestHandlerMapper handlerRegistry = new UriHttpRequestHandlerMapper();
+	handlerRegistry = new UriHttpRequestHandlerMapper();
 	LOG.debug("Add handler [{}] for ID [{}]", new Object[]{handler.getClass().getCanonicalName(), "*"});
 	handlerRegistry.register("*", handler);
+    }
+
+    static ThreadPoolExecutor createWorkers(HttpServiceConfig config, final String namePrefix) {
+	BlockingQueue<Runnable> queue;
+	if (config.getMaxQueued() > 0) {
+	    queue = new ArrayBlockingQueue<>(config.getMaxQueued());
+	} else {
+	    queue = new SynchronousQueue<>();
+	}
+
+	ThreadFactory tf = null;
+	if (config.isVirtualThreads()) {
+	    tf = createVirtualThreadFactory(namePrefix);
+	    if (tf == null) {
+		LOG.info("Virtual threads are not supported by this JVM, using platform threads instead.");
+	    }
+	}
+	if (tf == null) {
+	    tf = new ThreadFactory() {
+		private final AtomicInteger num = new AtomicInteger();
+		@Override
+		public Thread newThread(Runnable r) {
+		    Thread t = new Thread(r, namePrefix + num.getAndIncrement());
+		    t.setDaemon(true);
+		    return t;
+		}
+	    };
+	}
 
-	// create service instance
-	service = new org.openecard.apache.http.protocol.HttpService(httpProcessor, connectionReuseStrategy, responseFactory, handlerRegistry);
+	int max = config.getMaxWorkers();
+	ThreadPoolExecutor pool = new ThreadPoolExecutor(max, max, 60, TimeUnit.SECONDS, queue, tf);
+	// don't keep idle threads around
+	pool.allowCoreThreadTimeOut(true);
+	return pool;
+    }
+
+    /**
+     * Creates a factory for virtual threads if the JVM supports them.
+     * Reflection is used, as the code must run on JVMs without virtual threads as well.
+     *
+     * @param namePrefix Prefix of the thread names.
+     * @return The factory, or {@code null} if virtual threads are not available.
+     */
+    private static ThreadFactory createVirtualThreadFactory(String namePrefix) {
+	try {
+	    Method ofVirtual = Thread.class.getMethod("ofVirtual");
+	    Object builder = ofVirtual.invoke(null);
+	    Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+	    builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+	    return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+	} catch (ReflectiveOperationException | RuntimeException ex) {
+	    // not available or preview feature not enabled
+	    return null;
+	}
     }
 
     /**
      * Starts the server.
      */
+    @Override
     public void start() {
 	thread.start();
     }
@@ -102,11 +257,19 @@ public class HttpService implements Runnable {
     /**
      * Interrupts the server.
      */
+    @Override
     public void interrupt() {
 	try {
 	    thread.interrupt();
 	    server.close();
 	} catch (Exception ignore) {
+	} finally {
+	    workers.shutdownNow();
+	    parkTimer.shutdownNow();
+	    // blocking reads are not interrupted, so the idle connections are closed
+	    while (wakeIdleWorker(RELEASED)) {
+		// next one
+	    }
 	}
     }
 
@@ -118,34 +281,11 @@ public class HttpService implements Runnable {
     public void run() {
 	while (! Thread.interrupted()) {
 	    try {
-		final DefaultBHttpServerConnection connection;
-		CharsetDecoder dec = Charset.forName("UTF-8").newDecoder();
-		CharsetEncoder enc = Charset.forName("UTF-8").newEncoder();
-		connection = new DefaultBHttpServerConnection(8192, dec, enc, null);
-		connection.bind(accept());
-
-		new Thread() {
-		    @Override
-		    public void run() {
-			try {
-			    while (connection.isOpen()) {
-				service.handleRequest(connection, new BasicHttpContext());
-			    }
-			} catch (ConnectionClosedException ex) {
-			    // connection closed by client, this is the expected outcome
-			} catch (org.openecard.apache.http.HttpException ex) {
-			    LOG.error("Error processing HTTP request or response.", ex);
-			} catch (IOException ex) {
-			    LOG.error("IO Error while processing HTTP request or response.", ex);
-			} finally {
-			    try {
-				connection.shutdown();
-			    } catch (IOException ignore) {
-			    }
-			}
-		    }
-
-		}.start();
+		Socket socket = accept();
+		if (! dispatch(new ConnectionWorker(socket))) {
+		    rejectedConnections.incrementAndGet();
+		    reject(socket);
+		}
 	    } catch (IOException | HttpServiceError ex) {
 		// if interrupted the error is intentionally (SocketClosedException)
 		if (! Thread.interrupted()) {
@@ -158,13 +298,436 @@ public class HttpService implements Runnable {
 	}
     }
 
+    /**
+     * Passes the connection to a worker.
+     * If all workers are busy, the worker of an idle keep-alive connection takes over the connection, otherwise it is
+     * queued.
+     *
+     * @param worker Processing of the connection.
+     * @return {@code true} if the connection is processed, {@code false} if no worker is available.
+     */
+    private boolean dispatch(ConnectionWorker worker) {
+	if (workers.getActiveCount() >= config.getMaxWorkers() && wakeIdleWorker(worker)) {
+	    return true;
+	}
+	try {
+	    workers.execute(worker);
+	    if (! workers.getQueue().isEmpty()) {
+		// a worker became idle while the connection has been queued
+		wakeIdleWorker(RELEASED);
+	    }
+	    return true;
+	} catch (RejectedExecutionException ex) {
+	    return wakeIdleWorker(worker);
+	}
+    }
+
+    /**
+     * Ends the wait of the oldest worker of an idle keep-alive connection.
+     *
+     * @param handOff The processing of a connection the worker continues with, or {@link #RELEASED} if the worker
+     *   should be returned to the pool.
+     * @return {@code true} if a worker has been woken up, {@code false} if no worker is idle.
+     */
+    private boolean wakeIdleWorker(Object handOff) {
+	ConnectionWorker w;
+	while ((w = idleWorkers.poll()) != null) {
+	    if (w.idleState.compareAndSet(PENDING, handOff)) {
+		// still sending its response, so it is not waiting yet
+		return true;
+	    } else if (w.idleState.compareAndSet(null, handOff)) {
+		w.wakeUp();
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    private void reject(Socket socket) {
+	LOG.warn("Rejecting connection, all HTTP workers are busy.");
+	WorkerConnection connection = new WorkerConnection();
+	try {
+	    connection.bind(socket);
+	    sendServiceUnavailable(connection);
+	} catch (IOException | HttpException ex) {
+	    LOG.debug("Failed to send rejection to client.", ex);
+	} finally {
+	    shutdown(connection);
+	}
+    }
+
+    private static void sendServiceUnavailable(DefaultBHttpServerConnection connection) throws IOException,
+	    HttpException {
+	BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1,
+		HttpStatus.SC_SERVICE_UNAVAILABLE, "Service Unavailable");
+	response.setHeader(HTTP.CONN_DIRECTIVE, HTTP.CONN_CLOSE);
+	response.setHeader(HTTP.CONTENT_LEN, "0");
+	response.setHeader("Retry-After", "1");
+	connection.sendResponseHeader(response);
+	connection.flush();
+    }
+
+    private static void shutdown(DefaultBHttpServerConnection connection) {
+	try {
+	    connection.shutdown();
+	} catch (IOException ignore) {
+	}
+    }
+
     /**
      * Returns the port number on which the HTTP binding is listening.
      *
      * @return Port
      */
+    @Override
     public final int getPort() {
 	return server.getLocalPort();
     }
 
+    /**
+     * Gets the number of connections which are currently processed by a worker.
+     *
+     * @return Number of active connections.
+     */
+    public int getActiveConnections() {
+	return activeConnections.get();
+    }
+
+    /**
+     * Gets the number of connections waiting for a free worker.
+     *
+     * @return Number of queued connections.
+     */
+    public int getQueuedConnections() {
+	return workers.getQueue().size();
+    }
+
+    /**
+     * Gets the number of requests which are parked by their handler.
+     *
+     * @return Number of parked requests.
+     */
+    public int getParkedRequests() {
+	return parkedRequests.get();
+    }
+
+    /**
+     * Gets the number of connections which have been rejected because all workers were busy.
+     *
+     * @return Number of rejected connections since the start of the service.
+     */
+    public long getRejectedConnections() {
+	return rejectedConnections.get();
+    }
+
+
+    /**
+     * Server connection which can wait for the next request without blocking until the idle timeout.
+     */
+    private static final class WorkerConnection extends DefaultBHttpServerConnection {
+
+	WorkerConnection() {
+	    // a connection may be used by different threads when its request is parked, so it has its own coders
+	    super(BUFFER_SIZE, StandardCharsets.UTF_8.newDecoder(), StandardCharsets.UTF_8.newEncoder(), null);
+	}
+
+	/**
+	 * Waits for data or the end of the stream.
+	 *
+	 * @param timeout Time to wait in milliseconds, 0 means no timeout.
+	 * @return {@code true} if the next request can be read without waiting, {@code false} otherwise.
+	 * @throws IOException Thrown in case reading from the socket failed.
+	 */
+	boolean isInputReady(int timeout) throws IOException {
+	    try {
+		awaitInput(timeout);
+		return true;
+	    } catch (SocketTimeoutException ex) {
+		return false;
+	    }
+	}
+
+    }
+
+
+    /**
+     * Processing of the requests of one connection.
+     * The worker is run again by the pool after a parked request of the connection has been completed.
+     */
+    private final class ConnectionWorker implements Runnable {
+
+	private final Socket socket;
+	private final WorkerConnection connection;
+	// null while waiting for the next request, PENDING while sending a keep-alive response, CLAIMED, RELEASED or a
+	// handed off worker otherwise
+	private final AtomicReference<Object> idleState;
+	private int numRequests;
+	// state of the current request
+	private HttpRequest request;
+	private HttpResponse response;
+	private HttpContext context;
+	private AsyncHttpExchange exchange;
+	private volatile ScheduledFuture<?> parkTimeout;
+
+	ConnectionWorker(Socket socket) {
+	    this.socket = socket;
+	    this.connection = new WorkerConnection();
+	    this.idleState = new AtomicReference<>(CLAIMED);
+	}
+
+	@Override
+	public void run() {
+	    ConnectionWorker next = this;
+	    while (next != null) {
+		next = next.serve();
+	    }
+	}
+
+	/**
+	 * Processes the requests of the connection until it is closed or a request is parked.
+	 *
+	 * @return The worker of the connection handed to this thread, or {@code null} if there is none.
+	 */
+	private ConnectionWorker serve() {
+	    activeConnections.incrementAndGet();
+	    boolean close = true;
+	    try {
+		if (numRequests == 0) {
+		    socket.setSoTimeout(config.getIdleTimeoutMillis());
+		    connection.bind(socket);
+		}
+		while (connection.isOpen()) {
+		    if (numRequests > 0 && ! awaitNextRequest()) {
+			break;
+		    }
+		    BasicHttpContext ctx = new BasicHttpContext();
+		    if (++numRequests >= config.getMaxKeepAliveRequests()) {
+			ctx.setAttribute(LAST_REQUEST_ATTR, Boolean.TRUE);
+		    }
+		    if (! handleRequest(ctx)) {
+			// the response is sent when the exchange is resumed
+			close = false;
+			return null;
+		    }
+		}
+	    } catch (ConnectionClosedException ex) {
+		// connection closed by client, this is the expected outcome
+	    } catch (SocketTimeoutException ex) {
+		LOG.debug("Closing idle HTTP connection.");
+	    } catch (HttpException ex) {
+		LOG.error("Error processing HTTP request or response.", ex);
+	    } catch (IOException ex) {
+		LOG.error("IO Error while processing HTTP request or response.", ex);
+	    } finally {
+		if (close) {
+		    shutdown(connection);
+		}
+		activeConnections.decrementAndGet();
+	    }
+	    // another connection may have been handed to this worker while it has been offered as idle
+	    idleWorkers.remove(this);
+	    Object state = idleState.getAndSet(CLAIMED);
+	    return state instanceof ConnectionWorker ? (ConnectionWorker) state : null;
+	}
+
+	/**
+	 * Waits for the next request of the keep-alive connection.
+	 * The wait ends when the idle timeout is over or another connection needs the worker.
+	 *
+	 * @return {@code true} if the next request can be processed, {@code false} if the connection should be closed.
+	 * @throws IOException Thrown in case reading from the socket failed.
+	 */
+	private boolean awaitNextRequest() throws IOException {
+	    if (! idleState.compareAndSet(PENDING, null)) {
+		if (idleState.get() != CLAIMED) {
+		    // taken over while sending the response
+		    return false;
+		}
+		idleState.set(null);
+		idleWorkers.add(this);
+	    }
+	    // checked after registering, so that a connection queued in the meantime finds this worker
+	    if (! workers.getQueue().isEmpty() && idleState.compareAndSet(null, RELEASED)) {
+		idleWorkers.remove(this);
+		LOG.debug("Closing idle HTTP connection to release its worker.");
+		return false;
+	    }
+
+	    boolean ready = false;
+	    IOException error = null;
+	    try {
+		ready = connection.isInputReady(config.getIdleTimeoutMillis());
+	    } catch (IOException ex) {
+		error = ex;
+	    } finally {
+		idleWorkers.remove(this);
+	    }
+
+	    if (idleState.compareAndSet(null, CLAIMED)) {
+		if (error != null) {
+		    throw error;
+		} else if (! ready) {
+		    LOG.debug("Closing idle HTTP connection.");
+		}
+		return ready;
+	    } else {
+		LOG.debug("Closing idle HTTP connection to release its worker.");
+		return false;
+	    }
+	}
+
+	/**
+	 * Interrupts the wait for the next request by closing the connection.
+	 */
+	void wakeUp() {
+	    try {
+		socket.close();
+	    } catch (IOException ignore) {
+	    }
+	}
+
+	/**
+	 * Reads and processes the next request.
+	 *
+	 * @param ctx Context of the request.
+	 * @return {@code true} if the response has been sent, {@code false} if the request has been parked.
+	 * @throws IOException Thrown in case reading the request or writing the response failed.
+	 * @throws HttpException Thrown in case the response could not be written.
+	 */
+	private boolean handleRequest(HttpContext ctx) throws IOException, HttpException {
+	    context = ctx;
+	    request = null;
+	    exchange = null;
+	    ctx.setAttribute(HttpCoreContext.HTTP_CONNECTION, connection);
+	    try {
+		request = connection.receiveRequestHeader();
+		if (request instanceof HttpEntityEnclosingRequest) {
+		    HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
+		    if (entityRequest.expectContinue()) {
+			connection.sendResponseHeader(responseFactory.newHttpResponse(HttpVersion.HTTP_1_1,
+				HttpStatus.SC_CONTINUE, ctx));
+			connection.flush();
+		    }
+		    connection.receiveRequestEntity(entityRequest);
+		}
+
+		exchange = new AsyncHttpExchange(this::completeParked, parkedRequests);
+		ctx.setAttribute(AsyncHttpExchange.CONTEXT_ATTR, exchange);
+		ctx.setAttribute(HttpCoreContext.HTTP_REQUEST, request);
+		response = responseFactory.newHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, ctx);
+		ctx.setAttribute(HttpCoreContext.HTTP_RESPONSE, response);
+
+		httpProcessor.process(request, ctx);
+		HttpRequestHandler handler = handlerRegistry.lookup(request);
+		if (handler != null) {
+		    handler.handle(request, response, ctx);
+		} else {
+		    response.setStatusCode(HttpStatus.SC_NOT_IMPLEMENTED);
+		}
+		// make sure the request content is fully consumed
+		if (request instanceof HttpEntityEnclosingRequest) {
+		    EntityUtils.consume(((HttpEntityEnclosingRequest) request).getEntity());
+		}
+	    } catch (HttpException | RuntimeException ex) {
+		if (ex instanceof RuntimeException) {
+		    LOG.error("Error processing HTTP request.", ex);
+		}
+		response = createErrorResponse(ex, ctx);
+	    }
+
+	    if (exchange == null || exchange.handlerReturned()) {
+		sendResponse(true);
+		return true;
+	    }
+
+	    int timeout = config.getParkTimeoutMillis();
+	    if (timeout > 0) {
+		parkTimeout = parkTimer.schedule(this::cancelParked, timeout, TimeUnit.MILLISECONDS);
+	    }
+	    return false;
+	}
+
+	private HttpResponse createErrorResponse(Exception ex, HttpContext ctx) {
+	    int status;
+	    if (ex instanceof MethodNotSupportedException) {
+		status = HttpStatus.SC_NOT_IMPLEMENTED;
+	    } else if (ex instanceof UnsupportedHttpVersionException) {
+		status = HttpStatus.SC_HTTP_VERSION_NOT_SUPPORTED;
+	    } else if (ex instanceof ProtocolException) {
+		status = HttpStatus.SC_BAD_REQUEST;
+	    } else {
+		status = HttpStatus.SC_INTERNAL_SERVER_ERROR;
+	    }
+	    HttpResponse errResponse = responseFactory.newHttpResponse(HttpVersion.HTTP_1_1, status, ctx);
+	    ctx.setAttribute(HttpCoreContext.HTTP_RESPONSE, errResponse);
+	    return errResponse;
+	}
+
+	/**
+	 * Sends the response of the current request.
+	 *
+	 * @param offerIdle {@code true} if the worker should be offered to waiting connections before the response of a
+	 *   keep-alive connection is sent, as the client may open the next connection right after receiving it.
+	 * @throws IOException Thrown in case the response could not be written.
+	 * @throws HttpException Thrown in case the response could not be processed.
+	 */
+	private void sendResponse(boolean offerIdle) throws IOException, HttpException {
+	    httpProcessor.process(response, context);
+	    boolean keepAlive = reuseStrategy.keepAlive(response, context);
+	    if (offerIdle && keepAlive) {
+		idleState.set(PENDING);
+		idleWorkers.add(this);
+	    }
+	    connection.sendResponseHeader(response);
+	    if (request == null || NioHttpService.canResponseHaveBody(request, response)) {
+		connection.sendResponseEntity(response);
+	    }
+	    connection.flush();
+	    if (! keepAlive) {
+		connection.close();
+	    }
+	}
+
+	/**
+	 * Sends the response of the resumed request and hands the connection back to the pool.
+	 * This method is called by the thread resuming the exchange.
+	 */
+	private void completeParked() {
+	    ScheduledFuture<?> timeout = parkTimeout;
+	    if (timeout != null) {
+		timeout.cancel(false);
+	    }
+	    try {
+		sendResponse(false);
+		if (! connection.isOpen()) {
+		    return;
+		} else if (dispatch(this)) {
+		    return;
+		}
+		LOG.debug("No worker available for the connection of a resumed request, closing it.");
+	    } catch (IOException | HttpException ex) {
+		LOG.debug("Failed to send HTTP response of a resumed request.", ex);
+	    }
+	    shutdown(connection);
+	}
+
+	/**
+	 * Cancels the request of this connection, if it is still parked.
+	 * The client is informed with a {@code 503 Service Unavailable} response, so that it can repeat the request.
+	 */
+	private void cancelParked() {
+	    if (exchange.isParked() && exchange.cancel()) {
+		LOG.debug("Cancelling HTTP request which has been parked for too long.");
+		try {
+		    sendServiceUnavailable(connection);
+		} catch (IOException | HttpException ex) {
+		    LOG.debug("Failed to send HTTP response.", ex);
+		} finally {
+		    shutdown(connection);
+		}
+	    }
+	}
+
+    }
+
 }
@@ -0,0 +1,196 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.control.binding.http;
+
+
+/**
+ * Configuration of the worker model of the {@link HttpService} and {@link NioHttpService}.
+ * Connections are processed by a bounded pool of worker threads. When all workers are busy, connections are queued up
+ * to the given limit, all further connections are answered with {@code 503 Service Unavailable}. Requests parked by
+ * their handler, such as long polling of the status, do not hold a worker and are not limited.
+ *
+ * @author agent
+ */
+public class HttpServiceConfig {
+
+    public static final int DEFAULT_MAX_WORKERS = 32;
+    public static final int DEFAULT_MAX_QUEUED = 64;
+    public static final int DEFAULT_MAX_KEEP_ALIVE_REQUESTS = 100;
+    public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 10 * 1000;
+    public static final int DEFAULT_PARK_TIMEOUT_MILLIS = 60 * 1000;
+
+    private int maxWorkers = DEFAULT_MAX_WORKERS;
+    private int maxQueued = DEFAULT_MAX_QUEUED;
+    private int maxKeepAliveRequests = DEFAULT_MAX_KEEP_ALIVE_REQUESTS;
+    private int idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+    private int parkTimeoutMillis = DEFAULT_PARK_TIMEOUT_MILLIS;
+    private boolean virtualThreads = false;
+    private boolean nonBlocking = false;
+
+    /**
+     * Gets the maximum number of connections which are processed at the same time.
+     *
+     * @return Maximum number of worker threads.
+     */
+    public int getMaxWorkers() {
+	return maxWorkers;
+    }
+
+    /**
+     * Sets the maximum number of connections which are processed at the same time.
+     *
+     * @param maxWorkers Maximum number of worker threads, must be positive.
+     */
+    public void setMaxWorkers(int maxWorkers) {
+	if (maxWorkers <= 0) {
+	    throw new IllegalArgumentException("Number of workers must be positive.");
+	}
+	this.maxWorkers = maxWorkers;
+    }
+
+    /**
+     * Gets the maximum number of connections waiting for a free worker.
+     *
+     * @return Maximum number of queued connections.
+     */
+    public int getMaxQueued() {
+	return maxQueued;
+    }
+
+    /**
+     * Sets the maximum number of connections waiting for a free worker.
+     *
+     * @param maxQueued Maximum number of queued connections, 0 disables queueing.
+     */
+    public void setMaxQueued(int maxQueued) {
+	if (maxQueued < 0) {
+	    throw new IllegalArgumentException("Queue size must not be negative.");
+	}
+	this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Gets the maximum number of requests processed on one connection before it is closed.
+     *
+     * @return Maximum number of requests per connection.
+     */
+    public int getMaxKeepAliveRequests() {
+	return maxKeepAliveRequests;
+    }
+
+    /**
+     * Sets the maximum number of requests processed on one connection before it is closed.
+     *
+     * @param maxKeepAliveRequests Maximum number of requests per connection, must be positive.
+     */
+    public void setMaxKeepAliveRequests(int maxKeepAliveRequests) {
+	if (maxKeepAliveRequests <= 0) {
+	    throw new IllegalArgumentException("Number of keep-alive requests must be positive.");
+	}
+	this.maxKeepAliveRequests = maxKeepAliveRequests;
+    }
+
+    /**
+     * Gets the time a connection may wait for data from the client before it is closed.
+     * This timeout frees the workers held by idle keep-alive connections.
+     *
+     * @return Idle timeout in milliseconds, 0 means no timeout.
+     */
+    public int getIdleTimeoutMillis() {
+	return idleTimeoutMillis;
+    }
+
+    /**
+     * Sets the time a connection may wait for data from the client before it is closed.
+     *
+     * @param idleTimeoutMillis Idle timeout in milliseconds, 0 means no timeout.
+     */
+    public void setIdleTimeoutMillis(int idleTimeoutMillis) {
+	if (idleTimeoutMillis < 0) {
+	    throw new IllegalArgumentException("Idle timeout must not be negative.");
+	}
+	this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Gets the time a request may be parked by its handler before it is cancelled.
+     * Cancelled requests are answered with {@code 503 Service Unavailable}, so that the client repeats the request.
+     *
+     * @return Park timeout in milliseconds, 0 means no timeout.
+     */
+    public int getParkTimeoutMillis() {
+	return parkTimeoutMillis;
+    }
+
+    /**
+     * Sets the time a request may be parked by its handler before it is cancelled.
+     *
+     * @param parkTimeoutMillis Park timeout in milliseconds, 0 means no timeout.
+     */
+    public void setParkTimeoutMillis(int parkTimeoutMillis) {
+	if (parkTimeoutMillis < 0) {
+	    throw new IllegalArgumentException("Park timeout must not be negative.");
+	}
+	this.parkTimeoutMillis = parkTimeoutMillis;
+    }
+
+    /**
+     * Checks whether the workers should be virtual threads.
+     *
+     * @return {@code true} if virtual threads are requested, {@code false} otherwise.
+     */
+    public boolean isVirtualThreads() {
+	return virtualThreads;
+    }
+
+    /**
+     * Sets whether the workers should be virtual threads.
+     * Virtual threads are only used if the running JVM supports them, otherwise platform threads are used.
+     *
+     * @param virtualThreads {@code true} if virtual threads should be used, {@code false} otherwise.
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+	this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Checks whether the non-blocking {@link NioHttpService} should be used.
+     *
+     * @return {@code true} if the non-blocking server is used, {@code false} otherwise.
+     */
+    public boolean isNonBlocking() {
+	return nonBlocking;
+    }
+
+    /**
+     * Sets whether the non-blocking {@link NioHttpService} should be used.
+     * The non-blocking server serves all idle connections with a single thread and notices clients disconnecting while
+     * their request is parked.
+     *
+     * @param nonBlocking {@code true} if the non-blocking server should be used, {@code false} otherwise.
+     */
+    public void setNonBlocking(boolean nonBlocking) {
+	this.nonBlocking = nonBlocking;
+    }
+
+}
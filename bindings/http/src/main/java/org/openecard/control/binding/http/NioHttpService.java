@@ -0,0 +1,849 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.control.binding.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openecard.apache.http.ConnectionReuseStrategy;
+import org.openecard.apache.http.Header;
+import org.openecard.apache.http.HttpEntity;
+import org.openecard.apache.http.HttpEntityEnclosingRequest;
+import org.openecard.apache.http.HttpException;
+import org.openecard.apache.http.HttpRequest;
+import org.openecard.apache.http.HttpRequestInterceptor;
+import org.openecard.apache.http.HttpResponse;
+import org.openecard.apache.http.HttpResponseFactory;
+import org.openecard.apache.http.HttpResponseInterceptor;
+import org.openecard.apache.http.HttpStatus;
+import org.openecard.apache.http.HttpVersion;
+import org.openecard.apache.http.MessageConstraintException;
+import org.openecard.apache.http.MethodNotSupportedException;
+import org.openecard.apache.http.ProtocolException;
+import org.openecard.apache.http.UnsupportedHttpVersionException;
+import org.openecard.apache.http.entity.ByteArrayEntity;
+import org.openecard.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.openecard.apache.http.impl.DefaultHttpResponseFactory;
+import org.openecard.apache.http.impl.io.DefaultHttpRequestParser;
+import org.openecard.apache.http.impl.io.DefaultHttpResponseWriter;
+import org.openecard.apache.http.impl.io.HttpTransportMetricsImpl;
+import org.openecard.apache.http.impl.io.SessionInputBufferImpl;
+import org.openecard.apache.http.impl.io.SessionOutputBufferImpl;
+import org.openecard.apache.http.protocol.BasicHttpContext;
+import org.openecard.apache.http.protocol.HTTP;
+import org.openecard.apache.http.protocol.HttpContext;
+import org.openecard.apache.http.protocol.HttpCoreContext;
+import org.openecard.apache.http.protocol.HttpProcessor;
+import org.openecard.apache.http.protocol.HttpRequestHandler;
+import org.openecard.apache.http.protocol.ImmutableHttpProcessor;
+import org.openecard.apache.http.protocol.UriHttpRequestHandlerMapper;
+import org.openecard.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Non-blocking HTTP server of the localhost binding.
+ * All connections are served by a single selector thread, only the processing of a complete request is performed by
+ * the bounded worker pool configured by the {@link HttpServiceConfig}. Handlers may park a request with the
+ * {@link AsyncHttpExchange} found in the context of the request, so that waiting requests (e.g. long polling of the
+ * status) do not hold a worker thread.
+ * <p>
+ * Request and response interceptors as well as the request handlers are the same as for the blocking
+ * {@link HttpService}. Request bodies are either sent with a {@code Content-Length} header or chunked.
+ * </p>
+ * <p>
+ * Parked requests are cancelled when the client closes the connection or when they are parked longer than the park
+ * timeout of the {@link HttpServiceConfig}. Timed out requests are answered with {@code 503 Service Unavailable}.
+ * </p>
+ *
+ * @author agent
+ */
+public class NioHttpService implements HttpServer, Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NioHttpService.class);
+    private static final int BACKLOG = 10;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_HEADER_SIZE = 16 * 1024;
+    private static final int MAX_BODY_SIZE = 16 * 1024 * 1024;
+    private static final int MAX_CHUNK_LINE_SIZE = 1024;
+    private static final long SELECT_TIMEOUT_MILLIS = 1000;
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final Thread thread;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final HttpServiceConfig config;
+    private final HttpProcessor httpProcessor;
+    private final UriHttpRequestHandlerMapper handlerRegistry;
+    private final HttpResponseFactory responseFactory;
+    private final ConnectionReuseStrategy reuseStrategy;
+    private final ThreadPoolExecutor workers;
+    // connections with a response ready to be sent by the selector thread
+    private final ConcurrentLinkedQueue<Connection> pendingWrites;
+    // read buffer of the selector thread
+    private final ByteBuffer readBuffer;
+    private final AtomicInteger openConnections;
+    private final AtomicInteger parkedRequests;
+    private final AtomicLong rejectedRequests;
+    private volatile boolean started = false;
+
+    /**
+     * Creates a new NioHttpService.
+     *
+     * @param port Port used for the server. If the port is 0, then chose a port randomly.
+     * @param handler Handler
+     * @param reqInterceptors
+     * @param respInterceptors
+     * @param config Configuration of the workers processing the requests.
+     * @throws IOException Thrown in case the server socket could not be opened.
+     */
+    public NioHttpService(int port, HttpRequestHandler handler, List<HttpRequestInterceptor> reqInterceptors,
+	    List<HttpResponseInterceptor> respInterceptors, HttpServiceConfig config) throws IOException {
+	selector = Selector.open();
+	server = ServerSocketChannel.open();
+	try {
+	    server.socket().bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port), BACKLOG);
+	    server.configureBlocking(false);
+	    server.register(selector, SelectionKey.OP_ACCEPT);
+	} catch (IOException ex) {
+	    server.close();
+	    selector.close();
+	    throw ex;
+	}
+	LOG.debug("Starting non-blocking HTTP Binding on port {}", getPort());
+	thread = new Thread(this, "Open-eCard Localhost-Binding-" + getPort());
+	thread.setDaemon(true);
+
+	this.config = config;
+	this.workers = HttpService.createWorkers(config, "Open-eCard Localhost-Binding-" + getPort() + "-Worker-");
+	this.pendingWrites = new ConcurrentLinkedQueue<>();
+	this.readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	this.openConnections = new AtomicInteger();
+	this.parkedRequests = new AtomicInteger();
+	this.rejectedRequests = new AtomicLong();
+
+	// Reuse strategy, closing the connection after the maximum number of requests
+	reuseStrategy = (HttpResponse response, HttpContext context) -> {
+	    return context.getAttribute(HttpService.LAST_REQUEST_ATTR) == null
+		    && DefaultConnectionReuseStrategy.INSTANCE.keepAlive(response, context);
+	};
+	responseFactory = new DefaultHttpResponseFactory();
+	// Interceptors, announce the end of the connection to the client
+	ArrayList<HttpResponseInterceptor> allRespInterceptors = new ArrayList<>(respInterceptors);
+	allRespInterceptors.add((HttpResponse response, HttpContext context) -> {
+	    if (context.getAttribute(HttpService.LAST_REQUEST_ATTR) != null) {
+		response.setHeader(HTTP.CONN_DIRECTIVE, HTTP.CONN_CLOSE);
+	    }
+	});
+	httpProcessor = new ImmutableHttpProcessor(reqInterceptors, allRespInterceptors);
+
+	// Set up handler registry
+	handlerRegistry = new UriHttpRequestHandlerMapper();
+	LOG.debug("Add handler [{}] for ID [{}]", handler.getClass().getCanonicalName(), "*");
+	handlerRegistry.register("*", handler);
+    }
+
+    @Override
+    public void start() {
+	started = true;
+	thread.start();
+    }
+
+    @Override
+    public void interrupt() {
+	try {
+	    // free the port right away, the selector thread cleans up the rest
+	    server.close();
+	    if (started) {
+		thread.interrupt();
+		selector.wakeup();
+	    } else {
+		selector.close();
+	    }
+	} catch (IOException ignore) {
+	} finally {
+	    workers.shutdownNow();
+	}
+    }
+
+    @Override
+    public final int getPort() {
+	return server.socket().getLocalPort();
+    }
+
+    /**
+     * Gets the number of open client connections.
+     *
+     * @return Number of open connections.
+     */
+    public int getOpenConnections() {
+	return openConnections.get();
+    }
+
+    /**
+     * Gets the number of requests which are parked by their handler and wait for completion.
+     *
+     * @return Number of parked requests.
+     */
+    public int getParkedRequests() {
+	return parkedRequests.get();
+    }
+
+    /**
+     * Gets the number of requests which have been rejected because all workers were busy.
+     *
+     * @return Number of rejected requests since the start of the service.
+     */
+    public long getRejectedRequests() {
+	return rejectedRequests.get();
+    }
+
+    @Override
+    public void run() {
+	try {
+	    while (! Thread.interrupted()) {
+		selector.select(SELECT_TIMEOUT_MILLIS);
+
+		Connection next;
+		while ((next = pendingWrites.poll()) != null) {
+		    next.startResponse();
+		}
+
+		Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+		while (it.hasNext()) {
+		    SelectionKey key = it.next();
+		    it.remove();
+		    if (! key.isValid()) {
+			continue;
+		    }
+		    if (key.isAcceptable()) {
+			accept();
+		    } else {
+			Connection conn = (Connection) key.attachment();
+			try {
+			    if (key.isReadable()) {
+				conn.read();
+			    }
+			    if (key.isValid() && key.isWritable()) {
+				conn.write();
+			    }
+			} catch (IOException ex) {
+			    LOG.debug("IO Error while processing HTTP connection.", ex);
+			    conn.close();
+			}
+		    }
+		}
+
+		checkTimeouts();
+	    }
+	} catch (ClosedSelectorException ex) {
+	    // closed by interrupt
+	} catch (IOException ex) {
+	    LOG.error("HTTP selector loop failed.", ex);
+	} finally {
+	    shutdown();
+	}
+    }
+
+    private void accept() {
+	try {
+	    SocketChannel channel = server.accept();
+	    if (channel != null) {
+		channel.configureBlocking(false);
+		SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+		key.attach(new Connection(channel, key));
+		openConnections.incrementAndGet();
+	    }
+	} catch (IOException ex) {
+	    LOG.error("Failed to accept HTTP connection.", ex);
+	}
+    }
+
+    private void checkTimeouts() {
+	int idleTimeout = config.getIdleTimeoutMillis();
+	int parkTimeout = config.getParkTimeoutMillis();
+	long now = now();
+	for (SelectionKey key : selector.keys()) {
+	    Object att = key.attachment();
+	    if (att instanceof Connection) {
+		Connection conn = (Connection) att;
+		// requests in progress or parked requests are never idle
+		if (! conn.busy) {
+		    if (idleTimeout > 0 && now - conn.lastActivity > idleTimeout) {
+			LOG.debug("Closing idle HTTP connection.");
+			conn.close();
+		    }
+		} else if (parkTimeout > 0 && conn.task != null && now - conn.task.started > parkTimeout) {
+		    conn.cancelParkedRequest();
+		}
+	    }
+	}
+    }
+
+    private void shutdown() {
+	try {
+	    for (SelectionKey key : selector.keys()) {
+		Object att = key.attachment();
+		if (att instanceof Connection) {
+		    ((Connection) att).close();
+		}
+	    }
+	    selector.close();
+	} catch (IOException | ClosedSelectorException ignore) {
+	}
+    }
+
+    private static long now() {
+	return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private static byte[] createErrorResponse(int status, String reason) {
+	StringBuilder sb = new StringBuilder();
+	sb.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n");
+	sb.append("Connection: close\r\n");
+	sb.append("Content-Length: 0\r\n");
+	if (status == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+	    sb.append("Retry-After: 1\r\n");
+	}
+	sb.append("\r\n");
+	return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    static boolean canResponseHaveBody(HttpRequest request, HttpResponse response) {
+	if ("HEAD".equalsIgnoreCase(request.getRequestLine().getMethod())) {
+	    return false;
+	}
+	int status = response.getStatusLine().getStatusCode();
+	return status >= HttpStatus.SC_OK
+		&& status != HttpStatus.SC_NO_CONTENT
+		&& status != HttpStatus.SC_NOT_MODIFIED
+		&& status != HttpStatus.SC_RESET_CONTENT;
+    }
+
+
+    /**
+     * State of a client connection.
+     * Except for the handover of responses, all fields are only accessed by the selector thread.
+     */
+    private final class Connection {
+
+	private final SocketChannel channel;
+	private final SelectionKey key;
+	private byte[] in = new byte[BUFFER_SIZE];
+	private int inLen = 0;
+	private ByteBuffer out;
+	private boolean closeAfterWrite;
+	private boolean finishRequest;
+	private boolean continueSent;
+	private int numRequests;
+	private long lastActivity;
+	// request processed by a worker or parked by its handler
+	private RequestTask task;
+	// decoded part of a chunked request body and position of the next chunk header
+	private ByteArrayOutputStream chunkedBody;
+	private int chunkOffset;
+	private volatile boolean busy;
+	private volatile boolean closed;
+	// response handed over to the selector thread
+	private byte[] pendingResponse;
+	private boolean pendingKeepAlive;
+
+	Connection(SocketChannel channel, SelectionKey key) {
+	    this.channel = channel;
+	    this.key = key;
+	    this.lastActivity = now();
+	}
+
+	void read() throws IOException {
+	    readBuffer.clear();
+	    int num = channel.read(readBuffer);
+	    if (num < 0) {
+		// client is gone, drop a parked request as well
+		close();
+		return;
+	    }
+	    lastActivity = now();
+	    readBuffer.flip();
+	    ensureCapacity(inLen + num);
+	    readBuffer.get(in, inLen, num);
+	    inLen += num;
+
+	    if (! busy) {
+		processInput();
+	    } else if (inLen >= MAX_HEADER_SIZE) {
+		// pipelined requests are processed later, stop reading until then
+		key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+	    }
+	}
+
+	private void ensureCapacity(int size) {
+	    if (size > in.length) {
+		in = Arrays.copyOf(in, Math.max(size, in.length * 2));
+	    }
+	}
+
+	private void processInput() throws IOException {
+	    int headerEnd = findHeaderEnd();
+	    if (headerEnd < 0) {
+		if (inLen > MAX_HEADER_SIZE) {
+		    sendError(431, "Request Header Fields Too Large");
+		}
+		return;
+	    }
+
+	    HttpRequest request;
+	    try {
+		SessionInputBufferImpl sessionBuffer = new SessionInputBufferImpl(new HttpTransportMetricsImpl(), BUFFER_SIZE);
+		sessionBuffer.bind(new ByteArrayInputStream(in, 0, headerEnd));
+		request = new DefaultHttpRequestParser(sessionBuffer).parse();
+	    } catch (HttpException | IOException ex) {
+		LOG.debug("Failed to parse HTTP request.", ex);
+		sendError(HttpStatus.SC_BAD_REQUEST, "Bad Request");
+		return;
+	    }
+
+	    int bodyLen = 0;
+	    boolean chunked = false;
+	    if (request instanceof HttpEntityEnclosingRequest) {
+		Header transferEncoding = request.getFirstHeader(HTTP.TRANSFER_ENCODING);
+		Header contentLength = request.getFirstHeader(HTTP.CONTENT_LEN);
+		if (transferEncoding != null) {
+		    if (! HTTP.CHUNK_CODING.equalsIgnoreCase(transferEncoding.getValue().trim())) {
+			sendError(HttpStatus.SC_NOT_IMPLEMENTED, "Not Implemented");
+			return;
+		    }
+		    chunked = true;
+		} else if (contentLength != null) {
+		    long len;
+		    try {
+			len = Long.parseLong(contentLength.getValue().trim());
+		    } catch (NumberFormatException ex) {
+			len = -1;
+		    }
+		    if (len < 0) {
+			sendError(HttpStatus.SC_BAD_REQUEST, "Bad Request");
+			return;
+		    } else if (len > MAX_BODY_SIZE) {
+			sendError(HttpStatus.SC_REQUEST_TOO_LONG, "Payload Too Large");
+			return;
+		    }
+		    bodyLen = (int) len;
+		}
+	    }
+
+	    byte[] body;
+	    int requestEnd;
+	    if (chunked) {
+		if (chunkedBody == null) {
+		    chunkedBody = new ByteArrayOutputStream(BUFFER_SIZE);
+		    chunkOffset = headerEnd;
+		}
+		try {
+		    requestEnd = readChunks();
+		} catch (MessageConstraintException ex) {
+		    LOG.debug("Chunked HTTP request is too large.", ex);
+		    sendError(HttpStatus.SC_REQUEST_TOO_LONG, "Payload Too Large");
+		    return;
+		} catch (ProtocolException ex) {
+		    LOG.debug("Failed to parse chunked HTTP request.", ex);
+		    sendError(HttpStatus.SC_BAD_REQUEST, "Bad Request");
+		    return;
+		}
+		body = requestEnd < 0 ? null : chunkedBody.toByteArray();
+	    } else if (inLen - headerEnd < bodyLen) {
+		ensureCapacity(headerEnd + bodyLen);
+		requestEnd = -1;
+		body = null;
+	    } else {
+		requestEnd = headerEnd + bodyLen;
+		body = Arrays.copyOfRange(in, headerEnd, requestEnd);
+	    }
+
+	    if (requestEnd < 0) {
+		// wait for the rest of the body
+		Header expect = request.getFirstHeader(HTTP.EXPECT_DIRECTIVE);
+		if (! continueSent && expect != null && HTTP.EXPECT_CONTINUE.equalsIgnoreCase(expect.getValue())) {
+		    continueSent = true;
+		    send(ByteBuffer.wrap(CONTINUE), false, false);
+		}
+		return;
+	    }
+
+	    if (request instanceof HttpEntityEnclosingRequest) {
+		ByteArrayEntity entity = new ByteArrayEntity(body);
+		entity.setContentType(request.getFirstHeader(HTTP.CONTENT_TYPE));
+		((HttpEntityEnclosingRequest) request).setEntity(entity);
+	    }
+	    consume(requestEnd);
+	    chunkedBody = null;
+	    continueSent = false;
+
+	    busy = true;
+	    boolean lastRequest = ++numRequests >= config.getMaxKeepAliveRequests();
+	    task = new RequestTask(this, request, lastRequest);
+	    try {
+		workers.execute(task);
+	    } catch (RejectedExecutionException ex) {
+		LOG.warn("Rejecting request, all HTTP workers are busy.");
+		task = null;
+		rejectedRequests.incrementAndGet();
+		sendError(HttpStatus.SC_SERVICE_UNAVAILABLE, "Service Unavailable");
+	    }
+	}
+
+	/**
+	 * Decodes the chunks of the request body received so far.
+	 * Decoding continues at the chunk following the last completely received chunk.
+	 *
+	 * @return Offset of the end of the request in the input buffer, or -1 if the body is not yet complete.
+	 * @throws ProtocolException Thrown in case the chunked encoding is malformed.
+	 * @throws MessageConstraintException Thrown in case the body exceeds the maximum body size.
+	 */
+	private int readChunks() throws ProtocolException, MessageConstraintException {
+	    while (true) {
+		int lineEnd = findLineEnd(chunkOffset);
+		if (lineEnd < 0) {
+		    if (inLen - chunkOffset > MAX_CHUNK_LINE_SIZE) {
+			throw new ProtocolException("Chunk header is too long.");
+		    }
+		    return -1;
+		}
+
+		String sizeStr = new String(in, chunkOffset, lineEnd - 2 - chunkOffset, StandardCharsets.US_ASCII);
+		int extIdx = sizeStr.indexOf(';');
+		if (extIdx >= 0) {
+		    sizeStr = sizeStr.substring(0, extIdx);
+		}
+		long size;
+		try {
+		    size = Long.parseLong(sizeStr.trim(), 16);
+		} catch (NumberFormatException ex) {
+		    throw new ProtocolException("Invalid chunk size.");
+		}
+		if (size < 0) {
+		    throw new ProtocolException("Invalid chunk size.");
+		} else if (size == 0) {
+		    // last chunk, skip the trailer up to the empty line
+		    int pos = lineEnd;
+		    int trailerEnd;
+		    while ((trailerEnd = findLineEnd(pos)) >= 0) {
+			if (trailerEnd - pos == 2) {
+			    return trailerEnd;
+			}
+			pos = trailerEnd;
+		    }
+		    if (inLen - lineEnd > MAX_HEADER_SIZE) {
+			throw new ProtocolException("Chunk trailer is too long.");
+		    }
+		    return -1;
+		} else if (chunkedBody.size() + size > MAX_BODY_SIZE) {
+		    throw new MessageConstraintException("Maximum body size exceeded.");
+		}
+
+		int chunkEnd = lineEnd + (int) size;
+		if (inLen < chunkEnd + 2) {
+		    ensureCapacity(chunkEnd + 2);
+		    return -1;
+		} else if (in[chunkEnd] != '\r' || in[chunkEnd + 1] != '\n') {
+		    throw new ProtocolException("Chunk is not terminated by CRLF.");
+		}
+		chunkedBody.write(in, lineEnd, (int) size);
+		chunkOffset = chunkEnd + 2;
+	    }
+	}
+
+	/**
+	 * Finds the end of the line starting at the given offset.
+	 *
+	 * @param offset Offset of the line in the input buffer.
+	 * @return Offset after the terminating CRLF, or -1 if the line is not complete.
+	 */
+	private int findLineEnd(int offset) {
+	    for (int i = offset + 1; i < inLen; i++) {
+		if (in[i] == '\n' && in[i - 1] == '\r') {
+		    return i + 1;
+		}
+	    }
+	    return -1;
+	}
+
+	private int findHeaderEnd() {
+	    for (int i = 3; i < inLen; i++) {
+		if (in[i] == '\n' && in[i - 1] == '\r' && in[i - 2] == '\n' && in[i - 3] == '\r') {
+		    return i + 1;
+		}
+	    }
+	    return -1;
+	}
+
+	private void consume(int num) {
+	    System.arraycopy(in, num, in, 0, inLen - num);
+	    inLen -= num;
+	    if (inLen == 0 && in.length > BUFFER_SIZE) {
+		// don't keep large request buffers of idle connections
+		in = new byte[BUFFER_SIZE];
+	    }
+	}
+
+	private void sendError(int status, String reason) throws IOException {
+	    busy = true;
+	    send(ByteBuffer.wrap(createErrorResponse(status, reason)), true, false);
+	}
+
+	private void send(ByteBuffer data, boolean close, boolean finish) throws IOException {
+	    out = data;
+	    closeAfterWrite = close;
+	    finishRequest = finish;
+	    int ops = SelectionKey.OP_WRITE;
+	    if (! close) {
+		// keep reading to detect closed connections
+		ops |= key.interestOps() & SelectionKey.OP_READ;
+	    }
+	    key.interestOps(ops);
+	    write();
+	}
+
+	void write() throws IOException {
+	    if (out == null) {
+		return;
+	    }
+	    channel.write(out);
+	    lastActivity = now();
+	    if (out.hasRemaining()) {
+		return;
+	    }
+
+	    out = null;
+	    if (closeAfterWrite) {
+		close();
+	    } else {
+		key.interestOps(SelectionKey.OP_READ);
+		if (finishRequest) {
+		    finishRequest = false;
+		    task = null;
+		    busy = false;
+		    // process pipelined requests
+		    processInput();
+		}
+	    }
+	}
+
+	/**
+	 * Hands the response over to the selector thread.
+	 * This method is called by the thread which completed the request.
+	 */
+	void respond(byte[] response, boolean keepAlive) {
+	    if (closed) {
+		return;
+	    }
+	    pendingResponse = response;
+	    pendingKeepAlive = keepAlive;
+	    pendingWrites.add(this);
+	    selector.wakeup();
+	}
+
+	void startResponse() {
+	    if (closed) {
+		return;
+	    }
+	    try {
+		byte[] response = pendingResponse;
+		pendingResponse = null;
+		send(ByteBuffer.wrap(response), ! pendingKeepAlive, true);
+	    } catch (IOException ex) {
+		LOG.debug("Failed to send HTTP response.", ex);
+		close();
+	    }
+	}
+
+	/**
+	 * Cancels the request of this connection, if it is parked.
+	 * The client is informed with a {@code 503 Service Unavailable} response, so that it can repeat the request.
+	 */
+	void cancelParkedRequest() {
+	    if (task.exchange.isParked() && task.exchange.cancel()) {
+		LOG.debug("Cancelling HTTP request which has been parked for too long.");
+		task = null;
+		try {
+		    sendError(HttpStatus.SC_SERVICE_UNAVAILABLE, "Service Unavailable");
+		} catch (IOException ex) {
+		    LOG.debug("Failed to send HTTP response.", ex);
+		    close();
+		}
+	    }
+	}
+
+	void close() {
+	    if (! closed) {
+		closed = true;
+		if (task != null) {
+		    // the client is gone, withdraw a parked request
+		    task.exchange.cancel();
+		    task = null;
+		}
+		key.cancel();
+		try {
+		    channel.close();
+		} catch (IOException ignore) {
+		}
+		openConnections.decrementAndGet();
+	    }
+	}
+
+    }
+
+
+    /**
+     * Processing of a request by a worker thread.
+     */
+    private final class RequestTask implements Runnable {
+
+	private final Connection conn;
+	private final HttpRequest request;
+	private final HttpContext context;
+	private final AsyncHttpExchange exchange;
+	private final long started;
+	private volatile HttpResponse response;
+
+	RequestTask(Connection conn, HttpRequest request, boolean lastRequest) {
+	    this.conn = conn;
+	    this.request = request;
+	    this.context = new BasicHttpContext();
+	    this.exchange = new AsyncHttpExchange(this::complete, parkedRequests);
+	    this.started = now();
+	    if (lastRequest) {
+		context.setAttribute(HttpService.LAST_REQUEST_ATTR, Boolean.TRUE);
+	    }
+	}
+
+	@Override
+	public void run() {
+	    context.setAttribute(AsyncHttpExchange.CONTEXT_ATTR, exchange);
+	    context.setAttribute(HttpCoreContext.HTTP_REQUEST, request);
+	    response = responseFactory.newHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, context);
+	    context.setAttribute(HttpCoreContext.HTTP_RESPONSE, response);
+
+	    try {
+		httpProcessor.process(request, context);
+		HttpRequestHandler handler = handlerRegistry.lookup(request);
+		if (handler != null) {
+		    handler.handle(request, response, context);
+		} else {
+		    response.setStatusCode(HttpStatus.SC_NOT_IMPLEMENTED);
+		}
+	    } catch (HttpException ex) {
+		response = createErrorResponse(ex);
+	    } catch (IOException | RuntimeException ex) {
+		LOG.error("Error processing HTTP request.", ex);
+		response = createErrorResponse(ex);
+	    }
+
+	    if (exchange.handlerReturned()) {
+		complete();
+	    } else if (conn.closed) {
+		// the connection has been closed before the request was parked
+		exchange.cancel();
+	    }
+	}
+
+	private HttpResponse createErrorResponse(Exception ex) {
+	    int status;
+	    if (ex instanceof MethodNotSupportedException) {
+		status = HttpStatus.SC_NOT_IMPLEMENTED;
+	    } else if (ex instanceof UnsupportedHttpVersionException) {
+		status = HttpStatus.SC_HTTP_VERSION_NOT_SUPPORTED;
+	    } else if (ex instanceof ProtocolException) {
+		status = HttpStatus.SC_BAD_REQUEST;
+	    } else {
+		status = HttpStatus.SC_INTERNAL_SERVER_ERROR;
+	    }
+	    HttpResponse errResponse = responseFactory.newHttpResponse(HttpVersion.HTTP_1_1, status, context);
+	    context.setAttribute(HttpCoreContext.HTTP_RESPONSE, errResponse);
+	    return errResponse;
+	}
+
+	private void complete() {
+	    try {
+		HttpResponse resp = response;
+		httpProcessor.process(resp, context);
+
+		// the complete entity is sent, so its length is always known
+		byte[] body = null;
+		HttpEntity entity = resp.getEntity();
+		if (entity != null) {
+		    body = EntityUtils.toByteArray(entity);
+		}
+		if (body == null) {
+		    body = new byte[0];
+		}
+		resp.removeHeaders(HTTP.TRANSFER_ENCODING);
+		int status = resp.getStatusLine().getStatusCode();
+		if (status >= HttpStatus.SC_OK && status != HttpStatus.SC_NO_CONTENT && status != HttpStatus.SC_NOT_MODIFIED) {
+		    resp.setHeader(HTTP.CONTENT_LEN, Integer.toString(body.length));
+		}
+
+		boolean keepAlive = reuseStrategy.keepAlive(resp, context);
+		if (! keepAlive) {
+		    resp.setHeader(HTTP.CONN_DIRECTIVE, HTTP.CONN_CLOSE);
+		}
+
+		ByteArrayOutputStream data = new ByteArrayOutputStream(BUFFER_SIZE);
+		SessionOutputBufferImpl sessionBuffer = new SessionOutputBufferImpl(new HttpTransportMetricsImpl(), BUFFER_SIZE);
+		sessionBuffer.bind(data);
+		new DefaultHttpResponseWriter(sessionBuffer).write(resp);
+		sessionBuffer.flush();
+		if (canResponseHaveBody(request, resp)) {
+		    data.write(body);
+		}
+
+		conn.respond(data.toByteArray(), keepAlive);
+	    } catch (HttpException | IOException | RuntimeException ex) {
+		LOG.error("Error processing HTTP response.", ex);
+		conn.respond(NioHttpService.createErrorResponse(HttpStatus.SC_INTERNAL_SERVER_ERROR, "Internal Server Error"),
+			false);
+	    }
+	}
+
+    }
+
+}
@@ -104,6 +104,10 @@ public class CORSFilter {
 	    // add CORS Headers
 	    httpResponse.addHeader("Access-Control-Allow-Origin", origin.toString());
 	    httpResponse.addHeader("Access-Control-Allow-Credentials", "true");
+	    // make the entity tag readable for scripts, so they can request deltas based on it
+	    if (httpResponse.containsHeader("ETag")) {
+		httpResponse.addHeader("Access-Control-Expose-Headers", "ETag");
+	    }
 	    // preflight stuff
 
 	    if (isPreflight(httpRequest)) {
@@ -29,14 +29,17 @@ import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nonnull;
 import org.openecard.addon.AddonManager;
 import org.openecard.addon.AddonNotFoundException;
 import org.openecard.addon.AddonSelector;
 import org.openecard.addon.bind.AppPluginAction;
+import org.openecard.addon.bind.AsyncAppPluginAction;
 import org.openecard.addon.bind.AuxDataKeys;
 import org.openecard.addon.bind.BindingResult;
 import org.openecard.addon.bind.BindingResultCode;
+import org.openecard.addon.bind.Cancellable;
 import org.openecard.addon.bind.Headers;
 import org.openecard.addon.bind.RequestBody;
 import org.openecard.addon.bind.ResponseBody;
@@ -54,6 +57,7 @@ import org.openecard.apache.http.entity.StringEntity;
 import org.openecard.apache.http.protocol.HttpContext;
 import org.openecard.common.util.FileUtils;
 import org.openecard.common.util.HttpRequestLineUtils;
+import org.openecard.control.binding.http.AsyncHttpExchange;
 import org.openecard.control.binding.http.common.DocumentRoot;
 import org.openecard.control.binding.http.common.HeaderTypes;
 import org.openecard.control.binding.http.common.Http11Response;
@@ -62,6 +66,9 @@ import org.slf4j.LoggerFactory;
 
 
 /**
+ * Handler dispatching requests to the AppPluginActions of the add-ons.
+ * If the server supports asynchronous processing, the request is parked while an {@link AsyncAppPluginAction} is
+ * processed, so that waiting actions do not hold a thread of the server.
  *
  * @author Dirk Petrautzki
  * @author Tobias Wich
@@ -124,15 +131,16 @@ public class HttpAppPluginActionHandler extends HttpControlHandler {
 	    // and add some special values to the header section
 	    headers.setHeader(METHOD_HDR, httpRequest.getRequestLine().getMethod());
 
-	    BindingResult bindingResult = action.execute(body, queries, headers, null);
-
-	    HttpResponse response = createHTTPResponseFromBindingResult(bindingResult);
-	    response.setParams(httpRequest.getParams());
-	    LOG.debug("HTTP response: {}", response);
-	    Http11Response.copyHttpResponse(response, httpResponse);
-
-	    // CORS post processing
-	    corsFilter.postProcess(httpRequest, httpResponse, context);
+	    AsyncHttpExchange exchange = AsyncHttpExchange.get(context);
+	    if (exchange != null && action instanceof AsyncAppPluginAction) {
+		// the action is returned when the result is available
+		AsyncAppPluginAction asyncAction = (AsyncAppPluginAction) action;
+		action = null;
+		executeAsync(asyncAction, exchange, body, queries, headers, httpRequest, httpResponse, corsFilter, context);
+	    } else {
+		BindingResult bindingResult = action.execute(body, queries, headers, null);
+		writeResponse(bindingResult, httpRequest, httpResponse, corsFilter, context);
+	    }
 	} catch (AddonNotFoundException ex) {
 	    if (path.equals("/")) {
 		new IndexHandler().handle(httpRequest, httpResponse, context);
@@ -149,6 +157,59 @@ public class HttpAppPluginActionHandler extends HttpControlHandler {
     }
 
 
+    private void executeAsync(final AsyncAppPluginAction action, final AsyncHttpExchange exchange, RequestBody body,
+	    Map<String, String> queries, Headers headers, final HttpRequest httpRequest, final HttpResponse httpResponse,
+	    final CORSFilter corsFilter, final HttpContext context) {
+	final AtomicBoolean done = new AtomicBoolean(false);
+	exchange.suspend();
+	try {
+	    final Cancellable pending = action.executeAsync(body, queries, headers, null, (BindingResult result) -> {
+		if (done.compareAndSet(false, true)) {
+		    try {
+			writeResponse(result, httpRequest, httpResponse, corsFilter, context);
+		    } catch (RuntimeException ex) {
+			LOG.error("Failed to create HTTP response.", ex);
+			httpResponse.setStatusCode(HttpStatus.SC_INTERNAL_SERVER_ERROR);
+		    } finally {
+			selector.returnAppPluginAction(action);
+			exchange.resume();
+		    }
+		}
+	    });
+	    if (pending != null) {
+		// the client is gone or waited too long, the action is not needed anymore
+		exchange.setCancelHandler(() -> {
+		    if (pending.cancel() && done.compareAndSet(false, true)) {
+			selector.returnAppPluginAction(action);
+			return true;
+		    }
+		    return false;
+		});
+	    }
+	} catch (RuntimeException ex) {
+	    if (done.compareAndSet(false, true)) {
+		LOG.error("Failed to execute AppPluginAction.", ex);
+		httpResponse.setStatusCode(HttpStatus.SC_INTERNAL_SERVER_ERROR);
+		selector.returnAppPluginAction(action);
+		exchange.resume();
+	    } else {
+		throw ex;
+	    }
+	}
+    }
+
+    private void writeResponse(BindingResult bindingResult, HttpRequest httpRequest, HttpResponse httpResponse,
+	    CORSFilter corsFilter, HttpContext context) {
+	HttpResponse response = createHTTPResponseFromBindingResult(bindingResult);
+	response.setParams(httpRequest.getParams());
+	LOG.debug("HTTP response: {}", response);
+	Http11Response.copyHttpResponse(response, httpResponse);
+
+	// CORS post processing
+	corsFilter.postProcess(httpRequest, httpResponse, context);
+    }
+
+
     private Headers readReqHeaders(HttpRequest httpRequest) {
 	Headers headers = new Headers();
 
@@ -214,6 +275,11 @@ public class HttpAppPluginActionHandler extends HttpControlHandler {
 	    case OK:
 		response = new Http11Response(HttpStatus.SC_OK);
 		break;
+	    case NOT_MODIFIED:
+		// a 304 response must not contain a body
+		response = new Http11Response(HttpStatus.SC_NOT_MODIFIED);
+		addEntityTag(response, bindingResult);
+		return response;
 	    case REDIRECT:
 		response = new Http11Response(HttpStatus.SC_SEE_OTHER);
 		String location = bindingResult.getAuxResultData().get(AuxDataKeys.REDIRECT_LOCATION);
@@ -252,10 +318,18 @@ public class HttpAppPluginActionHandler extends HttpControlHandler {
 		response = new Http11Response(HttpStatus.SC_INTERNAL_SERVER_ERROR);
 	}
 
+	addEntityTag(response, bindingResult);
 	addHTTPEntity(response, bindingResult);
 	return response;
     }
 
+    private void addEntityTag(HttpResponse response, BindingResult bindingResult) {
+	String etag = bindingResult.getAuxResultData().get(AuxDataKeys.ENTITY_TAG);
+	if (etag != null) {
+	    response.setHeader(HeaderTypes.ETAG.fieldName(), etag);
+	}
+    }
+
     private RequestBody getRequestBody(HttpRequest httpRequest, String resourceName) throws IOException {
 	try {
 	    HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) httpRequest;
@@ -0,0 +1,273 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.control.binding.http;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openecard.apache.http.HttpRequestInterceptor;
+import org.openecard.apache.http.HttpResponse;
+import org.openecard.apache.http.HttpResponseInterceptor;
+import org.openecard.apache.http.HttpStatus;
+import org.openecard.apache.http.entity.StringEntity;
+import org.openecard.apache.http.protocol.HTTP;
+import org.openecard.apache.http.protocol.HttpRequestHandler;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the worker model of the blocking {@link HttpService}.
+ *
+ * @author agent
+ */
+public class HttpServiceTest {
+
+    private CountDownLatch release;
+    private CountDownLatch blocked;
+    private AtomicInteger numRequests;
+    private BlockingQueue<Parked> parked;
+    private HttpService service;
+
+    private final HttpRequestHandler handler = (request, response, context) -> {
+	numRequests.incrementAndGet();
+	if (request.getRequestLine().getUri().startsWith("/park")) {
+	    AsyncHttpExchange exchange = AsyncHttpExchange.get(context);
+	    exchange.suspend();
+	    parked.add(new Parked(exchange, response));
+	    return;
+	} else if (request.getRequestLine().getUri().startsWith("/block")) {
+	    blocked.countDown();
+	    try {
+		release.await(10, TimeUnit.SECONDS);
+	    } catch (InterruptedException ex) {
+		Thread.currentThread().interrupt();
+	    }
+	}
+	// the handlers of the binding set the length themselves, see Http11Response
+	response.setStatusCode(HttpStatus.SC_OK);
+	response.setEntity(new StringEntity("ok"));
+	response.setHeader(HTTP.CONTENT_LEN, "2");
+    };
+
+    @BeforeMethod
+    public void setUp() {
+	release = new CountDownLatch(1);
+	blocked = new CountDownLatch(1);
+	numRequests = new AtomicInteger();
+	parked = new LinkedBlockingQueue<>();
+    }
+
+    @AfterMethod
+    public void stopService() {
+	release.countDown();
+	if (service != null) {
+	    service.interrupt();
+	    service = null;
+	}
+    }
+
+    private HttpService startService(int maxWorkers, int maxQueued, int idleTimeout) throws Exception {
+	return startService(maxWorkers, maxQueued, idleTimeout, HttpServiceConfig.DEFAULT_PARK_TIMEOUT_MILLIS);
+    }
+
+    private HttpService startService(int maxWorkers, int maxQueued, int idleTimeout, int parkTimeout)
+	    throws Exception {
+	HttpServiceConfig config = new HttpServiceConfig();
+	config.setMaxWorkers(maxWorkers);
+	config.setMaxQueued(maxQueued);
+	config.setIdleTimeoutMillis(idleTimeout);
+	config.setParkTimeoutMillis(parkTimeout);
+	service = new HttpService(0, handler, Collections.<HttpRequestInterceptor>emptyList(),
+		Collections.<HttpResponseInterceptor>emptyList(), config);
+	service.start();
+	return service;
+    }
+
+    @Test
+    public void testRejectWhenBusy() throws Exception {
+	startService(1, 0, 10 * 1000);
+	try (RawHttpConnection busy = new RawHttpConnection(service.getPort());
+		RawHttpConnection rejected = new RawHttpConnection(service.getPort())) {
+	    busy.sendGet("/block");
+	    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+	    // the rejection is sent right after the connection is accepted
+	    RawHttpConnection.Response r = rejected.readResponse();
+	    assertEquals(r.status, HttpStatus.SC_SERVICE_UNAVAILABLE);
+	    assertEquals(r.headers.get("retry-after"), "1");
+	    assertTrue(rejected.awaitClose(5 * 1000));
+	    assertEquals(service.getRejectedConnections(), 1);
+
+	    // the blocked request is still answered
+	    release.countDown();
+	    assertEquals(busy.readResponse().status, HttpStatus.SC_OK);
+	}
+    }
+
+    @Test
+    public void testKeepAliveReuse() throws Exception {
+	startService(1, 0, 10 * 1000);
+	try (RawHttpConnection c = new RawHttpConnection(service.getPort())) {
+	    for (int i = 0; i < 3; i++) {
+		RawHttpConnection.Response r = c.get("/status");
+		assertEquals(r.status, HttpStatus.SC_OK);
+		assertEquals(r.body, "ok");
+		assertNotEquals(r.headers.get("connection"), "Close");
+	    }
+	}
+	assertEquals(numRequests.get(), 3);
+	assertEquals(service.getRejectedConnections(), 0);
+    }
+
+    @Test
+    public void testIdleTimeout() throws Exception {
+	startService(2, 0, 300);
+	try (RawHttpConnection c = new RawHttpConnection(service.getPort())) {
+	    assertEquals(c.get("/status").status, HttpStatus.SC_OK);
+	    long start = System.nanoTime();
+	    assertTrue(c.awaitClose(5 * 1000));
+	    long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	    assertTrue(waited >= 200, "Connection closed before the idle timeout.");
+	}
+	awaitNoActiveConnections();
+    }
+
+    @Test
+    public void testIdleConnectionReleasedForQueuedConnection() throws Exception {
+	testIdleConnectionReleased(1);
+    }
+
+    @Test
+    public void testIdleConnectionReleasedWithoutQueue() throws Exception {
+	testIdleConnectionReleased(0);
+    }
+
+    private void testIdleConnectionReleased(int maxQueued) throws Exception {
+	// the idle timeout alone would keep the only worker for too long
+	startService(1, maxQueued, 60 * 1000);
+	try (RawHttpConnection idle = new RawHttpConnection(service.getPort())) {
+	    assertEquals(idle.get("/status").status, HttpStatus.SC_OK);
+
+	    try (RawHttpConnection next = new RawHttpConnection(service.getPort())) {
+		RawHttpConnection.Response r = next.get("/status");
+		assertEquals(r.status, HttpStatus.SC_OK);
+		assertTrue(idle.awaitClose(5 * 1000));
+		assertEquals(service.getRejectedConnections(), 0);
+	    }
+	}
+    }
+
+    @Test
+    public void testLongPoll() throws Exception {
+	// a single worker, which must not be held by the parked requests
+	startService(1, 0, 10 * 1000);
+	try (RawHttpConnection poll1 = new RawHttpConnection(service.getPort())) {
+	    poll1.sendGet("/park");
+	    Parked p1 = parked.poll(5, TimeUnit.SECONDS);
+	    assertNotNull(p1);
+	    awaitParkedRequests(1);
+	    try (RawHttpConnection poll2 = new RawHttpConnection(service.getPort())) {
+		poll2.sendGet("/park");
+		Parked p2 = parked.poll(5, TimeUnit.SECONDS);
+		assertNotNull(p2);
+		awaitParkedRequests(2);
+
+		try (RawHttpConnection other = new RawHttpConnection(service.getPort())) {
+		    // both requests are parked, so the worker is free
+		    assertEquals(other.get("/status").body, "ok");
+
+		    p1.response.setEntity(new StringEntity("event"));
+		    p1.response.setHeader(HTTP.CONTENT_LEN, "5");
+		    p1.exchange.resume();
+		    RawHttpConnection.Response r = poll1.readResponse();
+		    assertEquals(r.status, HttpStatus.SC_OK);
+		    assertEquals(r.body, "event");
+		    // the connection is served again, the idle connection releases the worker for it
+		    assertEquals(poll1.get("/status").body, "ok");
+		    assertTrue(other.awaitClose(5 * 1000));
+		    assertEquals(service.getParkedRequests(), 1);
+		    assertEquals(service.getRejectedConnections(), 0);
+		}
+	    }
+	}
+    }
+
+    @Test
+    public void testParkTimeout() throws Exception {
+	startService(1, 0, 10 * 1000, 200);
+	try (RawHttpConnection poll = new RawHttpConnection(service.getPort())) {
+	    poll.sendGet("/park");
+	    RawHttpConnection.Response r = poll.readResponse();
+	    assertEquals(r.status, HttpStatus.SC_SERVICE_UNAVAILABLE);
+	    assertEquals(r.headers.get("retry-after"), "1");
+	    assertTrue(poll.awaitClose(5 * 1000));
+	    assertEquals(service.getParkedRequests(), 0);
+
+	    // a late result is ignored
+	    Parked p = parked.poll(5, TimeUnit.SECONDS);
+	    assertNotNull(p);
+	    p.exchange.resume();
+	}
+    }
+
+    private void awaitParkedRequests(int num) throws InterruptedException, IOException {
+	long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+	while (service.getParkedRequests() != num) {
+	    if (System.nanoTime() > deadline) {
+		throw new IOException("Number of parked requests did not reach " + num + ".");
+	    }
+	    Thread.sleep(10);
+	}
+    }
+
+    private void awaitNoActiveConnections() throws InterruptedException, IOException {
+	long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+	while (service.getActiveConnections() > 0) {
+	    if (System.nanoTime() > deadline) {
+		throw new IOException("Worker has not been released.");
+	    }
+	    Thread.sleep(10);
+	}
+    }
+
+
+
+    private static class Parked {
+	final AsyncHttpExchange exchange;
+	final HttpResponse response;
+
+	Parked(AsyncHttpExchange exchange, HttpResponse response) {
+	    this.exchange = exchange;
+	    this.response = response;
+	}
+    }
+
+}
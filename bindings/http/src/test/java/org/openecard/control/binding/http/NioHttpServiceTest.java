@@ -0,0 +1,233 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.control.binding.http;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openecard.apache.http.HttpEntityEnclosingRequest;
+import org.openecard.apache.http.HttpRequestInterceptor;
+import org.openecard.apache.http.HttpResponse;
+import org.openecard.apache.http.HttpResponseInterceptor;
+import org.openecard.apache.http.HttpStatus;
+import org.openecard.apache.http.entity.StringEntity;
+import org.openecard.apache.http.protocol.HttpRequestHandler;
+import org.openecard.apache.http.util.EntityUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the request processing and the parking of requests of the {@link NioHttpService}.
+ *
+ * @author agent
+ */
+public class NioHttpServiceTest {
+
+    private BlockingQueue<Parked> parked;
+    private AtomicInteger cancelled;
+    private NioHttpService service;
+
+    private final HttpRequestHandler handler = (request, response, context) -> {
+	String path = request.getRequestLine().getUri();
+	if (path.startsWith("/park")) {
+	    AsyncHttpExchange exchange = AsyncHttpExchange.get(context);
+	    exchange.suspend();
+	    exchange.setCancelHandler(() -> {
+		cancelled.incrementAndGet();
+		return true;
+	    });
+	    parked.add(new Parked(exchange, response));
+	} else if (request instanceof HttpEntityEnclosingRequest) {
+	    String body = EntityUtils.toString(((HttpEntityEnclosingRequest) request).getEntity());
+	    response.setEntity(new StringEntity("echo:" + body));
+	} else {
+	    response.setEntity(new StringEntity("ok"));
+	}
+    };
+
+    @BeforeMethod
+    public void setUp() {
+	parked = new LinkedBlockingQueue<>();
+	cancelled = new AtomicInteger();
+    }
+
+    @AfterMethod
+    public void stopService() {
+	if (service != null) {
+	    service.interrupt();
+	    service = null;
+	}
+    }
+
+    private NioHttpService startService(int maxWorkers, int parkTimeout) throws IOException {
+	HttpServiceConfig config = new HttpServiceConfig();
+	config.setNonBlocking(true);
+	config.setMaxWorkers(maxWorkers);
+	config.setMaxQueued(0);
+	config.setParkTimeoutMillis(parkTimeout);
+	service = new NioHttpService(0, handler, Collections.<HttpRequestInterceptor>emptyList(),
+		Collections.<HttpResponseInterceptor>emptyList(), config);
+	service.start();
+	return service;
+    }
+
+    @Test
+    public void testRequestResponse() throws Exception {
+	startService(2, 0);
+	try (RawHttpConnection c = new RawHttpConnection(service.getPort())) {
+	    RawHttpConnection.Response r = c.get("/status");
+	    assertEquals(r.status, HttpStatus.SC_OK);
+	    assertEquals(r.body, "ok");
+
+	    // same connection
+	    c.send("POST /echo HTTP/1.1\r\nHost: 127.0.0.1\r\nContent-Length: 5\r\n\r\nhello");
+	    r = c.readResponse();
+	    assertEquals(r.status, HttpStatus.SC_OK);
+	    assertEquals(r.body, "echo:hello");
+	    assertEquals(r.headers.get("content-length"), "10");
+	}
+	assertEquals(service.getRejectedRequests(), 0);
+    }
+
+    @Test
+    public void testPipelinedRequests() throws Exception {
+	startService(2, 0);
+	try (RawHttpConnection c = new RawHttpConnection(service.getPort())) {
+	    c.send("GET /a HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n"
+		    + "POST /b HTTP/1.1\r\nHost: 127.0.0.1\r\nContent-Length: 3\r\n\r\nabc");
+	    assertEquals(c.readResponse().body, "ok");
+	    assertEquals(c.readResponse().body, "echo:abc");
+	}
+    }
+
+    @Test
+    public void testChunkedRequest() throws Exception {
+	startService(2, 0);
+	try (RawHttpConnection c = new RawHttpConnection(service.getPort())) {
+	    // body and chunks arrive in several packets
+	    c.send("POST /echo HTTP/1.1\r\nHost: 127.0.0.1\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhel");
+	    Thread.sleep(50);
+	    c.send("lo\r\n7;ext=1\r\n, world\r\n");
+	    Thread.sleep(50);
+	    c.send("0\r\nX-Trailer: 1\r\n\r\n");
+	    RawHttpConnection.Response r = c.readResponse();
+	    assertEquals(r.status, HttpStatus.SC_OK);
+	    assertEquals(r.body, "echo:hello, world");
+
+	    // connection is still usable
+	    assertEquals(c.get("/status").body, "ok");
+	}
+    }
+
+    @Test
+    public void testMalformedChunkedRequest() throws Exception {
+	startService(2, 0);
+	try (RawHttpConnection c = new RawHttpConnection(service.getPort())) {
+	    c.send("POST /echo HTTP/1.1\r\nHost: 127.0.0.1\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\n");
+	    assertEquals(c.readResponse().status, HttpStatus.SC_BAD_REQUEST);
+	    assertTrue(c.awaitClose(5 * 1000));
+	}
+    }
+
+    @Test
+    public void testLongPoll() throws Exception {
+	// a single worker, which must not be held by the parked request
+	startService(1, 0);
+	try (RawHttpConnection poll = new RawHttpConnection(service.getPort());
+		RawHttpConnection other = new RawHttpConnection(service.getPort())) {
+	    poll.sendGet("/park");
+	    Parked p = parked.poll(5, TimeUnit.SECONDS);
+	    assertNotNull(p);
+	    awaitParkedRequests(1);
+
+	    assertEquals(other.get("/status").body, "ok");
+
+	    p.response.setEntity(new StringEntity("event"));
+	    p.exchange.resume();
+	    RawHttpConnection.Response r = poll.readResponse();
+	    assertEquals(r.status, HttpStatus.SC_OK);
+	    assertEquals(r.body, "event");
+	    assertEquals(service.getParkedRequests(), 0);
+	    assertEquals(cancelled.get(), 0);
+	}
+    }
+
+    @Test
+    public void testDisconnectCancelsParkedRequest() throws Exception {
+	startService(1, 0);
+	RawHttpConnection poll = new RawHttpConnection(service.getPort());
+	poll.sendGet("/park");
+	Parked p = parked.poll(5, TimeUnit.SECONDS);
+	assertNotNull(p);
+	awaitParkedRequests(1);
+
+	poll.close();
+	awaitParkedRequests(0);
+	assertEquals(cancelled.get(), 1);
+	// a late result is ignored
+	p.exchange.resume();
+	assertEquals(service.getParkedRequests(), 0);
+    }
+
+    @Test
+    public void testParkTimeout() throws Exception {
+	startService(1, 200);
+	try (RawHttpConnection poll = new RawHttpConnection(service.getPort())) {
+	    poll.sendGet("/park");
+	    RawHttpConnection.Response r = poll.readResponse();
+	    assertEquals(r.status, HttpStatus.SC_SERVICE_UNAVAILABLE);
+	    assertEquals(r.headers.get("retry-after"), "1");
+	    assertEquals(cancelled.get(), 1);
+	    assertEquals(service.getParkedRequests(), 0);
+	}
+    }
+
+    private void awaitParkedRequests(int num) throws InterruptedException, IOException {
+	long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+	while (service.getParkedRequests() != num) {
+	    if (System.nanoTime() > deadline) {
+		throw new IOException("Number of parked requests did not reach " + num + ".");
+	    }
+	    Thread.sleep(10);
+	}
+    }
+
+
+    private static class Parked {
+	final AsyncHttpExchange exchange;
+	final HttpResponse response;
+
+	Parked(AsyncHttpExchange exchange, HttpResponse response) {
+	    this.exchange = exchange;
+	    this.response = response;
+	}
+    }
+
+}
@@ -0,0 +1,147 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.control.binding.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Minimal HTTP/1.1 client for the tests of the HTTP servers.
+ * The connection is kept open between requests, so that keep-alive behaviour can be observed.
+ *
+ * @author agent
+ */
+class RawHttpConnection implements Closeable {
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+
+    RawHttpConnection(int port) throws IOException {
+	socket = new Socket(InetAddress.getByName("127.0.0.1"), port);
+	socket.setSoTimeout(10 * 1000);
+	in = socket.getInputStream();
+	out = socket.getOutputStream();
+    }
+
+    void sendGet(String path) throws IOException {
+	send("GET " + path + " HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n");
+    }
+
+    void send(String data) throws IOException {
+	out.write(data.getBytes(StandardCharsets.US_ASCII));
+	out.flush();
+    }
+
+    Response get(String path) throws IOException {
+	sendGet(path);
+	return readResponse();
+    }
+
+    Response readResponse() throws IOException {
+	String statusLine = readLine();
+	if (statusLine == null) {
+	    throw new IOException("Connection closed before the response was received.");
+	}
+	Response r = new Response();
+	r.status = Integer.parseInt(statusLine.split(" ")[1]);
+	String line;
+	while ((line = readLine()) != null && ! line.isEmpty()) {
+	    int idx = line.indexOf(':');
+	    r.headers.put(line.substring(0, idx).trim().toLowerCase(Locale.ROOT), line.substring(idx + 1).trim());
+	}
+	String len = r.headers.get("content-length");
+	byte[] body = new byte[len == null ? 0 : Integer.parseInt(len)];
+	int off = 0;
+	while (off < body.length) {
+	    int num = in.read(body, off, body.length - off);
+	    if (num < 0) {
+		throw new IOException("Connection closed while reading the response body.");
+	    }
+	    off += num;
+	}
+	r.body = new String(body, StandardCharsets.UTF_8);
+	return r;
+    }
+
+    /**
+     * Waits until the server closes the connection.
+     *
+     * @param timeoutMillis Maximum time to wait.
+     * @return {@code true} if the connection has been closed, {@code false} if the timeout is over.
+     * @throws IOException Thrown in case the server sent data instead of closing the connection.
+     */
+    boolean awaitClose(int timeoutMillis) throws IOException {
+	socket.setSoTimeout(timeoutMillis);
+	try {
+	    int b = in.read();
+	    if (b >= 0) {
+		throw new IOException("Unexpected data received from the server.");
+	    }
+	    return true;
+	} catch (SocketTimeoutException ex) {
+	    return false;
+	} catch (SocketException ex) {
+	    // connection reset
+	    return true;
+	}
+    }
+
+    private String readLine() throws IOException {
+	ByteArrayOutputStream line = new ByteArrayOutputStream();
+	int b;
+	while ((b = in.read()) >= 0) {
+	    if (b == '\n') {
+		String result = new String(line.toByteArray(), StandardCharsets.US_ASCII);
+		return result.endsWith("\r") ? result.substring(0, result.length() - 1) : result;
+	    }
+	    line.write(b);
+	}
+	return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+	socket.close();
+    }
+
+
+    static class Response {
+	int status;
+	final Map<String, String> headers = new TreeMap<>();
+	String body;
+    }
+
+}
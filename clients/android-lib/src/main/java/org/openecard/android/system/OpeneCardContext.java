@@ -211,7 +211,7 @@ public class OpeneCardContext implements EventCallback {
 	    // set up SALStateCallback
 	    cardStates = new CardStateMap();
 	    SALStateCallback salCallback = new SALStateCallback(env, cardStates);
-	    eventDispatcher.add(salCallback);
+	    eventDispatcher.add(salCallback, EventType.CARD_RECOGNIZED, EventType.CARD_REMOVED);
 
 	    // set up ifd
 	    ifd = new IFD();
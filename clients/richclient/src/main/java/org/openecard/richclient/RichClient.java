@@ -61,6 +61,7 @@ import org.openecard.common.WSHelper;
 import org.openecard.common.sal.state.CardStateMap;
 import org.openecard.common.sal.state.SALStateCallback;
 import org.openecard.control.binding.http.HttpBinding;
+import org.openecard.control.binding.http.HttpServiceConfig;
 import org.openecard.common.event.EventDispatcherImpl;
 import org.openecard.common.event.EventType;
 import org.openecard.common.util.VersionUpdateChecker;
@@ -187,7 +188,7 @@ public final class RichClient {
 	    // Set up StateCallbacks
 	    cardStates = new CardStateMap();
 	    SALStateCallback salCallback = new SALStateCallback(env, cardStates);
-	    eventDispatcher.add(salCallback);
+	    eventDispatcher.add(salCallback, EventType.CARD_RECOGNIZED, EventType.CARD_REMOVED);
 
 
 	    // Set up the IFD
@@ -251,6 +252,7 @@ public final class RichClient {
 		// start HTTP server
 		httpBinding = new HttpBinding(port);
 		httpBinding.setAddonManager(manager);
+		httpBinding.setServiceConfig(createHttpServiceConfig());
 		httpBinding.start();
 
 		if (dispatcherMode) {
@@ -485,6 +487,33 @@ public final class RichClient {
 	}
     };
 
+    private static HttpServiceConfig createHttpServiceConfig() {
+	HttpServiceConfig config = new HttpServiceConfig();
+	config.setMaxWorkers(getIntProperty("http-binding.max_workers", 1, HttpServiceConfig.DEFAULT_MAX_WORKERS));
+	config.setMaxQueued(getIntProperty("http-binding.max_queued", 0, HttpServiceConfig.DEFAULT_MAX_QUEUED));
+	config.setParkTimeoutMillis(getIntProperty("http-binding.park_timeout", 0,
+		HttpServiceConfig.DEFAULT_PARK_TIMEOUT_MILLIS));
+	config.setNonBlocking(Boolean.parseBoolean(OpenecardProperties.getProperty("http-binding.non_blocking")));
+	config.setVirtualThreads(Boolean.parseBoolean(OpenecardProperties.getProperty("http-binding.virtual_threads")));
+	return config;
+    }
+
+    private static int getIntProperty(String key, int min, int defaultValue) {
+	String value = OpenecardProperties.getProperty(key);
+	if (value != null) {
+	    try {
+		int result = Integer.parseInt(value.trim());
+		if (result >= min) {
+		    return result;
+		}
+	    } catch (NumberFormatException ex) {
+		// use default below
+	    }
+	    LOG.warn("Invalid value '{}' for property {}, using {} instead.", value, key, defaultValue);
+	}
+	return defaultValue;
+    }
+
     private static boolean regKeyExists(WinReg.HKEY hk, String key, String value) {
 	return Advapi32Util.registryKeyExists(hk, key)
 		&& Advapi32Util.registryValueExists(hk, key, value);
@@ -23,7 +23,7 @@
 package org.openecard.common.apdu;
 
 import org.openecard.common.apdu.common.CardCommandAPDU;
-import org.openecard.common.tlv.TLV;
+import org.openecard.common.tlv.TLVWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,18 +84,15 @@ public class GeneralAuthenticate extends CardCommandAPDU {
     public GeneralAuthenticate(byte tag, byte[] authData) {
 	super(x00, GENERAL_AUTHENTICATION_INS, x00, x00);
 
-	try {
-	    TLV tag7c = new TLV();
-	    TLV tagData = new TLV();
-
-	    tag7c.setTagNumWithClass((byte) 0x7C);
-	    tag7c.setChild(tagData);
-	    tagData.setTagNumWithClass(tag);
-	    tagData.setValue(authData);
-
-	    setData(tag7c.toBER());
-	} catch (Exception ex) {
-	    _logger.error(ex.getMessage(), ex);
+	if (authData == null) {
+	    // the command is created without data field, the card answers it with an error
+	    _logger.error("No authentication data given for GENERAL AUTHENTICATE.");
+	} else {
+	    // the size is known in advance, so the data field is encoded without any intermediate arrays
+	    int dataLength = TLVWriter.encodedLength(tag & 0xFF, authData.length);
+	    TLVWriter writer = new TLVWriter(TLVWriter.encodedLength(0x7C, dataLength));
+	    writer.begin(0x7C).writeTLV(tag & 0xFF, authData).end();
+	    setData(writer.toByteArray());
 	}
 
 	setLE(x00);
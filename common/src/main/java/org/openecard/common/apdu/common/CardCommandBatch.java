@@ -0,0 +1,160 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+package org.openecard.common.apdu.common;
+
+import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
+import iso.std.iso_iec._24727.tech.schema.Transmit;
+import iso.std.iso_iec._24727.tech.schema.TransmitResponse;
+import java.util.ArrayList;
+import java.util.List;
+import org.openecard.common.WSHelper;
+import org.openecard.common.WSHelper.WSException;
+import org.openecard.common.apdu.exception.APDUException;
+import org.openecard.common.interfaces.Dispatcher;
+import org.openecard.common.util.ByteUtils;
+
+
+/**
+ * Sequence of command APDUs which is sent to the card in a single Transmit message.
+ * The IFD processes the commands in order and stops at the first response whose status code is not in the list of
+ * acceptable codes of its command. Compared to one Transmit per command, this saves the dispatcher and I/O thread
+ * round trips of every command but the first.
+ * <p>Only commands which do not depend on the response of a previous command can be batched. A response with an
+ * unexpected status code is not an error, but merely the end of the batch. It is returned as the last element of the
+ * response list, so the caller can decide how to go on.</p>
+ *
+ * @author agent
+ */
+public class CardCommandBatch {
+
+    private final byte[] slotHandle;
+    private final List<InputAPDUInfoType> apdus = new ArrayList<>();
+
+    /**
+     * Creates an empty batch for the given slot.
+     *
+     * @param slotHandle Slot handle
+     */
+    public CardCommandBatch(byte[] slotHandle) {
+	this.slotHandle = slotHandle;
+    }
+
+    /**
+     * Adds a command which only accepts {@code 0x9000} as status code.
+     *
+     * @param apdu Command APDU
+     * @return This instance.
+     */
+    public CardCommandBatch add(CardCommandAPDU apdu) {
+	return add(apdu, CardCommandStatus.responseOk());
+    }
+
+    /**
+     * Adds a command with the given acceptable status codes.
+     *
+     * @param apdu Command APDU
+     * @param responses List of positive responses. An empty list accepts any status code.
+     * @return This instance.
+     */
+    public CardCommandBatch add(CardCommandAPDU apdu, List<byte[]> responses) {
+	InputAPDUInfoType info = new InputAPDUInfoType();
+	info.setInputAPDU(apdu.toByteArray());
+	info.getAcceptableStatusCode().addAll(responses);
+	apdus.add(info);
+	return this;
+    }
+
+    /**
+     * Gets the number of commands in the batch.
+     *
+     * @return Number of commands.
+     */
+    public int size() {
+	return apdus.size();
+    }
+
+    /**
+     * Creates the Transmit message containing all commands of the batch.
+     *
+     * @return Transmit
+     */
+    public Transmit makeTransmit() {
+	Transmit t = new Transmit();
+	t.setSlotHandle(slotHandle);
+	t.getInputAPDUInfo().addAll(apdus);
+	return t;
+    }
+
+    /**
+     * Transmits the batch.
+     * The returned list contains the responses of all processed commands. When it is shorter than the batch, or the
+     * status code of its last element is not acceptable, the card stopped the processing at this command.
+     *
+     * @param dispatcher Dispatcher
+     * @return Responses of the processed commands.
+     * @throws APDUException Thrown in case the Transmit failed for other reasons than an unexpected status code.
+     */
+    public List<CardResponseAPDU> transmit(Dispatcher dispatcher) throws APDUException {
+	TransmitResponse tr = null;
+	try {
+	    tr = (TransmitResponse) dispatcher.safeDeliver(makeTransmit());
+	    List<byte[]> rapdus = tr.getOutputAPDU();
+	    // an unexpected status code of the last response terminates the batch, everything else is an error
+	    if (! endsWithUnexpectedStatus(rapdus)) {
+		WSHelper.checkResult(tr);
+	    }
+
+	    List<CardResponseAPDU> result = new ArrayList<>(rapdus.size());
+	    for (byte[] rapdu : rapdus) {
+		result.add(new CardResponseAPDU(rapdu));
+	    }
+	    return result;
+	} catch (WSException ex) {
+	    throw new APDUException(ex, tr);
+	} catch (Exception ex) {
+	    throw new APDUException(ex);
+	}
+    }
+
+    private boolean endsWithUnexpectedStatus(List<byte[]> rapdus) {
+	int idx = rapdus.size() - 1;
+	if (idx < 0 || idx >= apdus.size()) {
+	    return false;
+	}
+	byte[] rapdu = rapdus.get(idx);
+	if (rapdu == null || rapdu.length < 2) {
+	    return false;
+	}
+	List<byte[]> accepted = apdus.get(idx).getAcceptableStatusCode();
+	if (accepted.isEmpty()) {
+	    return false;
+	}
+	byte[] sw = new byte[] { rapdu[rapdu.length - 2], rapdu[rapdu.length - 1] };
+	for (byte[] code : accepted) {
+	    if (ByteUtils.isPrefix(code, sw)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+}
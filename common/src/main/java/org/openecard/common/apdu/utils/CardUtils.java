@@ -32,6 +32,7 @@ import org.openecard.common.apdu.Select;
 import org.openecard.common.apdu.Select.MasterFile;
 import org.openecard.common.apdu.UpdateRecord;
 import org.openecard.common.apdu.common.CardCommandAPDU;
+import org.openecard.common.apdu.common.CardCommandBatch;
 import org.openecard.common.apdu.common.CardCommandStatus;
 import org.openecard.common.apdu.common.CardResponseAPDU;
 import org.openecard.common.apdu.common.TrailerConstants;
@@ -265,6 +266,18 @@ public class CardUtils {
 	short numRead = 0;
 
 	try {
+	    if (! isRecord && numToRead > 255) {
+		// the size is known, so all chunks can be requested in one batch
+		numRead = readChunks(numToRead, dispatcher, slotHandle, baos);
+		short remainingBytes = (short) (numToRead - numRead);
+		if (remainingBytes <= 0) {
+		    baos.close();
+		    return baos.toByteArray();
+		} else if (remainingBytes < 255) {
+		    length = (byte) remainingBytes;
+		}
+	    }
+
 	    CardResponseAPDU response;
 	    byte[] trailer;
 	    int lastNumRead = 0;
@@ -316,6 +329,41 @@ public class CardUtils {
 	return baos.toByteArray();
     }
 
+    /**
+     * Reads a transparent file of known size with one batch of READ BINARY commands.
+     * The batch stops at the first response which is not {@code 0x9000} and only complete chunks are taken over. The
+     * rest of the file, if any, must be read piecewise starting at the returned offset.
+     *
+     * @param numToRead Size of the file.
+     * @param dispatcher Dispatcher
+     * @param slotHandle Slot handle
+     * @param out Stream receiving the read data.
+     * @return Number of bytes read.
+     * @throws APDUException Thrown in case the transmit failed.
+     * @throws IOException Thrown in case the data could not be written to the stream.
+     */
+    private static short readChunks(short numToRead, Dispatcher dispatcher, byte[] slotHandle,
+	    ByteArrayOutputStream out) throws APDUException, IOException {
+	CardCommandBatch batch = new CardCommandBatch(slotHandle);
+	for (int offset = 0; offset < numToRead; offset += 255) {
+	    byte length = (byte) Math.min(255, numToRead - offset);
+	    batch.add(new ReadBinary((short) offset, length));
+	}
+
+	short numRead = 0;
+	for (CardResponseAPDU response : batch.transmit(dispatcher)) {
+	    byte[] data = response.getData();
+	    int expected = Math.min(255, numToRead - numRead);
+	    if (! response.isNormalProcessed() || data.length != expected) {
+		// the following responses belong to offsets behind a gap
+		break;
+	    }
+	    out.write(data);
+	    numRead += data.length;
+	}
+	return numRead;
+    }
+
     /**
      * Selects and reads a file.
      *
@@ -0,0 +1,111 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.event;
+
+import java.util.Collections;
+import java.util.Map;
+
+
+/**
+ * Event object summarising the API calls performed within a time window.
+ * This event is emitted with the type {@link EventType#API_CALL_SUMMARY} instead of one event per call, so that
+ * subscribers which are only interested in the activity of the system do not have to process every single call.
+ *
+ * @author agent
+ */
+public class ApiCallSummaryEventObject extends EventObject {
+
+    private final long windowStart;
+    private final long windowEnd;
+    private final Map<String, Integer> callCounts;
+    private final Map<String, Integer> errorCounts;
+
+    /**
+     * Creates a new summary event.
+     *
+     * @param windowStart Start of the time window in milliseconds since the epoch.
+     * @param windowEnd End of the time window in milliseconds since the epoch.
+     * @param callCounts Number of finished calls per request type.
+     * @param errorCounts Number of calls per request type, which finished with an error result.
+     */
+    public ApiCallSummaryEventObject(long windowStart, long windowEnd, Map<String, Integer> callCounts,
+	    Map<String, Integer> errorCounts) {
+	super(null);
+	this.windowStart = windowStart;
+	this.windowEnd = windowEnd;
+	this.callCounts = Collections.unmodifiableMap(callCounts);
+	this.errorCounts = Collections.unmodifiableMap(errorCounts);
+    }
+
+    /**
+     * Gets the start of the time window.
+     *
+     * @return Start of the window in milliseconds since the epoch.
+     */
+    public long getWindowStart() {
+	return windowStart;
+    }
+
+    /**
+     * Gets the end of the time window.
+     *
+     * @return End of the window in milliseconds since the epoch.
+     */
+    public long getWindowEnd() {
+	return windowEnd;
+    }
+
+    /**
+     * Gets the number of finished calls per request type.
+     * The key is the simple class name of the request, e.g. {@code Transmit}.
+     *
+     * @return Unmodifiable map containing the number of calls.
+     */
+    public Map<String, Integer> getCallCounts() {
+	return callCounts;
+    }
+
+    /**
+     * Gets the number of calls per request type, which finished with an error result.
+     * Request types without errors are not contained in the map.
+     *
+     * @return Unmodifiable map containing the number of failed calls.
+     */
+    public Map<String, Integer> getErrorCounts() {
+	return errorCounts;
+    }
+
+    /**
+     * Gets the total number of calls in the time window.
+     *
+     * @return Number of calls of all request types.
+     */
+    public int getTotalCalls() {
+	int sum = 0;
+	for (Integer next : callCounts.values()) {
+	    sum += next;
+	}
+	return sum;
+    }
+
+}
@@ -1,5 +1,5 @@
 /****************************************************************************
- * Copyright (C) 2012-2016 ecsec GmbH.
+ * Copyright (C) 2012-2018 ecsec GmbH.
  * All rights reserved.
  * Contact: ecsec GmbH (info@ecsec.de)
  *
@@ -23,22 +23,19 @@
 package org.openecard.common.event;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.openecard.common.interfaces.EventCallback;
 import org.openecard.common.interfaces.EventDispatcher;
 import org.openecard.common.interfaces.EventFilter;
-import org.openecard.common.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,6 +43,11 @@ import org.slf4j.LoggerFactory;
 /**
  * EventDispatcherImpl class distributing the events to all registered listeners.
  * Filtering is applied as requested at registration of the listener.
+ * <p>Each listener has its own bounded event queue. Events are delivered to a listener in the order in which they have
+ * been emitted, but independently of all other listeners, so that a slow callback only delays its own events. The
+ * behaviour in case a queue is full is determined by the {@link EventOverflowPolicy}.</p>
+ * <p>The table of listeners is copied on every modification, so emitting an event does not need any locks apart from
+ * the queue of the matching listeners.</p>
  *
  * @author Tobias Wich
  * @author René Lottes
@@ -53,23 +55,49 @@ import org.slf4j.LoggerFactory;
 public class EventDispatcherImpl implements EventDispatcher {
 
     private static final Logger LOG = LoggerFactory.getLogger(EventDispatcherImpl.class);
-    private static final long MAX_DISPATCH_MILLIS = 5 * 1000;
 
+    /**
+     * Default number of events which can be pending for a single listener.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
 
-    private final ConcurrentHashMap<EventCallback,ArrayList<EventFilter>> eventFilter;
-    private final BlockingQueue<Pair<EventType, EventObject>> eventQueue;
+    private final int queueCapacity;
+    private final EventOverflowPolicy overflowPolicy;
 
-    private ExecutorService threadPool;
+    // copy on write, modifications are guarded by this
+    private volatile Map<EventCallback, EventSubscription> subscriptions;
+    // recalculated on every modification of the subscriptions
+    private volatile Set<EventType> observedTypes;
+    private volatile ExecutorService threadPool;
 
+    /**
+     * Creates an EventDispatcherImpl with the default queue capacity, dropping the oldest events on overflow.
+     */
     public EventDispatcherImpl() {
-	this.eventFilter = new ConcurrentHashMap<>();
-	this.eventQueue = new LinkedBlockingQueue<>();
+	this(DEFAULT_QUEUE_CAPACITY, EventOverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Creates an EventDispatcherImpl with the given queue configuration.
+     *
+     * @param queueCapacity Maximum number of pending events per listener.
+     * @param overflowPolicy Policy applied when the queue of a listener is full.
+     * @throws IllegalArgumentException Thrown in case the capacity is not positive.
+     */
+    public EventDispatcherImpl(int queueCapacity, EventOverflowPolicy overflowPolicy) {
+	if (queueCapacity <= 0) {
+	    throw new IllegalArgumentException("Event queue capacity must be positive.");
+	}
+	this.queueCapacity = queueCapacity;
+	this.overflowPolicy = overflowPolicy;
+	this.subscriptions = Collections.emptyMap();
+	this.observedTypes = Collections.emptySet();
     }
 
 
     @Override
     public synchronized void start() {
-	threadPool = Executors.newCachedThreadPool(new ThreadFactory() {
+	ExecutorService pool = Executors.newCachedThreadPool(new ThreadFactory() {
 	    private final AtomicInteger num = new AtomicInteger(0);
 	    private final ThreadGroup group = new ThreadGroup("Event Dispatcher");
 	    @Override
@@ -80,13 +108,18 @@ public class EventDispatcherImpl implements EventDispatcher {
 		return t;
 	    }
 	});
-	threadPool.submit(new NotificationSender());
+	threadPool = pool;
+	// deliver events which have been emitted before the dispatcher was started
+	for (EventSubscription sub : subscriptions.values()) {
+	    sub.schedule(pool);
+	}
     }
 
     @Override
     public synchronized void terminate() {
 	if (threadPool != null) {
 	    threadPool.shutdownNow();
+	    threadPool = null;
 	}
     }
 
@@ -103,91 +136,72 @@ public class EventDispatcherImpl implements EventDispatcher {
     }
     @Override
     public synchronized EventCallback add(EventCallback cb, EventFilter filter) {
-	if (! eventFilter.containsKey(cb)) {
-	    eventFilter.put(cb, new ArrayList<EventFilter>());
+	EventSubscription sub = subscriptions.get(cb);
+	if (sub == null) {
+	    sub = new EventSubscription(cb, queueCapacity, overflowPolicy);
+	    sub.addFilter(filter);
+	    LinkedHashMap<EventCallback, EventSubscription> newSubs = new LinkedHashMap<>(subscriptions);
+	    newSubs.put(cb, sub);
+	    subscriptions = Collections.unmodifiableMap(newSubs);
+	} else {
+	    sub.addFilter(filter);
 	}
-	eventFilter.get(cb).add(filter);
+	updateObservedTypes();
 	return cb;
     }
 
     @Override
     public synchronized EventCallback del(EventCallback cb) {
-	if (eventFilter.containsKey(cb)) {
-	    eventFilter.remove(cb);
+	if (subscriptions.containsKey(cb)) {
+	    LinkedHashMap<EventCallback, EventSubscription> newSubs = new LinkedHashMap<>(subscriptions);
+	    newSubs.remove(cb).cancel();
+	    subscriptions = Collections.unmodifiableMap(newSubs);
+	    updateObservedTypes();
 	}
 	return cb;
     }
 
-    @Override
-    public void notify(EventType t, EventObject o) {
-	if (eventQueue.offer(new Pair<>(t, o))) {
-	    LOG.debug("Added event {} into event queue.", t);
-	} else {
-	    LOG.error("Failed to add event {} into the queue, the queue is full.", t);
-	}
-    }
-
-
-    private class NotificationSender implements Runnable {
-
-	@Override
-	public void run() {
-	    try {
-		while (true) {
-		    Pair<EventType, EventObject> pair = eventQueue.take();
-		    notify(pair.p1, pair.p2);
+    private void updateObservedTypes() {
+	EnumSet<EventType> types = EnumSet.noneOf(EventType.class);
+	for (EventType t : EventType.values()) {
+	    for (EventSubscription sub : subscriptions.values()) {
+		if (sub.mayMatch(t)) {
+		    types.add(t);
+		    break;
 		}
-	    } catch (InterruptedException ex) {
-		// just terminate
 	    }
 	}
+	observedTypes = Collections.unmodifiableSet(types);
+    }
 
-	private void notify(EventType t, EventObject o) {
-	    // synchronize, so we have an unmodified view on the dispatcher object
-	    synchronized (EventDispatcherImpl.this) {
-		// check every callback for a matching filter
-		ArrayList<Future<?>> futures = new ArrayList<>();
-		for (Map.Entry<EventCallback, ArrayList<EventFilter>> entry : eventFilter.entrySet()) {
-		    EventCallback cb = entry.getKey();
-		    for (EventFilter filter : entry.getValue()) {
-			if (filter.matches(t, o)) {
-			    futures.add(fork(cb, t, o));
-			    break;
-			}
-		    }
-		}
+    @Override
+    public boolean hasSubscribers(EventType t) {
+	return observedTypes.contains(t);
+    }
 
-		// wait until all events have been dispatched
-		long remaining = MAX_DISPATCH_MILLIS;
-		for (Future<?> next : futures) {
-		    if (remaining > 0) {
-			long start = System.currentTimeMillis();
-			try {
-			    next.get(remaining, TimeUnit.MILLISECONDS);
-			} catch (ExecutionException ex) {
-			    // I don't care
-			} catch (InterruptedException ex) {
-			    // someone wants us to stop as soon as possible, so omit waiting for anymore futures
-			    break;
-			} catch (TimeoutException ex) {
-			    // time is up
-			    remaining = -1;
-			    continue;
-			}
-			long diff = System.currentTimeMillis() - start;
-			remaining -= diff;
-		    } else {
-			LOG.warn("Skipping wait for event notification thread.");
-		    }
-		}
+    @Override
+    public void notify(EventType t, EventObject o) {
+	LOG.debug("Dispatching event {}.", t);
+	ExecutorService pool = threadPool;
+	for (EventSubscription sub : subscriptions.values()) {
+	    if (sub.matches(t, o)) {
+		sub.enqueue(t, o, pool);
 	    }
 	}
+    }
 
-	private Future<?> fork(EventCallback cb, EventType t, EventObject o) {
-	    Future<?> f = threadPool.submit(new EventRunner(cb, t, o));
-	    return f;
+    /**
+     * Gets the delivery statistics of all registered listeners.
+     *
+     * @return List containing a statistics snapshot for each registered listener.
+     */
+    public List<EventSubscriberStatistics> getStatistics() {
+	Map<EventCallback, EventSubscription> subs = subscriptions;
+	ArrayList<EventSubscriberStatistics> result = new ArrayList<>(subs.size());
+	for (EventSubscription sub : subs.values()) {
+	    result.add(sub.getStatistics());
 	}
-
+	return result;
     }
 
 }
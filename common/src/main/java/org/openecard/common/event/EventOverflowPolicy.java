@@ -0,0 +1,52 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.event;
+
+
+/**
+ * Policy determining what happens when the event queue of a subscriber is full.
+ * Each callback registered in the {@link EventDispatcherImpl} has its own bounded queue, so the policy only affects
+ * the subscriber which does not keep up with the event rate.
+ *
+ * @author agent
+ */
+public enum EventOverflowPolicy {
+
+    /**
+     * The oldest pending event of the subscriber is discarded in favour of the new event.
+     */
+    DROP_OLDEST,
+    /**
+     * The newest pending event with the same type is replaced by the new event, so that the subscriber only sees the
+     * latest state. If no such event is pending, the oldest event is discarded.
+     */
+    COALESCE,
+    /**
+     * The notifying thread waits until the subscriber has taken an event from its queue.
+     * The wait is limited to a few seconds, after which the event is handled as in {@link #DROP_OLDEST}. The same
+     * applies to events emitted from within the callback of the same subscriber and to events emitted while the
+     * dispatcher is not running, as nobody would drain the queue in these cases.
+     */
+    BLOCK;
+
+}
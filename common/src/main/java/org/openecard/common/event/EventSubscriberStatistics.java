@@ -0,0 +1,112 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.event;
+
+import org.openecard.common.interfaces.EventCallback;
+
+
+/**
+ * Snapshot of the delivery statistics of one subscriber of the {@link EventDispatcherImpl}.
+ *
+ * @author agent
+ */
+public class EventSubscriberStatistics {
+
+    private final EventCallback callback;
+    private final int queueDepth;
+    private final long deliveredEvents;
+    private final long droppedEvents;
+    private final long totalLatencyNanos;
+    private final long maxLatencyNanos;
+
+    EventSubscriberStatistics(EventCallback callback, int queueDepth, long deliveredEvents, long droppedEvents,
+	    long totalLatencyNanos, long maxLatencyNanos) {
+	this.callback = callback;
+	this.queueDepth = queueDepth;
+	this.deliveredEvents = deliveredEvents;
+	this.droppedEvents = droppedEvents;
+	this.totalLatencyNanos = totalLatencyNanos;
+	this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    /**
+     * Gets the callback these statistics belong to.
+     *
+     * @return The registered callback.
+     */
+    public EventCallback getCallback() {
+	return callback;
+    }
+
+    /**
+     * Gets the number of events waiting to be delivered to the callback.
+     *
+     * @return Number of pending events.
+     */
+    public int getQueueDepth() {
+	return queueDepth;
+    }
+
+    /**
+     * Gets the number of events which have been delivered to the callback.
+     *
+     * @return Number of delivered events.
+     */
+    public long getDeliveredEvents() {
+	return deliveredEvents;
+    }
+
+    /**
+     * Gets the number of events which have been discarded or coalesced because the queue of the callback was full.
+     *
+     * @return Number of dropped events.
+     */
+    public long getDroppedEvents() {
+	return droppedEvents;
+    }
+
+    /**
+     * Gets the average time the callback needed to process an event.
+     *
+     * @return Average latency in nanoseconds, or 0 if no event has been delivered yet.
+     */
+    public long getAverageLatencyNanos() {
+	return deliveredEvents == 0 ? 0 : totalLatencyNanos / deliveredEvents;
+    }
+
+    /**
+     * Gets the longest time the callback needed to process an event.
+     *
+     * @return Maximum latency in nanoseconds.
+     */
+    public long getMaxLatencyNanos() {
+	return maxLatencyNanos;
+    }
+
+    @Override
+    public String toString() {
+	return String.format("EventSubscriberStatistics[callback=%s, queued=%d, delivered=%d, dropped=%d, avg=%dns, max=%dns]",
+		callback, queueDepth, deliveredEvents, droppedEvents, getAverageLatencyNanos(), maxLatencyNanos);
+    }
+
+}
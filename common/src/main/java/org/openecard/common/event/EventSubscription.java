@@ -0,0 +1,283 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.event;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openecard.common.interfaces.EventCallback;
+import org.openecard.common.interfaces.EventFilter;
+import org.openecard.common.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Registration of one callback in the {@link EventDispatcherImpl}.
+ * The subscription owns a bounded queue of pending events. Events are delivered in the order they have been queued by
+ * at most one thread at a time, so callbacks never see their events concurrently or out of order, while different
+ * subscriptions are served in parallel.
+ *
+ * @author agent
+ */
+class EventSubscription implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventSubscription.class);
+    private static final long SLOW_CALLBACK_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long MAX_BLOCK_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final EventCallback cb;
+    private final List<EventFilter> filters;
+    private final int capacity;
+    private final EventOverflowPolicy policy;
+
+    // guarded by this
+    private final ArrayDeque<Pair<EventType, EventObject>> queue;
+    private boolean scheduled;
+    private boolean active;
+    private Thread deliveryThread;
+
+    private final AtomicLong delivered;
+    private final AtomicLong dropped;
+    private final AtomicLong totalLatency;
+    private final AtomicLong maxLatency;
+
+    EventSubscription(EventCallback cb, int capacity, EventOverflowPolicy policy) {
+	this.cb = cb;
+	this.filters = new CopyOnWriteArrayList<>();
+	this.capacity = capacity;
+	this.policy = policy;
+	this.queue = new ArrayDeque<>(Math.min(capacity, 16));
+	this.active = true;
+	this.delivered = new AtomicLong();
+	this.dropped = new AtomicLong();
+	this.totalLatency = new AtomicLong();
+	this.maxLatency = new AtomicLong();
+    }
+
+    EventCallback getCallback() {
+	return cb;
+    }
+
+    void addFilter(EventFilter filter) {
+	filters.add(filter);
+    }
+
+    boolean matches(EventType t, EventObject o) {
+	for (EventFilter filter : filters) {
+	    if (filter.matches(t, o)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Checks whether this subscription may receive events of the given type.
+     * Type filters do not look at the event object, so they can be evaluated without an event. All other filters are
+     * assumed to match.
+     *
+     * @param t Type of the event.
+     * @return {@code true} if an event of the type may be delivered to the callback, {@code false} otherwise.
+     */
+    boolean mayMatch(EventType t) {
+	for (EventFilter filter : filters) {
+	    if (! (filter instanceof EventTypeFilter) || filter.matches(t, null)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Adds the event to the queue of this subscription and schedules the delivery if needed.
+     *
+     * @param t Type of the event.
+     * @param o Event payload.
+     * @param executor Executor performing the delivery, or {@code null} if the dispatcher is not running.
+     */
+    void enqueue(EventType t, EventObject o, Executor executor) {
+	synchronized (this) {
+	    if (! active) {
+		return;
+	    }
+	    if (queue.size() >= capacity && ! makeRoom(t, executor != null)) {
+		return;
+	    }
+	    queue.add(new Pair<>(t, o));
+	}
+	schedule(executor);
+    }
+
+    /**
+     * Frees a slot in the full queue according to the overflow policy.
+     * The caller must hold the monitor of this instance.
+     *
+     * @param t Type of the event to add.
+     * @param running {@code true} if the dispatcher is running and drains the queue, {@code false} otherwise.
+     * @return {@code true} if the new event must be appended to the queue, {@code false} if it has already been
+     *   merged into the queue or must be discarded.
+     */
+    private boolean makeRoom(EventType t, boolean running) {
+	// without a running dispatcher nobody drains the queue, so waiting would never end
+	boolean mayBlock = policy == EventOverflowPolicy.BLOCK && running && deliveryThread != Thread.currentThread();
+	if (mayBlock) {
+	    try {
+		long deadline = System.nanoTime() + MAX_BLOCK_NANOS;
+		long remaining = MAX_BLOCK_NANOS;
+		while (active && queue.size() >= capacity && remaining > 0) {
+		    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		    remaining = deadline - System.nanoTime();
+		}
+		if (! active) {
+		    return false;
+		} else if (queue.size() < capacity) {
+		    return true;
+		}
+		LOG.warn("Timeout while waiting for queue of {}.", cb);
+	    } catch (InterruptedException ex) {
+		Thread.currentThread().interrupt();
+		dropped.incrementAndGet();
+		LOG.warn("Interrupted while waiting for queue of {}, discarding event {}.", cb, t);
+		return false;
+	    }
+	}
+
+	dropped.incrementAndGet();
+	if (policy == EventOverflowPolicy.COALESCE) {
+	    Iterator<Pair<EventType, EventObject>> it = queue.descendingIterator();
+	    while (it.hasNext()) {
+		if (it.next().p1 == t) {
+		    it.remove();
+		    LOG.debug("Coalesced pending event {} of {}.", t, cb);
+		    return true;
+		}
+	    }
+	}
+	Pair<EventType, EventObject> old = queue.poll();
+	LOG.warn("Event queue of {} is full, discarding event {}.", cb, old.p1);
+	return true;
+    }
+
+    /**
+     * Submits the delivery task if it is not running already.
+     *
+     * @param executor Executor performing the delivery, or {@code null} if the dispatcher is not running.
+     */
+    void schedule(Executor executor) {
+	if (executor == null) {
+	    return;
+	}
+	synchronized (this) {
+	    if (scheduled || queue.isEmpty()) {
+		return;
+	    }
+	    scheduled = true;
+	}
+	try {
+	    executor.execute(this);
+	} catch (RejectedExecutionException ex) {
+	    LOG.debug("Event delivery for {} rejected, the dispatcher is terminated.", cb);
+	    synchronized (this) {
+		scheduled = false;
+	    }
+	}
+    }
+
+    /**
+     * Deactivates this subscription and discards all pending events.
+     */
+    synchronized void cancel() {
+	active = false;
+	queue.clear();
+	notifyAll();
+    }
+
+    @Override
+    public void run() {
+	synchronized (this) {
+	    deliveryThread = Thread.currentThread();
+	}
+	boolean finished = false;
+	try {
+	    while (true) {
+		Pair<EventType, EventObject> next;
+		synchronized (this) {
+		    // stop when the queue is drained or the dispatcher is terminated
+		    if (queue.isEmpty() || Thread.currentThread().isInterrupted()) {
+			deliveryThread = null;
+			scheduled = false;
+			finished = true;
+			return;
+		    }
+		    next = queue.poll();
+		    notifyAll();
+		}
+		deliver(next.p1, next.p2);
+	    }
+	} finally {
+	    if (! finished) {
+		synchronized (this) {
+		    deliveryThread = null;
+		    scheduled = false;
+		}
+	    }
+	}
+    }
+
+    private void deliver(EventType t, EventObject o) {
+	long start = System.nanoTime();
+	try {
+	    cb.signalEvent(t, o);
+	} catch (RuntimeException ex) {
+	    LOG.error("Event callback " + cb + " failed to process event " + t + ".", ex);
+	}
+	long latency = System.nanoTime() - start;
+
+	delivered.incrementAndGet();
+	totalLatency.addAndGet(latency);
+	long max;
+	do {
+	    max = maxLatency.get();
+	} while (latency > max && ! maxLatency.compareAndSet(max, latency));
+
+	if (latency > SLOW_CALLBACK_NANOS) {
+	    LOG.warn("Event callback {} needed {} ms to process event {}.", cb, TimeUnit.NANOSECONDS.toMillis(latency), t);
+	}
+    }
+
+    EventSubscriberStatistics getStatistics() {
+	int depth;
+	synchronized (this) {
+	    depth = queue.size();
+	}
+	return new EventSubscriberStatistics(cb, depth, delivered.get(), dropped.get(), totalLatency.get(),
+		maxLatency.get());
+    }
+
+}
@@ -37,7 +37,8 @@ public enum EventType {
     TERMINAL_ADDED("http://openecard.org/event/terminal_added"),
     TERMINAL_REMOVED("http://openecard.org/event/terminal_removed"),
     API_CALL_STARTED("http://openecard.org/event/api_call_started"),
-    API_CALL_FINISHED("http://openecard.org/event/api_call_finished");
+    API_CALL_FINISHED("http://openecard.org/event/api_call_finished"),
+    API_CALL_SUMMARY("http://openecard.org/event/api_call_summary");
 
     private final String eventTypeIdentifier;
 
@@ -27,6 +27,7 @@ import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType.RecognitionInfo;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.util.List;
+import javax.annotation.Nullable;
 
 
 /**
@@ -53,4 +54,18 @@ public interface CardRecognition {
 
     RecognitionInfo recognizeCard(byte[] ctx, String ifdName, BigInteger slot) throws RecognitionException;
 
+    /**
+     * Recognizes the card in the defined reader, whose ATR or ATS is already known from the card event.
+     *
+     * @param ctx Context handle of the IFD.
+     * @param ifdName Name of the card reader.
+     * @param slot Index of the slot in the reader.
+     * @param atr ATR or ATS of the card, or {@code null} if it is not known.
+     * @return RecognitionInfo structure containing the card type of the detected card or {@code null} if no card could
+     *   be detected.
+     * @throws RecognitionException Thrown in case there was an error in the recognition.
+     */
+    RecognitionInfo recognizeCard(byte[] ctx, String ifdName, BigInteger slot, @Nullable byte[] atr)
+	    throws RecognitionException;
+
 }
@@ -45,5 +45,19 @@ public interface EventDispatcher {
     EventCallback del(EventCallback cb);
     
     void notify(EventType t, EventObject o);
+
+    /**
+     * Checks whether events of the given type may be delivered to any registered callback.
+     * Emitters can use this method to skip the construction of expensive event objects. The result is conservative,
+     * that means callbacks registered with a custom {@link EventFilter} are always considered as interested.
+     * <p>The default implementation always returns {@code true}, so dispatchers not tracking their subscriptions
+     * receive all events.</p>
+     *
+     * @param t Type of the event.
+     * @return {@code true} if at least one callback may receive events of the given type, {@code false} otherwise.
+     */
+    default boolean hasSubscribers(EventType t) {
+	return true;
+    }
     
 }
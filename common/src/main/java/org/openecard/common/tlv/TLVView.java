@@ -0,0 +1,514 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.tlv;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Flat, read-only view on a BER-TLV encoded structure.
+ * <p>In contrast to {@link TLV}, parsing does not create objects for the individual elements and does not copy any
+ * value bytes. Instead a compact {@code int[]} offset table is built over the original buffer. Elements are addressed
+ * by their index in that table. The elements are stored in pre-order, so index {@code 0} is the first top level
+ * element and the children of an element directly follow it.</p>
+ * <p>Navigation works with plain index arithmetic and does not allocate:</p>
+ * <pre>
+ * TLVView view = TLVView.parse(data);
+ * for (int i = view.getChild(0); i != TLVView.NONE; i = view.getNext(i)) {
+ *     ...
+ * }
+ * </pre>
+ * <p>The parser accepts the same input as {@link TLV#fromBER(byte[])}. This includes zero bytes as termination of a
+ * sequence of elements and indefinite length encoding.</p>
+ * <p>The view does not copy the underlying buffer, so changes to the buffer content are visible in the view and
+ * invalidate the offset table.</p>
+ *
+ * @author agent
+ */
+public final class TLVView {
+
+    /**
+     * Index value indicating that no element exists.
+     */
+    public static final int NONE = -1;
+
+    // layout of one entry in the offset table
+    private static final int HEADER = 0;
+    private static final int VALUE = 1;
+    private static final int LENGTH = 2;
+    private static final int END = 3;
+    private static final int NEXT = 4;
+    private static final int CHILD = 5;
+    private static final int STRIDE = 6;
+
+    private final ByteBuffer buf;
+    private int[] table;
+    private long[] tags;
+    private int count;
+
+    private TLVView(ByteBuffer buf) {
+	this.buf = buf;
+	this.table = new int[8 * STRIDE];
+	this.tags = new long[8];
+    }
+
+
+    /**
+     * Parses the given BER-TLV structure.
+     *
+     * @param data Encoded TLV structure.
+     * @return View on the given array.
+     * @throws TLVException Thrown in case the data is not a valid BER-TLV structure.
+     */
+    public static TLVView parse(byte[] data) throws TLVException {
+	return parse(data, 0, data.length);
+    }
+
+    /**
+     * Parses the BER-TLV structure contained in the given region of the array.
+     * The offsets returned by the view are relative to the beginning of the array.
+     *
+     * @param data Array containing the encoded TLV structure.
+     * @param offset Offset of the structure in the array.
+     * @param length Number of bytes belonging to the structure.
+     * @return View on the given array.
+     * @throws TLVException Thrown in case the data is not a valid BER-TLV structure.
+     */
+    public static TLVView parse(byte[] data, int offset, int length) throws TLVException {
+	if (offset < 0 || length < 0 || offset + length > data.length) {
+	    throw new IndexOutOfBoundsException("Region is not contained in the data array.");
+	}
+	TLVView view = new TLVView(ByteBuffer.wrap(data));
+	view.parseSiblings(offset, offset + length);
+	return view;
+    }
+
+    /**
+     * Parses the BER-TLV structure between position and limit of the given buffer.
+     * The buffer state (position, limit, mark) is not modified. The offsets returned by the view are absolute indices
+     * in the buffer.
+     *
+     * @param data Buffer containing the encoded TLV structure.
+     * @return View on the given buffer.
+     * @throws TLVException Thrown in case the data is not a valid BER-TLV structure.
+     */
+    public static TLVView parse(ByteBuffer data) throws TLVException {
+	TLVView view = new TLVView(data.duplicate());
+	view.parseSiblings(data.position(), data.limit());
+	return view;
+    }
+
+
+    ///
+    /// parser
+    ///
+
+    private int parseSiblings(int start, int end) throws TLVException {
+	int first = NONE;
+	int last = NONE;
+	int pos = start;
+	while (pos < end) {
+	    // a zero byte terminates the structure
+	    if (buf.get(pos) == 0) {
+		break;
+	    }
+	    int idx = parseElement(pos, end);
+	    if (last == NONE) {
+		first = idx;
+	    } else {
+		table[last * STRIDE + NEXT] = idx;
+	    }
+	    last = idx;
+	    pos = table[idx * STRIDE + END];
+	}
+	return first;
+    }
+
+    private int parseElement(int start, int end) throws TLVException {
+	// tag
+	int pos = start;
+	byte first = buf.get(pos++);
+	long tag = first & 0xFF;
+	if ((first & 0x1F) == 0x1F) {
+	    byte next;
+	    int numOctets = 1;
+	    do {
+		if (numOctets >= 8) {
+		    throw new TLVException("Tag number doesn't fit into a 64 bit word.");
+		} else if (pos >= end) {
+		    throw new TLVException("Not enough bytes in input bytes to build TLV tag.");
+		}
+		next = buf.get(pos++);
+		numOctets++;
+		tag = (tag << 8) | (next & 0xFF);
+	    } while ((next & 0x80) == 0x80);
+	}
+
+	// length
+	if (pos >= end) {
+	    throw new TLVException("Not enough bytes in input to read TLV length.");
+	}
+	int lenByte = buf.get(pos++) & 0xFF;
+	int valueOffset;
+	int valueLength;
+	int elementEnd;
+	if (lenByte <= 0x7F) {
+	    // short form
+	    valueOffset = pos;
+	    valueLength = lenByte;
+	    elementEnd = valueOffset + valueLength;
+	} else if (lenByte == 0x80) {
+	    // indefinite form, terminated by two zero bytes
+	    valueOffset = pos;
+	    while (true) {
+		if (pos + 1 >= end) {
+		    throw new TLVException("Not enough bytes in input to read TLV length.");
+		}
+		if (buf.get(pos) == 0 && buf.get(pos + 1) == 0) {
+		    break;
+		}
+		pos++;
+	    }
+	    valueLength = pos - valueOffset;
+	    elementEnd = pos + 2;
+	} else {
+	    // long form
+	    int numLengthBytes = lenByte & 0x7F;
+	    if (numLengthBytes > 4) {
+		throw new TLVException("Length doesn't fit into a 32 bit word.");
+	    } else if (pos + numLengthBytes > end) {
+		throw new TLVException("Not enough bytes in input to read TLV length.");
+	    }
+	    long len = 0;
+	    for (int i = 0; i < numLengthBytes; i++) {
+		len = (len << 8) | (buf.get(pos++) & 0xFF);
+	    }
+	    if (len > Integer.MAX_VALUE) {
+		throw new TLVException("Length doesn't fit into a 32 bit word.");
+	    }
+	    valueOffset = pos;
+	    valueLength = (int) len;
+	    elementEnd = valueOffset + valueLength;
+	}
+	if (valueOffset + valueLength > end || valueOffset + valueLength < valueOffset) {
+	    throw new TLVException("Not enough bytes in input to read TLV value.");
+	}
+
+	// register element before the children so the table stays in pre-order
+	int idx = allocate();
+	int base = idx * STRIDE;
+	table[base + HEADER] = start;
+	table[base + VALUE] = valueOffset;
+	table[base + LENGTH] = valueLength;
+	table[base + END] = elementEnd;
+	table[base + NEXT] = NONE;
+	table[base + CHILD] = NONE;
+	tags[idx] = tag;
+
+	// constructed elements contain further elements
+	if ((first & 0x20) != 0 && valueLength > 0) {
+	    int child = parseSiblings(valueOffset, valueOffset + valueLength);
+	    table[base + CHILD] = child;
+	}
+
+	return idx;
+    }
+
+    private int allocate() {
+	if (count == tags.length) {
+	    int newSize = tags.length * 2;
+	    tags = Arrays.copyOf(tags, newSize);
+	    table = Arrays.copyOf(table, newSize * STRIDE);
+	}
+	return count++;
+    }
+
+
+    ///
+    /// element properties
+    ///
+
+    /**
+     * Gets the number of elements in this view, including all nested elements.
+     *
+     * @return Number of elements.
+     */
+    public int size() {
+	return count;
+    }
+
+    /**
+     * Gets the index of the first top level element.
+     *
+     * @return Index of the first element, or {@link #NONE} if the view is empty.
+     */
+    public int getFirst() {
+	return count > 0 ? 0 : NONE;
+    }
+
+    /**
+     * Gets the tag of the element including class and primitive flag.
+     * The value is the same as returned by {@link TLV#getTagNumWithClass()}.
+     *
+     * @param idx Index of the element.
+     * @return Tag number with class.
+     */
+    public long getTagNumWithClass(int idx) {
+	checkIndex(idx);
+	return tags[idx];
+    }
+
+    /**
+     * Gets the class of the element's tag.
+     *
+     * @param idx Index of the element.
+     * @return Tag class of the element.
+     */
+    public TagClass getTagClass(int idx) {
+	return TagClass.getTagClass(firstTagByte(idx));
+    }
+
+    /**
+     * Checks whether the element is primitive.
+     *
+     * @param idx Index of the element.
+     * @return {@code true} if the element is primitive, {@code false} if it is constructed.
+     */
+    public boolean isPrimitive(int idx) {
+	return (firstTagByte(idx) & 0x20) == 0;
+    }
+
+    /**
+     * Gets the offset of the first tag byte of the element in the underlying buffer.
+     *
+     * @param idx Index of the element.
+     * @return Offset of the element.
+     */
+    public int getOffset(int idx) {
+	checkIndex(idx);
+	return table[idx * STRIDE + HEADER];
+    }
+
+    /**
+     * Gets the number of bytes of the complete encoded element including tag, length and end-of-contents octets.
+     *
+     * @param idx Index of the element.
+     * @return Length of the encoded element.
+     */
+    public int getRawLength(int idx) {
+	checkIndex(idx);
+	return table[idx * STRIDE + END] - table[idx * STRIDE + HEADER];
+    }
+
+    /**
+     * Gets the offset of the value of the element in the underlying buffer.
+     *
+     * @param idx Index of the element.
+     * @return Offset of the value.
+     */
+    public int getValueOffset(int idx) {
+	checkIndex(idx);
+	return table[idx * STRIDE + VALUE];
+    }
+
+    /**
+     * Gets the length of the value of the element.
+     *
+     * @param idx Index of the element.
+     * @return Length of the value.
+     */
+    public int getValueLength(int idx) {
+	checkIndex(idx);
+	return table[idx * STRIDE + LENGTH];
+    }
+
+    /**
+     * Gets a copy of the value of the element.
+     *
+     * @param idx Index of the element.
+     * @return Newly allocated array containing the value.
+     */
+    public byte[] getValue(int idx) {
+	int off = getValueOffset(idx);
+	byte[] result = new byte[getValueLength(idx)];
+	ByteBuffer src = buf.duplicate();
+	src.position(off);
+	src.get(result);
+	return result;
+    }
+
+    /**
+     * Gets a read-only buffer covering the value of the element.
+     * No bytes are copied, the returned buffer shares its content with the parsed data.
+     *
+     * @param idx Index of the element.
+     * @return Buffer whose position is 0 and whose limit is the value length.
+     */
+    public ByteBuffer getValueBuffer(int idx) {
+	int off = getValueOffset(idx);
+	ByteBuffer result = buf.asReadOnlyBuffer();
+	result.limit(off + getValueLength(idx));
+	result.position(off);
+	return result.slice();
+    }
+
+    /**
+     * Gets the byte at the given position in the value of the element.
+     *
+     * @param idx Index of the element.
+     * @param pos Position in the value.
+     * @return The byte at the given position.
+     */
+    public byte getValueByte(int idx, int pos) {
+	if (pos < 0 || pos >= getValueLength(idx)) {
+	    throw new IndexOutOfBoundsException("Position is not inside of the element value.");
+	}
+	return buf.get(getValueOffset(idx) + pos);
+    }
+
+
+    ///
+    /// navigation
+    ///
+
+    /**
+     * Gets the next sibling of the element.
+     *
+     * @param idx Index of the element.
+     * @return Index of the next sibling, or {@link #NONE} if there is none.
+     */
+    public int getNext(int idx) {
+	checkIndex(idx);
+	return table[idx * STRIDE + NEXT];
+    }
+
+    /**
+     * Gets the first child of the element.
+     *
+     * @param idx Index of the element.
+     * @return Index of the first child, or {@link #NONE} if the element is primitive or empty.
+     */
+    public int getChild(int idx) {
+	checkIndex(idx);
+	return table[idx * STRIDE + CHILD];
+    }
+
+    /**
+     * Checks whether the element has children.
+     *
+     * @param idx Index of the element.
+     * @return {@code true} if the element has at least one child, {@code false} otherwise.
+     */
+    public boolean hasChild(int idx) {
+	return getChild(idx) != NONE;
+    }
+
+    /**
+     * Searches the element itself and its following siblings for the given tag.
+     *
+     * @param idx Index of the element where the search starts.
+     * @param tagNumWithClass Tag to search for.
+     * @return Index of the first matching element, or {@link #NONE} if there is none.
+     */
+    public int findNext(int idx, long tagNumWithClass) {
+	while (idx != NONE) {
+	    if (getTagNumWithClass(idx) == tagNumWithClass) {
+		return idx;
+	    }
+	    idx = table[idx * STRIDE + NEXT];
+	}
+	return NONE;
+    }
+
+    /**
+     * Searches the direct children of the element for the given tag.
+     *
+     * @param idx Index of the parent element.
+     * @param tagNumWithClass Tag to search for.
+     * @return Index of the first matching child, or {@link #NONE} if there is none.
+     */
+    public int findChild(int idx, long tagNumWithClass) {
+	return findNext(getChild(idx), tagNumWithClass);
+    }
+
+    /**
+     * Searches all elements in the view in depth-first order for the given tag.
+     *
+     * @param tagNumWithClass Tag to search for.
+     * @return Index of the first matching element, or {@link #NONE} if there is none.
+     */
+    public int findFirst(long tagNumWithClass) {
+	// the table is in pre-order, so a linear scan is a depth-first search
+	for (int i = 0; i < count; i++) {
+	    if (tags[i] == tagNumWithClass) {
+		return i;
+	    }
+	}
+	return NONE;
+    }
+
+
+    ///
+    /// conversion
+    ///
+
+    /**
+     * Converts the element and its children to a {@link TLV} object.
+     * The next siblings of the element are not part of the result. This method can be used to hand over a part of the
+     * structure to the classes which are based on {@link TLV}.
+     *
+     * @param idx Index of the element.
+     * @return Newly created TLV object.
+     * @throws TLVException Thrown in case the tag of the element can not be represented.
+     */
+    public TLV toTLV(int idx) throws TLVException {
+	TLV result = new TLV();
+	result.setTagNumWithClass(getTagNumWithClass(idx));
+	result.setValue(getValue(idx));
+	int child = getChild(idx);
+	if (child != NONE) {
+	    TLV first = toTLV(child);
+	    TLV last = first;
+	    for (int next = getNext(child); next != NONE; next = getNext(next)) {
+		TLV nextTLV = toTLV(next);
+		last.next = nextTLV;
+		last = nextTLV;
+	    }
+	    result.setChild(first);
+	}
+	return result;
+    }
+
+
+    private byte firstTagByte(int idx) {
+	return buf.get(getOffset(idx));
+    }
+
+    private void checkIndex(int idx) {
+	if (idx < 0 || idx >= count) {
+	    throw new IndexOutOfBoundsException("Element index " + idx + " is not contained in the view.");
+	}
+    }
+
+}
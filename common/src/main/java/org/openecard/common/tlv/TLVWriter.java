@@ -0,0 +1,327 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.tlv;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+
+/**
+ * Streaming writer for BER-TLV structures.
+ * <p>The encoded bytes are written directly into a growable buffer, so no intermediate arrays are created for the
+ * individual elements. Constructed elements are opened with {@link #begin(long)} and closed with {@link #end()}. The
+ * length of a constructed element is unknown when it is opened, so a single length byte is reserved and patched when
+ * the element is closed. Only if the content exceeds 127 bytes, the content is moved to make room for the long length
+ * form.</p>
+ * <p>Lengths are always written in the shortest form, so the output is valid DER if the content is DER. A writer can be
+ * reused after calling {@link #reset()}.</p>
+ * <pre>
+ * byte[] data = new TLVWriter()
+ *     .begin(0x7C)
+ *       .writeTLV(0x81, challenge)
+ *     .end()
+ *     .toByteArray();
+ * </pre>
+ *
+ * @author agent
+ */
+public final class TLVWriter {
+
+    private byte[] buf;
+    private int count;
+    private boolean owned;
+    // offsets of the reserved length bytes of the open constructed elements
+    private int[] open;
+    private int depth;
+
+    /**
+     * Creates a writer with a default initial capacity.
+     */
+    public TLVWriter() {
+	this(64);
+    }
+
+    /**
+     * Creates a writer with the given initial capacity.
+     * When the final size of the structure is known in advance (see {@link #encodedLength(long, int)}),
+     * {@link #toByteArray()} can return the buffer without copying it.
+     *
+     * @param capacity Initial size of the buffer.
+     */
+    public TLVWriter(int capacity) {
+	this.buf = new byte[capacity];
+	this.owned = true;
+	this.open = new int[4];
+    }
+
+    /**
+     * Creates a writer which uses the given array as its initial buffer.
+     * The array is only replaced when the encoded structure does not fit into it. Together with {@link #reset()} this
+     * makes it possible to encode many structures without allocating a buffer for each of them.
+     *
+     * @param buffer Buffer which is used as storage for the encoded data.
+     */
+    public TLVWriter(byte[] buffer) {
+	this.buf = buffer;
+	this.owned = false;
+	this.open = new int[4];
+    }
+
+
+    /**
+     * Calculates the number of bytes needed to encode an element.
+     *
+     * @param tagNumWithClass Tag of the element including class and primitive flag.
+     * @param valueLength Length of the value of the element.
+     * @return Number of bytes of the encoded element.
+     */
+    public static int encodedLength(long tagNumWithClass, int valueLength) {
+	return tagLength(tagNumWithClass) + lengthLength(valueLength) + valueLength;
+    }
+
+    private static int tagLength(long tagNumWithClass) {
+	int numBytes = 1;
+	while (numBytes < 8 && (tagNumWithClass >>> (numBytes * 8)) != 0) {
+	    numBytes++;
+	}
+	return numBytes;
+    }
+
+    private static int lengthLength(int length) {
+	if (length < 0x80) {
+	    return 1;
+	} else if (length <= 0xFF) {
+	    return 2;
+	} else if (length <= 0xFFFF) {
+	    return 3;
+	} else if (length <= 0xFFFFFF) {
+	    return 4;
+	} else {
+	    return 5;
+	}
+    }
+
+
+    ///
+    /// element functions
+    ///
+
+    /**
+     * Writes a primitive or constructed element with the given value.
+     *
+     * @param tagNumWithClass Tag of the element including class and primitive flag.
+     * @param value Value of the element.
+     * @return This instance.
+     */
+    public TLVWriter writeTLV(long tagNumWithClass, byte[] value) {
+	return writeTLV(tagNumWithClass, value, 0, value.length);
+    }
+
+    /**
+     * Writes an element with the given region of the array as value.
+     *
+     * @param tagNumWithClass Tag of the element including class and primitive flag.
+     * @param value Array containing the value of the element.
+     * @param offset Offset of the value in the array.
+     * @param length Length of the value.
+     * @return This instance.
+     */
+    public TLVWriter writeTLV(long tagNumWithClass, byte[] value, int offset, int length) {
+	ensureCapacity(encodedLength(tagNumWithClass, length));
+	putTag(tagNumWithClass);
+	putLength(length);
+	System.arraycopy(value, offset, buf, count, length);
+	count += length;
+	return this;
+    }
+
+    /**
+     * Writes an element with a single byte value.
+     *
+     * @param tagNumWithClass Tag of the element including class and primitive flag.
+     * @param value Value of the element.
+     * @return This instance.
+     */
+    public TLVWriter writeTLV(long tagNumWithClass, byte value) {
+	ensureCapacity(tagLength(tagNumWithClass) + 2);
+	putTag(tagNumWithClass);
+	buf[count++] = 1;
+	buf[count++] = value;
+	return this;
+    }
+
+    /**
+     * Writes already encoded data to the buffer.
+     *
+     * @param data Data to write.
+     * @return This instance.
+     */
+    public TLVWriter write(byte[] data) {
+	ensureCapacity(data.length);
+	System.arraycopy(data, 0, buf, count, data.length);
+	count += data.length;
+	return this;
+    }
+
+    /**
+     * Opens a constructed element.
+     * All elements written until the matching call to {@link #end()} become children of this element.
+     *
+     * @param tagNumWithClass Tag of the element including class and constructed flag.
+     * @return This instance.
+     */
+    public TLVWriter begin(long tagNumWithClass) {
+	ensureCapacity(tagLength(tagNumWithClass) + 1);
+	putTag(tagNumWithClass);
+	if (depth == open.length) {
+	    open = Arrays.copyOf(open, depth * 2);
+	}
+	open[depth++] = count;
+	// reserve one byte for the length, this is enough for short values
+	count++;
+	return this;
+    }
+
+    /**
+     * Closes the last constructed element opened with {@link #begin(long)} and writes its length.
+     *
+     * @return This instance.
+     * @throws IllegalStateException Thrown in case there is no open element.
+     */
+    public TLVWriter end() {
+	if (depth == 0) {
+	    throw new IllegalStateException("No constructed element is open.");
+	}
+	int lenPos = open[--depth];
+	int valueStart = lenPos + 1;
+	int length = count - valueStart;
+	int extra = lengthLength(length) - 1;
+	if (extra > 0) {
+	    // move the content to make room for the long length form
+	    ensureCapacity(extra);
+	    System.arraycopy(buf, valueStart, buf, valueStart + extra, length);
+	    count += extra;
+	}
+	int pos = lenPos;
+	if (extra == 0) {
+	    buf[pos] = (byte) length;
+	} else {
+	    buf[pos++] = (byte) (0x80 | extra);
+	    for (int i = extra - 1; i >= 0; i--) {
+		buf[pos++] = (byte) (length >>> (i * 8));
+	    }
+	}
+	return this;
+    }
+
+
+    ///
+    /// buffer functions
+    ///
+
+    /**
+     * Gets the number of bytes written so far.
+     *
+     * @return Number of bytes in the buffer.
+     */
+    public int size() {
+	return count;
+    }
+
+    /**
+     * Discards the written data and any open elements, so the writer can be used for a new structure.
+     * The buffer is kept.
+     */
+    public void reset() {
+	count = 0;
+	depth = 0;
+    }
+
+    /**
+     * Gets the encoded structure.
+     * If the buffer has been allocated by this writer and is completely filled, it is returned directly and the writer
+     * continues with a new buffer. Otherwise a copy of the written data is returned.
+     *
+     * @return The encoded structure.
+     * @throws IllegalStateException Thrown in case there are open constructed elements.
+     */
+    public byte[] toByteArray() {
+	checkClosed();
+	if (owned && count == buf.length) {
+	    byte[] result = buf;
+	    buf = new byte[0];
+	    count = 0;
+	    return result;
+	} else {
+	    return Arrays.copyOf(buf, count);
+	}
+    }
+
+    /**
+     * Writes the encoded structure to the given stream.
+     *
+     * @param out Stream the data is written to.
+     * @throws IOException Thrown in case writing to the stream failed.
+     * @throws IllegalStateException Thrown in case there are open constructed elements.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+	checkClosed();
+	out.write(buf, 0, count);
+    }
+
+
+    private void checkClosed() {
+	if (depth != 0) {
+	    throw new IllegalStateException("Not all constructed elements are closed.");
+	}
+    }
+
+    private void ensureCapacity(int additional) {
+	int required = count + additional;
+	if (required > buf.length) {
+	    int newSize = Math.max(required, buf.length * 2);
+	    buf = Arrays.copyOf(buf, newSize);
+	    owned = true;
+	}
+    }
+
+    private void putTag(long tagNumWithClass) {
+	for (int i = tagLength(tagNumWithClass) - 1; i >= 0; i--) {
+	    buf[count++] = (byte) (tagNumWithClass >>> (i * 8));
+	}
+    }
+
+    private void putLength(int length) {
+	int numBytes = lengthLength(length) - 1;
+	if (numBytes == 0) {
+	    buf[count++] = (byte) length;
+	} else {
+	    buf[count++] = (byte) (0x80 | numBytes);
+	    for (int i = numBytes - 1; i >= 0; i--) {
+		buf[count++] = (byte) (length >>> (i * 8));
+	    }
+	}
+    }
+
+}
@@ -26,32 +26,48 @@ import java.util.Arrays;
 
 
 /**
- * Makes it possible to use byte arrays as keys in hashmaps
+ * Makes it possible to use byte arrays as keys in hashmaps.
+ * The hash code is calculated once when the wrapper is created, so the wrapped array must not be modified afterwards.
  *
  * @author Dirk Petrautzki
  */
 public final class ByteArrayWrapper {
 
     private final byte[] data;
+    private final int hash;
 
     public ByteArrayWrapper(byte[] data) {
 	if (data == null) {
 	    throw new NullPointerException();
 	}
 	this.data = data;
+	this.hash = Arrays.hashCode(data);
+    }
+
+    /**
+     * Gets the wrapped byte array.
+     *
+     * @return The wrapped array, which must not be modified.
+     */
+    public byte[] getData() {
+	return data;
     }
 
     @Override
     public boolean equals(Object other) {
+	if (this == other) {
+	    return true;
+	}
 	if (!(other instanceof ByteArrayWrapper)) {
 	    return false;
 	}
-	return Arrays.equals(data, ((ByteArrayWrapper)other).data);
+	ByteArrayWrapper o = (ByteArrayWrapper) other;
+	return hash == o.hash && Arrays.equals(data, o.data);
     }
 
     @Override
     public int hashCode() {
-	return Arrays.hashCode(data);
+	return hash;
     }
 
 }
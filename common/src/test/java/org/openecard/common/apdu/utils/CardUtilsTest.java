@@ -0,0 +1,201 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+package org.openecard.common.apdu.utils;
+
+import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
+import iso.std.iso_iec._24727.tech.schema.Transmit;
+import iso.std.iso_iec._24727.tech.schema.TransmitResponse;
+import java.util.Arrays;
+import java.util.List;
+import org.openecard.common.ECardConstants;
+import org.openecard.common.WSHelper;
+import org.openecard.common.interfaces.Dispatcher;
+import org.openecard.common.tlv.iso7816.FCP;
+import org.openecard.common.util.ByteUtils;
+import org.openecard.common.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the file reading functions of the CardUtils class against a simulated card.
+ *
+ * @author agent
+ */
+public class CardUtilsTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CardUtilsTest.class);
+
+    @Test
+    public void testReadKnownSize() throws Exception {
+	byte[] content = makeContent(1000);
+	FakeCard card = new FakeCard(content);
+	byte[] result = CardUtils.readFile(fcp(content.length), card, new byte[0]);
+	assertEquals(result, content);
+	// all four READ BINARY commands are sent in one Transmit
+	assertEquals(card.transmits, 1);
+	assertEquals(card.commands, 4);
+    }
+
+    @Test
+    public void testReadSmallFile() throws Exception {
+	byte[] content = makeContent(100);
+	FakeCard card = new FakeCard(content);
+	byte[] result = CardUtils.readFile(fcp(content.length), card, new byte[0]);
+	assertEquals(result, content);
+	assertEquals(card.transmits, 1);
+	assertEquals(card.commands, 1);
+    }
+
+    @Test
+    public void testReadShorterThanAnnounced() throws Exception {
+	// the file is smaller than stated in the FCP, the batch stops at the end of the file
+	byte[] content = makeContent(600);
+	FakeCard card = new FakeCard(content);
+	byte[] result = CardUtils.readFile(fcp(1000), card, new byte[0]);
+	assertEquals(result, content);
+	// the incomplete chunk is read again piecewise
+	assertEquals(card.transmits, 2);
+    }
+
+    @Test
+    public void testReadUnknownSize() throws Exception {
+	byte[] content = makeContent(600);
+	FakeCard card = new FakeCard(content);
+	byte[] result = CardUtils.readFile(null, card, new byte[0]);
+	assertEquals(result, content);
+	// without size every chunk needs its own Transmit
+	assertEquals(card.transmits, 3);
+    }
+
+    /**
+     * Compares the number of round trips needed to read a file with and without known size.
+     * The test is not part of the regular test run, enable the group {@code benchmark} to run it.
+     *
+     * @throws Exception
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkReadFile() throws Exception {
+	byte[] content = makeContent(4096);
+	FCP fcp = fcp(content.length);
+	int numOps = 20000;
+	for (FCP next : Arrays.asList(null, fcp)) {
+	    FakeCard card = new FakeCard(content);
+	    long start = System.nanoTime();
+	    for (int i = 0; i < numOps; i++) {
+		CardUtils.readFile(next, card, new byte[0]);
+	    }
+	    long nanos = System.nanoTime() - start;
+	    LOG.info("readFile with {} size: {} ns/op, {} Transmits for {} commands.", next == null ? "unknown" : "known",
+		    nanos / numOps, card.transmits / numOps, card.commands / numOps);
+	}
+    }
+
+    private static byte[] makeContent(int size) {
+	byte[] content = new byte[size];
+	for (int i = 0; i < size; i++) {
+	    content[i] = (byte) i;
+	}
+	return content;
+    }
+
+    private static FCP fcp(int size) throws Exception {
+	byte[] sizeBytes = ByteUtils.cutLeadingNullBytes(new byte[] { (byte) (size >> 8), (byte) size });
+	String fcp = "80" + String.format("%02X", sizeBytes.length) + ByteUtils.toHexString(sizeBytes) + "820101";
+	fcp = "62" + String.format("%02X", fcp.length() / 2) + fcp;
+	return new FCP(StringUtils.toByteArray(fcp));
+    }
+
+
+    /**
+     * Dispatcher simulating the IFD Transmit function with a card containing one transparent file.
+     */
+    private static class FakeCard implements Dispatcher {
+	private final byte[] content;
+	int transmits = 0;
+	int commands = 0;
+
+	FakeCard(byte[] content) {
+	    this.content = content;
+	}
+
+	@Override
+	public Object deliver(Object request) {
+	    return safeDeliver(request);
+	}
+
+	@Override
+	public Object safeDeliver(Object request) {
+	    transmits++;
+	    TransmitResponse res = WSHelper.makeResponse(TransmitResponse.class, WSHelper.makeResultOK());
+	    for (InputAPDUInfoType apdu : ((Transmit) request).getInputAPDUInfo()) {
+		commands++;
+		byte[] rapdu = process(apdu.getInputAPDU());
+		res.getOutputAPDU().add(rapdu);
+		if (! isAccepted(rapdu, apdu.getAcceptableStatusCode())) {
+		    res.setResult(WSHelper.makeResultError(ECardConstants.Minor.IFD.UNKNOWN_ERROR, "Unexpected status."));
+		    break;
+		}
+	    }
+	    return res;
+	}
+
+	private byte[] process(byte[] capdu) {
+	    assertEquals(capdu[1], (byte) 0xB0);
+	    int offset = ((capdu[2] & 0x7F) << 8) | (capdu[3] & 0xFF);
+	    int le = capdu[4] & 0xFF;
+	    le = le == 0 ? 256 : le;
+	    if (offset >= content.length) {
+		return new byte[] { 0x6B, 0x00 };
+	    }
+	    int num = Math.min(le, content.length - offset);
+	    byte[] trailer = num < le ? new byte[] { 0x62, (byte) 0x82 } : new byte[] { (byte) 0x90, 0x00 };
+	    return ByteUtils.concatenate(Arrays.copyOfRange(content, offset, offset + num), trailer);
+	}
+
+	private static boolean isAccepted(byte[] rapdu, List<byte[]> codes) {
+	    if (codes.isEmpty()) {
+		return true;
+	    }
+	    byte[] sw = Arrays.copyOfRange(rapdu, rapdu.length - 2, rapdu.length);
+	    for (byte[] code : codes) {
+		if (ByteUtils.isPrefix(code, sw)) {
+		    return true;
+		}
+	    }
+	    return false;
+	}
+
+	@Override
+	public List<String> getServiceList() {
+	    throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Dispatcher getFilter() {
+	    return this;
+	}
+    }
+
+}
@@ -0,0 +1,200 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.event;
+
+import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.openecard.common.interfaces.EventCallback;
+import org.openecard.common.interfaces.EventFilter;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the per subscriber delivery of the EventDispatcherImpl.
+ *
+ * @author agent
+ */
+public class EventDispatcherImplTest {
+
+    @Test(timeOut = 10000)
+    public void testOrderedDelivery() throws InterruptedException {
+	EventDispatcherImpl disp = new EventDispatcherImpl();
+	RecordingCallback cb = new RecordingCallback(100);
+	disp.add(cb, EventType.CARD_INSERTED);
+	// events before start must not get lost
+	disp.notify(EventType.CARD_INSERTED, evt("0"));
+	disp.start();
+	try {
+	    for (int i = 1; i < 100; i++) {
+		disp.notify(EventType.CARD_INSERTED, evt(Integer.toString(i)));
+		disp.notify(EventType.CARD_REMOVED, evt("removed"));
+	    }
+	    assertTrue(cb.done.await(5, TimeUnit.SECONDS));
+	    for (int i = 0; i < 100; i++) {
+		assertEquals(cb.events.get(i).getIfaceProtocol(), Integer.toString(i));
+	    }
+	} finally {
+	    disp.terminate();
+	}
+    }
+
+    @Test(timeOut = 10000)
+    public void testSlowSubscriber() throws InterruptedException {
+	EventDispatcherImpl disp = new EventDispatcherImpl(2, EventOverflowPolicy.DROP_OLDEST);
+	final CountDownLatch release = new CountDownLatch(1);
+	EventCallback slow = new EventCallback() {
+	    @Override
+	    public void signalEvent(EventType eventType, EventObject eventData) {
+		try {
+		    release.await();
+		} catch (InterruptedException ex) {
+		    Thread.currentThread().interrupt();
+		}
+	    }
+	};
+	RecordingCallback fast = new RecordingCallback(10);
+	disp.add(slow);
+	disp.add(fast);
+	disp.start();
+	try {
+	    for (int i = 0; i < 10; i++) {
+		disp.notify(EventType.TERMINAL_ADDED, evt(Integer.toString(i)));
+		// the fast subscriber has a small queue as well, so let it catch up
+		Thread.sleep(10);
+	    }
+	    // the fast subscriber receives all events while the slow one is still blocked
+	    assertTrue(fast.done.await(5, TimeUnit.SECONDS));
+
+	    EventSubscriberStatistics slowStats = null;
+	    for (EventSubscriberStatistics stats : disp.getStatistics()) {
+		if (stats.getCallback() == slow) {
+		    slowStats = stats;
+		}
+	    }
+	    assertNotNull(slowStats);
+	    // one event is in delivery, two are queued and the rest is dropped
+	    assertEquals(slowStats.getQueueDepth(), 2);
+	    assertEquals(slowStats.getDroppedEvents(), 7);
+	} finally {
+	    release.countDown();
+	    disp.terminate();
+	}
+    }
+
+    @Test
+    public void testCoalesce() {
+	EventDispatcherImpl disp = new EventDispatcherImpl(2, EventOverflowPolicy.COALESCE);
+	RecordingCallback cb = new RecordingCallback(2);
+	disp.add(cb);
+	// not started, so the events stay in the queue
+	disp.notify(EventType.TERMINAL_ADDED, evt("a"));
+	disp.notify(EventType.CARD_INSERTED, evt("b"));
+	disp.notify(EventType.TERMINAL_ADDED, evt("c"));
+
+	EventSubscriberStatistics stats = disp.getStatistics().get(0);
+	assertEquals(stats.getQueueDepth(), 2);
+	assertEquals(stats.getDroppedEvents(), 1);
+    }
+
+    @Test(timeOut = 10000)
+    public void testBlockWithoutDispatcher() throws InterruptedException {
+	EventDispatcherImpl disp = new EventDispatcherImpl(2, EventOverflowPolicy.BLOCK);
+	RecordingCallback cb = new RecordingCallback(2);
+	disp.add(cb);
+	// not started, so nobody drains the queue and notify must not wait for it
+	disp.notify(EventType.TERMINAL_ADDED, evt("a"));
+	disp.notify(EventType.TERMINAL_ADDED, evt("b"));
+	disp.notify(EventType.TERMINAL_ADDED, evt("c"));
+
+	EventSubscriberStatistics stats = disp.getStatistics().get(0);
+	assertEquals(stats.getQueueDepth(), 2);
+	assertEquals(stats.getDroppedEvents(), 1);
+
+	disp.start();
+	try {
+	    assertTrue(cb.done.await(5, TimeUnit.SECONDS));
+	    assertEquals(cb.events.get(0).getIfaceProtocol(), "b");
+	    assertEquals(cb.events.get(1).getIfaceProtocol(), "c");
+	} finally {
+	    disp.terminate();
+	}
+	// the same holds after termination
+	disp.notify(EventType.TERMINAL_ADDED, evt("d"));
+	disp.notify(EventType.TERMINAL_ADDED, evt("e"));
+	disp.notify(EventType.TERMINAL_ADDED, evt("f"));
+    }
+
+    @Test
+    public void testHasSubscribers() {
+	EventDispatcherImpl disp = new EventDispatcherImpl();
+	assertFalse(disp.hasSubscribers(EventType.API_CALL_STARTED));
+
+	RecordingCallback cb = new RecordingCallback(0);
+	disp.add(cb, EventType.CARD_INSERTED, EventType.API_CALL_SUMMARY);
+	assertTrue(disp.hasSubscribers(EventType.CARD_INSERTED));
+	assertTrue(disp.hasSubscribers(EventType.API_CALL_SUMMARY));
+	assertFalse(disp.hasSubscribers(EventType.API_CALL_STARTED));
+	assertFalse(disp.hasSubscribers(EventType.API_CALL_FINISHED));
+
+	// custom filters can not be evaluated without the event
+	disp.add(cb, new EventFilter() {
+	    @Override
+	    public boolean matches(EventType t, Object o) {
+		return false;
+	    }
+	});
+	assertTrue(disp.hasSubscribers(EventType.API_CALL_STARTED));
+
+	disp.del(cb);
+	assertFalse(disp.hasSubscribers(EventType.CARD_INSERTED));
+    }
+
+    private static IfdEventObject evt(String id) {
+	// the protocol field is abused to identify the event
+	return new IfdEventObject(new ConnectionHandleType(), id);
+    }
+
+
+    private static class RecordingCallback implements EventCallback {
+
+	private final List<IfdEventObject> events = Collections.synchronizedList(new ArrayList<IfdEventObject>());
+	private final CountDownLatch done;
+
+	RecordingCallback(int numEvents) {
+	    this.done = new CountDownLatch(numEvents);
+	}
+
+	@Override
+	public void signalEvent(EventType eventType, EventObject eventData) {
+	    events.add((IfdEventObject) eventData);
+	    done.countDown();
+	}
+
+    }
+
+}
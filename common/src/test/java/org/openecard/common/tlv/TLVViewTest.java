@@ -0,0 +1,219 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.tlv;
+
+import java.nio.ByteBuffer;
+import org.openecard.common.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ *
+ * @author agent
+ */
+public class TLVViewTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TLVViewTest.class);
+
+    private static final String FCP_STR =
+	    "62 25" +
+	      "82 01 78" +
+	      "83 02 3F 00" +
+	      "84 07 D2 76 00 01 44 80 00" +
+	      "85 02 B1 26" +
+	      "8A 01 05" +
+	      "8B 0A 00 0A 01 08 02 08 03 00 04 00" +
+	      "A0 00";
+
+    private static final String CVC_STR =
+	    "7F218201427F4E81FB5F290100420E5A5A4456434141544130303030357F494F060A04007F0007020202020386410470C07FAA32" +
+	    "9E927D961F490F5430B395EECF3D2A538194D8B637DE0F8ACF60A9031816AC51B594097EB211FB8F55FAA8507D5800EF7B94E024" +
+	    "F9630314116C755F200B5A5A444B423230303033557F4C12060904007F0007030102025305000301DF045F2506010000060108" +
+	    "5F2406010000070001655E732D060904007F00070301030280207C1901932DB75D08539F2D4A27C938F79E69E083C442C068B2" +
+	    "99D185BC8AFA78732D060904007F0007030103018020BFD2A6A2E4237948D7DCCF7975D71D40F15307AA59F580A48777CBEED0" +
+	    "93F54B5F3740618F584E4293F75DDE8977311694B69A3ED73BBE43FDAFEC11B7ECF054F84ACB1231615338CE8D6EC332480883" +
+	    "E14E0664950F85134290DD716B7C153232BC96";
+
+    @Test
+    public void testEvalFCP() throws TLVException {
+	byte[] input = StringUtils.toByteArray(FCP_STR, true);
+
+	TLVView v = TLVView.parse(input);
+
+	assertEquals(v.size(), 8);
+	int fcp = v.getFirst();
+	assertEquals(v.getTagNumWithClass(fcp), 0x62);
+	assertFalse(v.isPrimitive(fcp));
+	assertEquals(v.getTagClass(fcp), TagClass.APPLICATION);
+	assertEquals(v.getNext(fcp), TLVView.NONE);
+	assertEquals(v.getRawLength(fcp), input.length);
+
+	assertEquals(v.findChild(fcp, 0), TLVView.NONE);
+	int fid = v.findChild(fcp, 0x83);
+	assertEquals(v.getValue(fid), new byte[] { 0x3F, 0x00 });
+	assertEquals(v.getValueOffset(fid), 7);
+	int lcs = v.findChild(fcp, 0x8A);
+	assertEquals(v.getValueByte(lcs, 0), 0x05);
+
+	// empty constructed element has no children
+	int a0 = v.findChild(fcp, 0xA0);
+	assertFalse(v.isPrimitive(a0));
+	assertFalse(v.hasChild(a0));
+	assertEquals(v.getValueLength(a0), 0);
+
+	// iterate children
+	int num = 0;
+	for (int i = v.getChild(fcp); i != TLVView.NONE; i = v.getNext(i)) {
+	    num++;
+	}
+	assertEquals(num, 7);
+    }
+
+    @Test
+    public void testCardVerifiableCertificate() throws TLVException {
+	byte[] input = StringUtils.toByteArray(CVC_STR);
+
+	TLVView v = TLVView.parse(input);
+
+	int body = v.findChild(v.getFirst(), 0x7F4E);
+	assertEquals(v.getValueByte(v.findChild(body, 0x5F29), 0), 0);
+	assertEquals(new String(v.getValue(v.findChild(body, 0x42))), "ZZDVCAATA00005");
+	assertEquals(new String(v.getValue(v.findChild(body, 0x5F20))), "ZZDKB20003U");
+	// depth first search finds the same element
+	assertEquals(v.findFirst(0x5F20), v.findChild(body, 0x5F20));
+
+	// conversion yields the same structure as the TLV parser
+	TLV expected = TLV.fromBER(input);
+	TLV converted = v.toTLV(v.getFirst());
+	assertEquals(converted.toBER(), expected.toBER());
+	assertEquals(converted.toString(), expected.toString());
+    }
+
+    @Test
+    public void testEOCLength() throws TLVException {
+	byte[] input = new byte[] { 0x04, (byte) 0x80, (byte) 0xFF, 0x00, 0x00, 0x01, 0x01, 0x01 };
+
+	TLVView v = TLVView.parse(input);
+
+	assertEquals(v.size(), 2);
+	assertEquals(v.getValue(0), new byte[] { (byte) 0xFF });
+	assertEquals(v.getRawLength(0), 5);
+	assertEquals(v.getTagNumWithClass(v.getNext(0)), 0x01);
+    }
+
+    @Test
+    public void testLongFormAndTrailingZeros() throws TLVException {
+	byte[] input = new byte[] { (byte) 0xDF, (byte) 0x81, 0x01, (byte) 0x81, 0x01, (byte) 0xFF, 0x00, 0x00 };
+
+	TLVView v = TLVView.parse(input);
+
+	assertEquals(v.size(), 1);
+	assertEquals(v.getTagNumWithClass(0), 0xDF8101);
+	assertEquals(v.getTagClass(0), TagClass.PRIVATE);
+	assertEquals(v.getValueLength(0), 1);
+	assertEquals(v.getValueLength(0), TLV.fromBER(input).getValueLength());
+    }
+
+    @Test
+    public void testByteBuffer() throws TLVException {
+	byte[] fcp = StringUtils.toByteArray(FCP_STR, true);
+	ByteBuffer buf = ByteBuffer.allocateDirect(fcp.length + 4);
+	buf.putShort((short) 0x1234);
+	buf.put(fcp);
+	buf.putShort((short) 0x1234);
+	buf.flip();
+	buf.position(2);
+	buf.limit(2 + fcp.length);
+
+	TLVView v = TLVView.parse(buf);
+
+	assertEquals(buf.position(), 2);
+	assertEquals(v.getOffset(0), 2);
+	ByteBuffer name = v.getValueBuffer(v.findFirst(0x84));
+	assertTrue(name.isReadOnly());
+	assertEquals(name.remaining(), 7);
+	assertEquals(name.get(0), (byte) 0xD2);
+    }
+
+    @Test
+    public void testArrayRegion() throws TLVException {
+	byte[] input = new byte[] { (byte) 0xFF, 0x30, 0x03, 0x02, 0x01, 0x05, (byte) 0xFF };
+
+	TLVView v = TLVView.parse(input, 1, 5);
+
+	assertEquals(v.size(), 2);
+	assertEquals(v.getValue(v.findChild(0, 0x02)), new byte[] { 0x05 });
+    }
+
+    @Test(expectedExceptions = TLVException.class)
+    public void testTruncatedValue() throws TLVException {
+	TLVView.parse(new byte[] { 0x30, 0x05, 0x02, 0x01, 0x05 });
+    }
+
+    @Test(expectedExceptions = TLVException.class)
+    public void testChildExceedsParent() throws TLVException {
+	TLVView.parse(new byte[] { 0x30, 0x03, 0x02, 0x02, 0x05, 0x06 });
+    }
+
+    @Test(groups = "benchmark")
+    public void benchmarkParser() throws TLVException {
+	byte[] input = StringUtils.toByteArray(CVC_STR);
+	final int warmup = 20_000;
+	final int rounds = 200_000;
+
+	long sink = 0;
+	for (int i = 0; i < warmup; i++) {
+	    sink += parseTree(input) + parseView(input);
+	}
+
+	long start = System.nanoTime();
+	for (int i = 0; i < rounds; i++) {
+	    sink += parseTree(input);
+	}
+	long treeTime = System.nanoTime() - start;
+
+	start = System.nanoTime();
+	for (int i = 0; i < rounds; i++) {
+	    sink += parseView(input);
+	}
+	long viewTime = System.nanoTime() - start;
+
+	LOG.info("TLV.fromBER: {} ns/op, TLVView.parse: {} ns/op ({}).", treeTime / rounds, viewTime / rounds, sink);
+    }
+
+    private static long parseTree(byte[] input) throws TLVException {
+	TLV tlv = TLV.fromBER(input);
+	TLV body = tlv.findChildTags(0x7F4E).get(0);
+	return body.findChildTags(0x5F20).get(0).getValueLength();
+    }
+
+    private static long parseView(byte[] input) throws TLVException {
+	TLVView v = TLVView.parse(input);
+	int body = v.findChild(v.getFirst(), 0x7F4E);
+	return v.getValueLength(v.findChild(body, 0x5F20));
+    }
+
+}
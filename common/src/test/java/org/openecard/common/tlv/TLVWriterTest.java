@@ -0,0 +1,159 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.common.tlv;
+
+import java.util.Arrays;
+import org.openecard.common.apdu.GeneralAuthenticate;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ *
+ * @author agent
+ */
+public class TLVWriterTest {
+
+    @Test
+    public void testPrimitive() {
+	byte[] result = new TLVWriter()
+		.writeTLV(0x80, new byte[] { 0x01, 0x02 })
+		.writeTLV(0x5F20, (byte) 0x05)
+		.writeTLV(0x04, new byte[0])
+		.begin(0x30).end()
+		.toByteArray();
+
+	assertEquals(result, new byte[] { (byte) 0x80, 0x02, 0x01, 0x02, 0x5F, 0x20, 0x01, 0x05, 0x04, 0x00, 0x30, 0x00 });
+    }
+
+    @Test
+    public void testLengthForms() throws TLVException {
+	for (int len : new int[] { 0x7F, 0x80, 0xFF, 0x100, 0xFFFF, 0x10000 }) {
+	    byte[] value = new byte[len];
+	    byte[] result = new TLVWriter(8).writeTLV(0x04, value).toByteArray();
+	    TLVView v = TLVView.parse(result);
+	    assertEquals(v.getValueLength(0), len);
+	    assertEquals(v.getRawLength(0), result.length);
+	    assertEquals(result.length, TLVWriter.encodedLength(0x04, len));
+	}
+    }
+
+    @Test
+    public void testNestedBackPatching() throws TLVException {
+	byte[] big = new byte[300];
+	Arrays.fill(big, (byte) 0xAB);
+
+	TLVWriter writer = new TLVWriter(4);
+	writer.begin(0x7F21);
+	writer.begin(0x7F4E);
+	writer.writeTLV(0x5F29, (byte) 0x00);
+	writer.writeTLV(0x42, big);
+	writer.end();
+	writer.end();
+	byte[] result = writer.toByteArray();
+
+	// compare with the object based encoder
+	TLV outer = new TLV();
+	outer.setTagNumWithClass(0x7F21);
+	TLV body = new TLV();
+	body.setTagNumWithClass(0x7F4E);
+	TLV cpi = new TLV();
+	cpi.setTagNumWithClass(0x5F29);
+	cpi.setValue(new byte[] { 0x00 });
+	TLV car = new TLV();
+	car.setTagNumWithClass(0x42);
+	car.setValue(big);
+	cpi.addToEnd(car);
+	body.setChild(cpi);
+	outer.setChild(body);
+
+	assertEquals(result, outer.toBER());
+	assertEquals(TLVView.parse(result).getValueLength(2), 1);
+    }
+
+    @Test
+    public void testReuseCallerBuffer() {
+	byte[] buffer = new byte[16];
+	TLVWriter writer = new TLVWriter(buffer);
+
+	writer.writeTLV(0x80, new byte[] { 0x01 });
+	byte[] first = writer.toByteArray();
+	assertNotSame(first, buffer);
+	assertEquals(first, new byte[] { (byte) 0x80, 0x01, 0x01 });
+
+	writer.reset();
+	writer.writeTLV(0x81, new byte[] { 0x02 });
+	assertEquals(writer.toByteArray(), new byte[] { (byte) 0x81, 0x01, 0x02 });
+	// the caller buffer is the storage of the writer
+	assertEquals(buffer[0], (byte) 0x81);
+    }
+
+    @Test
+    public void testExactCapacityIsNotCopied() {
+	TLVWriter writer = new TLVWriter(TLVWriter.encodedLength(0x80, 2));
+	writer.writeTLV(0x80, new byte[] { 0x01, 0x02 });
+	byte[] result = writer.toByteArray();
+	assertEquals(result, new byte[] { (byte) 0x80, 0x02, 0x01, 0x02 });
+
+	// writer continues with a fresh buffer
+	writer.writeTLV(0x81, (byte) 0x01);
+	assertEquals(writer.toByteArray(), new byte[] { (byte) 0x81, 0x01, 0x01 });
+	assertEquals(result, new byte[] { (byte) 0x80, 0x02, 0x01, 0x02 });
+    }
+
+    @Test
+    public void testGeneralAuthenticate() throws TLVException {
+	byte[] key = new byte[65];
+	Arrays.fill(key, (byte) 0x04);
+
+	GeneralAuthenticate ga = new GeneralAuthenticate((byte) 0x83, key);
+	assertEquals(ga.getData(), encodeGAWithTLV((byte) 0x83, key));
+    }
+
+    @Test
+    public void testGeneralAuthenticateWithoutData() {
+	GeneralAuthenticate ga = new GeneralAuthenticate((byte) 0x83, null);
+	assertEquals(ga.getData().length, 0);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testUnbalancedEnd() {
+	new TLVWriter().end();
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testOpenElement() {
+	new TLVWriter().begin(0x30).toByteArray();
+    }
+
+    private static byte[] encodeGAWithTLV(byte tag, byte[] data) throws TLVException {
+	TLV tag7c = new TLV();
+	TLV tagData = new TLV();
+	tag7c.setTagNumWithClass((byte) 0x7C);
+	tag7c.setChild(tagData);
+	tagData.setTagNumWithClass(tag);
+	tagData.setValue(data);
+	return tag7c.toBER();
+    }
+
+}
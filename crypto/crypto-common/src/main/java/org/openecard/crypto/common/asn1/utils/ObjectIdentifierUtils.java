@@ -25,6 +25,7 @@ package org.openecard.crypto.common.asn1.utils;
 import java.util.StringTokenizer;
 import org.openecard.common.tlv.TLV;
 import org.openecard.common.tlv.TLVException;
+import org.openecard.common.tlv.TLVView;
 
 
 /**
@@ -60,7 +61,8 @@ public final class ObjectIdentifierUtils {
 	StringBuilder sb = new StringBuilder(32);
 
 	if (oid[0] == (byte) 0x06) {
-	    oid = TLV.fromBER(oid).getValue();
+	    TLVView tlv = TLVView.parse(oid);
+	    oid = tlv.getValue(tlv.getFirst());
 	}
 
 	switch ((oid[0] & 0x7f) / 40) {
@@ -48,6 +48,7 @@ import org.openecard.bouncycastle.tls.TlsAuthentication;
 import org.openecard.bouncycastle.tls.TlsClientContext;
 import org.openecard.bouncycastle.tls.TlsECCUtils;
 import org.openecard.bouncycastle.tls.TlsExtensionsUtils;
+import org.openecard.bouncycastle.tls.TlsServerCertificate;
 import org.openecard.bouncycastle.tls.TlsSession;
 import org.openecard.bouncycastle.tls.TlsUtils;
 import org.openecard.bouncycastle.tls.crypto.TlsCrypto;
@@ -74,6 +75,9 @@ public class ClientCertDefaultTlsClient extends DefaultTlsClient implements Clie
     private boolean enforceSameSession = false;
     private TlsSession firstSession;
     private TlsSession lastSession;
+    private TlsSessionCache.Key sessionCacheKey;
+    private TlsSession offeredSession;
+    private boolean resumed;
 
     protected List<ServerName> serverNames;
     protected ProtocolVersion clientVersion = ProtocolVersion.TLSv12;
@@ -142,6 +146,17 @@ public class ClientCertDefaultTlsClient extends DefaultTlsClient implements Clie
 	this.enforceSameSession = enforceSameSession;
     }
 
+    /**
+     * Sets the key under which sessions of this client are saved in the process wide {@link TlsSessionCache}.
+     * Without a key the cache is not used. The cache is also not consulted when the same session is enforced, so that
+     * only the exact same session is resumed in this case.
+     *
+     * @param sessionCacheKey Key identifying server and client credential, or {@code null} to disable the cache.
+     */
+    public void setSessionCacheKey(@Nullable TlsSessionCache.Key sessionCacheKey) {
+	this.sessionCacheKey = sessionCacheKey;
+    }
+
 
     @Override
     public synchronized TlsAuthentication getAuthentication() throws IOException {
@@ -304,6 +319,7 @@ public class ClientCertDefaultTlsClient extends DefaultTlsClient implements Clie
 	} else if (alertLevel == AlertLevel.fatal) {
 	    LOG.error("TLS error sent.");
 	    LOG.error(error.toString(), cause);
+	    removeCachedSession();
 	}
 
 	super.notifyAlertRaised(alertLevel, alertDescription, message, cause);
@@ -318,6 +334,7 @@ public class ClientCertDefaultTlsClient extends DefaultTlsClient implements Clie
 	} else if (alertLevel == AlertLevel.fatal) {
 	    LOG.error("TLS error received.");
 	    LOG.error(error.toString());
+	    removeCachedSession();
 	}
 
 	super.notifyAlertReceived(alertLevel, alertDescription);
@@ -328,6 +345,9 @@ public class ClientCertDefaultTlsClient extends DefaultTlsClient implements Clie
     public TlsSession getSessionToResume() {
 	if (firstSession != null) {
 	    return firstSession;
+	} else if (! enforceSameSession && sessionCacheKey != null) {
+	    offeredSession = TlsSessionCache.getInstance().get(sessionCacheKey);
+	    return offeredSession;
 	} else {
 	    return super.getSessionToResume();
 	}
@@ -335,6 +355,7 @@ public class ClientCertDefaultTlsClient extends DefaultTlsClient implements Clie
 
     @Override
     public void notifySessionID(byte[] sessionID) {
+	resumed = offeredSession != null && ByteUtils.compare(offeredSession.getSessionID(), sessionID);
 	if (enforceSameSession) {
 	    // check if someone tries to resume and raise error
 	    TlsSession s = getSessionToResume();
@@ -362,9 +383,38 @@ public class ClientCertDefaultTlsClient extends DefaultTlsClient implements Clie
 	    lastSession = TlsUtils.importSession(lastSession.getSessionID(), lastSession.exportSessionParameters());
 	}
 
+	if (sessionCacheKey != null) {
+	    TlsSessionCache cache = TlsSessionCache.getInstance();
+	    if (resumed) {
+		// no certificate is sent in an abbreviated handshake, so verify the certificate of the cached session
+		TlsServerCertificate serverCert = TlsSessionCache.getPeerCertificate(offeredSession);
+		if (serverCert != null) {
+		    try {
+			getAuthentication().notifyServerCertificate(serverCert);
+		    } catch (IOException | RuntimeException ex) {
+			cache.remove(sessionCacheKey);
+			throw ex;
+		    }
+		}
+	    } else if (lastSession != null) {
+		cache.put(sessionCacheKey, lastSession);
+	    } else {
+		cache.remove(sessionCacheKey);
+	    }
+	    cache.recordHandshake(resumed);
+	}
+	offeredSession = null;
+	resumed = false;
+
 	super.notifyHandshakeComplete();
     }
 
+    private void removeCachedSession() {
+	if (sessionCacheKey != null) {
+	    TlsSessionCache.getInstance().remove(sessionCacheKey);
+	}
+    }
+
     @Override
     public void notifySecureRenegotiation(boolean secureRenegotiation) throws IOException {
 	// pretend we accept it
@@ -48,9 +48,12 @@ import org.openecard.bouncycastle.tls.TlsAuthentication;
 import org.openecard.bouncycastle.tls.TlsECCUtils;
 import org.openecard.bouncycastle.tls.TlsExtensionsUtils;
 import org.openecard.bouncycastle.tls.TlsPSKIdentity;
+import org.openecard.bouncycastle.tls.TlsServerCertificate;
+import org.openecard.bouncycastle.tls.TlsSession;
 import org.openecard.bouncycastle.tls.TlsUtils;
 import org.openecard.bouncycastle.tls.crypto.TlsCrypto;
 import org.openecard.common.OpenecardProperties;
+import org.openecard.common.util.ByteUtils;
 import org.openecard.crypto.tls.auth.ContextAware;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,6 +72,9 @@ public class ClientCertPSKTlsClient extends PSKTlsClient implements ClientCertTl
 
     private final String host;
     private TlsAuthentication tlsAuth;
+    private TlsSessionCache.Key sessionCacheKey;
+    private TlsSession offeredSession;
+    private boolean resumed;
 
     protected List<ServerName> serverNames;
     protected ProtocolVersion clientVersion = ProtocolVersion.TLSv12;
@@ -178,6 +184,17 @@ public class ClientCertPSKTlsClient extends PSKTlsClient implements ClientCertTl
 	this.tlsAuth = tlsAuth;
     }
 
+    /**
+     * Sets the key under which sessions of this client are saved in the process wide {@link TlsSessionCache}.
+     * Without a key the cache is not used. The key must contain the PSK identity, so that a session is never resumed
+     * for a different PSK.
+     *
+     * @param sessionCacheKey Key identifying server and PSK, or {@code null} to disable the cache.
+     */
+    public void setSessionCacheKey(@Nullable TlsSessionCache.Key sessionCacheKey) {
+	this.sessionCacheKey = sessionCacheKey;
+    }
+
     @Override
     protected Vector getSupportedSignatureAlgorithms() {
 	TlsCrypto crypto = context.getCrypto();
@@ -245,6 +262,7 @@ public class ClientCertPSKTlsClient extends PSKTlsClient implements ClientCertTl
 	} else if (alertLevel == AlertLevel.fatal) {
 	    LOG.error("TLS error sent.");
 	    LOG.error(error.toString(), cause);
+	    removeCachedSession();
 	}
 
 	super.notifyAlertRaised(alertLevel, alertDescription, message, cause);
@@ -259,11 +277,66 @@ public class ClientCertPSKTlsClient extends PSKTlsClient implements ClientCertTl
 	} else if (alertLevel == AlertLevel.fatal) {
 	    LOG.error("TLS error received.");
 	    LOG.error(error.toString());
+	    removeCachedSession();
 	}
 
 	super.notifyAlertReceived(alertLevel, alertDescription);
     }
 
+
+    @Override
+    public TlsSession getSessionToResume() {
+	if (sessionCacheKey != null) {
+	    offeredSession = TlsSessionCache.getInstance().get(sessionCacheKey);
+	    return offeredSession;
+	} else {
+	    return super.getSessionToResume();
+	}
+    }
+
+    @Override
+    public void notifySessionID(byte[] sessionID) {
+	resumed = offeredSession != null && ByteUtils.compare(offeredSession.getSessionID(), sessionID);
+    }
+
+    @Override
+    public void notifyHandshakeComplete() throws IOException {
+	if (sessionCacheKey != null) {
+	    TlsSessionCache cache = TlsSessionCache.getInstance();
+	    if (resumed) {
+		// no certificate is sent in an abbreviated handshake, so verify the certificate of the cached session
+		TlsServerCertificate serverCert = TlsSessionCache.getPeerCertificate(offeredSession);
+		if (serverCert != null) {
+		    try {
+			getAuthentication().notifyServerCertificate(serverCert);
+		    } catch (IOException | RuntimeException ex) {
+			cache.remove(sessionCacheKey);
+			throw ex;
+		    }
+		}
+	    } else {
+		TlsSession session = context != null ? context.getResumableSession() : null;
+		if (session != null) {
+		    session = TlsUtils.importSession(session.getSessionID(), session.exportSessionParameters());
+		    cache.put(sessionCacheKey, session);
+		} else {
+		    cache.remove(sessionCacheKey);
+		}
+	    }
+	    cache.recordHandshake(resumed);
+	}
+	offeredSession = null;
+	resumed = false;
+
+	super.notifyHandshakeComplete();
+    }
+
+    private void removeCachedSession() {
+	if (sessionCacheKey != null) {
+	    TlsSessionCache.getInstance().remove(sessionCacheKey);
+	}
+    }
+
     @Override
     public void notifySecureRenegotiation(boolean secureRenegotiation) throws IOException {
 	// pretend we accept it
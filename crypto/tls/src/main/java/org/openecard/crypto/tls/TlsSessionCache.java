@@ -0,0 +1,247 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.crypto.tls;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.openecard.bouncycastle.tls.Certificate;
+import org.openecard.bouncycastle.tls.CertificateStatus;
+import org.openecard.bouncycastle.tls.TlsServerCertificate;
+import org.openecard.bouncycastle.tls.TlsSession;
+
+
+/**
+ * Process wide cache of resumable TLS sessions.
+ * <p>The TLS clients of this package consult the cache when a key is set for them, so that new connections to the
+ * same server can perform an abbreviated handshake. The key consists of host, port and an identifier of the client
+ * credential, e.g. the PSK identity, so that a session is never resumed with a different peer or a different client
+ * authentication.</p>
+ * <p>The cache is bounded in size and evicts the least recently used session. Sessions are discarded when they are
+ * older than the maximum age, regardless of how often they have been resumed.</p>
+ *
+ * @author agent
+ */
+public final class TlsSessionCache {
+
+    private static final int MAX_ENTRIES = 64;
+    private static final long MAX_AGE = TimeUnit.MINUTES.toMillis(10);
+
+    private static final TlsSessionCache INSTANCE = new TlsSessionCache(MAX_ENTRIES, MAX_AGE);
+
+    private final long maxAgeMillis;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private final AtomicLong fullHandshakes = new AtomicLong();
+    private final AtomicLong abbreviatedHandshakes = new AtomicLong();
+
+    TlsSessionCache(final int maxEntries, long maxAgeMillis) {
+	this.maxAgeMillis = maxAgeMillis;
+	this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+	    private static final long serialVersionUID = 1L;
+	    @Override
+	    protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+		return size() > maxEntries;
+	    }
+	};
+    }
+
+    /**
+     * Gets the process wide cache instance.
+     *
+     * @return The session cache.
+     */
+    public static TlsSessionCache getInstance() {
+	return INSTANCE;
+    }
+
+    /**
+     * Gets the session to resume for the given key.
+     * Expired and invalidated sessions are removed.
+     *
+     * @param key Key of the connection.
+     * @return The session, or {@code null} if no resumable session is available.
+     */
+    @Nullable
+    public TlsSession get(@Nonnull Key key) {
+	long now = System.currentTimeMillis();
+	synchronized (this) {
+	    Entry e = entries.get(key);
+	    if (e == null) {
+		return null;
+	    } else if (now - e.created >= maxAgeMillis || ! e.session.isResumable()) {
+		entries.remove(key);
+		return null;
+	    } else {
+		return e.session;
+	    }
+	}
+    }
+
+    /**
+     * Saves the session established by a full handshake.
+     *
+     * @param key Key of the connection.
+     * @param session Resumable session.
+     */
+    public void put(@Nonnull Key key, @Nonnull TlsSession session) {
+	Entry e = new Entry(session, System.currentTimeMillis());
+	synchronized (this) {
+	    entries.put(key, e);
+	}
+    }
+
+    /**
+     * Removes the session for the given key, e.g. because the connection failed.
+     *
+     * @param key Key of the connection.
+     */
+    public synchronized void remove(@Nonnull Key key) {
+	entries.remove(key);
+    }
+
+    /**
+     * Removes all sessions.
+     */
+    public synchronized void clear() {
+	entries.clear();
+    }
+
+    /**
+     * Counts a completed handshake of a client using this cache.
+     *
+     * @param abbreviated {@code true} if a session has been resumed, {@code false} for a full handshake.
+     */
+    void recordHandshake(boolean abbreviated) {
+	if (abbreviated) {
+	    abbreviatedHandshakes.incrementAndGet();
+	} else {
+	    fullHandshakes.incrementAndGet();
+	}
+    }
+
+    /**
+     * Gets a snapshot of the cache statistics.
+     *
+     * @return Statistics object.
+     */
+    public TlsSessionCacheStatistics getStatistics() {
+	int size;
+	synchronized (this) {
+	    size = entries.size();
+	}
+	return new TlsSessionCacheStatistics(size, fullHandshakes.get(), abbreviatedHandshakes.get());
+    }
+
+    /**
+     * Gets the server certificate of the given session.
+     * In an abbreviated handshake no certificate is transmitted, so the certificate of the resumed session is used to
+     * notify the authentication of the client.
+     *
+     * @param session The resumed session.
+     * @return The certificate, or {@code null} if the session has no server certificate, e.g. with plain PSK.
+     */
+    @Nullable
+    static TlsServerCertificate getPeerCertificate(TlsSession session) {
+	final Certificate cert = session.exportSessionParameters().getPeerCertificate();
+	if (cert == null || cert.isEmpty()) {
+	    return null;
+	}
+	return new TlsServerCertificate() {
+	    @Override
+	    public Certificate getCertificate() {
+		return cert;
+	    }
+	    @Override
+	    public CertificateStatus getCertificateStatus() {
+		return null;
+	    }
+	};
+    }
+
+
+    private static class Entry {
+
+	private final TlsSession session;
+	private final long created;
+
+	Entry(TlsSession session, long created) {
+	    this.session = session;
+	    this.created = created;
+	}
+
+    }
+
+    /**
+     * Key of a cached session.
+     */
+    public static final class Key {
+
+	private final String host;
+	private final int port;
+	private final String credentialId;
+
+	/**
+	 * Creates a key for the given server and client credential.
+	 *
+	 * @param host Host name or IP address of the server.
+	 * @param port Port of the server.
+	 * @param credentialId Identifier of the client credential, or {@code null} if the client does not authenticate.
+	 */
+	public Key(@Nonnull String host, int port, @Nullable String credentialId) {
+	    this.host = host;
+	    this.port = port;
+	    this.credentialId = credentialId;
+	}
+
+	@Override
+	public int hashCode() {
+	    int h = host.hashCode();
+	    h = 31 * h + port;
+	    h = 31 * h + (credentialId != null ? credentialId.hashCode() : 0);
+	    return h;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (this == obj) {
+		return true;
+	    } else if (! (obj instanceof Key)) {
+		return false;
+	    }
+	    Key other = (Key) obj;
+	    return port == other.port && host.equals(other.host)
+		    && (credentialId == null ? other.credentialId == null : credentialId.equals(other.credentialId));
+	}
+
+	@Override
+	public String toString() {
+	    return host + ":" + port;
+	}
+
+    }
+
+}
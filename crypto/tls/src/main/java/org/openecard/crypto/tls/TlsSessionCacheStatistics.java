@@ -0,0 +1,86 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.crypto.tls;
+
+
+/**
+ * Snapshot of the statistics of the {@link TlsSessionCache}.
+ *
+ * @author agent
+ */
+public class TlsSessionCacheStatistics {
+
+    private final int entries;
+    private final long fullHandshakes;
+    private final long abbreviatedHandshakes;
+
+    TlsSessionCacheStatistics(int entries, long fullHandshakes, long abbreviatedHandshakes) {
+	this.entries = entries;
+	this.fullHandshakes = fullHandshakes;
+	this.abbreviatedHandshakes = abbreviatedHandshakes;
+    }
+
+    /**
+     * Gets the number of cached sessions.
+     *
+     * @return Number of cache entries.
+     */
+    public int getEntries() {
+	return entries;
+    }
+
+    /**
+     * Gets the number of full handshakes performed by clients using the cache.
+     *
+     * @return Number of full handshakes.
+     */
+    public long getFullHandshakes() {
+	return fullHandshakes;
+    }
+
+    /**
+     * Gets the number of handshakes which resumed a cached session.
+     *
+     * @return Number of abbreviated handshakes.
+     */
+    public long getAbbreviatedHandshakes() {
+	return abbreviatedHandshakes;
+    }
+
+    /**
+     * Gets the ratio of abbreviated handshakes to all handshakes.
+     *
+     * @return Resumption ratio between 0 and 1, or 0 if no handshake has been performed yet.
+     */
+    public double getResumptionRatio() {
+	long total = fullHandshakes + abbreviatedHandshakes;
+	return total == 0 ? 0 : (double) abbreviatedHandshakes / total;
+    }
+
+    @Override
+    public String toString() {
+	return String.format("TlsSessionCacheStatistics[entries=%d, full=%d, abbreviated=%d]",
+		entries, fullHandshakes, abbreviatedHandshakes);
+    }
+
+}
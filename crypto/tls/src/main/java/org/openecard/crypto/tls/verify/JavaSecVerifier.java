@@ -25,6 +25,7 @@ package org.openecard.crypto.tls.verify;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertPath;
 import java.security.cert.CertPathValidator;
@@ -32,10 +33,13 @@ import java.security.cert.CertPathValidatorException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXCertPathValidatorResult;
 import java.security.cert.PKIXParameters;
 import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import org.openecard.bouncycastle.tls.TlsServerCertificate;
 import org.openecard.bouncycastle.tls.crypto.TlsCertificate;
 import org.openecard.crypto.tls.CertificateVerificationException;
@@ -46,11 +50,19 @@ import org.openecard.crypto.tls.CertificateVerifier;
  * Java Security based certificate verifier.
  * This implementation converts the BouncyCastle certificates to java.security certificates and uses the Java-bundled
  * PKIX mechanism to verify the certificate chain.
+ * <p>
+ * Successful validations are cached until the first certificate of the chain expires, but at most for one hour. The
+ * cache is shared by all instances and keyed by the chain, the hostname, the trust store and its version as well as
+ * the verifier configuration.
  *
  * @author Tobias Wich
  */
 public class JavaSecVerifier implements CertificateVerifier {
 
+    private static final int CACHE_MAX_ENTRIES = 256;
+    private static final long CACHE_MAX_TTL = TimeUnit.HOURS.toMillis(1);
+    private static final PKIXValidationCache CACHE = new PKIXValidationCache(CACHE_MAX_ENTRIES, CACHE_MAX_TTL);
+
     protected final boolean checkRevocation;
     protected final CertPathValidator certPathValidator;
 
@@ -72,28 +84,40 @@ public class JavaSecVerifier implements CertificateVerifier {
 	}
     }
 
+    /**
+     * Gets the loader of the trust store used by this verifier.
+     *
+     * @return The trust store loader.
+     */
+    protected TrustStoreLoader getTrustStoreLoader() {
+	return new TrustStoreLoader();
+    }
+
     protected Set<TrustAnchor> getTrustStore() {
-	return new TrustStoreLoader().getTrustAnchors();
+	return getTrustStoreLoader().getTrustAnchors();
+    }
+
+    /**
+     * Gets a snapshot of the statistics of the validation cache shared by all verifiers.
+     *
+     * @return Statistics object.
+     */
+    public static PKIXValidationStatistics getValidationStatistics() {
+	return CACHE.getStatistics();
+    }
+
+    /**
+     * Removes all cached validation results.
+     */
+    public static void clearValidationCache() {
+	CACHE.clear();
     }
 
 
     @Override
     public void isValid(TlsServerCertificate chain, String hostname) throws CertificateVerificationException {
 	try {
-	    CertPath certPath = convertChain(chain);
-
-	    // create the parameters for the validator
-	    PKIXParameters params = new PKIXParameters(getTrustStore());
-	    if (checkRevocation) {
-		params.setRevocationEnabled(true);
-		System.setProperty("com.sun.security.enableCRLDP", "true");
-	    } else {
-		// disable CRL checking since we are not supplying any CRLs yet
-		params.setRevocationEnabled(false);
-	    }
-
-	    // validate - exception marks failure
-	    certPathValidator.validate(certPath, params);
+	    validate(chain, hostname);
 	} catch (CertPathValidatorException ex) {
 	    throw new CertificateVerificationException(ex.getMessage());
 	} catch (GeneralSecurityException ex) {
@@ -103,6 +127,77 @@ public class JavaSecVerifier implements CertificateVerifier {
 	}
     }
 
+    /**
+     * Validates the certificate chain against the trust store of this verifier.
+     * The result is taken from the validation cache if the chain has been validated successfully before.
+     *
+     * @param chain The certificate chain to validate.
+     * @param hostname The hostname the chain has been presented for.
+     * @throws GeneralSecurityException Thrown in case the chain is not valid.
+     * @throws IOException Thrown in case the chain could not be converted to java.security format.
+     */
+    protected void validate(TlsServerCertificate chain, String hostname) throws GeneralSecurityException,
+	    IOException {
+	TrustStoreLoader loader = getTrustStoreLoader();
+	String verifierId = getClass().getName() + (checkRevocation ? "#revocation" : "");
+	PKIXValidationCache.Key key = new PKIXValidationCache.Key(fingerprint(chain), hostname, verifierId,
+		loader.getStoreName(), loader.getVersion());
+	if (CACHE.contains(key)) {
+	    return;
+	}
+
+	long start = System.nanoTime();
+	try {
+	    CertPath certPath = convertChain(chain);
+	    PKIXParameters params = createParameters(loader);
+	    // validate - exception marks failure
+	    PKIXCertPathValidatorResult r = (PKIXCertPathValidatorResult) certPathValidator.validate(certPath, params);
+	    CACHE.put(key, getNotAfter(certPath, r.getTrustAnchor()));
+	} finally {
+	    CACHE.recordValidation(System.nanoTime() - start);
+	}
+    }
+
+    /**
+     * Creates the parameters for the validator.
+     *
+     * @param loader Loader of the trust store used by this verifier.
+     * @return Parameters which may be modified.
+     * @throws GeneralSecurityException Thrown in case the parameters could not be created.
+     */
+    protected PKIXParameters createParameters(TrustStoreLoader loader) throws GeneralSecurityException {
+	PKIXParameters params = loader.getTrustParameters();
+	if (checkRevocation) {
+	    params.setRevocationEnabled(true);
+	    System.setProperty("com.sun.security.enableCRLDP", "true");
+	} else {
+	    // disable CRL checking since we are not supplying any CRLs yet
+	    params.setRevocationEnabled(false);
+	}
+	return params;
+    }
+
+    private static byte[] fingerprint(TlsServerCertificate chain) throws NoSuchAlgorithmException, IOException {
+	MessageDigest md = MessageDigest.getInstance("SHA-256");
+	for (TlsCertificate next : chain.getCertificate().getCertificateList()) {
+	    md.update(next.getEncoded());
+	}
+	return md.digest();
+    }
+
+    private static long getNotAfter(CertPath certPath, TrustAnchor anchor) {
+	long notAfter = Long.MAX_VALUE;
+	for (Certificate next : certPath.getCertificates()) {
+	    if (next instanceof X509Certificate) {
+		notAfter = Math.min(notAfter, ((X509Certificate) next).getNotAfter().getTime());
+	    }
+	}
+	if (anchor != null && anchor.getTrustedCert() != null) {
+	    notAfter = Math.min(notAfter, anchor.getTrustedCert().getNotAfter().getTime());
+	}
+	return notAfter;
+    }
+
 
     public static CertPath convertChain(TlsServerCertificate chain) throws CertificateException, IOException {
 	final int numCerts = chain.getCertificate().getCertificateList().length;
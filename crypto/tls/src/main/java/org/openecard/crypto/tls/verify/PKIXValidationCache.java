@@ -0,0 +1,196 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.crypto.tls.verify;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+
+/**
+ * Cache of successful certificate path validations.
+ * <p>Servers present the same certificate chain in every handshake, so the result of the PKIX validation can be reused
+ * until one of the certificates expires. An entry is identified by the fingerprint of the chain, the hostname and the
+ * name and version of the trust store, so that reloading the trust store invalidates all entries belonging to it.
+ * Failed validations are not cached.</p>
+ * <p>The cache is bounded and evicts the least recently used chain.</p>
+ *
+ * @author agent
+ */
+final class PKIXValidationCache {
+
+    private final long maxTtlMillis;
+    private final LinkedHashMap<Key, Long> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong validations = new AtomicLong();
+    private final AtomicLong validationNanos = new AtomicLong();
+
+    /**
+     * Creates a cache with the given limits.
+     *
+     * @param maxEntries Maximum number of chains held in the cache.
+     * @param maxTtlMillis Maximum time in milliseconds a validation result is used, regardless of the certificate
+     *   expiry.
+     */
+    PKIXValidationCache(final int maxEntries, long maxTtlMillis) {
+	this.maxTtlMillis = maxTtlMillis;
+	this.entries = new LinkedHashMap<Key, Long>(16, 0.75f, true) {
+	    private static final long serialVersionUID = 1L;
+	    @Override
+	    protected boolean removeEldestEntry(Map.Entry<Key, Long> eldest) {
+		return size() > maxEntries;
+	    }
+	};
+    }
+
+    /**
+     * Checks if a valid result for the given key is present.
+     * Expired entries are removed.
+     *
+     * @param key Key of the validation.
+     * @return {@code true} if the chain has been validated successfully before and the result is still valid.
+     */
+    boolean contains(Key key) {
+	long now = System.currentTimeMillis();
+	boolean found;
+	synchronized (this) {
+	    Long validUntil = entries.get(key);
+	    found = validUntil != null && validUntil > now;
+	    if (validUntil != null && ! found) {
+		entries.remove(key);
+	    }
+	}
+	if (found) {
+	    hits.incrementAndGet();
+	} else {
+	    misses.incrementAndGet();
+	}
+	return found;
+    }
+
+    /**
+     * Records the successful validation of the given key.
+     *
+     * @param key Key of the validation.
+     * @param notAfter Point in time in milliseconds when the first certificate of the chain expires.
+     */
+    void put(Key key, long notAfter) {
+	long validUntil = Math.min(notAfter, System.currentTimeMillis() + maxTtlMillis);
+	synchronized (this) {
+	    entries.put(key, validUntil);
+	}
+    }
+
+    /**
+     * Records the duration of a validation performed because of a cache miss.
+     *
+     * @param nanos Duration of the validation in nanoseconds.
+     */
+    void recordValidation(long nanos) {
+	validations.incrementAndGet();
+	validationNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    synchronized void clear() {
+	entries.clear();
+    }
+
+    /**
+     * Gets a snapshot of the cache statistics.
+     *
+     * @return Statistics object.
+     */
+    PKIXValidationStatistics getStatistics() {
+	int size;
+	synchronized (this) {
+	    size = entries.size();
+	}
+	return new PKIXValidationStatistics(size, hits.get(), misses.get(), validations.get(), validationNanos.get());
+    }
+
+
+    /**
+     * Key of a cache entry.
+     */
+    static final class Key {
+
+	private final byte[] fingerprint;
+	private final String hostname;
+	private final String verifier;
+	private final String storeName;
+	private final long storeVersion;
+	private final int hash;
+
+	/**
+	 * Creates a key.
+	 *
+	 * @param fingerprint Hash over the encoded certificates of the chain.
+	 * @param hostname Hostname the chain has been presented for.
+	 * @param verifier Identifier of the verifier configuration, e.g. class and revocation setting.
+	 * @param storeName Name of the trust store.
+	 * @param storeVersion Version of the trust store.
+	 */
+	Key(byte[] fingerprint, @Nullable String hostname, String verifier, String storeName, long storeVersion) {
+	    this.fingerprint = fingerprint;
+	    this.hostname = hostname;
+	    this.verifier = verifier;
+	    this.storeName = storeName;
+	    this.storeVersion = storeVersion;
+
+	    int h = Arrays.hashCode(fingerprint);
+	    h = 31 * h + (hostname != null ? hostname.hashCode() : 0);
+	    h = 31 * h + verifier.hashCode();
+	    h = 31 * h + storeName.hashCode();
+	    h = 31 * h + (int) (storeVersion ^ (storeVersion >>> 32));
+	    this.hash = h;
+	}
+
+	@Override
+	public int hashCode() {
+	    return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (this == obj) {
+		return true;
+	    } else if (! (obj instanceof Key)) {
+		return false;
+	    }
+	    Key other = (Key) obj;
+	    return hash == other.hash && storeVersion == other.storeVersion
+		    && Arrays.equals(fingerprint, other.fingerprint)
+		    && (hostname == null ? other.hostname == null : hostname.equals(other.hostname))
+		    && verifier.equals(other.verifier) && storeName.equals(other.storeName);
+	}
+
+    }
+
+}
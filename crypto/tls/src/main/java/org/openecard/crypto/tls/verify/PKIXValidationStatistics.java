@@ -0,0 +1,108 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.crypto.tls.verify;
+
+
+/**
+ * Snapshot of the statistics of the validation cache of {@link JavaSecVerifier}.
+ *
+ * @author agent
+ */
+public class PKIXValidationStatistics {
+
+    private final int entries;
+    private final long hits;
+    private final long misses;
+    private final long validations;
+    private final long validationNanos;
+
+    PKIXValidationStatistics(int entries, long hits, long misses, long validations, long validationNanos) {
+	this.entries = entries;
+	this.hits = hits;
+	this.misses = misses;
+	this.validations = validations;
+	this.validationNanos = validationNanos;
+    }
+
+    /**
+     * Gets the number of certificate chains for which validation results are cached.
+     *
+     * @return Number of cache entries.
+     */
+    public int getEntries() {
+	return entries;
+    }
+
+    /**
+     * Gets the number of validations answered from the cache.
+     *
+     * @return Number of cache hits.
+     */
+    public long getHits() {
+	return hits;
+    }
+
+    /**
+     * Gets the number of validations which were not found in the cache.
+     *
+     * @return Number of cache misses.
+     */
+    public long getMisses() {
+	return misses;
+    }
+
+    /**
+     * Gets the ratio of cache hits to all lookups.
+     *
+     * @return Hit ratio between 0 and 1, or 0 if no lookup has been performed yet.
+     */
+    public double getHitRatio() {
+	long total = hits + misses;
+	return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Gets the number of PKIX validations performed, including failed ones.
+     *
+     * @return Number of validations.
+     */
+    public long getValidations() {
+	return validations;
+    }
+
+    /**
+     * Gets the average duration of a PKIX validation.
+     *
+     * @return Average duration in milliseconds, or 0 if no validation has been performed yet.
+     */
+    public double getAverageValidationMillis() {
+	return validations == 0 ? 0 : validationNanos / 1000000.0 / validations;
+    }
+
+    @Override
+    public String toString() {
+	return String.format("PKIXValidationStatistics[entries=%d, hits=%d, misses=%d, validations=%d, avg=%.3f ms]",
+		entries, hits, misses, validations, getAverageValidationMillis());
+    }
+
+}
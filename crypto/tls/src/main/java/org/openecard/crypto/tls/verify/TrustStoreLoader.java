@@ -26,12 +26,14 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.InvalidAlgorithmParameterException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXParameters;
 import java.security.cert.TrustAnchor;
 import java.security.cert.X509Certificate;
 import java.util.Collections;
@@ -58,13 +60,13 @@ public class TrustStoreLoader {
     private static final Logger LOG = LoggerFactory.getLogger(TrustStoreLoader.class);
     private static final String DEFAULT_TRUSTSTORE_FILE = "oec_cacerts.zip";
 
-    private static final Map<String, KeyStore> TRUST_STORES = new HashMap<>();
-    private static final Map<String, Set<TrustAnchor>> TRUST_ANCHORS = new HashMap<>();
+    // guarded by TrustStoreLoader.class
+    private static final Map<String, TrustStore> TRUST_STORES = new HashMap<>();
+    private static long nextVersion = 1;
 
     public static final void reset() {
 	synchronized (TrustStoreLoader.class) {
 	    TRUST_STORES.clear();
-	    TRUST_ANCHORS.clear();
 	}
     }
 
@@ -115,11 +117,19 @@ public class TrustStoreLoader {
 		}
 	    }
 
+	    // the parameters are built once and copied for each validation
+	    PKIXParameters params = null;
+	    if (! anchors.isEmpty()) {
+		params = new PKIXParameters(anchors);
+		params.setRevocationEnabled(false);
+	    }
+
 	    synchronized (TrustStoreLoader.class) {
-		TRUST_STORES.put(getStoreFileName(), ks);
-		TRUST_ANCHORS.put(getStoreFileName(), Collections.unmodifiableSet(anchors));
+		TrustStore store = new TrustStore(ks, Collections.unmodifiableSet(anchors), params, nextVersion++);
+		TRUST_STORES.put(getStoreFileName(), store);
 	    }
-	} catch (IOException | CertificateException | NoSuchAlgorithmException | KeyStoreException ex) {
+	} catch (IOException | CertificateException | NoSuchAlgorithmException | KeyStoreException |
+		InvalidAlgorithmParameterException ex) {
 	    String msg = "Failed to create or initialize TrustManagerFactory.";
 	    LOG.error(msg, ex);
 	    throw new RuntimeException(msg, ex);
@@ -182,26 +192,80 @@ public class TrustStoreLoader {
 	return null;
     }
 
-    public Set<TrustAnchor> getTrustAnchors() {
-	Set<TrustAnchor> result = TRUST_ANCHORS.get(getStoreFileName());
+    private TrustStore getStore() {
+	TrustStore result;
+	synchronized (TrustStoreLoader.class) {
+	    result = TRUST_STORES.get(getStoreFileName());
+	}
 	if (result != null) {
 	    return result;
 	} else {
 	    // load truststore and try again
 	    load();
-	    return getTrustAnchors();
+	    return getStore();
 	}
     }
 
+    public Set<TrustAnchor> getTrustAnchors() {
+	return getStore().anchors;
+    }
+
     public KeyStore getTrustStore() {
-	KeyStore result = TRUST_STORES.get(getStoreFileName());
-	if (result != null) {
-	    return result;
-	} else {
-	    // load truststore and try again
-	    load();
-	    return getTrustStore();
+	return getStore().ks;
+    }
+
+    /**
+     * Gets PKIX parameters containing the trust anchors of this trust store.
+     * The parameters are a copy of a template which is created when the trust store is loaded, so the caller may modify
+     * them. Revocation checking is disabled in the returned parameters.
+     *
+     * @return Freshly copied PKIX parameters.
+     * @throws InvalidAlgorithmParameterException Thrown in case the trust store contains no trust anchors.
+     */
+    public PKIXParameters getTrustParameters() throws InvalidAlgorithmParameterException {
+	TrustStore store = getStore();
+	if (store.params == null) {
+	    // raises the appropriate exception
+	    return new PKIXParameters(store.anchors);
 	}
+	return (PKIXParameters) store.params.clone();
+    }
+
+    /**
+     * Gets the version of this trust store.
+     * The version changes whenever the trust store is loaded again, e.g. after a {@link #reset()}. It can be used to
+     * invalidate data derived from the trust anchors.
+     *
+     * @return Version number of the loaded trust store.
+     */
+    public long getVersion() {
+	return getStore().version;
+    }
+
+    /**
+     * Name of the trust store, which is used to distinguish the trust stores in caches.
+     *
+     * @return Name of the trust store.
+     */
+    public String getStoreName() {
+	return getStoreFileName();
+    }
+
+
+    private static class TrustStore {
+
+	private final KeyStore ks;
+	private final Set<TrustAnchor> anchors;
+	private final PKIXParameters params;
+	private final long version;
+
+	TrustStore(KeyStore ks, Set<TrustAnchor> anchors, PKIXParameters params, long version) {
+	    this.ks = ks;
+	    this.anchors = anchors;
+	    this.params = params;
+	    this.version = version;
+	}
+
     }
 
 }
@@ -0,0 +1,129 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.crypto.tls;
+
+import org.openecard.bouncycastle.tls.SessionParameters;
+import org.openecard.bouncycastle.tls.TlsSession;
+import org.openecard.crypto.tls.TlsSessionCache.Key;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ *
+ * @author agent
+ */
+public class TlsSessionCacheTest {
+
+    private static TlsSession session(final int id) {
+	return new TlsSession() {
+	    private boolean resumable = true;
+	    @Override
+	    public SessionParameters exportSessionParameters() {
+		return null;
+	    }
+	    @Override
+	    public byte[] getSessionID() {
+		return new byte[] { (byte) id };
+	    }
+	    @Override
+	    public void invalidate() {
+		resumable = false;
+	    }
+	    @Override
+	    public boolean isResumable() {
+		return resumable;
+	    }
+	};
+    }
+
+    @Test
+    public void testLookup() {
+	TlsSessionCache cache = new TlsSessionCache(10, 60000);
+	Key key = new Key("a.example", 443, "psk");
+	assertNull(cache.get(key));
+
+	TlsSession s = session(1);
+	cache.put(key, s);
+	assertSame(cache.get(new Key("a.example", 443, "psk")), s);
+	// any difference in the key is a miss
+	assertNull(cache.get(new Key("b.example", 443, "psk")));
+	assertNull(cache.get(new Key("a.example", 444, "psk")));
+	assertNull(cache.get(new Key("a.example", 443, "other")));
+	assertNull(cache.get(new Key("a.example", 443, null)));
+
+	cache.remove(key);
+	assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testInvalidated() {
+	TlsSessionCache cache = new TlsSessionCache(10, 60000);
+	Key key = new Key("a.example", 443, null);
+	TlsSession s = session(1);
+	cache.put(key, s);
+	s.invalidate();
+	assertNull(cache.get(key));
+	assertEquals(cache.getStatistics().getEntries(), 0);
+    }
+
+    @Test
+    public void testExpiry() {
+	TlsSessionCache cache = new TlsSessionCache(10, 0);
+	Key key = new Key("a.example", 443, null);
+	cache.put(key, session(1));
+	assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testEviction() {
+	TlsSessionCache cache = new TlsSessionCache(2, 60000);
+	Key k1 = new Key("a.example", 443, null);
+	Key k2 = new Key("b.example", 443, null);
+	Key k3 = new Key("c.example", 443, null);
+	cache.put(k1, session(1));
+	cache.put(k2, session(2));
+	// touch first entry, so the second one is evicted
+	assertNotNull(cache.get(k1));
+	cache.put(k3, session(3));
+
+	assertNotNull(cache.get(k1));
+	assertNull(cache.get(k2));
+	assertNotNull(cache.get(k3));
+    }
+
+    @Test
+    public void testStatistics() {
+	TlsSessionCache cache = new TlsSessionCache(10, 60000);
+	cache.recordHandshake(false);
+	cache.recordHandshake(true);
+	cache.recordHandshake(true);
+	cache.recordHandshake(true);
+
+	TlsSessionCacheStatistics stats = cache.getStatistics();
+	assertEquals(stats.getFullHandshakes(), 1);
+	assertEquals(stats.getAbbreviatedHandshakes(), 3);
+	assertEquals(stats.getResumptionRatio(), 0.75, 0.0001);
+    }
+
+}
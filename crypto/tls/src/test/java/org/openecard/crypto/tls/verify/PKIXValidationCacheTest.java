@@ -0,0 +1,108 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.crypto.tls.verify;
+
+import java.security.cert.PKIXParameters;
+import org.openecard.crypto.tls.verify.PKIXValidationCache.Key;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ *
+ * @author agent
+ */
+public class PKIXValidationCacheTest {
+
+    private static Key key(int fp, String host, long version) {
+	return new Key(new byte[] { (byte) fp }, host, "verifier", "store", version);
+    }
+
+    @Test
+    public void testLookup() {
+	PKIXValidationCache cache = new PKIXValidationCache(10, 60000);
+	assertFalse(cache.contains(key(1, "a.example", 1)));
+	cache.put(key(1, "a.example", 1), Long.MAX_VALUE);
+
+	assertTrue(cache.contains(key(1, "a.example", 1)));
+	// any difference in the key is a miss
+	assertFalse(cache.contains(key(2, "a.example", 1)));
+	assertFalse(cache.contains(key(1, "b.example", 1)));
+	assertFalse(cache.contains(key(1, "a.example", 2)));
+	assertFalse(cache.contains(key(1, null, 1)));
+
+	PKIXValidationStatistics stats = cache.getStatistics();
+	assertEquals(stats.getEntries(), 1);
+	assertEquals(stats.getHits(), 1);
+	assertEquals(stats.getMisses(), 5);
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+	PKIXValidationCache cache = new PKIXValidationCache(10, 60000);
+	// certificate expired already
+	cache.put(key(1, "a.example", 1), System.currentTimeMillis() - 1);
+	assertFalse(cache.contains(key(1, "a.example", 1)));
+	assertEquals(cache.getStatistics().getEntries(), 0);
+
+	// ttl shorter than the certificate lifetime
+	cache = new PKIXValidationCache(10, 50);
+	cache.put(key(1, "a.example", 1), Long.MAX_VALUE);
+	assertTrue(cache.contains(key(1, "a.example", 1)));
+	Thread.sleep(100);
+	assertFalse(cache.contains(key(1, "a.example", 1)));
+    }
+
+    @Test
+    public void testEviction() {
+	PKIXValidationCache cache = new PKIXValidationCache(2, 60000);
+	cache.put(key(1, "a.example", 1), Long.MAX_VALUE);
+	cache.put(key(2, "a.example", 1), Long.MAX_VALUE);
+	// touch the first entry, so the second one is evicted
+	assertTrue(cache.contains(key(1, "a.example", 1)));
+	cache.put(key(3, "a.example", 1), Long.MAX_VALUE);
+
+	assertTrue(cache.contains(key(1, "a.example", 1)));
+	assertFalse(cache.contains(key(2, "a.example", 1)));
+	assertTrue(cache.contains(key(3, "a.example", 1)));
+    }
+
+    @Test
+    public void testTrustStoreParameters() throws Exception {
+	TrustStoreLoader loader = new TrustStoreLoader();
+	PKIXParameters p1 = loader.getTrustParameters();
+	PKIXParameters p2 = loader.getTrustParameters();
+	assertNotSame(p1, p2);
+	assertEquals(p1.getTrustAnchors(), loader.getTrustAnchors());
+	assertFalse(p1.isRevocationEnabled());
+	// modifications must not leak into other copies
+	p1.setRevocationEnabled(true);
+	assertFalse(loader.getTrustParameters().isRevocationEnabled());
+
+	long version = loader.getVersion();
+	assertEquals(loader.getVersion(), version);
+	TrustStoreLoader.reset();
+	assertNotEquals(loader.getVersion(), version);
+    }
+
+}
@@ -70,7 +70,9 @@ public class Recognizer implements Runnable {
 	} else if (env.getCIFProvider().needsRecognition(handle.getRecognitionInfo().getCardIdentifier())) {
 	    try {
 		CardRecognition cr = env.getRecognition();
-		rInfo = cr.recognizeCard(handle.getContextHandle(), handle.getIFDName(), handle.getSlotIndex());
+		// the card identifier of an unrecognized card is its ATR or ATS
+		byte[] atr = currentInfo.getCardIdentifier();
+		rInfo = cr.recognizeCard(handle.getContextHandle(), handle.getIFDName(), handle.getSlotIndex(), atr);
 	    } catch (RecognitionException ex) {
 		// ignore, card is just unknown
 	    }
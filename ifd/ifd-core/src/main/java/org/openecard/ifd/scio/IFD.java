@@ -965,10 +965,7 @@ public class IFD implements org.openecard.ws.IFD {
 		Result result;
 		List<byte[]> rapdus = response.getOutputAPDU();
 		try {
-		    for (InputAPDUInfoType capdu : apdus) {
-			byte[] rapdu = ch.transmit(capdu.getInputAPDU(), capdu.getAcceptableStatusCode());
-			rapdus.add(rapdu);
-		    }
+		    ch.transmit(apdus, rapdus);
 		    result = WSHelper.makeResultOK();
 		} catch (TransmitException ex) {
 		    rapdus.add(ex.getResponseAPDU());
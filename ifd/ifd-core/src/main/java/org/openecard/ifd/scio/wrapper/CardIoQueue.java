@@ -0,0 +1,225 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ifd.scio.wrapper;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import org.openecard.common.ifd.scio.SCIOErrorCode;
+import org.openecard.common.ifd.scio.SCIOException;
+
+
+/**
+ * Queue of the card operations of one channel.
+ * The operations are executed in order of their submission by the I/O threads of the {@link CardIoScheduler} the
+ * channel is registered at.
+ *
+ * @author agent
+ */
+public final class CardIoQueue {
+
+    private static final int NEW = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int CANCELLED = 3;
+
+    private final CardIoScheduler scheduler;
+    private final CardIoScheduler.Terminal terminal;
+    private final String name;
+    // pending operations, guarded by the scheduler
+    final ArrayDeque<Runnable> tasks;
+    volatile int lastLane = -1;
+    private final AtomicInteger pending;
+    private final AtomicLong executed;
+    private final AtomicLong totalWaitNanos;
+    private final AtomicLong maxWaitNanos;
+    private final AtomicLong totalExecNanos;
+
+    CardIoQueue(CardIoScheduler scheduler, CardIoScheduler.Terminal terminal, String name) {
+	this.scheduler = scheduler;
+	this.terminal = terminal;
+	this.name = name;
+	this.tasks = new ArrayDeque<>();
+	this.pending = new AtomicInteger();
+	this.executed = new AtomicLong();
+	this.totalWaitNanos = new AtomicLong();
+	this.maxWaitNanos = new AtomicLong();
+	this.totalExecNanos = new AtomicLong();
+    }
+
+    CardIoScheduler.Terminal getTerminal() {
+	return terminal;
+    }
+
+    /**
+     * Executes the operation on an I/O thread of the scheduler and waits for its result.
+     * If the calling thread is currently executing an operation of the same terminal, the operation is executed
+     * directly.
+     *
+     * @param <T> Type of the result.
+     * @param task The operation to execute.
+     * @return The result of the operation.
+     * @throws SCIOException Thrown in case the operation failed.
+     * @throws InterruptedException Thrown in case the calling thread has been interrupted while waiting. Operations
+     *   which have not been started yet are not executed anymore.
+     * @throws IllegalStateException Thrown in case the channel has been shut down.
+     */
+    public <T> T execute(@Nonnull CardIoTask<T> task) throws SCIOException, InterruptedException {
+	Request<T> req = new Request<>(task);
+	if (scheduler.isExecuting(this)) {
+	    req.run();
+	} else {
+	    req.queued = true;
+	    pending.incrementAndGet();
+	    try {
+		scheduler.submit(this, req);
+	    } catch (IllegalStateException ex) {
+		pending.decrementAndGet();
+		throw ex;
+	    }
+	}
+	return req.await();
+    }
+
+    /**
+     * Pins the terminal of the channel to the I/O thread executing the current operation.
+     * Until {@link #unpinThread()} is called, all operations of the terminal are executed by this thread and the thread
+     * serves no other terminal. This is needed for PC/SC transactions, which are bound to the thread starting them.
+     *
+     * @throws IllegalStateException Thrown in case the method is not called from an operation of the channel.
+     */
+    void pinThread() {
+	scheduler.pin(this);
+    }
+
+    /**
+     * Releases the terminal of the channel from the thread it has been pinned to.
+     */
+    void unpinThread() {
+	scheduler.unpin(this);
+    }
+
+    /**
+     * Releases the channel from the scheduler.
+     * Operations which have already been submitted are still executed.
+     */
+    public void release() {
+	scheduler.release(this);
+    }
+
+    /**
+     * Gets a snapshot of the I/O statistics of the channel.
+     *
+     * @return The statistics of the channel.
+     */
+    public CardIoStatistics getStatistics() {
+	return new CardIoStatistics(name, lastLane, pending.get(), executed.get(), totalWaitNanos.get(),
+		maxWaitNanos.get(), totalExecNanos.get());
+    }
+
+    private void record(long waitNanos, long execNanos) {
+	executed.incrementAndGet();
+	totalWaitNanos.addAndGet(waitNanos);
+	totalExecNanos.addAndGet(execNanos);
+	long max;
+	do {
+	    max = maxWaitNanos.get();
+	} while (waitNanos > max && ! maxWaitNanos.compareAndSet(max, waitNanos));
+    }
+
+
+    private final class Request <T> implements Runnable {
+
+	private final CardIoTask<T> task;
+	private final long submitted;
+	private boolean queued = false;
+	private int state = NEW;
+	private T result;
+	private Throwable error;
+
+	Request(CardIoTask<T> task) {
+	    this.task = task;
+	    this.submitted = System.nanoTime();
+	}
+
+	@Override
+	public void run() {
+	    synchronized (this) {
+		if (state == CANCELLED) {
+		    return;
+		}
+		state = RUNNING;
+	    }
+	    if (queued) {
+		pending.decrementAndGet();
+	    }
+	    long start = System.nanoTime();
+	    T r = null;
+	    Throwable e = null;
+	    try {
+		r = task.call();
+	    } catch (Throwable ex) {
+		e = ex;
+	    }
+	    record(start - submitted, System.nanoTime() - start);
+	    synchronized (this) {
+		result = r;
+		error = e;
+		state = DONE;
+		notifyAll();
+	    }
+	}
+
+	T await() throws SCIOException, InterruptedException {
+	    synchronized (this) {
+		try {
+		    while (state != DONE) {
+			wait();
+		    }
+		} catch (InterruptedException ex) {
+		    if (state == NEW) {
+			state = CANCELLED;
+			pending.decrementAndGet();
+		    }
+		    throw ex;
+		}
+	    }
+
+	    if (error == null) {
+		return result;
+	    } else if (error instanceof SCIOException) {
+		throw (SCIOException) error;
+	    } else if (error instanceof RuntimeException) {
+		throw (RuntimeException) error;
+	    } else if (error instanceof Error) {
+		throw (Error) error;
+	    } else {
+		String msg = "Unknown error during card operation.";
+		throw new SCIOException(msg, SCIOErrorCode.SCARD_F_UNKNOWN_ERROR, error);
+	    }
+	}
+
+    }
+
+}
@@ -0,0 +1,359 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+
+package org.openecard.ifd.scio.wrapper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+
+
+/**
+ * Scheduler executing the card operations of the channels on a bounded pool of I/O threads.
+ * Every channel has its own queue. The pool serves the queues of all terminals, whereby at most one operation of a
+ * terminal is executed at a time. Between the operations of a terminal any free thread may pick up the next one, so a
+ * long operation such as PIN entry or PACE only occupies the thread executing it, while the remaining threads keep
+ * serving the other terminals.
+ * <p>PC/SC transactions are bound to the thread which started them. While a transaction is open, the terminal is
+ * therefore pinned to the thread executing it (see {@link CardIoQueue#pinThread()}) and this thread serves no other
+ * terminal until the transaction is finished. Threads are started on demand and terminate after they have been idle
+ * for a while.</p>
+ *
+ * @author agent
+ */
+public class CardIoScheduler {
+
+    /**
+     * Default maximum number of I/O threads.
+     */
+    public static final int DEFAULT_MAX_THREADS = 8;
+    private static final long DEFAULT_KEEP_ALIVE = 60 * 1000;
+
+    private final int maxThreads;
+    private final long keepAliveNanos;
+    // workers by their index, free indices are reused
+    private final ArrayList<Worker> workers;
+    private final HashMap<String, Terminal> terminals;
+    private final Set<CardIoQueue> queues;
+    // terminals with pending operations which may be executed by any worker
+    private final ArrayDeque<Terminal> ready;
+    private int numWorkers = 0;
+    // workers waiting for work which are not pinned to a terminal
+    private int freeWorkers = 0;
+
+    /**
+     * Creates a scheduler with at most {@link #DEFAULT_MAX_THREADS} I/O threads.
+     */
+    public CardIoScheduler() {
+	this(DEFAULT_MAX_THREADS);
+    }
+
+    /**
+     * Creates a scheduler with the given maximum number of I/O threads.
+     *
+     * @param maxThreads Maximum number of I/O threads.
+     * @throws IllegalArgumentException Thrown in case the number of threads is not positive.
+     */
+    public CardIoScheduler(int maxThreads) {
+	this(maxThreads, DEFAULT_KEEP_ALIVE);
+    }
+
+    CardIoScheduler(int maxThreads, long keepAliveMillis) {
+	if (maxThreads <= 0) {
+	    throw new IllegalArgumentException("Number of I/O threads must be positive.");
+	}
+	this.maxThreads = maxThreads;
+	this.keepAliveNanos = TimeUnit.MILLISECONDS.toNanos(keepAliveMillis);
+	this.workers = new ArrayList<>();
+	this.terminals = new HashMap<>();
+	this.queues = new LinkedHashSet<>();
+	this.ready = new ArrayDeque<>();
+    }
+
+    /**
+     * Registers a channel at the scheduler.
+     * The returned queue must be released with {@link CardIoQueue#release()} when the channel is closed.
+     *
+     * @param terminalName Name of the terminal the channel belongs to.
+     * @param channelNumber Number of the channel.
+     * @return The queue executing the operations of the channel.
+     */
+    @Nonnull
+    public synchronized CardIoQueue register(@Nonnull String terminalName, int channelNumber) {
+	Terminal t = terminals.get(terminalName);
+	if (t == null) {
+	    t = new Terminal(terminalName);
+	    terminals.put(terminalName, t);
+	}
+	t.channels++;
+
+	String name = String.format("%s (%d)", terminalName, channelNumber);
+	CardIoQueue queue = new CardIoQueue(this, t, name);
+	queues.add(queue);
+	return queue;
+    }
+
+    synchronized void release(CardIoQueue queue) {
+	if (! queues.remove(queue)) {
+	    return;
+	}
+
+	Terminal t = queue.getTerminal();
+	if (--t.channels == 0) {
+	    // a transaction can not outlive the channels of the terminal
+	    unpin(t);
+	    removeIfUnused(t);
+	}
+    }
+
+    synchronized void submit(CardIoQueue queue, Runnable task) {
+	if (! queues.contains(queue)) {
+	    throw new IllegalStateException("Channel has been shut down.");
+	}
+	Terminal t = queue.getTerminal();
+	queue.tasks.add(task);
+	if (queue.tasks.size() == 1) {
+	    t.readyChannels.add(queue);
+	}
+	schedule(t, true);
+    }
+
+    synchronized boolean isExecuting(CardIoQueue queue) {
+	Worker w = queue.getTerminal().running;
+	return w != null && w.thread == Thread.currentThread();
+    }
+
+    synchronized void pin(CardIoQueue queue) {
+	Terminal t = queue.getTerminal();
+	Worker w = t.running;
+	if (w == null || w.thread != Thread.currentThread()) {
+	    throw new IllegalStateException("Thread can only be pinned by an operation of the channel.");
+	}
+	t.pinned = w;
+	w.pinned = t;
+    }
+
+    synchronized void unpin(CardIoQueue queue) {
+	unpin(queue.getTerminal());
+    }
+
+    private void unpin(Terminal t) {
+	if (t.pinned != null) {
+	    t.pinned.pinned = null;
+	    t.pinned = null;
+	    schedule(t, true);
+	}
+    }
+
+    private void schedule(Terminal t, boolean mayStart) {
+	if (t.running != null || t.readyChannels.isEmpty()) {
+	    return;
+	}
+	if (t.pinned != null) {
+	    // only the pinned worker may execute the operation
+	    notifyAll();
+	    return;
+	}
+	if (! t.queued) {
+	    t.queued = true;
+	    ready.add(t);
+	}
+	if (freeWorkers > 0) {
+	    notifyAll();
+	}
+	if (mayStart && ready.size() > freeWorkers && numWorkers < maxThreads) {
+	    startWorker();
+	}
+	// otherwise the next worker finishing its operation picks up the terminal
+    }
+
+    private void removeIfUnused(Terminal t) {
+	if (t.channels == 0 && t.running == null && t.readyChannels.isEmpty() && terminals.get(t.name) == t) {
+	    terminals.remove(t.name);
+	}
+    }
+
+    private void startWorker() {
+	int idx = workers.indexOf(null);
+	if (idx < 0) {
+	    idx = workers.size();
+	    workers.add(null);
+	}
+	Worker w = new Worker(idx);
+	workers.set(idx, w);
+	numWorkers++;
+	w.thread.start();
+    }
+
+    /**
+     * Waits for the next terminal the worker may execute an operation of.
+     *
+     * @return The terminal, or {@code null} if the worker has been idle for too long and must terminate.
+     */
+    private synchronized Terminal next(Worker w) {
+	long deadline = System.nanoTime() + keepAliveNanos;
+	while (true) {
+	    Terminal t = w.pinned;
+	    if (t != null) {
+		if (t.running == null && ! t.readyChannels.isEmpty()) {
+		    t.running = w;
+		    return t;
+		}
+		waitUninterruptibly(0);
+		deadline = System.nanoTime() + keepAliveNanos;
+		continue;
+	    }
+
+	    t = ready.poll();
+	    if (t != null) {
+		t.queued = false;
+		if (t.pinned == null && t.running == null && ! t.readyChannels.isEmpty()) {
+		    t.running = w;
+		    return t;
+		}
+		continue;
+	    }
+
+	    long remaining = deadline - System.nanoTime();
+	    if (remaining <= 0) {
+		workers.set(w.index, null);
+		numWorkers--;
+		return null;
+	    }
+	    freeWorkers++;
+	    try {
+		waitUninterruptibly(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+	    } finally {
+		freeWorkers--;
+	    }
+	}
+    }
+
+    private void waitUninterruptibly(long millis) {
+	try {
+	    wait(millis);
+	} catch (InterruptedException ex) {
+	    // workers are only stopped by the idle timeout
+	}
+    }
+
+    private void execute(Worker w, Terminal t) {
+	Runnable task;
+	synchronized (this) {
+	    CardIoQueue q = t.readyChannels.poll();
+	    task = q.tasks.poll();
+	    // alternate between the channels of the terminal
+	    if (! q.tasks.isEmpty()) {
+		t.readyChannels.add(q);
+	    }
+	    q.lastLane = w.index;
+	}
+
+	// don't let an interrupt leak into the operations of other channels
+	Thread.interrupted();
+	try {
+	    task.run();
+	} finally {
+	    synchronized (this) {
+		t.running = null;
+		schedule(t, false);
+		removeIfUnused(t);
+	    }
+	}
+    }
+
+    /**
+     * Gets the number of I/O threads which are currently running.
+     *
+     * @return Number of active threads.
+     */
+    public synchronized int getActiveLanes() {
+	return numWorkers;
+    }
+
+    /**
+     * Gets a snapshot of the I/O statistics of all registered channels.
+     *
+     * @return List with one entry per channel.
+     */
+    public synchronized List<CardIoStatistics> getStatistics() {
+	ArrayList<CardIoStatistics> result = new ArrayList<>(queues.size());
+	for (CardIoQueue next : queues) {
+	    result.add(next.getStatistics());
+	}
+	return result;
+    }
+
+
+    /**
+     * State of one terminal, guarded by the scheduler.
+     */
+    static final class Terminal {
+	private final String name;
+	// channels with pending operations in the order they are served
+	private final ArrayDeque<CardIoQueue> readyChannels;
+	private int channels;
+	private boolean queued;
+	// worker currently executing an operation of the terminal
+	private Worker running;
+	// worker owning the open transaction of the terminal
+	private Worker pinned;
+
+	Terminal(String name) {
+	    this.name = name;
+	    this.readyChannels = new ArrayDeque<>();
+	}
+    }
+
+    /**
+     * I/O thread of the pool.
+     */
+    private final class Worker implements Runnable {
+
+	private final int index;
+	private final Thread thread;
+	// terminal with an open transaction, only this worker executes its operations
+	private Terminal pinned;
+
+	Worker(int index) {
+	    this.index = index;
+	    this.thread = new Thread(this, "Card-IO-" + index);
+	    this.thread.setDaemon(true);
+	}
+
+	@Override
+	public void run() {
+	    Terminal t;
+	    while ((t = next(this)) != null) {
+		execute(this, t);
+	    }
+	}
+
+    }
+
+}
@@ -0,0 +1,121 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ifd.scio.wrapper;
+
+
+/**
+ * Snapshot of the I/O statistics of one channel of the {@link CardIoScheduler}.
+ *
+ * @author agent
+ */
+public class CardIoStatistics {
+
+    private final String name;
+    private final int lane;
+    private final int queueDepth;
+    private final long executedTasks;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long totalExecNanos;
+
+    CardIoStatistics(String name, int lane, int queueDepth, long executedTasks, long totalWaitNanos,
+	    long maxWaitNanos, long totalExecNanos) {
+	this.name = name;
+	this.lane = lane;
+	this.queueDepth = queueDepth;
+	this.executedTasks = executedTasks;
+	this.totalWaitNanos = totalWaitNanos;
+	this.maxWaitNanos = maxWaitNanos;
+	this.totalExecNanos = totalExecNanos;
+    }
+
+    /**
+     * Gets the name of the channel these statistics belong to.
+     *
+     * @return Name of the channel consisting of the terminal name and the channel number.
+     */
+    public String getName() {
+	return name;
+    }
+
+    /**
+     * Gets the index of the I/O thread which executed the last operation of the channel.
+     *
+     * @return Index of the lane, or -1 if no operation has been executed yet.
+     */
+    public int getLane() {
+	return lane;
+    }
+
+    /**
+     * Gets the number of operations waiting for execution.
+     *
+     * @return Number of pending operations.
+     */
+    public int getQueueDepth() {
+	return queueDepth;
+    }
+
+    /**
+     * Gets the number of operations which have been executed on the channel.
+     *
+     * @return Number of executed operations.
+     */
+    public long getExecutedTasks() {
+	return executedTasks;
+    }
+
+    /**
+     * Gets the average time an operation waited for the I/O thread.
+     *
+     * @return Average waiting time in nanoseconds, or 0 if no operation has been executed yet.
+     */
+    public long getAverageWaitNanos() {
+	return executedTasks == 0 ? 0 : totalWaitNanos / executedTasks;
+    }
+
+    /**
+     * Gets the longest time an operation waited for the I/O thread.
+     *
+     * @return Maximum waiting time in nanoseconds.
+     */
+    public long getMaxWaitNanos() {
+	return maxWaitNanos;
+    }
+
+    /**
+     * Gets the average time the execution of an operation took.
+     *
+     * @return Average execution time in nanoseconds, or 0 if no operation has been executed yet.
+     */
+    public long getAverageExecNanos() {
+	return executedTasks == 0 ? 0 : totalExecNanos / executedTasks;
+    }
+
+    @Override
+    public String toString() {
+	return String.format("CardIoStatistics[name=%s, lane=%d, queued=%d, executed=%d, avgWait=%dns, maxWait=%dns, avgExec=%dns]",
+		name, lane, queueDepth, executedTasks, getAverageWaitNanos(), maxWaitNanos, getAverageExecNanos());
+    }
+
+}
@@ -22,11 +22,11 @@
 
 package org.openecard.ifd.scio.wrapper;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nonnull;
 import org.openecard.common.ECardConstants;
 import org.openecard.common.ifd.scio.NoSuchTerminal;
@@ -34,6 +34,7 @@ import org.openecard.common.ifd.scio.SCIOException;
 import org.openecard.common.ifd.scio.SCIOTerminal;
 import org.openecard.common.ifd.scio.SCIOTerminals;
 import org.openecard.common.ifd.scio.TerminalFactory;
+import org.openecard.common.util.ByteArrayWrapper;
 import org.openecard.common.util.ByteUtils;
 import org.openecard.common.util.Pair;
 import org.openecard.common.util.ValueGenerators;
@@ -43,6 +44,9 @@ import org.slf4j.LoggerFactory;
 
 
 /**
+ * Registry of the open channels of the IFD.
+ * Lookups of channels do not lock, so that commands on different terminals never contend. Opening and closing of
+ * channels is serialized per terminal by a striped set of locks.
  *
  * @author Tobias Wich
  * @author Benedikt Biallowons
@@ -50,18 +54,37 @@ import org.slf4j.LoggerFactory;
 public class ChannelManager {
 
     private static final Logger LOG = LoggerFactory.getLogger(ChannelManager.class);
+    private static final int NUM_LOCKS = 16;
 
     private final TerminalFactory termFact;
+    private final CardIoScheduler scheduler;
 
-    private final HashMap<String, SingleThreadChannel> baseChannels;
-    private final TreeMap<byte[], SingleThreadChannel> handledChannels;
-    private final HashMap<String, Set<byte[]>> ifdNameToHandles;
+    private final ConcurrentHashMap<String, SingleThreadChannel> baseChannels;
+    private final ConcurrentHashMap<ByteArrayWrapper, SlaveEntry> handledChannels;
+    private final ConcurrentHashMap<String, Set<ByteArrayWrapper>> ifdNameToHandles;
+    private final Object[] terminalLocks;
 
     public ChannelManager() throws IFDException {
-	this.termFact = IFDTerminalFactory.getInstance();
-	this.baseChannels = new HashMap<>();
-	this.handledChannels = new TreeMap<>(new ByteArrayComparator());
-	this.ifdNameToHandles = new HashMap<>();
+	this(IFDTerminalFactory.getInstance());
+    }
+
+    ChannelManager(TerminalFactory termFact) {
+	this.termFact = termFact;
+	this.scheduler = new CardIoScheduler();
+	this.baseChannels = new ConcurrentHashMap<>();
+	this.handledChannels = new ConcurrentHashMap<>();
+	this.ifdNameToHandles = new ConcurrentHashMap<>();
+	this.terminalLocks = new Object[NUM_LOCKS];
+	for (int i = 0; i < NUM_LOCKS; i++) {
+	    terminalLocks[i] = new Object();
+	}
+    }
+
+    private Object lockFor(String ifdName) {
+	int h = ifdName.hashCode();
+	// spread the bits, as terminal names often only differ in the last characters
+	h ^= (h >>> 16);
+	return terminalLocks[(h & 0x7FFFFFFF) % NUM_LOCKS];
     }
 
     public static byte[] createHandle(int size) {
@@ -76,34 +99,50 @@ public class ChannelManager {
 	return createHandle(ECardConstants.CONTEXT_HANDLE_DEFAULT_SIZE);
     }
 
+    /**
+     * Gets a snapshot of the I/O statistics of all open channels.
+     *
+     * @return List with one entry per channel.
+     */
+    public List<CardIoStatistics> getIoStatistics() {
+	return scheduler.getStatistics();
+    }
+
     public SCIOTerminals getTerminals() {
 	return termFact.terminals();
     }
 
-    public synchronized SingleThreadChannel openMasterChannel(@Nonnull String ifdName) throws NoSuchTerminal,
-	    SCIOException {
-	if (baseChannels.containsKey(ifdName)) {
-	    LOG.warn("Terminal '" + ifdName + "' is already connected.");
-	    return baseChannels.get(ifdName);
+    public SingleThreadChannel openMasterChannel(@Nonnull String ifdName) throws NoSuchTerminal, SCIOException {
+	synchronized (lockFor(ifdName)) {
+	    SingleThreadChannel existing = baseChannels.get(ifdName);
+	    if (existing != null) {
+		LOG.warn("Terminal '" + ifdName + "' is already connected.");
+		return existing;
+	    }
+	    SCIOTerminal t = getTerminals().getTerminal(ifdName);
+	    SingleThreadChannel ch = new SingleThreadChannel(scheduler, t);
+	    Set<ByteArrayWrapper> handles = Collections.newSetFromMap(new ConcurrentHashMap<ByteArrayWrapper, Boolean>());
+	    ifdNameToHandles.put(ifdName, handles);
+	    baseChannels.put(ifdName, ch);
+	    return ch;
 	}
-	SCIOTerminal t = getTerminals().getTerminal(ifdName);
-	SingleThreadChannel ch = new SingleThreadChannel(t);
-	baseChannels.put(ifdName, ch);
-	ifdNameToHandles.put(ifdName, new TreeSet<>(new ByteArrayComparator()));
-	return ch;
     }
 
-    public synchronized Pair<byte[], SingleThreadChannel> openSlaveChannel(@Nonnull String ifdName)
-	    throws NoSuchTerminal, SCIOException {
-	SingleThreadChannel baseCh = getMasterChannel(ifdName);
-	SingleThreadChannel slaveCh = new SingleThreadChannel(baseCh, true);
-	byte[] slotHandle = createSlotHandle();
-	handledChannels.put(slotHandle, slaveCh);
-	ifdNameToHandles.get(ifdName).add(slotHandle);
-	return new Pair<>(slotHandle, slaveCh);
+    public Pair<byte[], SingleThreadChannel> openSlaveChannel(@Nonnull String ifdName) throws NoSuchTerminal,
+	    SCIOException {
+	synchronized (lockFor(ifdName)) {
+	    SingleThreadChannel baseCh = getMasterChannel(ifdName);
+	    SingleThreadChannel slaveCh = new SingleThreadChannel(baseCh, true);
+	    byte[] slotHandle = createSlotHandle();
+	    // the key is a copy, so that the handle given to the caller can not change the map
+	    ByteArrayWrapper key = new ByteArrayWrapper(slotHandle.clone());
+	    handledChannels.put(key, new SlaveEntry(ifdName, slaveCh));
+	    ifdNameToHandles.get(ifdName).add(key);
+	    return new Pair<>(slotHandle, slaveCh);
+	}
     }
 
-    public synchronized SingleThreadChannel getMasterChannel(@Nonnull String ifdName) throws NoSuchTerminal {
+    public SingleThreadChannel getMasterChannel(@Nonnull String ifdName) throws NoSuchTerminal {
 	SingleThreadChannel ch = baseChannels.get(ifdName);
 	if (ch == null) {
 	    throw new NoSuchTerminal("No terminal with name '" + ifdName + "' available.");
@@ -112,49 +151,70 @@ public class ChannelManager {
 	}
     }
 
-    public synchronized SingleThreadChannel getSlaveChannel(@Nonnull byte[] slotHandle) throws NoSuchChannel {
-	SingleThreadChannel ch = handledChannels.get(slotHandle);
-	if (ch == null) {
+    public SingleThreadChannel getSlaveChannel(@Nonnull byte[] slotHandle) throws NoSuchChannel {
+	SlaveEntry entry = handledChannels.get(new ByteArrayWrapper(slotHandle));
+	if (entry == null) {
 	    throw new NoSuchChannel("No channel for slot '" + ByteUtils.toHexString(slotHandle) + "' available.");
 	} else {
-	    return ch;
+	    return entry.channel;
 	}
     }
 
-    public synchronized void closeMasterChannel(String ifdName) {
-	Set<byte[]> slotHandles = ifdNameToHandles.get(ifdName);
-	if (slotHandles != null) {
-	    // iterate over copy of the list as the closeSlaveHandle call modifies the original slotHandles list
-	    for (byte[] slotHandle : Collections.unmodifiableCollection(slotHandles)) {
+    public void closeMasterChannel(String ifdName) {
+	synchronized (lockFor(ifdName)) {
+	    Set<ByteArrayWrapper> slotHandles = ifdNameToHandles.remove(ifdName);
+	    if (slotHandles != null) {
+		// iterate over a copy of the set as closing the slave channels modifies the original set
+		for (ByteArrayWrapper slotHandle : new ArrayList<>(slotHandles)) {
+		    try {
+			closeSlaveChannel(slotHandle);
+		    } catch (NoSuchChannel | SCIOException ex) {
+			LOG.warn("Failed to close channel for terminal '" + ifdName + "'.", ex);
+		    }
+		}
+	    }
+
+	    SingleThreadChannel ch = baseChannels.remove(ifdName);
+	    if (ch == null) {
+		LOG.error("No master channel for terminal '" + ifdName + "' available.");
+	    } else {
 		try {
-		    closeSlaveChannel(slotHandle);
-		} catch (NoSuchChannel | SCIOException ex) {
-		    LOG.warn("Failed to close channel for terminal '" + ifdName + "'.", ex);
+		    ch.shutdown();
+		} catch (SCIOException ex) {
+		    LOG.warn("Failed to shut down master channel for terminal '" + ifdName + "'.");
 		}
 	    }
-	    ifdNameToHandles.remove(ifdName);
 	}
+    }
 
-	SingleThreadChannel ch = baseChannels.remove(ifdName);
-	if (ch == null) {
-	    LOG.error("No master channel for terminal '" + ifdName + "' available.");
+    public void closeSlaveChannel(@Nonnull byte[] slotHandle) throws NoSuchChannel, SCIOException {
+	closeSlaveChannel(new ByteArrayWrapper(slotHandle));
+    }
+
+    private void closeSlaveChannel(ByteArrayWrapper slotHandle) throws NoSuchChannel, SCIOException {
+	// removing the entry first makes sure only one thread closes the channel
+	SlaveEntry entry = handledChannels.remove(slotHandle);
+	if (entry == null) {
+	    throw new NoSuchChannel("No channel for slot '" + ByteUtils.toHexString(slotHandle.getData()) + "' available.");
 	} else {
-	    try {
-		ch.shutdown();
-	    } catch (SCIOException ex) {
-		LOG.warn("Failed to shut down master channel for terminal '" + ifdName + "'.");
+	    synchronized (lockFor(entry.ifdName)) {
+		Set<ByteArrayWrapper> handles = ifdNameToHandles.get(entry.ifdName);
+		if (handles != null) {
+		    handles.remove(slotHandle);
+		}
+		entry.channel.shutdown();
 	    }
 	}
     }
 
-    public synchronized void closeSlaveChannel(@Nonnull byte[] slotHandle) throws NoSuchChannel, SCIOException {
-	SingleThreadChannel ch = handledChannels.remove(slotHandle);
-	if (ch == null) {
-	    throw new NoSuchChannel("No channel for slot '" + ByteUtils.toHexString(slotHandle) + "' available.");
-	} else {
-	    String ifdName = ch.getChannel().getCard().getTerminal().getName();
-	    ifdNameToHandles.get(ifdName).remove(slotHandle);
-	    ch.shutdown();
+
+    private static class SlaveEntry {
+	private final String ifdName;
+	private final SingleThreadChannel channel;
+
+	SlaveEntry(String ifdName, SingleThreadChannel channel) {
+	    this.ifdName = ifdName;
+	    this.channel = channel;
 	}
     }
 
@@ -22,6 +22,7 @@
 
 package org.openecard.ifd.scio.wrapper;
 
+import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
 import java.util.List;
 import javax.annotation.Nonnull;
 import org.openecard.common.ifd.Protocol;
@@ -86,6 +87,27 @@ public interface IfdChannel {
     byte[] transmit(@Nonnull byte[] input, @Nonnull List<byte[]> responses) throws TransmitException,
 	    SCIOException, IllegalStateException, InterruptedException;
 
+    /**
+     * Transmits the given command APDUs to the card and stops at the first response with an unexpected status code.
+     * <p>In contrast to calling {@link #transmit(byte[], List)} for each command, the whole sequence is executed as a
+     * single operation on the I/O thread of the channel. The commands are processed as described in
+     * {@link #transmit(byte[], List)}.</p>
+     * <p>The responses are added to the given list as they arrive, so that the list also contains the responses
+     * received before an error occurred. The response with the unexpected status code is not added to the list, it is
+     * contained in the {@link TransmitException}.</p>
+     *
+     * @param apdus Command APDUs and their expected response codes.
+     * @param rapdus List receiving the response APDUs.
+     * @throws TransmitException Thrown in case a result contained unexpected response codes.
+     * @throws SCIOException Thrown if the operation failed.
+     * @throws IllegalStateException Thrown if the card is not connected anymore or the channel has been closed.
+     * @throws IllegalArgumentException Thrown if one of the APDUs encodes a {@code MANAGE CHANNEL}.
+     * @throws NullPointerException Thrown in case one of the arguments is {@code null}.
+     * @throws InterruptedException if the user cancels the process
+     */
+    void transmit(@Nonnull List<InputAPDUInfoType> apdus, @Nonnull List<byte[]> rapdus) throws TransmitException,
+	    SCIOException, IllegalStateException, InterruptedException;
+
     /**
      * Sends a control command to the terminal.
      *
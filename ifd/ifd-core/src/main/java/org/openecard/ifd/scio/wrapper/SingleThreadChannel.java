@@ -22,14 +22,8 @@
 
 package org.openecard.ifd.scio.wrapper;
 
+import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nonnull;
 import org.openecard.common.apdu.common.CardCommandAPDU;
 import org.openecard.common.apdu.common.CardCommandStatus;
@@ -51,6 +45,8 @@ import org.slf4j.LoggerFactory;
  * Implementation of a channel executing all commands in the same thread.
  * Executing commands in the same thread has the effect, that transactions are not broken when the IFD is called from
  * different threads which is the case almost every time.
+ * The commands are executed by the I/O threads of a {@link CardIoScheduler}, which keeps the terminal on one thread
+ * while a transaction is open.
  *
  * @author Tobias Wich
  */
@@ -58,9 +54,8 @@ public class SingleThreadChannel implements IfdChannel {
 
     private static final Logger LOG = LoggerFactory.getLogger(SingleThreadChannel.class);
 
-    private static final AtomicInteger THREAD_NUM = new AtomicInteger(1);
-
-    private final ExecutorService exec;
+    private final CardIoScheduler scheduler;
+    private final CardIoQueue queue;
     private SCIOChannel channel;
     /**
      * Currently active secure messaging protocol.
@@ -68,21 +63,23 @@ public class SingleThreadChannel implements IfdChannel {
     private Protocol smProtocol = null;
 
     /**
-     * Creates a master instance and launches a command submission thread.
+     * Creates a master instance and registers it at the scheduler.
      * This function connects the terminal with whatever protocol that works.
      *
+     * @param scheduler Scheduler executing the commands of the channel.
      * @param term Terminal whose channel is to be bound to the thread.
      * @throws SCIOException Thrown in case the channel could not be established.
      */
-    public SingleThreadChannel(SCIOTerminal term) throws SCIOException {
-	this.exec = createExecutor();
+    public SingleThreadChannel(CardIoScheduler scheduler, SCIOTerminal term) throws SCIOException {
+	this.scheduler = scheduler;
 
 	SCIOCard card = connectCard(term);
 	this.channel = card.getBasicChannel();
+	this.queue = scheduler.register(term.getName(), channel.getChannelNumber());
     }
 
     /**
-     * Creates a slave instance and launches a command submission thread.
+     * Creates a slave instance and registers it at the scheduler of the master.
      *
      * @param master Master (basic) channel from which the other channel instance is to be derived.
      * @param isBasic {@code true} if a basic channel shall be opened, {@code false} if a logical channel shall be opened.
@@ -90,7 +87,7 @@ public class SingleThreadChannel implements IfdChannel {
      */
     public SingleThreadChannel(SingleThreadChannel master, boolean isBasic)
 	    throws SCIOException {
-	this.exec = createExecutor();
+	this.scheduler = master.scheduler;
 
 	SCIOCard baseCard = master.channel.getCard();
 	// connect with protocol that worked for the base card
@@ -100,28 +97,24 @@ public class SingleThreadChannel implements IfdChannel {
 	} else {
 	    this.channel = card.openLogicalChannel();
 	}
-    }
-
-    private ExecutorService createExecutor() {
-	return Executors.newSingleThreadExecutor(new ThreadFactory() {
-	    @Override
-	    public Thread newThread(Runnable r) {
-		int num = SingleThreadChannel.this.channel.getChannelNumber();
-		String termName = SingleThreadChannel.this.channel.getCard().getTerminal().getName();
-		String name = String.format("Channel-%d %d '%s'", THREAD_NUM.getAndIncrement(), num, termName);
-		Thread t = new Thread(r, name);
-		t.setDaemon(true);
-		return t;
-	    }
-	});
+	this.queue = scheduler.register(card.getTerminal().getName(), channel.getChannelNumber());
     }
 
     @Override
     public void shutdown() throws SCIOException {
-	exec.shutdown();
+	queue.release();
 	channel.close();
     }
 
+    /**
+     * Gets a snapshot of the I/O statistics of this channel.
+     *
+     * @return The statistics of the channel.
+     */
+    public CardIoStatistics getIoStatistics() {
+	return queue.getStatistics();
+    }
+
     private static SCIOCard connectCard(SCIOTerminal term) throws SCIOException {
 	SCIOCard card;
 	try {
@@ -191,32 +184,19 @@ public class SingleThreadChannel implements IfdChannel {
     @Nonnull
     private CardResponseAPDU transmit(final @Nonnull byte[] command) throws SCIOException, IllegalStateException, InterruptedException {
 	// send command
-	Future<CardResponseAPDU> result = exec.submit(new Callable<CardResponseAPDU>() {
-	    @Override
-	    public CardResponseAPDU call() throws Exception {
-		return channel.transmit(command);
-	    }
-	});
-	// return result or evaluate errors
 	try {
-	    return result.get();
-	} catch (ExecutionException ex) {
-	    // check out the real cause of the error
-	    Throwable cause = ex.getCause();
-	    if (cause instanceof SCIOException) {
-		throw (SCIOException) cause;
-	    } else if (cause instanceof IllegalStateException) {
-		throw (IllegalStateException) cause;
-	    } else if (cause instanceof IllegalArgumentException) {
-		throw (IllegalArgumentException) cause;
-	    } else if (cause instanceof NullPointerException) {
-		throw (NullPointerException) cause;
-	    } else {
-		String msg = "Unknown error during APDU submission.";
-		throw new SCIOException(msg, SCIOErrorCode.SCARD_F_UNKNOWN_ERROR, cause);
-	    }
+	    return queue.execute(new CardIoTask<CardResponseAPDU>() {
+		@Override
+		public CardResponseAPDU call() throws SCIOException {
+		    return channel.transmit(command);
+		}
+	    });
+	} catch (IllegalStateException | IllegalArgumentException | NullPointerException ex) {
+	    throw ex;
+	} catch (RuntimeException ex) {
+	    String msg = "Unknown error during APDU submission.";
+	    throw new SCIOException(msg, SCIOErrorCode.SCARD_F_UNKNOWN_ERROR, ex);
 	} catch (InterruptedException ex) {
-	    result.cancel(true);
 	    throw new InterruptedException("Interruption during transmit.");
 	}
     }
@@ -266,28 +246,87 @@ public class SingleThreadChannel implements IfdChannel {
 	    result = smProtocol.removeSM(result);
 	    LOG.debug("Remove secure messaging from APDU: {}", ByteUtils.toHexString(result, false));
 	}
+	if (isExpected(result, responses)) {
+	    return result;
+	} else {
+	    throw unexpectedStatus(result);
+	}
+    }
+
+    @Override
+    public void transmit(final @Nonnull List<InputAPDUInfoType> apdus, final @Nonnull List<byte[]> rapdus)
+	    throws TransmitException, SCIOException, IllegalStateException, InterruptedException {
+	// the whole sequence is one task, so the I/O thread is only entered once and no other channel can interleave
+	boolean complete;
+	try {
+	    complete = queue.execute(new CardIoTask<Boolean>() {
+		@Override
+		public Boolean call() throws SCIOException {
+		    for (InputAPDUInfoType apdu : apdus) {
+			byte[] inputAPDU = apdu.getInputAPDU();
+			if (isSM()) {
+			    LOG.debug("Apply secure messaging to APDU: {}", ByteUtils.toHexString(inputAPDU, false));
+			    inputAPDU = smProtocol.applySM(inputAPDU);
+			}
+			LOG.debug("Send APDU: {}", ByteUtils.toHexString(inputAPDU, false));
+			byte[] result = channel.transmit(inputAPDU).toByteArray();
+			LOG.debug("Receive APDU: {}", ByteUtils.toHexString(result, false));
+			if (isSM()) {
+			    result = smProtocol.removeSM(result);
+			    LOG.debug("Remove secure messaging from APDU: {}", ByteUtils.toHexString(result, false));
+			}
+			rapdus.add(result);
+
+			if (! isExpected(result, apdu.getAcceptableStatusCode())) {
+			    return false;
+			}
+		    }
+		    return true;
+		}
+	    });
+	} catch (IllegalStateException | IllegalArgumentException | NullPointerException ex) {
+	    throw ex;
+	} catch (RuntimeException ex) {
+	    String msg = "Unknown error during APDU submission.";
+	    throw new SCIOException(msg, SCIOErrorCode.SCARD_F_UNKNOWN_ERROR, ex);
+	} catch (InterruptedException ex) {
+	    throw new InterruptedException("Interruption during transmit.");
+	}
+
+	if (! complete) {
+	    // the last response is reported by the exception
+	    throw unexpectedStatus(rapdus.remove(rapdus.size() - 1));
+	}
+    }
+
+    private static boolean isExpected(byte[] result, List<byte[]> responses) {
+	// accept without validation when no expected results given
+	if (responses.isEmpty()) {
+	    return true;
+	}
+
 	// get status word
 	byte[] sw = new byte[2];
 	sw[0] = result[result.length - 2];
 	sw[1] = result[result.length - 1];
 
-	// return without validation when no expected results given
-	if (responses.isEmpty()) {
-	    return result;
-	}
 	// verify result
 	for (byte[] expected : responses) {
 	    // one byte codes are used like mask values
 	    // AcceptableStatusCode-elements containing only one byte match all status codes starting with this byte
 	    if (ByteUtils.isPrefix(expected, sw)) {
-		return result;
+		return true;
 	    }
 	}
+	return false;
+    }
 
-	// not an expected result
+    private static TransmitException unexpectedStatus(byte[] result) {
+	byte[] sw = new byte[2];
+	sw[0] = result[result.length - 2];
+	sw[1] = result[result.length - 1];
 	String msg = "The returned status code is not in the list of expected status codes. The returned code is:\n";
-	TransmitException tex = new TransmitException(result, msg + CardCommandStatus.getMessage(sw));
-	throw tex;
+	return new TransmitException(result, msg + CardCommandStatus.getMessage(sw));
     }
 
     @Nonnull
@@ -295,30 +334,19 @@ public class SingleThreadChannel implements IfdChannel {
     public byte[] transmitControlCommand(final int controlCode, final @Nonnull byte[] command) throws SCIOException,
 	    IllegalStateException, NullPointerException, InterruptedException {
 	// send command
-	Future<byte[]> result = exec.submit(new Callable<byte[]>() {
-	    @Override
-	    public byte[] call() throws Exception {
-		return channel.getCard().transmitControlCommand(controlCode, command);
-	    }
-	});
-	// return result or evaluate errors
 	try {
-	    return result.get();
-	} catch (ExecutionException ex) {
-	    // check out the real cause of the error
-	    Throwable cause = ex.getCause();
-	    if (cause instanceof SCIOException) {
-		throw (SCIOException) cause;
-	    } else if (cause instanceof IllegalStateException) {
-		throw (IllegalStateException) cause;
-	    } else if (cause instanceof NullPointerException) {
-		throw (NullPointerException) cause;
-	    } else {
-		String msg = "Unknown error during control command submission.";
-		throw new SCIOException(msg, SCIOErrorCode.SCARD_F_UNKNOWN_ERROR, cause);
-	    }
+	    return queue.execute(new CardIoTask<byte[]>() {
+		@Override
+		public byte[] call() throws SCIOException {
+		    return channel.getCard().transmitControlCommand(controlCode, command);
+		}
+	    });
+	} catch (IllegalStateException | NullPointerException ex) {
+	    throw ex;
+	} catch (RuntimeException ex) {
+	    String msg = "Unknown error during control command submission.";
+	    throw new SCIOException(msg, SCIOErrorCode.SCARD_F_UNKNOWN_ERROR, ex);
 	} catch (InterruptedException ex) {
-	    result.cancel(true);
 	    throw new InterruptedException("Interruption during transmit control command.");
 	}
     }
@@ -335,34 +363,31 @@ public class SingleThreadChannel implements IfdChannel {
 
     private void submitTransaction(final boolean start) throws SCIOException, IllegalStateException, InterruptedException {
 	// send command
-	Future<Void> result = exec.submit(new Callable<Void>() {
-	    @Override
-	    public Void call() throws Exception {
-		SCIOCard card = channel.getCard();
-		if (start) {
-		    card.beginExclusive();
-		} else {
-		    card.endExclusive();
-		}
-		return null;
-	    }
-	});
-	// return result or evaluate errors
 	try {
-	    result.get();
-	} catch (ExecutionException ex) {
-	    // check out the real cause of the error
-	    Throwable cause = ex.getCause();
-	    if (cause instanceof SCIOException) {
-		throw (SCIOException) cause;
-	    } else if (cause instanceof IllegalStateException) {
-		throw (IllegalStateException) cause;
-	    } else {
-		String msg = String.format("Unknown error during transaction submission (start=%b).", start);
-		throw new SCIOException(msg, SCIOErrorCode.SCARD_F_UNKNOWN_ERROR, cause);
-	    }
+	    queue.execute(new CardIoTask<Void>() {
+		@Override
+		public Void call() throws SCIOException {
+		    SCIOCard card = channel.getCard();
+		    if (start) {
+			card.beginExclusive();
+			// the transaction is bound to this thread
+			queue.pinThread();
+		    } else {
+			try {
+			    card.endExclusive();
+			} finally {
+			    queue.unpinThread();
+			}
+		    }
+		    return null;
+		}
+	    });
+	} catch (IllegalStateException ex) {
+	    throw ex;
+	} catch (RuntimeException ex) {
+	    String msg = String.format("Unknown error during transaction submission (start=%b).", start);
+	    throw new SCIOException(msg, SCIOErrorCode.SCARD_F_UNKNOWN_ERROR, ex);
 	} catch (InterruptedException ex) {
-	    result.cancel(true);
 	    throw new InterruptedException("Interruption during transaction submit.");
 	}
     }
@@ -0,0 +1,315 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ifd.scio.wrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.openecard.common.ifd.scio.SCIOErrorCode;
+import org.openecard.common.ifd.scio.SCIOException;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the thread assignment and execution of the CardIoScheduler.
+ *
+ * @author agent
+ */
+public class CardIoSchedulerTest {
+
+    @Test(timeOut = 10000)
+    public void testPinnedThread() throws Exception {
+	CardIoScheduler sched = new CardIoScheduler(2);
+	final CardIoQueue master = sched.register("Reader 1", 0);
+	CardIoQueue slave = sched.register("Reader 1", 1);
+	CardIoQueue other = sched.register("Reader 2", 0);
+
+	try {
+	    master.pinThread();
+	    fail("Exception expected.");
+	} catch (IllegalStateException ex) {
+	    // only possible from an operation of the channel
+	}
+
+	// e.g. the begin of a transaction
+	Thread pinned = master.execute(() -> {
+	    master.pinThread();
+	    return Thread.currentThread();
+	});
+	for (int i = 0; i < 10; i++) {
+	    assertSame(master.execute(new CurrentThread()), pinned);
+	    assertSame(slave.execute(new CurrentThread()), pinned);
+	    assertNotSame(other.execute(new CurrentThread()), pinned);
+	}
+	assertEquals(master.getStatistics().getLane(), slave.getStatistics().getLane());
+	assertNotEquals(other.getStatistics().getLane(), master.getStatistics().getLane());
+	assertEquals(sched.getActiveLanes(), 2);
+
+	master.execute(() -> {
+	    master.unpinThread();
+	    return null;
+	});
+	master.release();
+	slave.release();
+	other.release();
+	assertTrue(sched.getStatistics().isEmpty());
+    }
+
+    @Test(timeOut = 10000)
+    public void testBoundedPool() throws Exception {
+	final CardIoScheduler sched = new CardIoScheduler(2, 200);
+	final CountDownLatch release = new CountDownLatch(1);
+	final List<Thread> threads = new ArrayList<>();
+	final List<CardIoQueue> queues = new ArrayList<>();
+	List<Thread> clients = new ArrayList<>();
+	for (int i = 0; i < 5; i++) {
+	    final CardIoQueue q = sched.register("Reader " + i, 0);
+	    queues.add(q);
+	    Thread client = new Thread(() -> {
+		try {
+		    q.execute(() -> {
+			synchronized (threads) {
+			    threads.add(Thread.currentThread());
+			}
+			try {
+			    release.await();
+			} catch (InterruptedException ex) {
+			    throw new RuntimeException(ex);
+			}
+			return null;
+		    });
+		} catch (SCIOException | InterruptedException ex) {
+		    throw new RuntimeException(ex);
+		}
+	    });
+	    client.start();
+	    clients.add(client);
+	}
+
+	// the two threads are occupied, the remaining terminals wait for them
+	while (true) {
+	    synchronized (threads) {
+		if (threads.size() == 2) {
+		    break;
+		}
+	    }
+	    Thread.sleep(10);
+	}
+	Thread.sleep(100);
+	synchronized (threads) {
+	    assertEquals(threads.size(), 2);
+	}
+	assertEquals(sched.getActiveLanes(), 2);
+	release.countDown();
+	for (Thread next : clients) {
+	    next.join();
+	}
+	assertEquals(threads.size(), 5);
+	assertTrue(sched.getActiveLanes() <= 2);
+	for (CardIoQueue q : queues) {
+	    assertEquals(q.getStatistics().getExecutedTasks(), 1);
+	    assertTrue(q.getStatistics().getLane() < 2);
+	}
+
+	// idle threads terminate, their indices are reused
+	for (Thread next : threads) {
+	    next.join(TimeUnit.SECONDS.toMillis(5));
+	    assertFalse(next.isAlive());
+	}
+	assertEquals(sched.getActiveLanes(), 0);
+	queues.get(0).execute(() -> null);
+	assertEquals(queues.get(0).getStatistics().getLane(), 0);
+	for (CardIoQueue q : queues) {
+	    q.release();
+	}
+    }
+
+    @Test(timeOut = 10000)
+    public void testBlockedTerminalDoesNotDelayOthers() throws Exception {
+	CardIoScheduler sched = new CardIoScheduler();
+	final CardIoQueue pinPad = sched.register("Reader 1", 0);
+	CardIoQueue other = sched.register("Reader 2", 0);
+	final CountDownLatch running = new CountDownLatch(1);
+	final CountDownLatch release = new CountDownLatch(1);
+	// e.g. a PIN entry on the pin pad of the first terminal
+	Thread blocker = new Thread(() -> {
+	    try {
+		pinPad.execute(() -> {
+		    running.countDown();
+		    try {
+			release.await();
+		    } catch (InterruptedException ex) {
+			throw new RuntimeException(ex);
+		    }
+		    return null;
+		});
+	    } catch (SCIOException | InterruptedException ex) {
+		throw new RuntimeException(ex);
+	    }
+	});
+	blocker.start();
+	running.await();
+
+	try {
+	    for (int i = 0; i < 10; i++) {
+		assertEquals(other.execute(() -> "ok"), "ok");
+	    }
+	    assertEquals(pinPad.getStatistics().getExecutedTasks(), 0);
+	    assertEquals(other.getStatistics().getExecutedTasks(), 10);
+	} finally {
+	    release.countDown();
+	    blocker.join();
+	}
+	assertEquals(pinPad.getStatistics().getExecutedTasks(), 1);
+	pinPad.release();
+	other.release();
+    }
+
+    @Test(timeOut = 10000)
+    public void testOrderAndStatistics() throws Exception {
+	CardIoScheduler sched = new CardIoScheduler();
+	final CardIoQueue q = sched.register("Reader", 0);
+	final List<Integer> order = new ArrayList<>();
+	for (int i = 0; i < 20; i++) {
+	    final int num = i;
+	    // submit sequentially, execute concurrently
+	    Thread t = new Thread(() -> {
+		try {
+		    q.execute(() -> {
+			order.add(num);
+			return null;
+		    });
+		} catch (SCIOException | InterruptedException ex) {
+		    throw new RuntimeException(ex);
+		}
+	    });
+	    t.start();
+	    t.join();
+	}
+	assertEquals(order.size(), 20);
+	for (int i = 0; i < 20; i++) {
+	    assertEquals(order.get(i).intValue(), i);
+	}
+
+	CardIoStatistics stats = q.getStatistics();
+	assertEquals(stats.getExecutedTasks(), 20);
+	assertEquals(stats.getQueueDepth(), 0);
+	assertTrue(stats.getMaxWaitNanos() >= stats.getAverageWaitNanos());
+	q.release();
+    }
+
+    @Test(timeOut = 10000)
+    public void testErrors() throws Exception {
+	CardIoScheduler sched = new CardIoScheduler();
+	CardIoQueue q = sched.register("Reader", 0);
+	try {
+	    q.execute(() -> {
+		throw new SCIOException("Test", SCIOErrorCode.SCARD_E_NO_SMARTCARD);
+	    });
+	    fail("Exception expected.");
+	} catch (SCIOException ex) {
+	    assertEquals(ex.getCode(), SCIOErrorCode.SCARD_E_NO_SMARTCARD);
+	}
+	try {
+	    q.execute(() -> {
+		throw new IllegalStateException("Test");
+	    });
+	    fail("Exception expected.");
+	} catch (IllegalStateException ex) {
+	    assertEquals(ex.getMessage(), "Test");
+	}
+
+	// nested calls run directly on the executing thread
+	final CardIoQueue nested = q;
+	assertEquals(q.execute(() -> {
+	    try {
+		return nested.execute(() -> "nested");
+	    } catch (InterruptedException ex) {
+		throw new RuntimeException(ex);
+	    }
+	}), "nested");
+
+	q.release();
+	try {
+	    q.execute(() -> null);
+	    fail("Exception expected.");
+	} catch (IllegalStateException ex) {
+	    // channel has been shut down
+	}
+    }
+
+    @Test(timeOut = 10000)
+    public void testInterruptedWait() throws Exception {
+	CardIoScheduler sched = new CardIoScheduler();
+	final CardIoQueue q = sched.register("Reader", 0);
+	final CountDownLatch running = new CountDownLatch(1);
+	final CountDownLatch release = new CountDownLatch(1);
+	Thread blocker = new Thread(() -> {
+	    try {
+		q.execute(() -> {
+		    running.countDown();
+		    try {
+			release.await();
+		    } catch (InterruptedException ex) {
+			throw new RuntimeException(ex);
+		    }
+		    return null;
+		});
+	    } catch (SCIOException | InterruptedException ex) {
+		throw new RuntimeException(ex);
+	    }
+	});
+	blocker.start();
+	running.await();
+
+	final boolean[] executed = { false };
+	Thread.currentThread().interrupt();
+	try {
+	    q.execute(() -> {
+		executed[0] = true;
+		return null;
+	    });
+	    fail("Exception expected.");
+	} catch (InterruptedException ex) {
+	    // expected
+	}
+	assertEquals(q.getStatistics().getQueueDepth(), 0);
+	release.countDown();
+	blocker.join();
+
+	// the cancelled task is skipped, the channel is still usable
+	assertEquals(q.execute(() -> "ok"), "ok");
+	assertFalse(executed[0]);
+	q.release();
+    }
+
+    private static class CurrentThread implements CardIoTask<Thread> {
+	@Override
+	public Thread call() {
+	    return Thread.currentThread();
+	}
+    }
+
+}
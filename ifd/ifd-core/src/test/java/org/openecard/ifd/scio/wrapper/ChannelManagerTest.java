@@ -0,0 +1,365 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ifd.scio.wrapper;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import org.openecard.common.apdu.common.CardCommandAPDU;
+import org.openecard.common.apdu.common.CardResponseAPDU;
+import org.openecard.common.ifd.scio.NoSuchTerminal;
+import org.openecard.common.ifd.scio.SCIOATR;
+import org.openecard.common.ifd.scio.SCIOCard;
+import org.openecard.common.ifd.scio.SCIOChannel;
+import org.openecard.common.ifd.scio.SCIOException;
+import org.openecard.common.ifd.scio.SCIOProtocol;
+import org.openecard.common.ifd.scio.SCIOTerminal;
+import org.openecard.common.ifd.scio.SCIOTerminals;
+import org.openecard.common.ifd.scio.TerminalFactory;
+import org.openecard.common.ifd.scio.TerminalWatcher;
+import org.openecard.common.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the ChannelManager with simulated terminals.
+ *
+ * @author agent
+ */
+public class ChannelManagerTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChannelManagerTest.class);
+    private static final byte[] APDU = { 0x00, (byte) 0xA4, 0x00, 0x0C };
+
+    @Test
+    public void testSlotHandles() throws Exception {
+	ChannelManager cm = new ChannelManager(new FakeFactory(1));
+	SingleThreadChannel master = cm.openMasterChannel("Reader 0");
+	assertSame(cm.openMasterChannel("Reader 0"), master);
+	Pair<byte[], SingleThreadChannel> slave = cm.openSlaveChannel("Reader 0");
+
+	byte[] handle = slave.p1.clone();
+	assertSame(cm.getSlaveChannel(handle), slave.p2);
+	// modifying the returned handle does not affect the registry
+	slave.p1[0] ^= 0xFF;
+	assertSame(cm.getSlaveChannel(handle), slave.p2);
+
+	cm.closeSlaveChannel(handle);
+	try {
+	    cm.getSlaveChannel(handle);
+	    fail("Channel must be closed.");
+	} catch (NoSuchChannel ex) {
+	    // expected
+	}
+
+	Pair<byte[], SingleThreadChannel> slave2 = cm.openSlaveChannel("Reader 0");
+	cm.closeMasterChannel("Reader 0");
+	try {
+	    cm.getSlaveChannel(slave2.p1);
+	    fail("Channel must be closed with its master.");
+	} catch (NoSuchChannel ex) {
+	    // expected
+	}
+	try {
+	    cm.getMasterChannel("Reader 0");
+	    fail("Master channel must be closed.");
+	} catch (NoSuchTerminal ex) {
+	    // expected
+	}
+	assertTrue(cm.getIoStatistics().isEmpty());
+    }
+
+    @Test(timeOut = 30000)
+    public void testConcurrentReaders() throws Exception {
+	int numReaders = 8;
+	final ChannelManager cm = new ChannelManager(new FakeFactory(numReaders));
+	List<Callable<Void>> tasks = new ArrayList<>();
+	for (int i = 0; i < numReaders; i++) {
+	    final String name = "Reader " + i;
+	    cm.openMasterChannel(name);
+	    tasks.add(() -> {
+		for (int j = 0; j < 200; j++) {
+		    Pair<byte[], SingleThreadChannel> slave = cm.openSlaveChannel(name);
+		    SingleThreadChannel ch = cm.getSlaveChannel(slave.p1);
+		    assertSame(ch, slave.p2);
+		    ch.transmit(APDU, Collections.<byte[]>emptyList());
+		    cm.closeSlaveChannel(slave.p1);
+		}
+		return null;
+	    });
+	}
+
+	ExecutorService exec = Executors.newFixedThreadPool(numReaders);
+	try {
+	    for (Future<Void> f : exec.invokeAll(tasks)) {
+		f.get();
+	    }
+	} finally {
+	    exec.shutdown();
+	}
+
+	// only the master channels are left
+	assertEquals(cm.getIoStatistics().size(), numReaders);
+	for (int i = 0; i < numReaders; i++) {
+	    cm.closeMasterChannel("Reader " + i);
+	}
+	assertTrue(cm.getIoStatistics().isEmpty());
+    }
+
+    /**
+     * Measures the throughput of slot handle lookups and transmits on many readers at the same time.
+     * The test is not part of the regular test run, enable the group {@code benchmark} to run it.
+     *
+     * @throws Exception
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkMultiReaderContention() throws Exception {
+	int numReaders = 16;
+	final int numOps = 20000;
+	final ChannelManager cm = new ChannelManager(new FakeFactory(numReaders));
+	List<Callable<Void>> tasks = new ArrayList<>();
+	for (int i = 0; i < numReaders; i++) {
+	    final String name = "Reader " + i;
+	    cm.openMasterChannel(name);
+	    final byte[] handle = cm.openSlaveChannel(name).p1;
+	    tasks.add(() -> {
+		for (int j = 0; j < numOps; j++) {
+		    cm.getSlaveChannel(handle).transmit(APDU, Collections.<byte[]>emptyList());
+		}
+		return null;
+	    });
+	}
+
+	ExecutorService exec = Executors.newFixedThreadPool(numReaders);
+	try {
+	    long start = System.nanoTime();
+	    for (Future<Void> f : exec.invokeAll(tasks)) {
+		f.get();
+	    }
+	    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	    long total = (long) numReaders * numOps;
+	    LOG.info("{} transmits on {} readers took {} ms ({} ops/s).", total, numReaders, millis,
+		    total * 1000 / Math.max(1, millis));
+	    for (CardIoStatistics stats : cm.getIoStatistics()) {
+		LOG.info("{}", stats);
+	    }
+	} finally {
+	    exec.shutdown();
+	    for (int i = 0; i < numReaders; i++) {
+		cm.closeMasterChannel("Reader " + i);
+	    }
+	}
+    }
+
+
+    private static class FakeFactory implements TerminalFactory, SCIOTerminals {
+	private final List<SCIOTerminal> terminals = new ArrayList<>();
+
+	FakeFactory(int numTerminals) {
+	    for (int i = 0; i < numTerminals; i++) {
+		terminals.add(new FakeTerminal("Reader " + i));
+	    }
+	}
+
+	@Override
+	public String getType() {
+	    return "Fake";
+	}
+
+	@Override
+	public SCIOTerminals terminals() {
+	    return this;
+	}
+
+	@Override
+	public List<SCIOTerminal> list(State state) {
+	    return terminals;
+	}
+
+	@Override
+	public List<SCIOTerminal> list() {
+	    return terminals;
+	}
+
+	@Override
+	public SCIOTerminal getTerminal(String name) throws NoSuchTerminal {
+	    for (SCIOTerminal t : terminals) {
+		if (t.getName().equals(name)) {
+		    return t;
+		}
+	    }
+	    throw new NoSuchTerminal("No terminal with name '" + name + "' available.");
+	}
+
+	@Override
+	public TerminalWatcher getWatcher() {
+	    throw new UnsupportedOperationException();
+	}
+    }
+
+    private static class FakeTerminal implements SCIOTerminal {
+	private final String name;
+
+	FakeTerminal(String name) {
+	    this.name = name;
+	}
+
+	@Override
+	public String getName() {
+	    return name;
+	}
+
+	@Override
+	public SCIOCard connect(SCIOProtocol protocol) {
+	    return new FakeCard(this, protocol);
+	}
+
+	@Override
+	public boolean isCardPresent() {
+	    return true;
+	}
+
+	@Override
+	public boolean waitForCardPresent(long timeout) {
+	    return true;
+	}
+
+	@Override
+	public boolean waitForCardAbsent(long timeout) {
+	    return false;
+	}
+    }
+
+    private static class FakeCard implements SCIOCard {
+	private final SCIOTerminal terminal;
+	private final SCIOProtocol protocol;
+
+	FakeCard(SCIOTerminal terminal, SCIOProtocol protocol) {
+	    this.terminal = terminal;
+	    this.protocol = protocol;
+	}
+
+	@Override
+	public SCIOTerminal getTerminal() {
+	    return terminal;
+	}
+
+	@Override
+	public SCIOATR getATR() {
+	    return null;
+	}
+
+	@Override
+	public SCIOProtocol getProtocol() {
+	    return protocol;
+	}
+
+	@Override
+	public SCIOChannel getBasicChannel() {
+	    return new FakeChannel(this, 0);
+	}
+
+	@Override
+	public SCIOChannel openLogicalChannel() {
+	    return new FakeChannel(this, 1);
+	}
+
+	@Override
+	public void beginExclusive() {
+	}
+
+	@Override
+	public void endExclusive() {
+	}
+
+	@Override
+	public byte[] transmitControlCommand(int controlCode, byte[] command) {
+	    return new byte[0];
+	}
+
+	@Override
+	public void disconnect(boolean reset) {
+	}
+    }
+
+    private static class FakeChannel implements SCIOChannel {
+	private final SCIOCard card;
+	private final int num;
+
+	FakeChannel(SCIOCard card, int num) {
+	    this.card = card;
+	    this.num = num;
+	}
+
+	@Override
+	public SCIOCard getCard() {
+	    return card;
+	}
+
+	@Override
+	public int getChannelNumber() {
+	    return num;
+	}
+
+	@Override
+	public boolean isBasicChannel() {
+	    return num == 0;
+	}
+
+	@Override
+	public boolean isLogicalChannel() {
+	    return num != 0;
+	}
+
+	@Override
+	public CardResponseAPDU transmit(@Nonnull byte[] command) {
+	    return new CardResponseAPDU(new byte[] { (byte) 0x90, 0x00 });
+	}
+
+	@Override
+	public CardResponseAPDU transmit(@Nonnull CardCommandAPDU command) {
+	    return transmit(command.toByteArray());
+	}
+
+	@Override
+	public int transmit(@Nonnull ByteBuffer command, @Nonnull ByteBuffer response) {
+	    response.put((byte) 0x90).put((byte) 0x00);
+	    return 2;
+	}
+
+	@Override
+	public void close() throws SCIOException {
+	}
+    }
+
+}
@@ -0,0 +1,269 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+package org.openecard.ifd.scio.wrapper;
+
+import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import org.openecard.common.apdu.ReadBinary;
+import org.openecard.common.apdu.common.CardCommandAPDU;
+import org.openecard.common.apdu.common.CardCommandStatus;
+import org.openecard.common.apdu.common.CardResponseAPDU;
+import org.openecard.common.ifd.scio.SCIOATR;
+import org.openecard.common.ifd.scio.SCIOCard;
+import org.openecard.common.ifd.scio.SCIOChannel;
+import org.openecard.common.ifd.scio.SCIOProtocol;
+import org.openecard.common.ifd.scio.SCIOTerminal;
+import org.openecard.common.util.ByteUtils;
+import org.openecard.ifd.scio.TransmitException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the batched transmission of the SingleThreadChannel with a simulated terminal.
+ *
+ * @author agent
+ */
+public class SingleThreadChannelTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SingleThreadChannelTest.class);
+
+    @Test(timeOut = 10000)
+    public void testBatch() throws Exception {
+	FakeTerminal term = new FakeTerminal(600);
+	CardIoScheduler sched = new CardIoScheduler();
+	SingleThreadChannel ch = new SingleThreadChannel(sched, term);
+	try {
+	    List<byte[]> rapdus = new ArrayList<>();
+	    ch.transmit(readCommands(600), rapdus);
+	    assertEquals(rapdus.size(), 3);
+	    assertEquals(term.transmits.get(), 3);
+	    assertEquals(ch.getIoStatistics().getExecutedTasks(), 1);
+
+	    // the file is shorter than requested, so the third command ends the batch
+	    rapdus.clear();
+	    try {
+		ch.transmit(readCommands(1000), rapdus);
+		fail("Unexpected status code must be reported.");
+	    } catch (TransmitException ex) {
+		assertEquals(new CardResponseAPDU(ex.getResponseAPDU()).getTrailer(), new byte[] { 0x62, (byte) 0x82 });
+	    }
+	    assertEquals(rapdus.size(), 2);
+	    assertEquals(term.transmits.get(), 6);
+	    assertEquals(ch.getIoStatistics().getExecutedTasks(), 2);
+	} finally {
+	    ch.shutdown();
+	}
+    }
+
+    /**
+     * Compares sending a READ BINARY sequence APDU by APDU with sending it as one batch.
+     * The test is not part of the regular test run, enable the group {@code benchmark} to run it.
+     *
+     * @throws Exception
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkBatch() throws Exception {
+	int size = 4096;
+	int numOps = 20000;
+	List<InputAPDUInfoType> apdus = readCommands(size);
+	for (boolean batched : new boolean[] { false, true }) {
+	    FakeTerminal term = new FakeTerminal(size);
+	    CardIoScheduler sched = new CardIoScheduler();
+	    SingleThreadChannel ch = new SingleThreadChannel(sched, term);
+	    try {
+		List<byte[]> rapdus = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int i = 0; i < numOps; i++) {
+		    rapdus.clear();
+		    if (batched) {
+			ch.transmit(apdus, rapdus);
+		    } else {
+			for (InputAPDUInfoType apdu : apdus) {
+			    rapdus.add(ch.transmit(apdu.getInputAPDU(), apdu.getAcceptableStatusCode()));
+			}
+		    }
+		}
+		long nanos = System.nanoTime() - start;
+		LOG.info("{}: {} ns/op, {} card round trips and {} I/O thread hops per op.",
+			batched ? "batched" : "single", nanos / numOps, term.transmits.get() / numOps,
+			ch.getIoStatistics().getExecutedTasks() / numOps);
+	    } finally {
+		ch.shutdown();
+	    }
+	}
+    }
+
+    private static List<InputAPDUInfoType> readCommands(int size) {
+	List<InputAPDUInfoType> result = new ArrayList<>();
+	for (int offset = 0; offset < size; offset += 255) {
+	    byte length = (byte) Math.min(255, size - offset);
+	    InputAPDUInfoType apdu = new InputAPDUInfoType();
+	    apdu.setInputAPDU(new ReadBinary((short) offset, length).toByteArray());
+	    apdu.getAcceptableStatusCode().addAll(CardCommandStatus.responseOk());
+	    result.add(apdu);
+	}
+	return result;
+    }
+
+
+    /**
+     * Terminal with a card containing one transparent file which counts the APDUs sent to the card.
+     */
+    private static class FakeTerminal implements SCIOTerminal, SCIOCard, SCIOChannel {
+	private final byte[] content;
+	final AtomicInteger transmits = new AtomicInteger();
+
+	FakeTerminal(int size) {
+	    content = new byte[size];
+	    for (int i = 0; i < size; i++) {
+		content[i] = (byte) i;
+	    }
+	}
+
+	@Override
+	public String getName() {
+	    return "Fake Reader";
+	}
+
+	@Override
+	public SCIOCard connect(SCIOProtocol protocol) {
+	    return this;
+	}
+
+	@Override
+	public boolean isCardPresent() {
+	    return true;
+	}
+
+	@Override
+	public boolean waitForCardPresent(long timeout) {
+	    return true;
+	}
+
+	@Override
+	public boolean waitForCardAbsent(long timeout) {
+	    return false;
+	}
+
+	@Override
+	public SCIOTerminal getTerminal() {
+	    return this;
+	}
+
+	@Override
+	public SCIOATR getATR() {
+	    return null;
+	}
+
+	@Override
+	public SCIOProtocol getProtocol() {
+	    return SCIOProtocol.T1;
+	}
+
+	@Override
+	public SCIOChannel getBasicChannel() {
+	    return this;
+	}
+
+	@Override
+	public SCIOChannel openLogicalChannel() {
+	    throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void beginExclusive() {
+	}
+
+	@Override
+	public void endExclusive() {
+	}
+
+	@Override
+	public byte[] transmitControlCommand(int controlCode, byte[] command) {
+	    return new byte[0];
+	}
+
+	@Override
+	public void disconnect(boolean reset) {
+	}
+
+	@Override
+	public SCIOCard getCard() {
+	    return this;
+	}
+
+	@Override
+	public int getChannelNumber() {
+	    return 0;
+	}
+
+	@Override
+	public boolean isBasicChannel() {
+	    return true;
+	}
+
+	@Override
+	public boolean isLogicalChannel() {
+	    return false;
+	}
+
+	@Override
+	public CardResponseAPDU transmit(@Nonnull byte[] command) {
+	    transmits.incrementAndGet();
+	    int offset = ((command[2] & 0x7F) << 8) | (command[3] & 0xFF);
+	    int le = command[4] == 0 ? 256 : command[4] & 0xFF;
+	    if (offset >= content.length) {
+		return new CardResponseAPDU(new byte[] { 0x6B, 0x00 });
+	    }
+	    int num = Math.min(le, content.length - offset);
+	    byte[] trailer = num < le ? new byte[] { 0x62, (byte) 0x82 } : new byte[] { (byte) 0x90, 0x00 };
+	    return new CardResponseAPDU(ByteUtils.concatenate(Arrays.copyOfRange(content, offset, offset + num), trailer));
+	}
+
+	@Override
+	public CardResponseAPDU transmit(@Nonnull CardCommandAPDU command) {
+	    return transmit(command.toByteArray());
+	}
+
+	@Override
+	public int transmit(@Nonnull ByteBuffer command, @Nonnull ByteBuffer response) {
+	    byte[] cmd = new byte[command.remaining()];
+	    command.get(cmd);
+	    byte[] res = transmit(cmd).toByteArray();
+	    response.put(res);
+	    return res.length;
+	}
+
+	@Override
+	public void close() {
+	}
+    }
+
+}
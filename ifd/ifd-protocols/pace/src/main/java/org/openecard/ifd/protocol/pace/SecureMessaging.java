@@ -22,38 +22,53 @@
 
 package org.openecard.ifd.protocol.pace;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.math.BigInteger;
 import java.security.GeneralSecurityException;
-import java.security.Key;
-import java.security.spec.AlgorithmParameterSpec;
-import javax.crypto.Cipher;
-import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
-import org.openecard.bouncycastle.crypto.engines.AESFastEngine;
+import java.util.Arrays;
+import org.openecard.bouncycastle.crypto.engines.AESEngine;
 import org.openecard.bouncycastle.crypto.macs.CMac;
+import org.openecard.bouncycastle.crypto.modes.CBCBlockCipher;
 import org.openecard.bouncycastle.crypto.params.KeyParameter;
+import org.openecard.bouncycastle.crypto.params.ParametersWithIV;
 import org.openecard.common.apdu.common.CardCommandAPDU;
-import org.openecard.common.tlv.TLV;
-import org.openecard.common.util.ByteUtils;
 
 
 /**
  * Implements Secure Messaging according to ISO/IEC 7816-4.
+ * <p>An instance belongs to one Secure Messaging session. The ciphers and the MAC are initialised with the session
+ * keys once, and the protected APDUs are encoded directly into the resulting byte array, so that only the result is
+ * allocated per APDU.</p>
  *
  * @author Moritz Horsch
  */
 public class SecureMessaging {
 
-    private static final byte[] NULL = new byte[]{0x00};
+    private static final int BLOCK_SIZE = 16;
+    private static final int MAC_SIZE = 8;
     // ISO/IEC 7816-4 padding tag
     private static final byte PAD = (byte) 0x80;
+    // padding appended to the MAC input
+    private static final byte[] PADDING = new byte[BLOCK_SIZE];
+    private static final String MALFORMED = "Malformed Secure Messaging APDU";
+
+    static {
+	PADDING[0] = PAD;
+    }
+
     // Send Sequence Counter. See BSI-TR-03110 section F.3.
     private final byte[] secureMessagingSSC;
-    // Keys for encryption and message authentication.
-    private final byte[] keyMAC, keyENC;
+
+    // Ciphers and MAC initialised with the session keys
+    private final AESEngine ivCipher;
+    private final CBCBlockCipher encCipher;
+    private final CBCBlockCipher decCipher;
+    private final CMac cmac;
+
+    // working buffers, reused for every APDU
+    private final byte[] iv = new byte[BLOCK_SIZE];
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private final byte[] mac = new byte[BLOCK_SIZE];
+    private byte[] buffer = new byte[256];
 
     /**
      * Instantiates a new secure messaging.
@@ -62,8 +77,16 @@ public class SecureMessaging {
      * @param keyENC Key for encryption
      */
     public SecureMessaging(byte[] keyMAC, byte[] keyENC) {
-	this.keyENC = keyENC;
-	this.keyMAC = keyMAC;
+	KeyParameter encKey = new KeyParameter(keyENC);
+	ivCipher = new AESEngine();
+	ivCipher.init(true, encKey);
+	encCipher = new CBCBlockCipher(new AESEngine());
+	encCipher.init(true, new ParametersWithIV(encKey, iv));
+	decCipher = new CBCBlockCipher(new AESEngine());
+	decCipher.init(false, new ParametersWithIV(encKey, iv));
+
+	cmac = new CMac(new AESEngine());
+	cmac.init(new KeyParameter(keyMAC));
 
 	secureMessagingSSC = new byte[16];
     }
@@ -75,7 +98,7 @@ public class SecureMessaging {
      * @return Encrypted APDU
      * @throws Exception
      */
-    public byte[] encrypt(byte[] apdu) throws Exception {
+    public synchronized byte[] encrypt(byte[] apdu) throws Exception {
 	incrementSSC(secureMessagingSSC);
 	byte[] commandAPDU = encrypt(apdu, secureMessagingSSC);
 	incrementSSC(secureMessagingSSC);
@@ -92,7 +115,6 @@ public class SecureMessaging {
      * @throws Exception
      */
     private byte[] encrypt(byte[] apdu, byte[] secureMessagingSSC) throws Exception {
-	ByteArrayOutputStream baos = new ByteArrayOutputStream();
 	CardCommandAPDU cAPDU = new CardCommandAPDU(apdu);
 
 	if (cAPDU.isSecureMessaging()) {
@@ -104,73 +126,80 @@ public class SecureMessaging {
 	int lc = cAPDU.getLC();
 	int le = cAPDU.getLE();
 
-	if (data.length > 0) {
-	    data = pad(data, 16);
+	// calculate the size of the data objects DO87, DO97 and DO8E
+	int cryptLen = data.length > 0 ? paddedLength(data.length) : 0;
+	int do87Len = data.length > 0 ? 1 + lengthSize(cryptLen + 1) + 1 + cryptLen : 0;
+	int leLen = le > 0x100 ? 2 : 1;
+	int do97Len = le >= 0 ? 2 + leLen : 0;
+	int secureLen = do87Len + do97Len + 2 + MAC_SIZE;
+
+	// LE is set to 0x00 or in case of extended length 0x00 0x00
+	boolean extendedLe = (lc > 0xFF) || (le > 0x100);
+	boolean extendedLc = extendedLe || secureLen > 0xFF;
+	int lcSize = extendedLc ? 3 : 1;
+	int leSize = extendedLc ? 2 : 1;
+
+	byte[] result = new byte[4 + lcSize + secureLen + leSize];
+	System.arraycopy(header, 0, result, 0, 4);
+	// Indicate Secure Messaging
+	// note: must be done before mac calculation
+	result[0] |= 0x0C;
 
-	    // Encrypt data
-	    Cipher c = getCipher(secureMessagingSSC, Cipher.ENCRYPT_MODE);
-	    byte[] dataEncrypted = c.doFinal(data);
+	int pos = 4;
+	if (extendedLc) {
+	    result[pos++] = 0x00;
+	    result[pos++] = (byte) (secureLen >> 8);
+	}
+	result[pos++] = (byte) secureLen;
 
+	int objStart = pos;
+	if (data.length > 0) {
+	    result[pos++] = (byte) 0x87;
+	    pos = writeLength(result, pos, cryptLen + 1);
 	    // Add padding indicator 0x01
-	    dataEncrypted = ByteUtils.concatenate((byte) 0x01, dataEncrypted);
-
-	    TLV dataObject = new TLV();
-	    dataObject.setTagNumWithClass((byte) 0x87);
-	    dataObject.setValue(dataEncrypted);
-	    baos.write(dataObject.toBER());
+	    result[pos++] = 0x01;
+	    // pad and encrypt data in place
+	    System.arraycopy(data, 0, result, pos, data.length);
+	    result[pos + data.length] = PAD;
+	    processBlocks(encCipher, true, secureMessagingSSC, result, pos, result, pos, cryptLen);
+	    pos += cryptLen;
 	}
 
 	// Write protected LE
 	if (le >= 0) {
-	    TLV leObject = new TLV();
-	    leObject.setTagNumWithClass((byte) 0x97);
-	    if (le == 0x100) {
-		leObject.setValue(NULL);
-	    } else if (le > 0x100) {
-		leObject.setValue(new byte[]{(byte) ((le >> 8) & 0xFF), (byte) (le & 0xFF)});
-	    } else {
-		leObject.setValue(new byte[]{(byte) le});
+	    result[pos++] = (byte) 0x97;
+	    result[pos++] = (byte) leLen;
+	    if (le > 0x100) {
+		result[pos++] = (byte) (le >> 8);
 	    }
-	    baos.write(leObject.toBER());
+	    result[pos++] = (byte) le;
 	}
 
-	// Indicate Secure Messaging
-	// note: must be done before mac calculation
-	header[0] |= 0x0C;
-
 	/*
 	 * Calculate MAC
 	 */
-	byte[] mac = new byte[16];
-	CMac cmac = getCMAC(secureMessagingSSC);
-
-	byte[] paddedHeader = pad(header, 16);
-	cmac.update(paddedHeader, 0, paddedHeader.length);
-
-	if (baos.size() > 0) {
-	    byte[] paddedData = pad(baos.toByteArray(), 16);
-	    cmac.update(paddedData, 0, paddedData.length);
+	cmac.reset();
+	cmac.update(secureMessagingSSC, 0, secureMessagingSSC.length);
+	System.arraycopy(result, 0, block, 0, 4);
+	System.arraycopy(PADDING, 0, block, 4, BLOCK_SIZE - 4);
+	cmac.update(block, 0, BLOCK_SIZE);
+	if (pos > objStart) {
+	    updatePadded(result, objStart, pos - objStart);
 	}
-
 	cmac.doFinal(mac, 0);
-	mac = ByteUtils.copy(mac, 0, 8);
 
-	//
-	// Build APDU
-	TLV macStructure = new TLV();
-	macStructure.setTagNumWithClass((byte) 0x8E);
-	macStructure.setValue(mac);	
-	byte[] secureData = ByteUtils.concatenate(baos.toByteArray(), macStructure.toBER());
+	result[pos++] = (byte) 0x8E;
+	result[pos++] = MAC_SIZE;
+	System.arraycopy(mac, 0, result, pos, MAC_SIZE);
+	pos += MAC_SIZE;
 
-	CardCommandAPDU secureCommand = new CardCommandAPDU(header[0], header[1], header[2], header[3], secureData);
 	// set LE explicitely to 0x00 or in case of extended length 0x00 0x00
-	if ((lc > 0xFF) || (le > 0x100)) {
-	    secureCommand.setLE(65536);
-	} else {
-	    secureCommand.setLE(256);
+	if (extendedLc && ! extendedLe) {
+	    // short LE of 256 after an extended LC
+	    result[pos] = 0x01;
 	}
 
-	return secureCommand.toByteArray();
+	return result;
     }
 
     /**
@@ -180,7 +209,7 @@ public class SecureMessaging {
      * @return the byte[]
      * @throws Exception the exception
      */
-    public byte[] decrypt(byte[] response) throws Exception {
+    public synchronized byte[] decrypt(byte[] response) throws Exception {
 	if (response.length < 12) {
 	    throw new IllegalArgumentException("Malformed Secure Messaging APDU.");
 	}
@@ -196,15 +225,12 @@ public class SecureMessaging {
      * @throws Exception the exception
      */
     private byte[] decrypt(byte[] response, byte[] secureMessagingSSC) throws Exception {
-	ByteArrayInputStream bais = new ByteArrayInputStream(response);
-	ByteArrayOutputStream baos = new ByteArrayOutputStream(response.length - 10);
-
-	// Status bytes of the response APDU. MUST be 2 bytes.
-	byte[] statusBytes = new byte[2];
+	// the data objects are followed by the status bytes of the response APDU
+	int end = response.length - 2;
+	int pos = 0;
 	// Padding-content indicator followed by cryptogram 0x87.
-	byte[] dataObject = null;
-	// Cryptographic checksum 0x8E. MUST be 8 bytes.
-	byte[] macObject = new byte[8];
+	int cryptOff = -1;
+	int cryptLen = 0;
 
 	/*
 	 * Read APDU structure
@@ -213,90 +239,81 @@ public class SecureMessaging {
 	 * Case 3: DO99|DO8E|SW1SW2
 	 * Case 4: DO87|DO99|DO8E|SW1SW2
 	 */
-	byte tag = (byte) bais.read();
 
 	// Read data object (OPTIONAL)
-	if (tag == (byte) 0x87) {
-	    int size = bais.read();
+	if (response[pos] == (byte) 0x87) {
+	    pos++;
+	    int size = response[pos++] & 0xFF;
 	    if (size > 0x80) {
-		byte[] sizeBytes = new byte[size & 0x0F];
-		bais.read(sizeBytes, 0, sizeBytes.length);
-		size = new BigInteger(1, sizeBytes).intValue();
+		int numBytes = size & 0x0F;
+		if (pos + numBytes > end) {
+		    throw new IOException(MALFORMED);
+		}
+		size = 0;
+		for (int i = 0; i < numBytes; i++) {
+		    size = (size << 8) | (response[pos++] & 0xFF);
+		}
 	    }
-	    bais.skip(1); // Skip encryption header
-	    dataObject = new byte[size - 1];
-	    bais.read(dataObject, 0, dataObject.length);
-
-	    tag = (byte) bais.read();
-	}
-
-	// Read processing status (REQUIRED)
-	if (tag == (byte) 0x99) {
-	    if (bais.read() == (byte) 0x02) {
-		bais.read(statusBytes, 0, 2);
-		tag = (byte) bais.read();
+	    if (size < 1 || size > end - pos) {
+		throw new IOException(MALFORMED);
 	    }
-	} else {
-	    throw new IOException("Malformed Secure Messaging APDU");
+	    // Skip encryption header
+	    cryptOff = pos + 1;
+	    cryptLen = size - 1;
+	    pos += size;
 	}
 
-	// Read MAC (REQUIRED)
-	if (tag == (byte) 0x8E) {
-	    if (bais.read() == (byte) 0x08) {
-		bais.read(macObject, 0, 8);
-	    }
-	} else {
-	    throw new IOException("Malformed Secure Messaging APDU");
+	// Read processing status (REQUIRED)
+	if (pos + 4 > end || response[pos] != (byte) 0x99 || response[pos + 1] != 0x02) {
+	    throw new IOException(MALFORMED);
 	}
+	int statusOff = pos + 2;
+	pos += 4;
 
-	// Only 2 bytes status should remain
-	if (bais.available() != 2) {
-	    throw new IOException("Malformed Secure Messaging APDU");
+	// Read MAC (REQUIRED), only 2 bytes status may follow
+	int macDataLen = pos;
+	if (pos + 2 + MAC_SIZE != end || response[pos] != (byte) 0x8E || response[pos + 1] != MAC_SIZE) {
+	    throw new IOException(MALFORMED);
 	}
+	int macOff = pos + 2;
 
-	// Calculate MAC for verification
-	CMac cmac = getCMAC(secureMessagingSSC);
-	byte[] mac = new byte[16];
-
-	synchronized (cmac) {
-	    ByteArrayOutputStream macData = new ByteArrayOutputStream();
-
-	    // Write padding-content
-	    if (dataObject != null) {
-		TLV paddedDataObject = new TLV();
-		paddedDataObject.setTagNumWithClass((byte) 0x87);
-		paddedDataObject.setValue(ByteUtils.concatenate((byte) 0x01, dataObject));
-		macData.write(paddedDataObject.toBER());
-	    }
-	    // Write status bytes
-	    TLV statusBytesObject = new TLV();
-	    statusBytesObject.setTagNumWithClass((byte) 0x99);
-	    statusBytesObject.setValue(statusBytes);
-	    macData.write(statusBytesObject.toBER());
-
-	    byte[] paddedData = pad(macData.toByteArray(), 16);
-	    cmac.update(paddedData, 0, paddedData.length);
-
-	    cmac.doFinal(mac, 0);
-	    mac = ByteUtils.copy(mac, 0, 8);
-	}
+	// Calculate MAC over DO87 and DO99 for verification
+	cmac.reset();
+	cmac.update(secureMessagingSSC, 0, secureMessagingSSC.length);
+	updatePadded(response, 0, macDataLen);
+	cmac.doFinal(mac, 0);
 
 	// Verify MAC
-	if (!ByteUtils.compare(mac, macObject)) {
+	int diff = 0;
+	for (int i = 0; i < MAC_SIZE; i++) {
+	    diff |= mac[i] ^ response[macOff + i];
+	}
+	if (diff != 0) {
 	    throw new GeneralSecurityException("Secure Messaging MAC verification failed");
 	}
 
 	// Decrypt data
-	if (dataObject != null) {
-	    Cipher c = getCipher(secureMessagingSSC, Cipher.DECRYPT_MODE);
-	    byte[] data_decrypted = c.doFinal(dataObject);
-	    baos.write(unpad(data_decrypted));
+	int dataLen = 0;
+	if (cryptOff >= 0) {
+	    if (cryptLen % BLOCK_SIZE != 0) {
+		throw new GeneralSecurityException("Secure Messaging cryptogram is not a multiple of the block size.");
+	    }
+	    if (buffer.length < cryptLen) {
+		buffer = new byte[cryptLen];
+	    }
+	    processBlocks(decCipher, false, secureMessagingSSC, response, cryptOff, buffer, 0, cryptLen);
+	    dataLen = unpad(buffer, cryptLen);
 	}
 
 	// Add status code
-	baos.write(statusBytes);
+	byte[] result = new byte[dataLen + 2];
+	System.arraycopy(buffer, 0, result, 0, dataLen);
+	result[dataLen] = response[statusOff];
+	result[dataLen + 1] = response[statusOff + 1];
+	// don't keep plaintext in the buffer longer than needed
+	Arrays.fill(buffer, 0, cryptLen, (byte) 0);
 
-	return baos.toByteArray();
+	return result;
     }
 
     /**
@@ -317,86 +334,104 @@ public class SecureMessaging {
      * Cipher functions
      */
     /**
-     * Gets the cipher for de/encryption.
+     * De- or encrypts the given blocks with the IV derived from the SSC.
+     * Input and output may be the same array.
      *
+     * @param cipher the CBC cipher which is already initialised with the encryption key
+     * @param encrypt {@code true} if the cipher is used for encryption
      * @param smssc the Secure Messaging Send Sequence Counter
-     * @param mode the mode indicating de/encryption
-     * @return the cipher
-     * @throws Exception the exception
+     * @param in input data
+     * @param inOff offset of the input data
+     * @param out output data
+     * @param outOff offset of the output data
+     * @param len length of the data, must be a multiple of the block size
      */
-    private Cipher getCipher(byte[] smssc, int mode) throws Exception {
-	Cipher c = Cipher.getInstance("AES/CBC/NoPadding");
-	Key key = new SecretKeySpec(keyENC, "AES");
-	byte[] iv = getCipherIV(smssc);
-	AlgorithmParameterSpec algoPara = new IvParameterSpec(iv);
-
-	c.init(mode, key, algoPara);
-
-	return c;
-    }
-
-    /**
-     * Gets the Initialization Vector (IV) for the cipher.
-     *
-     * @param smssc Secure Messaging Send Sequence Counter
-     * @return Initialization Vector
-     * @throws Exception
-     */
-    private byte[] getCipherIV(byte[] smssc) throws Exception {
-	Cipher c = Cipher.getInstance("AES/ECB/NoPadding");
-	Key key = new SecretKeySpec(keyENC, "AES");
-
-	c.init(Cipher.ENCRYPT_MODE, key);
-
-	return c.doFinal(smssc);
+    private void processBlocks(CBCBlockCipher cipher, boolean encrypt, byte[] smssc, byte[] in, int inOff,
+	    byte[] out, int outOff, int len) {
+	// Initialization Vector (IV) is the encrypted SSC, the key stays the same
+	ivCipher.processBlock(smssc, 0, iv, 0);
+	cipher.init(encrypt, new ParametersWithIV(null, iv));
+
+	for (int i = 0; i < len; i += BLOCK_SIZE) {
+	    cipher.processBlock(in, inOff + i, out, outOff + i);
+	}
     }
 
     /**
-     * Gets the CMAC.
+     * Feeds the data followed by the ISO/IEC 7816-4 padding into the CMAC.
      *
-     * @param smssc Secure Messaging Send Sequence Counter
-     * @return CMAC
+     * @param data data array
+     * @param off offset of the data
+     * @param len length of the data
      */
-    private CMac getCMAC(byte[] smssc) {
-	CMac cmac = new CMac(new AESFastEngine());
-	cmac.init(new KeyParameter(keyMAC));
-	cmac.update(smssc, 0, smssc.length);
-
-	return cmac;
+    private void updatePadded(byte[] data, int off, int len) {
+	cmac.update(data, off, len);
+	cmac.update(PADDING, 0, BLOCK_SIZE - len % BLOCK_SIZE);
     }
 
     /*
-     * ISO/IEC 7816-4 padding functions
+     * ISO/IEC 7816-4 padding and encoding functions
      */
     /**
-     * Padding the data.
+     * Calculates the length of the padded data.
      *
-     * @param data Unpadded data
-     * @param blockSize Block size
-     * @return Padded data
+     * @param len Length of the unpadded data
+     * @return Length of the padded data
      */
-    private byte[] pad(byte[] data, int blockSize) {
-	byte[] result = new byte[data.length + (blockSize - data.length % blockSize)];
-	System.arraycopy(data, 0, result, 0, data.length);
-	result[data.length] = PAD;
-
-	return result;
+    private static int paddedLength(int len) {
+	return len + (BLOCK_SIZE - len % BLOCK_SIZE);
     }
 
     /**
      * Unpadding the data.
      *
      * @param data Padded data
-     * @return Unpadded data
+     * @param len Length of the padded data
+     * @return Length of the unpadded data
      */
-    private byte[] unpad(byte[] data) {
-	for (int i = data.length - 1; i >= 0; i--) {
+    private static int unpad(byte[] data, int len) {
+	for (int i = len - 1; i >= 0; i--) {
 	    if (data[i] == PAD) {
-		return ByteUtils.copy(data, 0, i);
+		return i;
 	    }
 	}
 
-	return data;
+	return len;
+    }
+
+    /**
+     * Calculates the number of bytes of a BER encoded length field.
+     *
+     * @param len Length value
+     * @return Number of bytes of the length field
+     */
+    private static int lengthSize(int len) {
+	if (len <= 0x7F) {
+	    return 1;
+	} else if (len <= 0xFF) {
+	    return 2;
+	} else {
+	    return 3;
+	}
+    }
+
+    /**
+     * Writes a BER encoded length field.
+     *
+     * @param out output array
+     * @param pos position of the length field
+     * @param len Length value
+     * @return Position after the length field
+     */
+    private static int writeLength(byte[] out, int pos, int len) {
+	if (len > 0xFF) {
+	    out[pos++] = (byte) 0x82;
+	    out[pos++] = (byte) (len >> 8);
+	} else if (len > 0x7F) {
+	    out[pos++] = (byte) 0x81;
+	}
+	out[pos++] = (byte) len;
+	return pos;
     }
 
 }
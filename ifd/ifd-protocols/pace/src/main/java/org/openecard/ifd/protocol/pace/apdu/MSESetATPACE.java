@@ -22,12 +22,9 @@
 
 package org.openecard.ifd.protocol.pace.apdu;
 
-import java.io.IOException;
 import java.math.BigInteger;
 import org.openecard.common.apdu.ManageSecurityEnvironment;
-import org.openecard.common.apdu.common.CardAPDUOutputStream;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.openecard.common.tlv.TLVWriter;
 
 
 /**
@@ -40,8 +37,6 @@ import org.slf4j.LoggerFactory;
  */
 public final class MSESetATPACE extends ManageSecurityEnvironment.Set {
 
-    private static final Logger logger = LoggerFactory.getLogger(MSESetATPACE.class);
-
     /**
      * Creates a new MSE:Set AT APDU for PACE.
      */
@@ -71,30 +66,19 @@ public final class MSESetATPACE extends ManageSecurityEnvironment.Set {
     public MSESetATPACE(byte[] oID, byte passwordID, int domainParamId, byte[] chat) {
 	super((byte) 0xC1, AT);
 
-	CardAPDUOutputStream caos = new CardAPDUOutputStream();
-	try {
-	    caos.writeTLV((byte) 0x80, oID);
-	    caos.writeTLV((byte) 0x83, passwordID);
-	    if (domainParamId != -1) {
-		byte[] domainParamVal = BigInteger.valueOf(domainParamId).toByteArray();
-		caos.writeTLV((byte) 0x84, domainParamVal);
-	    }
-
-	    if (chat != null) {
-		caos.write(chat);
-	    }
+	TLVWriter writer = new TLVWriter();
+	writer.writeTLV(0x80, oID);
+	writer.writeTLV(0x83, passwordID);
+	if (domainParamId != -1) {
+	    byte[] domainParamVal = BigInteger.valueOf(domainParamId).toByteArray();
+	    writer.writeTLV(0x84, domainParamVal);
+	}
 
-	    caos.flush();
-	} catch (IOException ex) {
-	    logger.error(ex.getMessage(), ex);
-	} finally {
-	    try {
-		caos.close();
-	    } catch (IOException ignore) {
-	    }
+	if (chat != null) {
+	    writer.write(chat);
 	}
 
-	setData(caos.toByteArray());
+	setData(writer.toByteArray());
     }
 
 }
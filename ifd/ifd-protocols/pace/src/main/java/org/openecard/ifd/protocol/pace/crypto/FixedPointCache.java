@@ -0,0 +1,99 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ifd.protocol.pace.crypto;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.openecard.bouncycastle.jce.spec.ECParameterSpec;
+import org.openecard.bouncycastle.math.ec.ECMultiplier;
+import org.openecard.bouncycastle.math.ec.ECPoint;
+import org.openecard.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.openecard.bouncycastle.math.ec.FixedPointUtil;
+
+
+/**
+ * Cache of precomputed generators for fixed-base point multiplication.
+ * <p>The generators of the standardised domain parameters are the same in every PACE run. The comb table of such a
+ * generator is computed once and reused for all following multiplications with the generator. Only generators which
+ * are used repeatedly should be passed to this class, as computing the table costs more than a single
+ * multiplication. The mapped generator of a PACE run is therefore not cached.</p>
+ *
+ * @author agent
+ */
+final class FixedPointCache {
+
+    private static final int MAX_ENTRIES = 16;
+    private static final ECMultiplier MULTIPLIER = new FixedPointCombMultiplier();
+
+    private static final Map<ECPoint, ECPoint> GENERATORS = new LinkedHashMap<ECPoint, ECPoint>(16, 0.75f, true) {
+	private static final long serialVersionUID = 1L;
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<ECPoint, ECPoint> eldest) {
+	    return size() > MAX_ENTRIES;
+	}
+    };
+
+    private FixedPointCache() {
+    }
+
+    /**
+     * Multiplies the generator of the given domain parameters with the given scalar.
+     *
+     * @param p Domain parameters whose generator is reused across PACE runs.
+     * @param k Scalar to multiply the generator with.
+     * @return The normalized point {@code k * G}.
+     */
+    static ECPoint multiplyGenerator(ECParameterSpec p, BigInteger k) {
+	ECPoint g = getGenerator(p.getG());
+	return MULTIPLIER.multiply(g, k).normalize();
+    }
+
+    /**
+     * Gets the cached instance of the generator with its precomputed table attached.
+     *
+     * @param g Generator of the domain parameters.
+     * @return Generator equal to the given one, which carries the precomputed table.
+     */
+    static ECPoint getGenerator(ECPoint g) {
+	ECPoint cached;
+	synchronized (GENERATORS) {
+	    cached = GENERATORS.get(g);
+	}
+	if (cached == null) {
+	    // computing the table takes a while, so do it outside of the lock
+	    cached = g.normalize();
+	    FixedPointUtil.precompute(cached);
+	    synchronized (GENERATORS) {
+		ECPoint other = GENERATORS.get(g);
+		if (other != null) {
+		    cached = other;
+		} else {
+		    GENERATORS.put(cached, cached);
+		}
+	    }
+	}
+	return cached;
+    }
+
+}
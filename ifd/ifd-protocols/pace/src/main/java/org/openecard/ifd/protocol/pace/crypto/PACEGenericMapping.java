@@ -48,7 +48,8 @@ public final class PACEGenericMapping extends PACEMapping {
     public PACEGenericMapping(PACEDomainParameter pdp) {
 	super(pdp);
 
-	mapKey = new PACEKey(pdp);
+	// the mapping key is based on the unmapped generator, which is the same in every PACE run
+	mapKey = new PACEKey(pdp, true);
 	mapKey.generateKeyPair();
     }
 
@@ -63,7 +64,7 @@ public final class PACEGenericMapping extends PACEMapping {
 	    BigInteger s = new BigInteger(1, keyPCD);
 
 	    ECPoint h = pkMapPICC.multiply(p.getH().multiply(d));
-	    ECPoint newG = p.getG().multiply(s).add(h);
+	    ECPoint newG = FixedPointCache.multiplyGenerator(p, s).add(h);
 
 	    ECParameterSpec parameter = new ECParameterSpec(p.getCurve(), newG, p.getN(), p.getH());
 	    pdp.setParameter(parameter);
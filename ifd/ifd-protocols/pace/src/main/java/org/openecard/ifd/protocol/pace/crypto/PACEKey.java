@@ -36,7 +36,7 @@ import org.openecard.bouncycastle.crypto.params.ElGamalPublicKeyParameters;
 import org.openecard.bouncycastle.jce.spec.ECParameterSpec;
 import org.openecard.bouncycastle.jce.spec.ElGamalParameterSpec;
 import org.openecard.bouncycastle.math.ec.ECPoint;
-import org.openecard.common.tlv.TLV;
+import org.openecard.common.tlv.TLVView;
 import org.openecard.common.util.ByteUtils;
 import org.openecard.common.util.SecureRandomFactory;
 import org.openecard.crypto.common.asn1.eac.PACEDomainParameter;
@@ -69,6 +69,7 @@ public final class PACEKey {
     private AsymmetricKeyParameter sk;
     private AsymmetricKeyParameter pk;
     private final PACEDomainParameter pdp;
+    private final boolean fixedBase;
 
     /**
      * Creates a new key for PACE.
@@ -76,7 +77,19 @@ public final class PACEKey {
      * @param pdp PACEDomainParameter
      */
     public PACEKey(PACEDomainParameter pdp) {
+	this(pdp, false);
+    }
+
+    /**
+     * Creates a new key for PACE.
+     *
+     * @param pdp PACEDomainParameter
+     * @param fixedBase True if the generator of the domain parameter is used in every PACE run, so that its
+     *   precomputed table can be used to generate the key pair.
+     */
+    PACEKey(PACEDomainParameter pdp, boolean fixedBase) {
 	this.pdp = pdp;
+	this.fixedBase = fixedBase;
     }
 
     /**
@@ -90,7 +103,8 @@ public final class PACEKey {
 	byte[] keyBytes;
 
 	if (data[0] == (byte) 0x7C) {
-	    keyBytes = TLV.fromBER(data).getChild().getValue();
+	    TLVView tlv = TLVView.parse(data);
+	    keyBytes = tlv.getValue(tlv.getChild(tlv.getFirst()));
 	} else if (data[0] != 04) {
 	    keyBytes = ByteUtils.concatenate((byte) 0x04, data);
 	} else {
@@ -133,8 +147,10 @@ public final class PACEKey {
 	    BigInteger d = new BigInteger(numBits, rand);
 	    ECDomainParameters ecp = new ECDomainParameters(p.getCurve(), p.getG(), p.getN(), p.getH());
 
+	    ECPoint q = fixedBase ? FixedPointCache.multiplyGenerator(p, d) : ecp.getG().multiply(d);
+
 	    sk = new ECPrivateKeyParameters(d, ecp);
-	    pk = new ECPublicKeyParameters(ecp.getG().multiply(d), ecp);
+	    pk = new ECPublicKeyParameters(q, ecp);
 	} else {
 	    throw new IllegalArgumentException();
 	}
@@ -22,7 +22,20 @@
 
 package org.openecard.ifd.protocol.pace;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.openecard.bouncycastle.crypto.engines.AESEngine;
+import org.openecard.bouncycastle.crypto.macs.CMac;
+import org.openecard.bouncycastle.crypto.params.KeyParameter;
+import org.openecard.common.util.ByteUtils;
 import org.openecard.common.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -33,6 +46,12 @@ import org.testng.annotations.Test;
  */
 public class SecureMessagingTest {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SecureMessagingTest.class);
+
+    private static final byte[] KEY_ENC = StringUtils.toByteArray("68 40 6B 41 62 10 05 63 D9 C9 01 A6 15 4D 29 01", true);
+    private static final byte[] KEY_MAC = StringUtils.toByteArray("73 FF 26 87 84 F7 2A F8 33 FD C9 46 40 49 AF C9", true);
+    private static final byte[] SW_OK = new byte[] { (byte) 0x90, 0x00 };
+
     @Test
     public void testDecryption() throws Exception {
 	//
@@ -207,4 +226,285 @@ public class SecureMessagingTest {
 	}
     }
 
+    /**
+     * Compares the protected commands with the ones of the previous TLV based implementation.
+     * Both instances are used for all commands, so that the send sequence counters advance in the same way.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testEncryptionMatchesReference() throws Exception {
+	SecureMessaging sm = new SecureMessaging(KEY_MAC, KEY_ENC);
+	ReferenceSecureMessaging ref = new ReferenceSecureMessaging(KEY_MAC, KEY_ENC);
+
+	byte[][] commands = new byte[][] {
+	    // no data, short Le, Le=00, extended Le, extended Le=0000
+	    command(0, -1),
+	    command(0, 8),
+	    command(0, 0x100),
+	    command(0, 0x200),
+	    command(0, 0x10000),
+	    // short Lc, DO87 with one byte length
+	    command(15, -1),
+	    command(15, 8),
+	    command(15, 0x100),
+	    command(15, 0x10000),
+	    // short Lc, DO87 with 0x81 length
+	    command(120, -1),
+	    command(120, 0x100),
+	    // short Lc, DO87 with 0x82 length, the protected command needs an extended Lc
+	    command(240, -1),
+	    command(240, 0x20),
+	    command(240, 0x100),
+	    command(255, 0x100),
+	    // extended Lc
+	    command(300, -1),
+	    command(300, 0x100),
+	    command(300, 0x10000),
+	};
+	for (byte[] cmd : commands) {
+	    Assert.assertEquals(sm.encrypt(cmd), ref.encrypt(cmd), ByteUtils.toHexString(cmd));
+	}
+    }
+
+    /**
+     * Compares the unprotected responses with the ones of the previous TLV based implementation.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDecryptionMatchesReference() throws Exception {
+	SecureMessaging sm = new SecureMessaging(KEY_MAC, KEY_ENC);
+	ReferenceSecureMessaging ref = new ReferenceSecureMessaging(KEY_MAC, KEY_ENC);
+	// advance the send sequence counter of both instances to 2
+	sm.encrypt(command(0, 0x100));
+	ref.encrypt(command(0, 0x100));
+	byte[] ssc = ssc(2);
+
+	// no data, DO87 with one byte length, 0x81 length and 0x82 length
+	for (int len : new int[] { -1, 0, 5, 16, 111, 112, 120, 240, 300 }) {
+	    for (byte[] sw : new byte[][] { SW_OK, { 0x62, (byte) 0x82 } }) {
+		byte[] data = len < 0 ? null : data(len);
+		byte[] response = wrapResponse(KEY_MAC, KEY_ENC, ssc, data, sw);
+		byte[] expected = concat(data == null ? new byte[0] : data, sw);
+
+		Assert.assertEquals(sm.decrypt(response), expected, "Data length " + len);
+		Assert.assertEquals(ref.decrypt(response), expected, "Data length " + len);
+	    }
+	}
+    }
+
+    @Test
+    public void testMalformedResponses() throws Exception {
+	SecureMessaging sm = new SecureMessaging(KEY_MAC, KEY_ENC);
+	byte[] valid = wrapResponse(KEY_MAC, KEY_ENC, ssc(0), data(20), SW_OK);
+	String mac = ByteUtils.toHexString(Arrays.copyOfRange(valid, valid.length - 10, valid.length - 2));
+
+	// DO99 with wrong length
+	assertRejected(sm, StringUtils.toByteArray("9903900000" + "8E08" + mac + "9000"), IOException.class);
+	assertRejected(sm, StringUtils.toByteArray("990190" + "8E08" + mac + "9000"), IOException.class);
+	// DO99 missing or with wrong tag
+	assertRejected(sm, StringUtils.toByteArray("8E08" + mac + "9000" + "9000"), IOException.class);
+	assertRejected(sm, StringUtils.toByteArray("98029000" + "8E08" + mac + "9000"), IOException.class);
+	// DO8E with wrong length, missing, or followed by more than the status bytes
+	assertRejected(sm, StringUtils.toByteArray("99029000" + "8E07" + mac.substring(2) + "9000"), IOException.class);
+	assertRejected(sm, StringUtils.toByteArray("99029000" + "9000" + "9000" + "9000" + "9000"), IOException.class);
+	assertRejected(sm, concat(Arrays.copyOf(valid, valid.length - 2), StringUtils.toByteArray("009000")),
+		IOException.class);
+	// DO87 length exceeding the response
+	byte[] longDo87 = valid.clone();
+	longDo87[1] = (byte) 0x7F;
+	assertRejected(sm, longDo87, IOException.class);
+	byte[] longLengthDo87 = concat(StringUtils.toByteArray("8782FFFF01"), Arrays.copyOfRange(valid, 3, valid.length));
+	assertRejected(sm, longLengthDo87, IOException.class);
+
+	// the rejected responses leave the state untouched
+	Assert.assertEquals(sm.decrypt(valid), concat(data(20), SW_OK));
+    }
+
+    @Test
+    public void testMacMismatch() throws Exception {
+	SecureMessaging sm = new SecureMessaging(KEY_MAC, KEY_ENC);
+	ReferenceSecureMessaging ref = new ReferenceSecureMessaging(KEY_MAC, KEY_ENC);
+	Assert.assertEquals(sm.encrypt(command(15, 8)), ref.encrypt(command(15, 8)));
+
+	byte[] valid = wrapResponse(KEY_MAC, KEY_ENC, ssc(2), data(8), SW_OK);
+	byte[] tampered = valid.clone();
+	tampered[tampered.length - 3] ^= 0x01;
+	assertRejected(sm, tampered, GeneralSecurityException.class);
+	// a response protected with an old counter is rejected as well
+	assertRejected(sm, wrapResponse(KEY_MAC, KEY_ENC, ssc(0), data(8), SW_OK), GeneralSecurityException.class);
+
+	// the failed verifications must not advance the send sequence counter
+	Assert.assertEquals(sm.decrypt(valid), concat(data(8), SW_OK));
+	Assert.assertEquals(sm.encrypt(command(15, 8)), ref.encrypt(command(15, 8)));
+    }
+
+    @Test(groups = "benchmark")
+    public void benchmarkSecureMessaging() throws Exception {
+	// READ BINARY, MSE:Set AT sized command and UPDATE BINARY with a full short APDU
+	byte[][] commands = new byte[][] {
+	    StringUtils.toByteArray("00B08100DF"),
+	    command(32, -1),
+	    command(223, -1)
+	};
+	// response of a READ BINARY, the SSC is not changed by decrypt
+	byte[] response = wrapResponse(KEY_MAC, KEY_ENC, ssc(0), data(223), SW_OK);
+	final int warmup = 20_000;
+	final int rounds = 100_000;
+
+	for (boolean reference : new boolean[] { true, false }) {
+	    SecureMessaging sm = new SecureMessaging(KEY_MAC, KEY_ENC);
+	    ReferenceSecureMessaging ref = new ReferenceSecureMessaging(KEY_MAC, KEY_ENC);
+	    String name = reference ? "TLV based" : "current";
+
+	    long sink = 0;
+	    for (int i = 0; i < warmup; i++) {
+		for (byte[] cmd : commands) {
+		    sink += (reference ? ref.encrypt(cmd) : sm.encrypt(cmd)).length;
+		}
+	    }
+	    for (byte[] cmd : commands) {
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+		    sink += (reference ? ref.encrypt(cmd) : sm.encrypt(cmd)).length;
+		}
+		long time = System.nanoTime() - start;
+		LOG.info("{} encrypt {} bytes: {} ns/op.", name, cmd.length, time / rounds);
+	    }
+
+	    SecureMessaging smResp = new SecureMessaging(KEY_MAC, KEY_ENC);
+	    ReferenceSecureMessaging refResp = new ReferenceSecureMessaging(KEY_MAC, KEY_ENC);
+	    for (int i = 0; i < warmup; i++) {
+		sink += (reference ? refResp.decrypt(response) : smResp.decrypt(response)).length;
+	    }
+	    long start = System.nanoTime();
+	    for (int i = 0; i < rounds; i++) {
+		sink += (reference ? refResp.decrypt(response) : smResp.decrypt(response)).length;
+	    }
+	    long time = System.nanoTime() - start;
+	    LOG.info("{} decrypt {} bytes: {} ns/op ({}).", name, response.length, time / rounds, sink);
+	}
+    }
+
+    private static void assertRejected(SecureMessaging sm, byte[] response, Class<? extends Exception> type) {
+	try {
+	    sm.decrypt(response);
+	    Assert.fail("Response " + ByteUtils.toHexString(response) + " has been accepted.");
+	} catch (Exception ex) {
+	    Assert.assertTrue(type.isInstance(ex), "Unexpected exception " + ex);
+	}
+    }
+
+    /**
+     * Creates a plain command APDU.
+     *
+     * @param dataLen Length of the command data.
+     * @param le Expected length, -1 if absent, 0x100 and 0x10000 are encoded as 00 and 0000.
+     * @return The encoded command APDU.
+     */
+    private static byte[] command(int dataLen, int le) {
+	boolean extended = dataLen > 0xFF || le > 0x100;
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	out.write(0x00);
+	out.write(0xD6);
+	out.write(0x00);
+	out.write(0x00);
+	if (dataLen > 0) {
+	    if (extended) {
+		out.write(0x00);
+		out.write(dataLen >> 8);
+	    }
+	    out.write(dataLen);
+	    out.write(data(dataLen), 0, dataLen);
+	}
+	if (le >= 0) {
+	    if (extended) {
+		if (dataLen == 0) {
+		    out.write(0x00);
+		}
+		out.write(le >> 8);
+	    }
+	    out.write(le);
+	}
+	return out.toByteArray();
+    }
+
+    private static byte[] data(int len) {
+	byte[] data = new byte[len];
+	for (int i = 0; i < len; i++) {
+	    data[i] = (byte) (i * 7 + 3);
+	}
+	return data;
+    }
+
+    private static byte[] ssc(int value) {
+	byte[] ssc = new byte[16];
+	ssc[14] = (byte) (value >> 8);
+	ssc[15] = (byte) value;
+	return ssc;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+	byte[] result = Arrays.copyOf(a, a.length + b.length);
+	System.arraycopy(b, 0, result, a.length, b.length);
+	return result;
+    }
+
+    /**
+     * Protects a response like a card, independent of both Secure Messaging implementations.
+     *
+     * @param keyMac Key for message authentication.
+     * @param keyEnc Key for encryption.
+     * @param ssc Send sequence counter of the response.
+     * @param data Response data, {@code null} if the response contains no DO87.
+     * @param sw Status bytes.
+     * @return The protected response APDU.
+     * @throws Exception
+     */
+    private static byte[] wrapResponse(byte[] keyMac, byte[] keyEnc, byte[] ssc, byte[] data, byte[] sw)
+	    throws Exception {
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	if (data != null) {
+	    Cipher ecb = Cipher.getInstance("AES/ECB/NoPadding");
+	    ecb.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(keyEnc, "AES"));
+	    Cipher cbc = Cipher.getInstance("AES/CBC/NoPadding");
+	    cbc.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(keyEnc, "AES"), new IvParameterSpec(ecb.doFinal(ssc)));
+	    byte[] padded = Arrays.copyOf(data, (data.length / 16 + 1) * 16);
+	    padded[data.length] = (byte) 0x80;
+	    byte[] crypt = cbc.doFinal(padded);
+
+	    int len = crypt.length + 1;
+	    out.write(0x87);
+	    if (len > 0xFF) {
+		out.write(0x82);
+		out.write(len >> 8);
+	    } else if (len > 0x7F) {
+		out.write(0x81);
+	    }
+	    out.write(len);
+	    out.write(0x01);
+	    out.write(crypt);
+	}
+	out.write(0x99);
+	out.write(0x02);
+	out.write(sw);
+
+	byte[] macData = out.toByteArray();
+	byte[] macInput = Arrays.copyOf(macData, (macData.length / 16 + 1) * 16);
+	macInput[macData.length] = (byte) 0x80;
+	CMac cmac = new CMac(new AESEngine());
+	cmac.init(new KeyParameter(keyMac));
+	cmac.update(ssc, 0, ssc.length);
+	cmac.update(macInput, 0, macInput.length);
+	byte[] mac = new byte[16];
+	cmac.doFinal(mac, 0);
+
+	out.write(0x8E);
+	out.write(0x08);
+	out.write(mac, 0, 8);
+	out.write(sw);
+	return out.toByteArray();
+    }
+
 }
@@ -0,0 +1,154 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ifd.protocol.pace.crypto;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import org.openecard.bouncycastle.asn1.ASN1Encodable;
+import org.openecard.bouncycastle.asn1.ASN1Integer;
+import org.openecard.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.openecard.bouncycastle.asn1.DERSequence;
+import org.openecard.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.openecard.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.openecard.bouncycastle.jce.spec.ECParameterSpec;
+import org.openecard.bouncycastle.math.ec.ECPoint;
+import org.openecard.crypto.common.asn1.eac.PACEDomainParameter;
+import org.openecard.crypto.common.asn1.eac.PACEInfo;
+import org.openecard.crypto.common.asn1.eac.PACESecurityInfoPair;
+import org.openecard.crypto.common.asn1.eac.oid.PACEObjectIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ *
+ * @author agent
+ */
+public class PACEGenericMappingTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PACEGenericMappingTest.class);
+
+    private static final SecureRandom RAND = new SecureRandom();
+
+    private static PACESecurityInfoPair createInfo(int parameterId) {
+	DERSequence seq = new DERSequence(new ASN1Encodable[] {
+	    new ASN1ObjectIdentifier(PACEObjectIdentifier.id_PACE_ECDH_GM_AES_CBC_CMAC_128),
+	    new ASN1Integer(2),
+	    new ASN1Integer(parameterId)
+	});
+	return new PACESecurityInfoPair(new PACEInfo(seq), null);
+    }
+
+    @Test
+    public void testFixedBaseMultiplication() {
+	// brainpoolP256r1, secp256r1 and brainpoolP320r1
+	for (int id : new int[] { 13, 12, 14 }) {
+	    ECParameterSpec p = (ECParameterSpec) createInfo(id).createPACEDomainParameter().getParameter();
+	    for (int i = 0; i < 10; i++) {
+		BigInteger k = new BigInteger(p.getN().bitLength(), RAND);
+		ECPoint expected = p.getG().multiply(k).normalize();
+		assertEquals(FixedPointCache.multiplyGenerator(p, k), expected);
+	    }
+	}
+    }
+
+    @Test
+    public void testMapping() {
+	PACESecurityInfoPair info = createInfo(13);
+	ECParameterSpec p = (ECParameterSpec) info.createPACEDomainParameter().getParameter();
+	PACEKey keyPICC = new PACEKey(info.createPACEDomainParameter());
+	keyPICC.generateKeyPair();
+	byte[] nonce = new byte[16];
+	RAND.nextBytes(nonce);
+
+	PACEGenericMapping mapping = new PACEGenericMapping(info.createPACEDomainParameter());
+	ECPrivateKeyParameters mapKey = (ECPrivateKeyParameters) mapping.getMappingKey().getPrivateKey();
+	ECPoint pkMap = ((ECPublicKeyParameters) mapping.getMappingKey().getPublicKey()).getQ();
+	assertEquals(pkMap, p.getG().multiply(mapKey.getD()).normalize());
+
+	PACEDomainParameter mapped = mapping.map(keyPICC.getEncodedPublicKey(), nonce);
+	ECPoint pkMapPICC = ((ECPublicKeyParameters) keyPICC.getPublicKey()).getQ();
+	ECPoint expected = p.getG().multiply(new BigInteger(1, nonce)).add(pkMapPICC.multiply(mapKey.getD()));
+	assertEquals(((ECParameterSpec) mapped.getParameter()).getG(), expected.normalize());
+    }
+
+    @Test(groups = "benchmark")
+    public void benchmarkPACECrypto() {
+	PACESecurityInfoPair info = createInfo(13);
+	PACEKey keyMapPICC = new PACEKey(info.createPACEDomainParameter());
+	keyMapPICC.generateKeyPair();
+	byte[] pkMapPICC = keyMapPICC.getEncodedPublicKey();
+	byte[] nonce = new byte[16];
+	RAND.nextBytes(nonce);
+	final int warmup = 200;
+	final int rounds = 1000;
+
+	long sink = 0;
+	for (int i = 0; i < warmup; i++) {
+	    sink += runPlain(info, pkMapPICC, nonce) + runCached(info, pkMapPICC, nonce);
+	}
+
+	long start = System.nanoTime();
+	for (int i = 0; i < rounds; i++) {
+	    sink += runPlain(info, pkMapPICC, nonce);
+	}
+	long plainTime = System.nanoTime() - start;
+
+	start = System.nanoTime();
+	for (int i = 0; i < rounds; i++) {
+	    sink += runCached(info, pkMapPICC, nonce);
+	}
+	long cachedTime = System.nanoTime() - start;
+
+	LOG.info("PACE GM brainpoolP256r1: plain {} us/op, precomputed {} us/op ({}).",
+		plainTime / rounds / 1000, cachedTime / rounds / 1000, sink);
+    }
+
+    /**
+     * PCD side point multiplications of a PACE run without precomputed tables.
+     */
+    private static int runPlain(PACESecurityInfoPair info, byte[] pkMapPICC, byte[] nonce) {
+	ECParameterSpec p = (ECParameterSpec) info.createPACEDomainParameter().getParameter();
+	BigInteger dMap = new BigInteger(p.getN().bitLength(), RAND);
+	ECPoint pkMap = p.getG().multiply(dMap).normalize();
+	ECPoint h = p.getCurve().decodePoint(pkMapPICC).multiply(dMap);
+	ECPoint newG = p.getG().multiply(new BigInteger(1, nonce)).add(h).normalize();
+	BigInteger d = new BigInteger(p.getN().bitLength(), RAND);
+	ECPoint pk = newG.multiply(d).normalize();
+	return pkMap.getEncoded(false).length + pk.getEncoded(false).length;
+    }
+
+    /**
+     * PCD side point multiplications of a PACE run using the PACE classes.
+     */
+    private static int runCached(PACESecurityInfoPair info, byte[] pkMapPICC, byte[] nonce) {
+	PACEGenericMapping mapping = new PACEGenericMapping(info.createPACEDomainParameter());
+	byte[] pkMap = mapping.getMappingKey().getEncodedPublicKey();
+	PACEKey key = new PACEKey(mapping.map(pkMapPICC, nonce));
+	key.generateKeyPair();
+	return pkMap.length + key.getEncodedPublicKey().length;
+    }
+
+}
@@ -25,12 +25,10 @@ package org.openecard.recognition;
 import org.openecard.common.interfaces.RecognitionException;
 import iso.std.iso_iec._24727.tech.schema.BeginTransaction;
 import iso.std.iso_iec._24727.tech.schema.BeginTransactionResponse;
-import iso.std.iso_iec._24727.tech.schema.CardCall;
 import iso.std.iso_iec._24727.tech.schema.CardInfoType;
 import iso.std.iso_iec._24727.tech.schema.Connect;
 import iso.std.iso_iec._24727.tech.schema.ConnectResponse;
 import iso.std.iso_iec._24727.tech.schema.ConnectionHandleType.RecognitionInfo;
-import iso.std.iso_iec._24727.tech.schema.DataMaskType;
 import iso.std.iso_iec._24727.tech.schema.Disconnect;
 import iso.std.iso_iec._24727.tech.schema.DisconnectResponse;
 import iso.std.iso_iec._24727.tech.schema.EndTransaction;
@@ -38,21 +36,21 @@ import iso.std.iso_iec._24727.tech.schema.EndTransactionResponse;
 import iso.std.iso_iec._24727.tech.schema.GetCardInfoOrACD;
 import iso.std.iso_iec._24727.tech.schema.GetCardInfoOrACDResponse;
 import iso.std.iso_iec._24727.tech.schema.GetRecognitionTreeResponse;
+import iso.std.iso_iec._24727.tech.schema.GetStatus;
+import iso.std.iso_iec._24727.tech.schema.GetStatusResponse;
+import iso.std.iso_iec._24727.tech.schema.IFDStatusType;
 import iso.std.iso_iec._24727.tech.schema.InputAPDUInfoType;
-import iso.std.iso_iec._24727.tech.schema.MatchingDataType;
-import iso.std.iso_iec._24727.tech.schema.RecognitionTree;
-import iso.std.iso_iec._24727.tech.schema.ResponseAPDUType;
+import iso.std.iso_iec._24727.tech.schema.SlotStatusType;
 import iso.std.iso_iec._24727.tech.schema.Transmit;
 import iso.std.iso_iec._24727.tech.schema.TransmitResponse;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
@@ -67,17 +65,13 @@ import org.openecard.common.AppVersion;
 import org.openecard.common.ECardConstants;
 import org.openecard.common.I18n;
 import org.openecard.common.WSHelper;
-import org.openecard.common.apdu.common.CardResponseAPDU;
 import org.openecard.common.interfaces.CardRecognition;
 import org.openecard.common.interfaces.Environment;
-import org.openecard.common.tlv.TLV;
-import org.openecard.common.tlv.TLVException;
-import org.openecard.common.util.ByteUtils;
 import org.openecard.common.util.FileUtils;
-import org.openecard.common.util.IntegerUtils;
 import org.openecard.gui.MessageDialog;
 import org.openecard.gui.UserConsent;
 import org.openecard.gui.message.DialogType;
+import org.openecard.recognition.staticrepo.BinaryCifRepo;
 import org.openecard.recognition.staticrepo.LocalCifRepo;
 import org.openecard.recognition.statictree.LocalFileTree;
 import org.openecard.ws.GetRecognitionTree;
@@ -99,7 +93,7 @@ public class CardRecognitionImpl implements CardRecognition {
     private static final I18n LANG = I18n.getTranslation("recognition");
     private static final String IMAGE_PROPERTIES = "/card-images/card-images.properties";
 
-    private final FutureTask<RecognitionTree> tree;
+    private final FutureTask<RecognitionCache> recognizer;
     private final FutureTask<org.openecard.ws.GetCardInfoOrACD> cifRepo;
 
     private Set<String> supportedCards;
@@ -131,7 +125,15 @@ public class CardRecognitionImpl implements CardRecognition {
 		final WSMarshaller cifMarshaller = WSMarshallerFactory.createInstance();
 		org.openecard.ws.GetCardInfoOrACD cifRepoTmp = cifRepo;
 		if (cifRepoTmp == null) {
-		    cifRepoTmp = new LocalCifRepo(cifMarshaller);
+		    try {
+			cifRepoTmp = new BinaryCifRepo(cifMarshaller);
+		    } catch (FileNotFoundException ex) {
+			LOG.info("No CIF index available, loading XML CardInfo files.");
+			cifRepoTmp = new LocalCifRepo(cifMarshaller);
+		    } catch (IOException ex) {
+			LOG.warn("Failed to read CIF index, loading XML CardInfo files.", ex);
+			cifRepoTmp = new LocalCifRepo(cifMarshaller);
+		    }
 		}
 
 		// request all cifs to fill list of supported cards
@@ -142,9 +144,9 @@ public class CardRecognitionImpl implements CardRecognition {
 	});
 	new Thread(this.cifRepo, "Init-CardInfo-Repo").start();
 
-	this.tree = new FutureTask<>(new Callable<RecognitionTree>() {
+	this.recognizer = new FutureTask<>(new Callable<RecognitionCache>() {
 	    @Override
-	    public RecognitionTree call() throws Exception {
+	    public RecognitionCache call() throws Exception {
 		final WSMarshaller treeMarshaller = WSMarshallerFactory.createInstance();
 		GetRecognitionTree treeRepoTmp = treeRepo;
 		if (treeRepoTmp == null) {
@@ -157,10 +159,13 @@ public class CardRecognitionImpl implements CardRecognition {
 		GetRecognitionTreeResponse resp = treeRepoTmp.getRecognitionTree(req);
 		checkResult(resp.getResult());
 
-		return resp.getRecognitionTree();
+		// compile the tree once, so recognition runs do not have to evaluate the JAXB structure
+		CompiledRecognitionTree compiled = CompiledRecognitionTree.compile(resp.getRecognitionTree());
+		return new RecognitionCache(compiled, RecognitionProperties.getCacheSize(),
+			RecognitionProperties.isTrustAtr());
 	    }
 	});
-	new Thread(this.tree, "Init-RecognitionTree-Repo").start();
+	new Thread(this.recognizer, "Init-RecognitionTree-Repo").start();
     }
 
     private void prepareSupportedCards(org.openecard.ws.GetCardInfoOrACD repo) {
@@ -189,6 +194,11 @@ public class CardRecognitionImpl implements CardRecognition {
     }
 
     private List<String> getAllTypesFromRepo(org.openecard.ws.GetCardInfoOrACD repo) throws WSHelper.WSException {
+	if (repo instanceof BinaryCifRepo) {
+	    // the types are known from the index, no need to load the CIFs
+	    return new ArrayList<>(((BinaryCifRepo) repo).getCardTypes());
+	}
+
 	// read list of all cifs from the repo
 	GetCardInfoOrACD req = new GetCardInfoOrACD();
 	req.setAction(ECardConstants.CIF.GET_OTHER);
@@ -210,9 +220,9 @@ public class CardRecognitionImpl implements CardRecognition {
 	this.gui = gui;
     }
 
-    private RecognitionTree getTree() {
+    private RecognitionCache getRecognizer() {
 	try {
-	    return tree.get();
+	    return recognizer.get();
 	} catch (InterruptedException ex) {
 	    String msg = "Initialization of the RecognitionTree repository has been interrupted.";
 	    LOG.warn(msg);
@@ -382,6 +392,8 @@ public class CardRecognitionImpl implements CardRecognition {
 
     /**
      * Recognizes the card in the defined reader.
+     * The ATR of the card is requested with GetStatus, callers knowing it already should use
+     * {@link #recognizeCard(byte[], String, BigInteger, byte[])} instead.
      *
      * @param ctx Context handle of the IFD.
      * @param ifdName Name of the card reader.
@@ -393,10 +405,29 @@ public class CardRecognitionImpl implements CardRecognition {
     @Nullable
     @Override
     public RecognitionInfo recognizeCard(byte[] ctx, String ifdName, BigInteger slot) throws RecognitionException {
+	return recognizeCard(ctx, ifdName, slot, getATR(ctx, ifdName, slot));
+    }
+
+    /**
+     * Recognizes the card in the defined reader, whose ATR or ATS is already known from the card event.
+     * The ATR is the key of the recognition cache; if it is not given, the complete recognition tree is evaluated.
+     *
+     * @param ctx Context handle of the IFD.
+     * @param ifdName Name of the card reader.
+     * @param slot Index of the slot in the reader.
+     * @param atr ATR or ATS of the card, or {@code null} if it is not known.
+     * @return RecognitionInfo structure containing the card type of the detected card or {@code null} if no card could
+     *   be detected.
+     * @throws RecognitionException Thrown in case there was an error in the recognition.
+     */
+    @Nullable
+    @Override
+    public RecognitionInfo recognizeCard(byte[] ctx, String ifdName, BigInteger slot, @Nullable byte[] atr)
+	    throws RecognitionException {
 	// connect card
 	byte[] slotHandle = connect(ctx, ifdName, slot);
-	// recognise card
-	String type = treeCalls(slotHandle, getTree().getCardCall());
+	// recognise card, known cards are recognized with the help of the cache
+	String type = getRecognizer().recognize(atr, new DispatcherChannel(slotHandle));
 	// disconnect and return
 	disconnect(slotHandle);
 	// build result or throw exception if it is null or unsupported
@@ -408,26 +439,21 @@ public class CardRecognitionImpl implements CardRecognition {
 	return info;
     }
 
+    /**
+     * Gets the statistics of the recognition result cache.
+     *
+     * @return Snapshot of the cache statistics.
+     */
+    public RecognitionCacheStatistics getCacheStatistics() {
+	return getRecognizer().getStatistics();
+    }
+
 
     private void checkResult(Result r) throws RecognitionException {
 	if (r.getResultMajor().equals(ECardConstants.Major.ERROR)) {
 	    throw new RecognitionException(r);
 	}
     }
-    /**
-     * Special transmit check determining only whether a response is present or not and it contains at least a trailer.<br>
-     * Unexpected result may be the wrong cause, because the command could represent multiple commands.
-     *
-     * @param r The response to check
-     * @return True when result present, false otherwise.
-     */
-    private boolean checkTransmitResult(TransmitResponse r) {
-	if (! r.getOutputAPDU().isEmpty() && r.getOutputAPDU().get(0).length >= 2) {
-	    return true;
-	} else {
-	    return false;
-	}
-    }
 
     /**
      * Returns the fibonacci number for a given index.
@@ -511,192 +537,53 @@ public class CardRecognitionImpl implements CardRecognition {
 	checkResult(r.getResult());
     }
 
-    private byte[] transmit(byte[] slotHandle, byte[] input, List<ResponseAPDUType> results) {
-	Transmit t = new Transmit();
-	t.setSlotHandle(slotHandle);
-	InputAPDUInfoType apdu = new InputAPDUInfoType();
-	apdu.setInputAPDU(input);
-	for (ResponseAPDUType result : results) {
-	    apdu.getAcceptableStatusCode().add(result.getTrailer());
-	}
-	t.getInputAPDUInfo().add(apdu);
-
-	TransmitResponse r = (TransmitResponse) env.getDispatcher().safeDeliver(t);
-	if (checkTransmitResult(r)) {
-	    return r.getOutputAPDU().get(0);
-	} else {
+    @Nullable
+    private byte[] getATR(byte[] ctx, String ifdName, BigInteger slot) {
+	GetStatus req = new GetStatus();
+	req.setContextHandle(ctx);
+	req.setIFDName(ifdName);
+	GetStatusResponse res = (GetStatusResponse) env.getDispatcher().safeDeliver(req);
+	if (res.getResult() == null || ! ECardConstants.Major.OK.equals(res.getResult().getResultMajor())) {
+	    LOG.debug("Failed to read status of IFD {}, recognition results are not cached.", ifdName);
 	    return null;
 	}
-    }
-
-
-    private List<CardCall> branch2list(CardCall first) {
-	LinkedList<CardCall> calls = new LinkedList<>();
-	calls.add(first);
-
-	CardCall next = first;
-	// while next is a select call
-	while (next.getResponseAPDU().get(0).getBody() == null) {
-	    // a select only has one call in its conclusion
-	    next = next.getResponseAPDU().get(0).getConclusion().getCardCall().get(0);
-	    calls.add(next);
-	}
-
-	return calls;
-    }
-
-
-    private String treeCalls(byte[] slotHandle, List<CardCall> calls) throws RecognitionException {
-	for (CardCall c : calls) {
-	    // make list of next feature (aka branch)
-	    List<CardCall> branch = branch2list(c);
-	    // execute selects and then matcher, matcher decides over success
-	    for (CardCall next : branch) {
-		boolean matcher = (next.getResponseAPDU().get(0).getBody() != null) ? true : false;
-		byte[] resultBytes = transmit(slotHandle, next.getCommandAPDU(), next.getResponseAPDU());
-		// break when outcome is wrong
-		if (resultBytes == null) {
-		    break;
-		}
-		// get command bytes and trailer
-		byte[] result = CardResponseAPDU.getData(resultBytes);
-		byte[] trailer = CardResponseAPDU.getTrailer(resultBytes);
-		// if select, only one response exists
-		if (! matcher && ! Arrays.equals(next.getResponseAPDU().get(0).getTrailer(), trailer)) {
-		    // break when outcome is wrong
-		    break;
-		} else if (! matcher) {
-		    // trailer matches expected response from select, continue
-		    continue;
-		} else {
-		    // matcher command, loop through responses
-		    for (ResponseAPDUType r : next.getResponseAPDU()) {
-			// next response, when outcome is wrong
-			if (! Arrays.equals(r.getTrailer(), trailer)) {
-			    continue;
-			}
-			// check internals for match
-			if (checkBody(r.getBody(), result)) {
-			    if (r.getConclusion().getRecognizedCardType() != null) {
-				// type recognised
-				return r.getConclusion().getRecognizedCardType();
-			    } else {
-				// type dependent on subtree
-				return treeCalls(slotHandle, r.getConclusion().getCardCall());
-			    }
-			}
-		    }
+	for (IFDStatusType ifdStatus : res.getIFDStatus()) {
+	    for (SlotStatusType slotStatus : ifdStatus.getSlotStatus()) {
+		if (slot.equals(slotStatus.getIndex()) && slotStatus.isCardAvailable()) {
+		    return slotStatus.getATRorATS();
 		}
 	    }
 	}
-
 	return null;
     }
 
-    private boolean checkBody(DataMaskType body, byte[] result) {
-	// tag in body has a special meaning
-	if (body.getTag() != null && body.getDataObject() != null) {
-	    byte[] tag = body.getTag();
-	    if (ByteUtils.isPrefix(tag, result)) {
-		result = ByteUtils.copy(result, tag.length, result.length - tag.length);
-		return checkDataObject(body.getDataObject(), result);
-	    } else {
-		return false;
-	    }
-	} else if (body.getDataObject() != null) {
-	    return checkDataObject(body.getDataObject(), result);
-	} else {
-	    return checkMatchingData(body.getMatchingData(), result);
-	}
-    }
-
-
-    private boolean checkDataObject(DataMaskType matcher, byte[] result) {
-	// check if we have a tag and data object
-	if (matcher.getTag() != null && matcher.getDataObject() != null) {
-	    try {
-		TLV tlv = TLV.fromBER(result);
-		return checkDataObject(matcher, tlv);
-	    } catch (TLVException ex) {
-	    }
-	    // no TLV structure or fallthrough after tag not found
-	    return false;
-	}
-
-	// we have a matcher
-	return checkMatchingData(matcher.getMatchingData(), result);
-    }
+    /**
+     * Channel sending the commands of the recognition with the dispatcher.
+     */
+    private class DispatcherChannel implements RecognitionChannel {
 
-    private boolean checkDataObject(DataMaskType matcher, TLV result) {
-	byte[] tag = matcher.getTag();
-	DataMaskType nextMatcher = matcher.getDataObject();
+	private final byte[] slotHandle;
 
-	// this function only works with tag and dataobject
-	if (tag == null || nextMatcher == null) {
-	    return false;
+	DispatcherChannel(byte[] slotHandle) {
+	    this.slotHandle = slotHandle;
 	}
 
-	long tagNum = ByteUtils.toLong(tag);
-
-	List<TLV> chunks = result.findNextTags(tagNum);
-	for (TLV next : chunks) {
-	    boolean outcome;
-	    if (nextMatcher.getMatchingData() != null) {
-		outcome = checkMatchingData(nextMatcher.getMatchingData(), next.getValue());
-	    } else {
-		outcome = checkDataObject(nextMatcher, next.getChild());
+	@Override
+	public List<byte[]> transmit(List<CompiledRecognitionTree.Command> commands) {
+	    Transmit t = new Transmit();
+	    t.setSlotHandle(slotHandle);
+	    for (CompiledRecognitionTree.Command cmd : commands) {
+		InputAPDUInfoType apdu = new InputAPDUInfoType();
+		apdu.setInputAPDU(cmd.getCommandAPDU());
+		apdu.getAcceptableStatusCode().addAll(cmd.getAcceptableStatusCodes());
+		t.getInputAPDUInfo().add(apdu);
 	    }
-	    // evaluate outcome
-	    if (outcome == true) {
-		return true;
-	    }
-	}
-	// no match
-	return false;
-    }
-
-    private boolean checkMatchingData(MatchingDataType matcher, byte[] result) {
-	// get values
-	byte[] offsetBytes = matcher.getOffset();
-	byte[] lengthBytes = matcher.getLength();
-	byte[] valueBytes  = matcher.getMatchingValue();
-	byte[] maskBytes   = matcher.getMask();
 
-	// convert values for convenience
-	if (offsetBytes == null) {
-	    offsetBytes = new byte[] {(byte) 0x00, (byte) 0x00};
-	}
-	int offset = ByteUtils.toInteger(offsetBytes);
-	if (lengthBytes == null) {
-	    lengthBytes = IntegerUtils.toByteArray(valueBytes.length);
-	}
-	int length = ByteUtils.toInteger(lengthBytes);
-	if (maskBytes == null) {
-	    maskBytes = new byte[valueBytes.length];
-	    for (int i = 0; i < maskBytes.length; i++) {
-		maskBytes[i] = (byte) 0xFF;
-	    }
-	}
-
-	// some basic integrity checks
-	if (maskBytes.length != valueBytes.length) {
-	    return false;
-	}
-	if (valueBytes.length != length) {
-	    return false;
-	}
-	if (result.length < length + offset) {
-	    return false;
-	}
-
-	// check
-	for (int i = offset; i < length + offset; i++) {
-	    if ((maskBytes[i - offset] & result[i]) != valueBytes[i - offset]) {
-		return false;
-	    }
+	    // the IFD stops at the first unexpected response, so the output contains all executed commands
+	    TransmitResponse r = (TransmitResponse) env.getDispatcher().safeDeliver(t);
+	    return r.getOutputAPDU();
 	}
 
-	return true;
     }
 
 }
@@ -0,0 +1,821 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition;
+
+import iso.std.iso_iec._24727.tech.schema.CardCall;
+import iso.std.iso_iec._24727.tech.schema.ConclusionType;
+import iso.std.iso_iec._24727.tech.schema.DataMaskType;
+import iso.std.iso_iec._24727.tech.schema.MatchingDataType;
+import iso.std.iso_iec._24727.tech.schema.RecognitionTree;
+import iso.std.iso_iec._24727.tech.schema.ResponseAPDUType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.openecard.common.tlv.TLVException;
+import org.openecard.common.tlv.TLVView;
+import org.openecard.common.util.ByteUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Recognition tree compiled into a compact decision structure.
+ * <p>The JAXB {@link RecognitionTree} is converted once into immutable branches. Each branch consists of the SELECT
+ * commands leading to a matcher command and the precompiled matchers (offsets, values and masks) of its responses.
+ * Identical commands are shared between all branches.</p>
+ * <p>During recognition the SELECT commands of a branch and its matcher command are sent in a single Transmit. SELECT
+ * commands are only sent when needed: if the card is already in the state the branch starts with, because the previous
+ * branch executed the same SELECT commands, they are skipped. A SELECT known to fail in the current state is not sent
+ * again either. The card state is considered unknown after any non SELECT command.</p>
+ * <p>The evaluation order and the outcome are the same as walking the original tree.</p>
+ *
+ * @author agent
+ */
+public final class CompiledRecognitionTree {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompiledRecognitionTree.class);
+
+    private static final Branch[] NO_BRANCHES = new Branch[0];
+
+    private final Branch[] root;
+    private final int numCardCalls;
+    private final int numCommands;
+
+    private CompiledRecognitionTree(Branch[] root, int numCardCalls, int numCommands) {
+	this.root = root;
+	this.numCardCalls = numCardCalls;
+	this.numCommands = numCommands;
+    }
+
+    /**
+     * Compiles the given recognition tree.
+     * Malformed parts of the tree, such as calls without responses, are left out, because they can never lead to a
+     * recognized card.
+     *
+     * @param tree Recognition tree to compile.
+     * @return The compiled tree.
+     */
+    public static CompiledRecognitionTree compile(RecognitionTree tree) {
+	Compiler c = new Compiler();
+	Branch[] root = c.compileBranches(tree.getCardCall());
+	LOG.debug("Compiled recognition tree with {} card calls into {} distinct commands.",
+		c.numCardCalls, c.commands.size());
+	return new CompiledRecognitionTree(root, c.numCardCalls, c.commands.size());
+    }
+
+    /**
+     * Gets the number of card calls in the source tree.
+     *
+     * @return Number of card calls.
+     */
+    public int getCardCallCount() {
+	return numCardCalls;
+    }
+
+    /**
+     * Gets the number of distinct commands after deduplication.
+     *
+     * @return Number of commands.
+     */
+    public int getCommandCount() {
+	return numCommands;
+    }
+
+
+    /**
+     * Runs the recognition on the given channel.
+     *
+     * @param channel Channel to the card which should be recognized.
+     * @return The decisions leading to the recognized card type, or {@code null} if the card is not recognized.
+     */
+    @Nullable
+    DecisionPath recognize(RecognitionChannel channel) {
+	Execution e = new Execution(channel);
+	String type = e.evaluate(root);
+	if (type == null) {
+	    return null;
+	} else {
+	    return new DecisionPath(type, e.decisions.toArray(new Decision[e.decisions.size()]));
+	}
+    }
+
+    /**
+     * Checks whether the card still takes the decisions of the given path.
+     *
+     * @param path Path of a previous recognition run of this tree.
+     * @param channel Channel to the card which should be checked.
+     * @return {@code true} if all responses of the card lead to the same decisions, {@code false} otherwise.
+     * @see #verify(List, RecognitionChannel)
+     */
+    boolean verify(DecisionPath path, RecognitionChannel channel) {
+	return verify(Collections.singletonList(path), channel) != null;
+    }
+
+    /**
+     * Finds the first of the given paths whose decisions the card still takes.
+     * The commands sent during the recognition run are replayed, including those of the branches which did not match,
+     * so that a card matching an earlier branch is not taken for the card type of the path. The commands are sent in
+     * as few batches as possible; a new batch is only started where the card returned a status word which is not
+     * acceptable for the command.
+     * <p>The responses received while checking one path serve as fingerprint for the following ones. All paths are
+     * walks through the same tree, so when the card deviates from a path, the next path starting with the commands
+     * already sent and agreeing with their responses is continued without sending these commands again. Only a path
+     * starting differently is replayed from the beginning.</p>
+     *
+     * @param candidates Paths of previous recognition runs of this tree, in the order they should be checked.
+     * @param channel Channel to the card which should be checked.
+     * @return The first path leading to the same decisions as the responses of the card, or {@code null} if there is
+     *   none.
+     */
+    @Nullable
+    DecisionPath verify(List<DecisionPath> candidates, RecognitionChannel channel) {
+	List<Command> sent = Collections.emptyList();
+	ArrayList<byte[]> responses = new ArrayList<>();
+	for (DecisionPath path : candidates) {
+	    List<Command> commands = path.commands;
+	    if (! startsWith(commands, sent, responses.size())) {
+		responses.clear();
+	    }
+	    sent = commands;
+	    if (! isConsistent(path.decisions, responses)) {
+		continue;
+	    }
+
+	    boolean consistent = true;
+	    while (consistent && responses.size() < commands.size()) {
+		List<byte[]> next = channel.transmit(commands.subList(responses.size(), commands.size()));
+		if (next.isEmpty()) {
+		    // the card state is unknown after a failed transmission
+		    responses.clear();
+		    consistent = false;
+		} else {
+		    responses.addAll(next);
+		    consistent = isConsistent(path.decisions, responses);
+		}
+	    }
+	    if (consistent) {
+		return path;
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Checks whether the first {@code n} commands of both lists are the same.
+     */
+    private static boolean startsWith(List<Command> commands, List<Command> sent, int n) {
+	if (commands.size() < n || sent.size() < n) {
+	    return false;
+	}
+	for (int i = 0; i < n; i++) {
+	    if (commands.get(i) != sent.get(i)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Checks whether the responses received so far lead to the same decisions as the given ones.
+     */
+    private static boolean isConsistent(Decision[] decisions, List<byte[]> responses) {
+	int n = 0;
+	for (Decision d : decisions) {
+	    Command[] selects = d.branch.selects;
+	    int end = d.failedSelect >= 0 ? d.failedSelect : selects.length;
+	    for (int i = d.skip; i < end; i++, n++) {
+		if (n >= responses.size()) {
+		    return true;
+		}
+		if (! selects[i].isExpected(responses.get(n))) {
+		    return false;
+		}
+	    }
+	    if (n >= responses.size()) {
+		return true;
+	    }
+	    byte[] r = responses.get(n++);
+	    if (d.failedSelect >= 0) {
+		if (selects[d.failedSelect].isExpected(r)) {
+		    return false;
+		}
+	    } else if (d.branch.match(r) != d.response) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    @Nullable
+    private static byte[] get(List<byte[]> responses, int idx) {
+	return idx < responses.size() ? responses.get(idx) : null;
+    }
+
+
+    /**
+     * State of one recognition run.
+     */
+    private static final class Execution {
+
+	private final RecognitionChannel channel;
+	private final ArrayList<Decision> decisions = new ArrayList<>();
+	// SELECT commands executed successfully since the card state became unknown
+	private final ArrayList<Command> path = new ArrayList<>();
+	// SELECT commands which failed in a given state
+	private final Set<Long> failed = new HashSet<>();
+	private int state;
+
+	Execution(RecognitionChannel channel) {
+	    this.channel = channel;
+	}
+
+	@Nullable
+	String evaluate(Branch[] branches) {
+	    for (Branch b : branches) {
+		Command[] selects = b.selects;
+		int skip = selectedPrefix(selects);
+		if (skip < selects.length && failed.contains(key(selects[skip]))) {
+		    continue;
+		}
+
+		ArrayList<Command> batch = new ArrayList<>(selects.length - skip + 1);
+		batch.addAll(Arrays.asList(selects).subList(skip, selects.length));
+		batch.add(b.matcher);
+		List<byte[]> responses = channel.transmit(batch);
+
+		int n = 0;
+		int failedSelect = -1;
+		for (int i = skip; i < selects.length; i++, n++) {
+		    if (! selects[i].isExpected(get(responses, n))) {
+			// a failed SELECT does not change the current state
+			failed.add(key(selects[i]));
+			failedSelect = i;
+			break;
+		    }
+		    path.add(selects[i]);
+		    state++;
+		}
+		if (failedSelect >= 0) {
+		    decisions.add(new Decision(b, skip, failedSelect, -1));
+		    continue;
+		}
+
+		// the matcher command may change the state of the card in an unknown way
+		path.clear();
+		state++;
+
+		int idx = b.match(get(responses, n));
+		decisions.add(new Decision(b, skip, -1, idx));
+		if (idx >= 0) {
+		    Response resp = b.responses[idx];
+		    if (resp.cardType != null) {
+			return resp.cardType;
+		    } else {
+			// type dependent on subtree
+			return evaluate(resp.subtree);
+		    }
+		}
+	    }
+
+	    return null;
+	}
+
+	private int selectedPrefix(Command[] selects) {
+	    int len = path.size();
+	    if (len == 0 || len > selects.length) {
+		return 0;
+	    }
+	    for (int i = 0; i < len; i++) {
+		if (path.get(i) != selects[i]) {
+		    return 0;
+		}
+	    }
+	    return len;
+	}
+
+	private long key(Command cmd) {
+	    return ((long) state << 32) | cmd.id;
+	}
+
+    }
+
+
+    ///
+    /// compiled representation
+    ///
+
+    /**
+     * Command sent to the card during the recognition.
+     */
+    static final class Command {
+
+	private final int id;
+	private final byte[] apdu;
+	private final List<byte[]> acceptable;
+	@Nullable
+	private final byte[] expectedTrailer;
+
+	private Command(int id, byte[] apdu, List<byte[]> acceptable, @Nullable byte[] expectedTrailer) {
+	    this.id = id;
+	    this.apdu = apdu;
+	    this.acceptable = acceptable;
+	    this.expectedTrailer = expectedTrailer;
+	}
+
+	byte[] getCommandAPDU() {
+	    return apdu;
+	}
+
+	List<byte[]> getAcceptableStatusCodes() {
+	    return acceptable;
+	}
+
+	private boolean isExpected(@Nullable byte[] rapdu) {
+	    return rapdu != null && hasTrailer(rapdu, expectedTrailer);
+	}
+
+	@Override
+	public String toString() {
+	    return ByteUtils.toHexString(apdu);
+	}
+
+    }
+
+    private static final class Branch {
+
+	private final Command[] selects;
+	private final Command matcher;
+	private final Response[] responses;
+
+	Branch(Command[] selects, Command matcher, Response[] responses) {
+	    this.selects = selects;
+	    this.matcher = matcher;
+	    this.responses = responses;
+	}
+
+	/**
+	 * Gets the index of the first response matching the given response APDU, or -1 if none matches.
+	 */
+	int match(@Nullable byte[] rapdu) {
+	    if (rapdu == null || rapdu.length < 2) {
+		return -1;
+	    }
+	    for (int i = 0; i < responses.length; i++) {
+		if (responses[i].matches(rapdu)) {
+		    return i;
+		}
+	    }
+	    return -1;
+	}
+
+    }
+
+    private static final class Response {
+
+	@Nullable
+	private final byte[] trailer;
+	private final Matcher body;
+	@Nullable
+	private final String cardType;
+	private final Branch[] subtree;
+
+	Response(byte[] trailer, Matcher body, String cardType, Branch[] subtree) {
+	    this.trailer = trailer;
+	    this.body = body;
+	    this.cardType = cardType;
+	    this.subtree = subtree;
+	}
+
+	boolean matches(byte[] rapdu) {
+	    return hasTrailer(rapdu, trailer) && body.matches(rapdu, 0, rapdu.length - 2);
+	}
+
+    }
+
+    private static boolean hasTrailer(byte[] rapdu, @Nullable byte[] trailer) {
+	int len = rapdu.length;
+	return trailer != null && trailer.length == 2 && len >= 2
+		&& rapdu[len - 2] == trailer[0] && rapdu[len - 1] == trailer[1];
+    }
+
+    /**
+     * Outcome of one branch evaluated during a recognition run.
+     * Branches which did not match are recorded as well, because the card would have been recognized differently if
+     * one of them had matched.
+     */
+    private static final class Decision {
+
+	private final Branch branch;
+	// number of SELECT commands not sent, because the card was already in the respective state
+	private final int skip;
+	private final int failedSelect;
+	private final int response;
+
+	Decision(Branch branch, int skip, int failedSelect, int response) {
+	    this.branch = branch;
+	    this.skip = skip;
+	    this.failedSelect = failedSelect;
+	    this.response = response;
+	}
+
+	void addCommands(List<Command> batch) {
+	    Command[] selects = branch.selects;
+	    if (failedSelect >= 0) {
+		batch.addAll(Arrays.asList(selects).subList(skip, failedSelect + 1));
+	    } else {
+		batch.addAll(Arrays.asList(selects).subList(skip, selects.length));
+		batch.add(branch.matcher);
+	    }
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (obj instanceof Decision) {
+		Decision other = (Decision) obj;
+		return branch == other.branch && skip == other.skip && failedSelect == other.failedSelect
+			&& response == other.response;
+	    }
+	    return false;
+	}
+
+	@Override
+	public int hashCode() {
+	    int hash = System.identityHashCode(branch);
+	    hash = 31 * hash + skip;
+	    hash = 31 * hash + failedSelect;
+	    return 31 * hash + response;
+	}
+
+    }
+
+    /**
+     * Result of a recognition run containing the card type and the decisions which lead to it.
+     */
+    static final class DecisionPath {
+
+	private final String cardType;
+	private final Decision[] decisions;
+	// commands sent to the card in order to take the decisions
+	private final List<Command> commands;
+
+	private DecisionPath(String cardType, Decision[] decisions) {
+	    this.cardType = cardType;
+	    this.decisions = decisions;
+	    ArrayList<Command> cmds = new ArrayList<>();
+	    for (Decision d : decisions) {
+		d.addCommands(cmds);
+	    }
+	    this.commands = Collections.unmodifiableList(cmds);
+	}
+
+	String getCardType() {
+	    return cardType;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (obj instanceof DecisionPath) {
+		DecisionPath other = (DecisionPath) obj;
+		return cardType.equals(other.cardType) && Arrays.equals(decisions, other.decisions);
+	    }
+	    return false;
+	}
+
+	@Override
+	public int hashCode() {
+	    return 31 * cardType.hashCode() + Arrays.hashCode(decisions);
+	}
+
+    }
+
+
+    ///
+    /// matchers
+    ///
+
+    private abstract static class Matcher {
+
+	static final Matcher ALWAYS = new Matcher() {
+	    @Override
+	    boolean matches(byte[] data, int offset, int length) {
+		return true;
+	    }
+	};
+	static final Matcher NEVER = new Matcher() {
+	    @Override
+	    boolean matches(byte[] data, int offset, int length) {
+		return false;
+	    }
+	};
+
+	abstract boolean matches(byte[] data, int offset, int length);
+
+    }
+
+    /**
+     * Masked comparison of a value at a fixed offset.
+     */
+    private static final class ValueMatcher extends Matcher {
+
+	private final int valueOffset;
+	private final byte[] value;
+	private final byte[] mask;
+
+	ValueMatcher(int valueOffset, byte[] value, byte[] mask) {
+	    this.valueOffset = valueOffset;
+	    this.value = value;
+	    this.mask = mask;
+	}
+
+	@Override
+	boolean matches(byte[] data, int offset, int length) {
+	    if (length < value.length + valueOffset) {
+		return false;
+	    }
+	    int start = offset + valueOffset;
+	    for (int i = 0; i < value.length; i++) {
+		if ((mask[i] & data[start + i]) != value[i]) {
+		    return false;
+		}
+	    }
+	    return true;
+	}
+
+    }
+
+    /**
+     * Strips a fixed prefix before evaluating the next matcher.
+     */
+    private static final class PrefixMatcher extends Matcher {
+
+	private final byte[] prefix;
+	private final Matcher next;
+
+	PrefixMatcher(byte[] prefix, Matcher next) {
+	    this.prefix = prefix;
+	    this.next = next;
+	}
+
+	@Override
+	boolean matches(byte[] data, int offset, int length) {
+	    if (length < prefix.length) {
+		return false;
+	    }
+	    for (int i = 0; i < prefix.length; i++) {
+		if (data[offset + i] != prefix[i]) {
+		    return false;
+		}
+	    }
+	    return next.matches(data, offset + prefix.length, length - prefix.length);
+	}
+
+    }
+
+    /**
+     * Parses the data as TLV structure and evaluates a {@link TLVMatcher} on it.
+     */
+    private static final class DataObjectMatcher extends Matcher {
+
+	private final TLVMatcher tlv;
+
+	DataObjectMatcher(TLVMatcher tlv) {
+	    this.tlv = tlv;
+	}
+
+	@Override
+	boolean matches(byte[] data, int offset, int length) {
+	    try {
+		TLVView view = TLVView.parse(data, offset, length);
+		return view.getFirst() != TLVView.NONE && tlv.matches(data, view, view.getFirst());
+	    } catch (TLVException ex) {
+		// no TLV structure
+		return false;
+	    }
+	}
+
+    }
+
+    /**
+     * Searches an element and its siblings for a tag and evaluates the value or the children of the found elements.
+     */
+    private static final class TLVMatcher {
+
+	private final long tag;
+	@Nullable
+	private final Matcher value;
+	@Nullable
+	private final TLVMatcher child;
+
+	TLVMatcher(long tag, @Nullable Matcher value, @Nullable TLVMatcher child) {
+	    this.tag = tag;
+	    this.value = value;
+	    this.child = child;
+	}
+
+	boolean matches(byte[] data, TLVView view, int first) {
+	    for (int i = view.findNext(first, tag); i != TLVView.NONE; i = view.findNext(view.getNext(i), tag)) {
+		boolean outcome;
+		if (value != null) {
+		    outcome = value.matches(data, view.getValueOffset(i), view.getValueLength(i));
+		} else {
+		    int c = view.getChild(i);
+		    outcome = child != null && c != TLVView.NONE && child.matches(data, view, c);
+		}
+		if (outcome) {
+		    return true;
+		}
+	    }
+	    return false;
+	}
+
+    }
+
+
+    ///
+    /// compiler
+    ///
+
+    private static final class Compiler {
+
+	private final Map<String, Command> commands = new HashMap<>();
+	private int numCardCalls;
+
+	Branch[] compileBranches(List<CardCall> calls) {
+	    ArrayList<Branch> result = new ArrayList<>(calls.size());
+	    for (CardCall call : calls) {
+		Branch b = compileBranch(call);
+		if (b != null) {
+		    result.add(b);
+		}
+	    }
+	    return result.isEmpty() ? NO_BRANCHES : result.toArray(new Branch[result.size()]);
+	}
+
+	@Nullable
+	private Branch compileBranch(CardCall first) {
+	    ArrayList<Command> selects = new ArrayList<>();
+	    CardCall next = first;
+	    while (true) {
+		numCardCalls++;
+		List<ResponseAPDUType> responses = next.getResponseAPDU();
+		if (responses.isEmpty()) {
+		    LOG.warn("Ignoring card call without response in recognition tree.");
+		    return null;
+		}
+		ResponseAPDUType firstResponse = responses.get(0);
+		if (firstResponse.getBody() != null) {
+		    break;
+		}
+		// a select only has one call in its conclusion
+		selects.add(intern(next.getCommandAPDU(), responses, firstResponse.getTrailer()));
+		ConclusionType conclusion = firstResponse.getConclusion();
+		if (conclusion == null || conclusion.getCardCall().isEmpty()) {
+		    LOG.warn("Ignoring select call without subsequent call in recognition tree.");
+		    return null;
+		}
+		next = conclusion.getCardCall().get(0);
+	    }
+
+	    Command matcher = intern(next.getCommandAPDU(), next.getResponseAPDU(), null);
+	    List<ResponseAPDUType> rs = next.getResponseAPDU();
+	    Response[] responses = new Response[rs.size()];
+	    for (int i = 0; i < responses.length; i++) {
+		responses[i] = compileResponse(rs.get(i));
+	    }
+	    return new Branch(selects.toArray(new Command[selects.size()]), matcher, responses);
+	}
+
+	private Command intern(byte[] apdu, List<ResponseAPDUType> responses, @Nullable byte[] expectedTrailer) {
+	    ArrayList<byte[]> acceptable = new ArrayList<>(responses.size());
+	    StringBuilder key = new StringBuilder(ByteUtils.toHexString(apdu));
+	    for (ResponseAPDUType r : responses) {
+		if (r.getTrailer() != null) {
+		    acceptable.add(r.getTrailer());
+		    key.append('/').append(ByteUtils.toHexString(r.getTrailer()));
+		}
+	    }
+	    key.append('|').append(ByteUtils.toHexString(expectedTrailer));
+
+	    String k = key.toString();
+	    Command cmd = commands.get(k);
+	    if (cmd == null) {
+		cmd = new Command(commands.size(), apdu, Collections.unmodifiableList(acceptable), expectedTrailer);
+		commands.put(k, cmd);
+	    }
+	    return cmd;
+	}
+
+	private Response compileResponse(ResponseAPDUType r) {
+	    Matcher body = compileBody(r.getBody());
+	    ConclusionType conclusion = r.getConclusion();
+	    String type = null;
+	    Branch[] subtree = NO_BRANCHES;
+	    if (conclusion != null) {
+		type = conclusion.getRecognizedCardType();
+		if (type == null) {
+		    subtree = compileBranches(conclusion.getCardCall());
+		}
+	    }
+	    return new Response(r.getTrailer(), body, type, subtree);
+	}
+
+	private Matcher compileBody(@Nullable DataMaskType body) {
+	    if (body == null) {
+		// only the trailer is relevant
+		return Matcher.ALWAYS;
+	    } else if (body.getTag() != null && body.getDataObject() != null) {
+		// tag in body has a special meaning
+		return new PrefixMatcher(body.getTag(), compileDataObject(body.getDataObject()));
+	    } else if (body.getDataObject() != null) {
+		return compileDataObject(body.getDataObject());
+	    } else {
+		return compileMatchingData(body.getMatchingData());
+	    }
+	}
+
+	private Matcher compileDataObject(DataMaskType matcher) {
+	    if (matcher.getTag() != null && matcher.getDataObject() != null) {
+		TLVMatcher tlv = compileTLV(matcher);
+		return tlv != null ? new DataObjectMatcher(tlv) : Matcher.NEVER;
+	    } else {
+		return compileMatchingData(matcher.getMatchingData());
+	    }
+	}
+
+	@Nullable
+	private TLVMatcher compileTLV(DataMaskType matcher) {
+	    byte[] tag = matcher.getTag();
+	    DataMaskType nextMatcher = matcher.getDataObject();
+	    // only works with tag and dataobject
+	    if (tag == null || nextMatcher == null || tag.length < 1 || tag.length > 8) {
+		return null;
+	    }
+
+	    long tagNum = ByteUtils.toLong(tag);
+	    if (nextMatcher.getMatchingData() != null) {
+		return new TLVMatcher(tagNum, compileMatchingData(nextMatcher.getMatchingData()), null);
+	    } else {
+		return new TLVMatcher(tagNum, null, compileTLV(nextMatcher));
+	    }
+	}
+
+	private Matcher compileMatchingData(@Nullable MatchingDataType matcher) {
+	    if (matcher == null || matcher.getMatchingValue() == null) {
+		LOG.warn("Ignoring matcher without value in recognition tree.");
+		return Matcher.NEVER;
+	    }
+	    byte[] valueBytes = matcher.getMatchingValue();
+	    byte[] offsetBytes = matcher.getOffset();
+	    byte[] lengthBytes = matcher.getLength();
+	    byte[] maskBytes = matcher.getMask();
+
+	    int offset;
+	    int length;
+	    try {
+		offset = offsetBytes == null ? 0 : ByteUtils.toInteger(offsetBytes);
+		length = lengthBytes == null ? valueBytes.length : ByteUtils.toInteger(lengthBytes);
+	    } catch (IllegalArgumentException ex) {
+		LOG.warn("Ignoring matcher with invalid offset or length in recognition tree.");
+		return Matcher.NEVER;
+	    }
+	    if (maskBytes == null) {
+		maskBytes = new byte[valueBytes.length];
+		Arrays.fill(maskBytes, (byte) 0xFF);
+	    }
+
+	    // some basic integrity checks
+	    if (maskBytes.length != valueBytes.length || valueBytes.length != length || offset < 0) {
+		return Matcher.NEVER;
+	    }
+	    return new ValueMatcher(offset, valueBytes, maskBytes);
+	}
+
+    }
+
+}
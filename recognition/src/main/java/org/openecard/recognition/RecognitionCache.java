@@ -0,0 +1,167 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.openecard.common.util.ByteArrayWrapper;
+import org.openecard.recognition.CompiledRecognitionTree.DecisionPath;
+
+
+/**
+ * Cache of recognition results keyed by the ATR or ATS of the card.
+ * <p>The ATR alone does not identify a card type, so each entry holds the decision paths of the recognition runs for
+ * cards with this ATR. The path describes which commands were needed to recognize the card and which responses lead to
+ * the result. A lookup replays these commands and checks that the card responds in the same way, which is considerably
+ * cheaper than evaluating the complete tree. If several paths are known for an ATR, the responses received so far
+ * select the path to continue with, so that no command is sent twice. Optionally the ATR can be trusted, in which case no command is sent, as
+ * long as only one card type has been seen with this ATR.</p>
+ * <p>The cache is bounded and evicts the least recently used ATR.</p>
+ *
+ * @author agent
+ */
+final class RecognitionCache {
+
+    private static final int MAX_PATHS_PER_ATR = 4;
+
+    private final CompiledRecognitionTree tree;
+    private final boolean trustAtr;
+    private final LinkedHashMap<ByteArrayWrapper, List<DecisionPath>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+
+    /**
+     * Creates a cache for results of the given tree.
+     *
+     * @param tree Tree the cached decision paths belong to.
+     * @param maxEntries Maximum number of ATRs held in the cache.
+     * @param trustAtr {@code true} if an unambiguous ATR should be accepted without verifying the card responses.
+     */
+    RecognitionCache(CompiledRecognitionTree tree, final int maxEntries, boolean trustAtr) {
+	this.tree = tree;
+	this.trustAtr = trustAtr;
+	this.entries = new LinkedHashMap<ByteArrayWrapper, List<DecisionPath>>(16, 0.75f, true) {
+	    private static final long serialVersionUID = 1L;
+	    @Override
+	    protected boolean removeEldestEntry(Map.Entry<ByteArrayWrapper, List<DecisionPath>> eldest) {
+		return size() > maxEntries;
+	    }
+	};
+    }
+
+    /**
+     * Recognizes the card with the help of the cache.
+     * If the cache has no matching entry, the complete tree is evaluated and the result is added to the cache.
+     *
+     * @param atr ATR or ATS of the card, or {@code null} if it is not known.
+     * @param channel Channel to the card.
+     * @return The recognized card type, or {@code null} if the card is not recognized.
+     */
+    @Nullable
+    String recognize(@Nullable byte[] atr, RecognitionChannel channel) {
+	if (atr == null) {
+	    DecisionPath path = tree.recognize(channel);
+	    return path != null ? path.getCardType() : null;
+	}
+
+	ByteArrayWrapper key = new ByteArrayWrapper(atr.clone());
+	List<DecisionPath> candidates = get(key);
+	if (! candidates.isEmpty()) {
+	    if (trustAtr && isUnambiguous(candidates)) {
+		hits.incrementAndGet();
+		return candidates.get(0).getCardType();
+	    }
+	    DecisionPath match = tree.verify(candidates, channel);
+	    if (match != null) {
+		hits.incrementAndGet();
+		return match.getCardType();
+	    }
+	    stale.incrementAndGet();
+	}
+
+	misses.incrementAndGet();
+	DecisionPath path = tree.recognize(channel);
+	if (path == null) {
+	    return null;
+	}
+	put(key, path);
+	return path.getCardType();
+    }
+
+    private static boolean isUnambiguous(List<DecisionPath> candidates) {
+	String type = candidates.get(0).getCardType();
+	for (DecisionPath next : candidates) {
+	    if (! type.equals(next.getCardType())) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    private synchronized List<DecisionPath> get(ByteArrayWrapper key) {
+	List<DecisionPath> paths = entries.get(key);
+	return paths == null ? Collections.<DecisionPath>emptyList() : new ArrayList<>(paths);
+    }
+
+    private synchronized void put(ByteArrayWrapper key, DecisionPath path) {
+	List<DecisionPath> paths = entries.get(key);
+	if (paths == null) {
+	    paths = new ArrayList<>(1);
+	    entries.put(key, paths);
+	}
+	// most recent result first
+	paths.remove(path);
+	paths.add(0, path);
+	if (paths.size() > MAX_PATHS_PER_ATR) {
+	    paths.remove(paths.size() - 1);
+	}
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    synchronized void clear() {
+	entries.clear();
+    }
+
+    /**
+     * Gets a snapshot of the cache statistics.
+     *
+     * @return Statistics object.
+     */
+    RecognitionCacheStatistics getStatistics() {
+	int size;
+	synchronized (this) {
+	    size = entries.size();
+	}
+	return new RecognitionCacheStatistics(size, hits.get(), misses.get(), stale.get());
+    }
+
+}
@@ -0,0 +1,97 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition;
+
+
+/**
+ * Snapshot of the statistics of the recognition result cache of {@link CardRecognitionImpl}.
+ *
+ * @author agent
+ */
+public class RecognitionCacheStatistics {
+
+    private final int entries;
+    private final long hits;
+    private final long misses;
+    private final long stale;
+
+    RecognitionCacheStatistics(int entries, long hits, long misses, long stale) {
+	this.entries = entries;
+	this.hits = hits;
+	this.misses = misses;
+	this.stale = stale;
+    }
+
+    /**
+     * Gets the number of ATRs for which recognition results are cached.
+     *
+     * @return Number of cache entries.
+     */
+    public int getEntries() {
+	return entries;
+    }
+
+    /**
+     * Gets the number of recognitions answered from the cache.
+     *
+     * @return Number of cache hits.
+     */
+    public long getHits() {
+	return hits;
+    }
+
+    /**
+     * Gets the number of recognitions which needed the evaluation of the complete recognition tree.
+     *
+     * @return Number of cache misses, including stale entries.
+     */
+    public long getMisses() {
+	return misses;
+    }
+
+    /**
+     * Gets the number of cache lookups where an entry for the ATR existed, but the card responded differently.
+     *
+     * @return Number of stale cache entries.
+     */
+    public long getStale() {
+	return stale;
+    }
+
+    /**
+     * Gets the ratio of cache hits to all lookups.
+     *
+     * @return Hit ratio between 0 and 1, or 0 if no lookup has been performed yet.
+     */
+    public double getHitRatio() {
+	long total = hits + misses;
+	return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+	return String.format("RecognitionCacheStatistics[entries=%d, hits=%d, misses=%d, stale=%d]",
+		entries, hits, misses, stale);
+    }
+
+}
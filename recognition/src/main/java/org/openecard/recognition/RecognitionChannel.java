@@ -0,0 +1,45 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition;
+
+import java.util.List;
+
+
+/**
+ * Connection to the card used by the {@link CompiledRecognitionTree}.
+ *
+ * @author agent
+ */
+interface RecognitionChannel {
+
+    /**
+     * Transmits the given commands to the card in one batch.
+     * Transmission stops at the first command yielding a status word which is not acceptable for this command.
+     *
+     * @param commands Commands to send to the card.
+     * @return Responses of the commands which have been executed. The list may be shorter than the list of commands
+     *   and may contain {@code null} values, if the respective command failed.
+     */
+    List<byte[]> transmit(List<CompiledRecognitionTree.Command> commands);
+
+}
@@ -81,4 +81,29 @@ public class RecognitionProperties {
 	return getProperty("org.openecard.recognition.serviceAddr");
     }
 
+    /**
+     * Gets the maximum number of ATRs for which recognition results are cached.
+     *
+     * @return Size of the recognition cache, 64 if not configured.
+     */
+    public static int getCacheSize() {
+	String value = getProperty("org.openecard.recognition.cache.size");
+	try {
+	    return value == null ? 64 : Integer.parseInt(value.trim());
+	} catch (NumberFormatException ex) {
+	    _logger.warn("Invalid recognition cache size '{}' configured.", value);
+	    return 64;
+	}
+    }
+
+    /**
+     * Checks whether a cached recognition result may be used based on the ATR alone.
+     * In that case no commands are sent to a card, when only one card type has been recognized with its ATR so far.
+     *
+     * @return {@code true} if the ATR is trusted, {@code false} if the cached result is verified with the card.
+     */
+    public static boolean isTrustAtr() {
+	return Boolean.parseBoolean(getProperty("org.openecard.recognition.cache.trust_atr"));
+    }
+
 }
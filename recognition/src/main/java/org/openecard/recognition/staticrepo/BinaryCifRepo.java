@@ -0,0 +1,193 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+package org.openecard.recognition.staticrepo;
+
+import iso.std.iso_iec._24727.tech.schema.CardInfoType;
+import iso.std.iso_iec._24727.tech.schema.GetCardInfoOrACDResponse;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import oasis.names.tc.dss._1_0.core.schema.Result;
+import org.openecard.common.ECardConstants;
+import org.openecard.common.WSHelper;
+import org.openecard.ws.GetCardInfoOrACD;
+import org.openecard.ws.marshal.WSMarshaller;
+import org.openecard.ws.marshal.WSMarshallerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+
+/**
+ * CardInfo repository based on the index created by {@link BinaryCifRepoWriter} at build time.
+ * Only the index is read when the repository is created. A CardInfo file is parsed and unmarshalled the first time it
+ * is requested and kept afterwards. Callers receive deep copies of the kept CardInfo, which are created without any
+ * XML processing.
+ *
+ * @author agent
+ */
+public class BinaryCifRepo implements GetCardInfoOrACD {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BinaryCifRepo.class);
+
+    static final String INDEX = "cifs.idx";
+
+    private final WSMarshaller m;
+    private final Map<String, Entry> index;
+
+    /**
+     * Creates the repository from the index in the classpath.
+     *
+     * @param m Marshaller used to unmarshal the CardInfo files.
+     * @throws java.io.FileNotFoundException Thrown in case the classpath contains no index.
+     * @throws IOException Thrown in case the index could not be read.
+     */
+    public BinaryCifRepo(WSMarshaller m) throws IOException {
+	this.m = m;
+	try (InputStream in = LocalCifRepo.getStream(INDEX)) {
+	    this.index = readIndex(in);
+	}
+	LOG.debug("Loaded CIF index with {} card types.", index.size());
+    }
+
+    /**
+     * Creates the repository from the given index.
+     *
+     * @param m Marshaller used to unmarshal the CardInfo files.
+     * @param index Index as created by {@link BinaryCifRepoWriter}.
+     * @throws IOException Thrown in case the index is malformed.
+     */
+    public BinaryCifRepo(WSMarshaller m, InputStream index) throws IOException {
+	this.m = m;
+	this.index = readIndex(index);
+    }
+
+    private static Map<String, Entry> readIndex(InputStream is) throws IOException {
+	DataInputStream in = new DataInputStream(is);
+	if (in.readInt() != BinaryCifRepoWriter.MAGIC) {
+	    throw new IOException("Data is not a CIF index.");
+	}
+	int version = in.readInt();
+	if (version != BinaryCifRepoWriter.VERSION) {
+	    throw new IOException("Unsupported CIF index version " + version + ".");
+	}
+
+	int count = in.readInt();
+	if (count < 0) {
+	    throw new IOException("Invalid number of entries in CIF index.");
+	}
+	LinkedHashMap<String, Entry> result = new LinkedHashMap<>();
+	for (int i = 0; i < count; i++) {
+	    String cardType = in.readUTF();
+	    String resource = in.readUTF();
+	    result.put(cardType, new Entry(resource));
+	}
+	return result;
+    }
+
+    /**
+     * Gets the card types contained in the repository without loading any CardInfo.
+     *
+     * @return Unmodifiable set of the card types.
+     */
+    public Set<String> getCardTypes() {
+	return Collections.unmodifiableSet(index.keySet());
+    }
+
+    private CardInfoType load(Entry e) throws IOException, SAXException, WSMarshallerException {
+	// DOM nodes in the template are not thread safe, so copies are created under the lock as well
+	synchronized (e) {
+	    if (e.template == null) {
+		try (InputStream in = LocalCifRepo.getStream(e.resource)) {
+		    Document cifDoc = m.str2doc(in);
+		    e.template = (CardInfoType) m.unmarshal(cifDoc);
+		}
+	    }
+	    return CifCopier.copy(e.template);
+	}
+    }
+
+    @Override
+    public GetCardInfoOrACDResponse getCardInfoOrACD(iso.std.iso_iec._24727.tech.schema.GetCardInfoOrACD parameters) {
+	List<String> cardTypes = parameters.getCardTypeIdentifier();
+	ArrayList<CardInfoType> cifsResult = new ArrayList<>(cardTypes.size());
+	Result result = WSHelper.makeResultOK();
+
+	try {
+	    if (ECardConstants.CIF.GET_SPECIFIED.equals(parameters.getAction())) {
+		ArrayList<String> missingTypes = new ArrayList<>();
+		for (String cardType : cardTypes) {
+		    Entry e = index.get(cardType);
+		    if (e == null) {
+			missingTypes.add(cardType);
+		    } else {
+			cifsResult.add(load(e));
+		    }
+		}
+
+		if (! missingTypes.isEmpty()) {
+		    StringBuilder error = new StringBuilder("The following card types could not be found:");
+		    for (String type : missingTypes) {
+			error.append("\n  ").append(type);
+		    }
+		    result = WSHelper.makeResultError(ECardConstants.Minor.SAL.UNKNOWN_CARDTYPE, error.toString());
+		}
+	    } else if (ECardConstants.CIF.GET_OTHER.equals(parameters.getAction())) {
+		for (Map.Entry<String, Entry> e : index.entrySet()) {
+		    if (! cardTypes.contains(e.getKey())) {
+			cifsResult.add(load(e.getValue()));
+		    }
+		}
+	    } else {
+		result = WSHelper.makeResultError(ECardConstants.Minor.App.INT_ERROR, "Given action is unsupported.");
+	    }
+
+	    GetCardInfoOrACDResponse res = WSHelper.makeResponse(GetCardInfoOrACDResponse.class, result);
+	    res.getCardInfoOrCapabilityInfo().addAll(cifsResult);
+	    return res;
+	} catch (IOException | SAXException | WSMarshallerException ex) {
+	    String msg = "Failed to load a CIF document.";
+	    LOG.error(msg, ex);
+	    result = WSHelper.makeResultError(ECardConstants.Minor.App.INT_ERROR, msg);
+	    GetCardInfoOrACDResponse res = WSHelper.makeResponse(GetCardInfoOrACDResponse.class, result);
+	    return res;
+	}
+    }
+
+
+    private static class Entry {
+	final String resource;
+	CardInfoType template;
+
+	Entry(String resource) {
+	    this.resource = resource;
+	}
+    }
+
+}
@@ -0,0 +1,164 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+package org.openecard.recognition.staticrepo;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+
+/**
+ * Build time creator of the CardInfo index read by {@link BinaryCifRepo}.
+ * The CardInfo files listed in {@code cif-repo/repo-config.properties} are parsed once to determine their card type,
+ * so that the repository does not have to parse all files when it is created.
+ * <p>The index is independent of the Java classes of the CardInfos and has the following layout:</p>
+ * <pre>
+ * magic (int), version (int), count (int),
+ * count * (card type (UTF), resource name of the CardInfo file (UTF))
+ * </pre>
+ * <p>Numbers and strings are encoded as defined by {@link DataOutputStream}.</p>
+ *
+ * @author agent
+ */
+public class BinaryCifRepoWriter {
+
+    static final int MAGIC = 0x4F454346; // OECF
+    static final int VERSION = 2;
+
+    private static final String ISO_NS = "urn:iso:std:iso-iec:24727:tech:schema";
+
+    private final List<String> cardTypes = new ArrayList<>();
+    private final List<String> resources = new ArrayList<>();
+
+    /**
+     * Adds all CardInfo files listed in the repository configuration.
+     *
+     * @throws IOException Thrown in case a file could not be read or contains no card type.
+     * @throws SAXException Thrown in case a file could not be parsed.
+     */
+    public void addLocalCifs() throws IOException, SAXException {
+	Properties conf = new Properties();
+	try (InputStream propStream = LocalCifRepo.getStream("repo-config.properties")) {
+	    conf.load(propStream);
+	}
+
+	String[] files = conf.getProperty("cifFiles").split(",");
+	for (String next : files) {
+	    String res = next.trim();
+	    try (InputStream cifStream = LocalCifRepo.getStream(res)) {
+		add(readCardType(cifStream, res), res);
+	    }
+	}
+    }
+
+    /**
+     * Adds the given CardInfo file to the index.
+     *
+     * @param cardType Card type of the CardInfo.
+     * @param resource Name of the CardInfo file in the {@code cif-repo} resource folder.
+     */
+    public void add(String cardType, String resource) {
+	cardTypes.add(cardType);
+	resources.add(resource);
+    }
+
+    /**
+     * Writes the index containing all added CardInfo files.
+     *
+     * @param os Stream the index is written to.
+     * @throws IOException Thrown in case the index could not be written.
+     */
+    public void write(OutputStream os) throws IOException {
+	DataOutputStream out = new DataOutputStream(os);
+	out.writeInt(MAGIC);
+	out.writeInt(VERSION);
+	out.writeInt(cardTypes.size());
+	for (int i = 0; i < cardTypes.size(); i++) {
+	    out.writeUTF(cardTypes.get(i));
+	    out.writeUTF(resources.get(i));
+	}
+	out.flush();
+    }
+
+    private static String readCardType(InputStream cifStream, String res) throws IOException, SAXException {
+	Document doc;
+	try {
+	    DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+	    dbf.setNamespaceAware(true);
+	    dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+	    dbf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+	    doc = dbf.newDocumentBuilder().parse(cifStream);
+	} catch (ParserConfigurationException ex) {
+	    throw new IOException("Failed to create XML parser.", ex);
+	}
+
+	Element cardType = getChild(doc.getDocumentElement(), "CardType");
+	Element oid = cardType == null ? null : getChild(cardType, "ObjectIdentifier");
+	if (oid == null) {
+	    throw new IOException("CardInfo file " + res + " contains no card type.");
+	}
+	return oid.getTextContent().trim();
+    }
+
+    private static Element getChild(Element parent, String localName) {
+	for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+	    if (n instanceof Element && ISO_NS.equals(n.getNamespaceURI()) && localName.equals(n.getLocalName())) {
+		return (Element) n;
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Creates the index of the local CardInfo files.
+     *
+     * @param args Path of the index file to create.
+     * @throws Exception Thrown in case the index could not be created.
+     */
+    public static void main(String[] args) throws Exception {
+	if (args.length != 1) {
+	    throw new IllegalArgumentException("Usage: BinaryCifRepoWriter <index file>");
+	}
+	BinaryCifRepoWriter w = new BinaryCifRepoWriter();
+	w.addLocalCifs();
+
+	File bundle = new File(args[0]);
+	bundle.getParentFile().mkdirs();
+	try (OutputStream os = new FileOutputStream(bundle)) {
+	    w.write(os);
+	}
+    }
+
+}
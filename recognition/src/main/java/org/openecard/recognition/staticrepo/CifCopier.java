@@ -0,0 +1,169 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition.staticrepo;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import javax.xml.bind.JAXBElement;
+import javax.xml.datatype.Duration;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import org.w3c.dom.Node;
+
+
+/**
+ * Deep copy of JAXB object graphs such as CardInfos.
+ * The fields of the JAXB classes are copied directly, immutable values are shared and DOM nodes contained in
+ * {@code xs:any} elements are cloned, so that no XML processing is needed. Objects referenced multiple times in the
+ * graph, as with {@code xs:IDREF}, are referenced multiple times in the copy as well.
+ * <p>DOM nodes are not thread safe, not even for reading, so copies of the same graph must not be created
+ * concurrently.</p>
+ *
+ * @author agent
+ */
+final class CifCopier {
+
+    private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    private final IdentityHashMap<Object, Object> copies = new IdentityHashMap<>();
+
+    private CifCopier() {
+    }
+
+    /**
+     * Creates a deep copy of the given object.
+     *
+     * @param <T> Type of the object.
+     * @param obj The object to copy.
+     * @return The copy of the object, or the object itself if it is immutable.
+     * @throws IllegalArgumentException Thrown in case the graph contains an object which can not be copied.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T copy(@Nullable T obj) {
+	return (T) new CifCopier().copyValue(obj);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object copyValue(@Nullable Object obj) {
+	if (obj == null || isImmutable(obj)) {
+	    return obj;
+	}
+	Object copy = copies.get(obj);
+	if (copy != null) {
+	    return copy;
+	}
+
+	if (obj instanceof byte[]) {
+	    copy = ((byte[]) obj).clone();
+	} else if (obj instanceof Node) {
+	    copy = ((Node) obj).cloneNode(true);
+	} else if (obj instanceof XMLGregorianCalendar) {
+	    copy = ((XMLGregorianCalendar) obj).clone();
+	} else if (obj instanceof JAXBElement) {
+	    JAXBElement e = (JAXBElement) obj;
+	    JAXBElement c = new JAXBElement(e.getName(), e.getDeclaredType(), e.getScope(), null);
+	    copies.put(obj, c);
+	    c.setValue(copyValue(e.getValue()));
+	    c.setNil(e.isNil());
+	    return c;
+	} else if (obj instanceof List) {
+	    List<?> l = (List<?>) obj;
+	    ArrayList<Object> c = new ArrayList<>(l.size());
+	    copies.put(obj, c);
+	    for (Object next : l) {
+		c.add(copyValue(next));
+	    }
+	    return c;
+	} else if (obj instanceof Map) {
+	    Map<?, ?> m = (Map<?, ?>) obj;
+	    HashMap<Object, Object> c = new HashMap<>(m.size() * 2);
+	    copies.put(obj, c);
+	    for (Map.Entry<?, ?> next : m.entrySet()) {
+		c.put(copyValue(next.getKey()), copyValue(next.getValue()));
+	    }
+	    return c;
+	} else {
+	    return copyBean(obj);
+	}
+
+	copies.put(obj, copy);
+	return copy;
+    }
+
+    private Object copyBean(Object obj) {
+	Class<?> clazz = obj.getClass();
+	try {
+	    Object copy = getConstructor(clazz).newInstance();
+	    copies.put(obj, copy);
+	    for (Field f : getFields(clazz)) {
+		f.set(copy, copyValue(f.get(obj)));
+	    }
+	    return copy;
+	} catch (ReflectiveOperationException | SecurityException ex) {
+	    throw new IllegalArgumentException("Failed to copy instance of " + clazz.getName() + ".", ex);
+	}
+    }
+
+    private static boolean isImmutable(Object obj) {
+	return obj instanceof String || obj instanceof Number || obj instanceof Boolean || obj instanceof Character
+		|| obj instanceof Enum || obj instanceof QName || obj instanceof Duration || obj instanceof Class;
+    }
+
+    private static Constructor<?> getConstructor(Class<?> clazz) throws NoSuchMethodException {
+	Constructor<?> c = CONSTRUCTORS.get(clazz);
+	if (c == null) {
+	    c = clazz.getDeclaredConstructor();
+	    c.setAccessible(true);
+	    CONSTRUCTORS.put(clazz, c);
+	}
+	return c;
+    }
+
+    private static Field[] getFields(Class<?> clazz) {
+	Field[] fields = FIELDS.get(clazz);
+	if (fields == null) {
+	    ArrayList<Field> result = new ArrayList<>();
+	    for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+		for (Field f : c.getDeclaredFields()) {
+		    if (! Modifier.isStatic(f.getModifiers())) {
+			f.setAccessible(true);
+			result.add(f);
+		    }
+		}
+	    }
+	    fields = result.toArray(new Field[result.size()]);
+	    FIELDS.put(clazz, fields);
+	}
+	return fields;
+    }
+
+}
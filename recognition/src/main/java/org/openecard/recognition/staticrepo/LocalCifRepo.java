@@ -77,7 +77,7 @@ public class LocalCifRepo implements GetCardInfoOrACD {
 	}
     }
 
-    private static InputStream getStream(String res) throws FileNotFoundException {
+    static InputStream getStream(String res) throws FileNotFoundException {
 	String prefix = "cif-repo/";
 	InputStream s = LocalCifRepo.class.getResourceAsStream(prefix + res);
 	if (s == null) {
@@ -0,0 +1,368 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.recognition;
+
+import iso.std.iso_iec._24727.tech.schema.CardCall;
+import iso.std.iso_iec._24727.tech.schema.Conclusion;
+import iso.std.iso_iec._24727.tech.schema.DataMaskType;
+import iso.std.iso_iec._24727.tech.schema.GetRecognitionTree;
+import iso.std.iso_iec._24727.tech.schema.MatchingDataType;
+import iso.std.iso_iec._24727.tech.schema.RecognitionTree;
+import iso.std.iso_iec._24727.tech.schema.ResponseAPDUType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openecard.common.util.ByteUtils;
+import org.openecard.common.util.StringUtils;
+import org.openecard.recognition.CompiledRecognitionTree.DecisionPath;
+import org.openecard.recognition.statictree.LocalFileTree;
+import org.openecard.ws.jaxb.JAXBMarshaller;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ *
+ * @author agent
+ */
+public class CompiledRecognitionTreeTest {
+
+    private static final String SELECT_MF = "00A4000C023F00";
+    private static final String SELECT_A = "00A4020C02AAAA";
+    private static final String SELECT_B = "00A4020C02BBBB";
+    private static final String READ = "00B0000004";
+    private static final String GET_DATA = "00CA010000";
+
+    @Test
+    public void testSkipSelectedPrefix() {
+	CompiledRecognitionTree tree = compile(
+		call(SELECT_MF, select(call(SELECT_A, select(call(READ, match(value(0, "01"), "A")))))),
+		call(SELECT_MF, select(call(SELECT_B, select(call(READ, match(value(0, "02"), "B")))))));
+	FakeCard card = new FakeCard()
+		.respond(SELECT_MF, "9000")
+		.respond(SELECT_B, "9000")
+		.respond(READ, "0203049000");
+
+	DecisionPath path = tree.recognize(card);
+
+	assertNotNull(path);
+	assertEquals(path.getCardType(), "B");
+	// MF is already selected when the second branch starts
+	assertEquals(card.sent, Arrays.asList(SELECT_MF, SELECT_A, SELECT_B, READ));
+	assertEquals(card.transmits, 2);
+	// identical commands are shared
+	assertEquals(tree.getCardCallCount(), 6);
+	assertEquals(tree.getCommandCount(), 4);
+    }
+
+    @Test
+    public void testFailedSelectIsNotRepeated() {
+	CompiledRecognitionTree tree = compile(
+		call(SELECT_MF, select(call(SELECT_A, select(call(READ, match(value(0, "01"), "A1")))))),
+		call(SELECT_MF, select(call(SELECT_A, select(call(GET_DATA, match(value(0, "01"), "A2")))))),
+		call(SELECT_MF, select(call(SELECT_B, select(call(READ, match(value(1, "05", "0F"), "B")))))));
+	FakeCard card = new FakeCard()
+		.respond(SELECT_MF, "9000")
+		.respond(SELECT_B, "9000")
+		.respond(READ, "00F5009000");
+
+	DecisionPath path = tree.recognize(card);
+
+	assertNotNull(path);
+	assertEquals(path.getCardType(), "B");
+	assertEquals(card.sent, Arrays.asList(SELECT_MF, SELECT_A, SELECT_B, READ));
+    }
+
+    @Test
+    public void testStateIsResetAfterMatcher() {
+	CompiledRecognitionTree tree = compile(
+		call(SELECT_MF, select(call(READ, match(value(0, "01"), "A")))),
+		call(SELECT_MF, select(call(GET_DATA, match(value(0, "02"), "B")))));
+	FakeCard card = new FakeCard()
+		.respond(SELECT_MF, "9000")
+		.respond(READ, "029000")
+		.respond(GET_DATA, "029000");
+
+	DecisionPath path = tree.recognize(card);
+
+	assertNotNull(path);
+	assertEquals(path.getCardType(), "B");
+	// READ may have changed the current file, so MF is selected again
+	assertEquals(card.sent, Arrays.asList(SELECT_MF, READ, SELECT_MF, GET_DATA));
+    }
+
+    @Test
+    public void testDataObjectAndSubtree() {
+	CompiledRecognitionTree tree = compile(
+		call(GET_DATA,
+			match(body(tlv("5F20", tlv("80", value(0, "AB")))), "wrong"),
+			match(body(tlv("5F20", value(1, "CC"))),
+				call(SELECT_A, select(call(READ, match(value(0, "01"), "A"), match(value(0, "02"), "B")))))));
+	FakeCard card = new FakeCard()
+		.respond(GET_DATA, "5F2002BBCC9000")
+		.respond(SELECT_A, "9000")
+		.respond(READ, "029000");
+
+	DecisionPath path = tree.recognize(card);
+
+	assertNotNull(path);
+	assertEquals(path.getCardType(), "B");
+
+	// replay of the path only sends the commands of the recognition run
+	card.sent.clear();
+	assertTrue(tree.verify(path, card));
+	assertEquals(card.sent, Arrays.asList(GET_DATA, SELECT_A, READ));
+
+	card.respond(READ, "019000");
+	assertFalse(tree.verify(path, card));
+    }
+
+    @Test
+    public void testCache() {
+	CompiledRecognitionTree tree = compile(
+		call(SELECT_MF, select(call(READ, match(value(0, "01"), "A"), match(value(0, "02"), "B")))));
+	RecognitionCache cache = new RecognitionCache(tree, 4, false);
+	byte[] atr = StringUtils.toByteArray("3B8F8001");
+	FakeCard cardA = new FakeCard().respond(SELECT_MF, "9000").respond(READ, "019000");
+	FakeCard cardB = new FakeCard().respond(SELECT_MF, "9000").respond(READ, "029000");
+
+	assertEquals(cache.recognize(atr, cardA), "A");
+	assertEquals(cache.recognize(atr, cardA), "A");
+	assertEquals(cache.recognize(atr, cardB), "B");
+	assertEquals(cache.recognize(atr, cardB), "B");
+	assertEquals(cache.recognize(atr, cardA), "A");
+	// unknown card with the same ATR
+	FakeCard unknown = new FakeCard().respond(SELECT_MF, "9000").respond(READ, "039000");
+	assertNull(cache.recognize(atr, unknown));
+
+	RecognitionCacheStatistics stats = cache.getStatistics();
+	assertEquals(stats.getEntries(), 1);
+	assertEquals(stats.getHits(), 3);
+	assertEquals(stats.getMisses(), 3);
+	assertEquals(stats.getStale(), 2);
+    }
+
+    @Test
+    public void testVerifyReusesResponses() {
+	CompiledRecognitionTree tree = compile(
+		call(SELECT_MF, select(call(READ, match(value(0, "01"), "A"), match(value(0, "02"), "B")))));
+	FakeCard cardA = new FakeCard().respond(SELECT_MF, "9000").respond(READ, "019000");
+	FakeCard cardB = new FakeCard().respond(SELECT_MF, "9000").respond(READ, "029000");
+	DecisionPath pathA = tree.recognize(cardA);
+	DecisionPath pathB = tree.recognize(cardB);
+
+	// the response of card B deviates from path A, but is the one of path B, so nothing is sent again
+	cardB.sent.clear();
+	assertSame(tree.verify(Arrays.asList(pathA, pathB), cardB), pathB);
+	assertEquals(cardB.sent, Arrays.asList(SELECT_MF, READ));
+
+	FakeCard unknown = new FakeCard().respond(SELECT_MF, "9000").respond(READ, "039000");
+	assertNull(tree.verify(Arrays.asList(pathA, pathB), unknown));
+	assertEquals(unknown.sent, Arrays.asList(SELECT_MF, READ));
+    }
+
+    @Test
+    public void testVerifyChecksPrecedingBranches() {
+	CompiledRecognitionTree tree = compile(
+		call(SELECT_A, select(call(READ, match(value(0, "01"), "A")))),
+		call(SELECT_MF, select(call(READ, match(value(0, "01"), "B")))));
+	FakeCard cardA = new FakeCard()
+		.respond(SELECT_A, "9000")
+		.respond(SELECT_MF, "9000")
+		.respond(READ, "019000");
+	FakeCard cardB = new FakeCard()
+		.respond(SELECT_MF, "9000")
+		.respond(READ, "019000");
+
+	DecisionPath path = tree.recognize(cardB);
+	assertNotNull(path);
+	assertEquals(path.getCardType(), "B");
+
+	// the failed SELECT of the first branch is checked again, the rest is sent in a second batch
+	cardB.sent.clear();
+	cardB.transmits = 0;
+	assertTrue(tree.verify(path, cardB));
+	assertEquals(cardB.sent, Arrays.asList(SELECT_A, SELECT_MF, READ));
+	assertEquals(cardB.transmits, 2);
+
+	// card A answers the commands of the B branch in the same way, but is recognized by the first branch
+	assertFalse(tree.verify(path, cardA));
+
+	RecognitionCache cache = new RecognitionCache(tree, 4, false);
+	byte[] atr = StringUtils.toByteArray("3B8F8001");
+	assertEquals(cache.recognize(atr, cardB), "B");
+	assertEquals(cache.recognize(atr, cardA), "A");
+	assertEquals(cache.recognize(atr, cardB), "B");
+	assertEquals(cache.recognize(atr, cardA), "A");
+    }
+
+    @Test
+    public void testCacheTrustedAtr() {
+	CompiledRecognitionTree tree = compile(
+		call(SELECT_MF, select(call(READ, match(value(0, "01"), "A")))));
+	RecognitionCache cache = new RecognitionCache(tree, 4, true);
+	byte[] atr = StringUtils.toByteArray("3B8F8001");
+	FakeCard card = new FakeCard().respond(SELECT_MF, "9000").respond(READ, "019000");
+
+	assertEquals(cache.recognize(atr, card), "A");
+	card.sent.clear();
+	assertEquals(cache.recognize(atr, card), "A");
+	assertTrue(card.sent.isEmpty());
+	assertEquals(cache.getStatistics().getHits(), 1);
+    }
+
+    @Test
+    public void testStaticTree() throws Exception {
+	RecognitionTree staticTree = new LocalFileTree(new JAXBMarshaller())
+		.getRecognitionTree(new GetRecognitionTree()).getRecognitionTree();
+	CompiledRecognitionTree tree = CompiledRecognitionTree.compile(staticTree);
+
+	assertTrue(tree.getCommandCount() < tree.getCardCallCount());
+
+	// a card which does not know any of the commands
+	FakeCard card = new FakeCard();
+	assertNull(tree.recognize(card));
+	// a SELECT which failed before is not sent again unless a matcher has changed the card state in between
+	assertTrue(card.sent.size() < staticTree.getCardCall().size());
+    }
+
+
+    private static CompiledRecognitionTree compile(CardCall... calls) {
+	RecognitionTree tree = new RecognitionTree();
+	tree.getCardCall().addAll(Arrays.asList(calls));
+	return CompiledRecognitionTree.compile(tree);
+    }
+
+    private static CardCall call(String cmd, ResponseAPDUType... responses) {
+	CardCall call = new CardCall();
+	call.setCommandAPDU(StringUtils.toByteArray(cmd));
+	call.getResponseAPDU().addAll(Arrays.asList(responses));
+	return call;
+    }
+
+    private static ResponseAPDUType select(CardCall next) {
+	ResponseAPDUType r = new ResponseAPDUType();
+	r.setTrailer(new byte[] { (byte) 0x90, 0x00 });
+	Conclusion c = new Conclusion();
+	c.getCardCall().add(next);
+	r.setConclusion(c);
+	return r;
+    }
+
+    private static ResponseAPDUType match(DataMaskType body, String type) {
+	ResponseAPDUType r = new ResponseAPDUType();
+	r.setTrailer(new byte[] { (byte) 0x90, 0x00 });
+	r.setBody(body);
+	Conclusion c = new Conclusion();
+	c.setRecognizedCardType(type);
+	r.setConclusion(c);
+	return r;
+    }
+
+    private static ResponseAPDUType match(DataMaskType body, CardCall... subtree) {
+	ResponseAPDUType r = new ResponseAPDUType();
+	r.setTrailer(new byte[] { (byte) 0x90, 0x00 });
+	r.setBody(body);
+	Conclusion c = new Conclusion();
+	c.getCardCall().addAll(Arrays.asList(subtree));
+	r.setConclusion(c);
+	return r;
+    }
+
+    private static DataMaskType value(int offset, String value) {
+	return value(offset, value, null);
+    }
+
+    private static DataMaskType value(int offset, String value, String mask) {
+	MatchingDataType md = new MatchingDataType();
+	md.setOffset(new byte[] { (byte) offset });
+	md.setMatchingValue(StringUtils.toByteArray(value));
+	if (mask != null) {
+	    md.setMask(StringUtils.toByteArray(mask));
+	}
+	DataMaskType m = new DataMaskType();
+	m.setMatchingData(md);
+	return m;
+    }
+
+    private static DataMaskType tlv(String tag, DataMaskType inner) {
+	DataMaskType m = new DataMaskType();
+	m.setTag(StringUtils.toByteArray(tag));
+	m.setDataObject(inner);
+	return m;
+    }
+
+    private static DataMaskType body(DataMaskType dataObject) {
+	DataMaskType m = new DataMaskType();
+	m.setDataObject(dataObject);
+	return m;
+    }
+
+    /**
+     * Card answering with fixed responses, unknown commands yield 6A82.
+     */
+    private static class FakeCard implements RecognitionChannel {
+
+	private final Map<String, byte[]> responses = new HashMap<>();
+	private final List<String> sent = new ArrayList<>();
+	private int transmits;
+
+	FakeCard respond(String cmd, String rapdu) {
+	    responses.put(cmd, StringUtils.toByteArray(rapdu));
+	    return this;
+	}
+
+	@Override
+	public List<byte[]> transmit(List<CompiledRecognitionTree.Command> commands) {
+	    transmits++;
+	    ArrayList<byte[]> result = new ArrayList<>();
+	    for (CompiledRecognitionTree.Command cmd : commands) {
+		String hex = ByteUtils.toHexString(cmd.getCommandAPDU());
+		sent.add(hex);
+		byte[] rapdu = responses.get(hex);
+		if (rapdu == null) {
+		    rapdu = new byte[] { 0x6A, (byte) 0x82 };
+		}
+		result.add(rapdu);
+		if (! isAcceptable(cmd, rapdu)) {
+		    break;
+		}
+	    }
+	    return result;
+	}
+
+	private static boolean isAcceptable(CompiledRecognitionTree.Command cmd, byte[] rapdu) {
+	    byte[] trailer = Arrays.copyOfRange(rapdu, rapdu.length - 2, rapdu.length);
+	    for (byte[] next : cmd.getAcceptableStatusCodes()) {
+		if (Arrays.equals(next, trailer)) {
+		    return true;
+		}
+	    }
+	    return cmd.getAcceptableStatusCodes().isEmpty();
+	}
+
+    }
+
+}
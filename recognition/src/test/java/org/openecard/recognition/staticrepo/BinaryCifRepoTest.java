@@ -0,0 +1,135 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+package org.openecard.recognition.staticrepo;
+
+import iso.std.iso_iec._24727.tech.schema.CardInfoType;
+import iso.std.iso_iec._24727.tech.schema.GetCardInfoOrACD;
+import iso.std.iso_iec._24727.tech.schema.GetCardInfoOrACDResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import org.openecard.common.ECardConstants;
+import org.openecard.common.WSHelper;
+import org.openecard.ws.jaxb.JAXBMarshaller;
+import org.openecard.ws.marshal.WSMarshaller;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Tests the CIF index repository against the XML CardInfo files it is created from.
+ *
+ * @author agent
+ */
+public class BinaryCifRepoTest {
+
+    private WSMarshaller m;
+    private byte[] index;
+
+    @BeforeClass(alwaysRun = true)
+    public void createIndex() throws Exception {
+	m = new JAXBMarshaller();
+	BinaryCifRepoWriter w = new BinaryCifRepoWriter();
+	w.addLocalCifs();
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	w.write(out);
+	index = out.toByteArray();
+    }
+
+    @Test
+    public void testSameContent() throws Exception {
+	LocalCifRepo xmlRepo = new LocalCifRepo(m);
+	BinaryCifRepo binRepo = new BinaryCifRepo(m, new ByteArrayInputStream(index));
+
+	GetCardInfoOrACD req = new GetCardInfoOrACD();
+	req.setAction(ECardConstants.CIF.GET_OTHER);
+	GetCardInfoOrACDResponse xmlRes = WSHelper.checkResult(xmlRepo.getCardInfoOrACD(req));
+	GetCardInfoOrACDResponse binRes = WSHelper.checkResult(binRepo.getCardInfoOrACD(req));
+	assertEquals(binRes.getCardInfoOrCapabilityInfo().size(), xmlRes.getCardInfoOrCapabilityInfo().size());
+	assertEquals(binRepo.getCardTypes().size(), xmlRes.getCardInfoOrCapabilityInfo().size());
+
+	for (Object next : xmlRes.getCardInfoOrCapabilityInfo()) {
+	    CardInfoType xmlCif = (CardInfoType) next;
+	    String cardType = xmlCif.getCardType().getObjectIdentifier();
+	    assertTrue(binRepo.getCardTypes().contains(cardType));
+
+	    req = new GetCardInfoOrACD();
+	    req.setAction(ECardConstants.CIF.GET_SPECIFIED);
+	    req.getCardTypeIdentifier().add(cardType);
+	    binRes = WSHelper.checkResult(binRepo.getCardInfoOrACD(req));
+	    CardInfoType binCif = (CardInfoType) binRes.getCardInfoOrCapabilityInfo().get(0);
+	    assertEquals(m.doc2str(m.marshal(binCif)), m.doc2str(m.marshal(xmlCif)), cardType);
+	}
+    }
+
+    @Test
+    public void testCopies() throws Exception {
+	BinaryCifRepo repo = new BinaryCifRepo(m, new ByteArrayInputStream(index));
+	GetCardInfoOrACD req = new GetCardInfoOrACD();
+	req.setAction(ECardConstants.CIF.GET_SPECIFIED);
+	req.getCardTypeIdentifier().add("http://bsi.bund.de/cif/npa.xml");
+
+	CardInfoType first = (CardInfoType) repo.getCardInfoOrACD(req).getCardInfoOrCapabilityInfo().get(0);
+	first.getCardType().setObjectIdentifier("modified");
+	CardInfoType second = (CardInfoType) repo.getCardInfoOrACD(req).getCardInfoOrCapabilityInfo().get(0);
+	assertNotSame(second, first);
+	assertNotSame(second.getApplicationCapabilities(), first.getApplicationCapabilities());
+	assertEquals(second.getCardType().getObjectIdentifier(), "http://bsi.bund.de/cif/npa.xml");
+	assertEquals(m.doc2str(m.marshal(second)), m.doc2str(m.marshal(CifCopier.copy(second))));
+    }
+
+    @Test
+    public void testBuildIndex() throws Exception {
+	BinaryCifRepo buildRepo = new BinaryCifRepo(m);
+	BinaryCifRepo repo = new BinaryCifRepo(m, new ByteArrayInputStream(index));
+	assertEquals(buildRepo.getCardTypes(), repo.getCardTypes());
+    }
+
+    @Test
+    public void testUnknownType() throws Exception {
+	BinaryCifRepo repo = new BinaryCifRepo(m, new ByteArrayInputStream(index));
+	GetCardInfoOrACD req = new GetCardInfoOrACD();
+	req.setAction(ECardConstants.CIF.GET_SPECIFIED);
+	req.getCardTypeIdentifier().add("urn:unknown");
+	GetCardInfoOrACDResponse res = repo.getCardInfoOrACD(req);
+	assertEquals(res.getResult().getResultMinor(), ECardConstants.Minor.SAL.UNKNOWN_CARDTYPE);
+    }
+
+    @Test
+    public void testMalformedIndex() {
+	try {
+	    new BinaryCifRepo(m, new ByteArrayInputStream(Arrays.copyOf(index, index.length - 3)));
+	    fail("Truncated index must be rejected.");
+	} catch (IOException ex) {
+	    // expected
+	}
+	try {
+	    new BinaryCifRepo(m, new ByteArrayInputStream(new byte[16]));
+	    fail("Data without magic must be rejected.");
+	} catch (IOException ex) {
+	    // expected
+	}
+    }
+
+}
@@ -255,6 +255,9 @@ class MwEventRunner implements Runnable {
 	    LOG.debug("Processing of already sent card inserted event detected. Not sending event.");
 	    return; //Event already sended
 	}
+	// objects of a previous token in this slot are gone
+	mwModule.getObjectCache().invalidate(slotId);
+
 	// send card inserted
 	ConnectionHandleType insertHandle = makeUnknownCardHandle(ifdName, slotId);
 	MwEventObject insertEvent = new MwEventObject(insertHandle, slot);
@@ -321,6 +324,8 @@ class MwEventRunner implements Runnable {
 	    return; // Event already sended
 	}
 
+	mwModule.getObjectCache().invalidate(sl.slotId);
+
 	ConnectionHandleType handle = makeConnectionHandle(sl.ifdName, sl.slotId);
 	MwEventObject remEvent = new MwEventObject(handle, null);
 
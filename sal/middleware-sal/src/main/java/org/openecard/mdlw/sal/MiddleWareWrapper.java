@@ -43,6 +43,8 @@ import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import org.openecard.common.ThreadTerminateException;
@@ -87,7 +89,12 @@ public class MiddleWareWrapper {
     private final CryptokiLibrary lib;
     private static int libIdx = 0;
 
-    private final Semaphore threadLock;
+    // used for module wide functions and for everything if the module is not thread safe
+    private final MwLock moduleLock;
+    // locks of the slots and the slot of each session, only used if the module is thread safe
+    private final HashMap<Long, MwLock> slotLocks;
+    private final HashMap<Long, Long> sessionSlots;
+    private volatile boolean concurrent;
 
     public MiddleWareWrapper(MiddlewareSALConfig mwSALConfig) throws UnsatisfiedLinkError, CryptokiException {
         String libName = mwSALConfig.getLibName();
@@ -123,7 +130,9 @@ public class MiddleWareWrapper {
 	CryptokiLibrary tmpLib = (CryptokiLibrary) Native.loadLibrary(libName, CryptokiLibrary.class, options);
 	nl = NativeLibrary.getInstance(libName, options);
 
-	threadLock = new Semaphore(1, true);
+	moduleLock = new MwLock();
+	slotLocks = new HashMap<>();
+	sessionSlots = new HashMap<>();
 
 	// determine whether we have to use the function pointers from C_GetFunctionList
 	boolean hasInitialize = true;
@@ -140,18 +149,114 @@ public class MiddleWareWrapper {
 	lib = tmpLib;
     }
 
+    /**
+     * Creates a wrapper for an already loaded library.
+     * This constructor is used to run the wrapper against a stub library.
+     *
+     * @param lib Cryptoki library which is called by this instance.
+     */
+    MiddleWareWrapper(CryptokiLibrary lib) {
+	this.nl = null;
+	this.lib = lib;
+	this.moduleLock = new MwLock();
+	this.slotLocks = new HashMap<>();
+	this.sessionSlots = new HashMap<>();
+    }
+
     private LockedObject lockInternal() throws InterruptedException {
+	return lockInternal(moduleLock);
+    }
+
+    private LockedObject lockSlot(long slotID) throws InterruptedException {
+	return lockInternal(getSlotLock(slotID));
+    }
+
+    private LockedObject lockSession(long hSession) throws InterruptedException {
+	return lockInternal(getSessionLock(hSession));
+    }
+
+    private LockedObject lockInternal(MwLock lock) throws InterruptedException {
 	try {
-	    threadLock.acquire();
-	    return new LockedObject();
+	    lock.acquire();
+	    return new LockedObject(lock);
 	} catch (InterruptedException ex) {
 	    throw new ThreadTerminateException("Waiting for middleware mutex failed.");
 	}
     }
 
-    public LockedMiddlewareWrapper lock() throws InterruptedException {
-	threadLock.acquire();
-	return new LockedMiddlewareWrapper();
+    private MwLock getSlotLock(long slotID) {
+	if (! concurrent) {
+	    return moduleLock;
+	}
+	synchronized (slotLocks) {
+	    MwLock lock = slotLocks.get(slotID);
+	    if (lock == null) {
+		lock = new MwLock();
+		slotLocks.put(slotID, lock);
+	    }
+	    return lock;
+	}
+    }
+
+    private MwLock getSessionLock(long hSession) {
+	if (! concurrent) {
+	    return moduleLock;
+	}
+	Long slotID;
+	synchronized (slotLocks) {
+	    slotID = sessionSlots.get(hSession);
+	}
+	// sessions not opened by this instance are unknown, so only the module lock remains
+	return slotID != null ? getSlotLock(slotID) : moduleLock;
+    }
+
+    /**
+     * Locks the slot of the given session, so that a sequence of functions can be performed on the session.
+     * Other slots of the module stay accessible, in case the module is thread safe.
+     *
+     * @param hSession Session which is used in the locked sequence.
+     * @return Object providing the sequence functions. It must be closed to release the lock.
+     * @throws InterruptedException Thrown in case the thread was interrupted while waiting for the lock.
+     */
+    public LockedMiddlewareWrapper lock(long hSession) throws InterruptedException {
+	MwLock lock = getSessionLock(hSession);
+	lock.acquire();
+	return new LockedMiddlewareWrapper(lock);
+    }
+
+    /**
+     * Indicates whether functions on different slots may be performed concurrently.
+     * This is the case when the module was initialized with support for multi threaded access.
+     *
+     * @return {@code true} if the slots are locked individually, {@code false} if one lock is used for the module.
+     */
+    public boolean isConcurrent() {
+	return concurrent;
+    }
+
+    /**
+     * Gets the current values of the lock counters of this instance.
+     *
+     * @return Snapshot of the lock counters.
+     */
+    public MiddlewareLockStatistics getLockStatistics() {
+	ArrayList<MwLock> locks = new ArrayList<>();
+	locks.add(moduleLock);
+	synchronized (slotLocks) {
+	    locks.addAll(slotLocks.values());
+	}
+
+	long acquisitions = 0;
+	long contended = 0;
+	long waitNanos = 0;
+	long maxWaitNanos = 0;
+	for (MwLock next : locks) {
+	    acquisitions += next.acquisitions.get();
+	    contended += next.contended.get();
+	    waitNanos += next.waitNanos.get();
+	    maxWaitNanos = Math.max(maxWaitNanos, next.maxWaitNanos.get());
+	}
+	return new MiddlewareLockStatistics(concurrent, locks.size(), acquisitions, contended, waitNanos, maxWaitNanos);
     }
 
     public void initialize(@Nullable CK_C_INITIALIZE_ARGS arg) throws CryptokiException {
@@ -174,6 +279,8 @@ public class MiddleWareWrapper {
 	    arg.setFlags(CryptokiLibrary.CKF_OS_LOCKING_OK);
 
 	    initialize(arg);
+	    LOG.info("Middleware performs locking by itself, slots are accessed concurrently.");
+	    concurrent = true;
 
 	    return;
 	} catch (CryptokiException ex) {
@@ -191,6 +298,8 @@ public class MiddleWareWrapper {
 	    arg.setUnlockMutex(mutexStore.getUnlockMutexFun());
 
 	    initialize(arg);
+	    LOG.info("Middleware performs locking with Java locks, slots are accessed concurrently.");
+	    concurrent = true;
 
 	    return;
 	} catch (CryptokiException ex) {
@@ -199,10 +308,15 @@ public class MiddleWareWrapper {
 
 	LOG.warn("Initializing middleware without thread safety values.");
 	initialize(null);
+	concurrent = false;
     }
 
     public void destroy(@Nullable Pointer arg) throws CryptokiException {
 	check("C_Finalize", () -> lib.C_Finalize(arg));
+	// all sessions are closed by the middleware
+	synchronized (slotLocks) {
+	    sessionSlots.clear();
+	}
     }
 
     public void destroy() throws CryptokiException {
@@ -265,7 +379,7 @@ public class MiddleWareWrapper {
     public CkSlot getSlotInfo(long slotID) throws CryptokiException {
 	// init slot info
 	CK_SLOT_INFO info = new CK_SLOT_INFO();
-	try (LockedObject lo = lockInternal()) {
+	try (LockedObject lo = lockSlot(slotID)) {
 	    // fill slot info with data recieved from lib
 	    check("C_GetSlotInfo", () -> lib.C_GetSlotInfo(new NativeLong(slotID), info));
 	    // return new info
@@ -278,7 +392,7 @@ public class MiddleWareWrapper {
     public MwToken getTokenInfo(long slotID) throws CryptokiException {
 	// init token info
 	CK_TOKEN_INFO pInfo = new CK_TOKEN_INFO();
-	try (LockedObject lo = lockInternal()) {
+	try (LockedObject lo = lockSlot(slotID)) {
 	    // fill token info
 	    check("C_GetTokenInfo", () -> lib.C_GetTokenInfo(new NativeLong(slotID), pInfo));
 	    // return new token info
@@ -291,7 +405,7 @@ public class MiddleWareWrapper {
     public MwMechanism getMechanismInfo(long slotID, long type) throws CryptokiException {
 	// init new mecha info
 	CK_MECHANISM_INFO info = new CK_MECHANISM_INFO();
-	try (LockedObject lo = lockInternal()) {
+	try (LockedObject lo = lockSlot(slotID)) {
 	    // fill info
 	    check("C_GetMechanismInfo", () -> lib.C_GetMechanismInfo(new NativeLong(slotID), new NativeLong(type), info));
 	    // return new mecha info
@@ -308,7 +422,7 @@ public class MiddleWareWrapper {
 
     private long getMechanismListCnt(long slotID) throws CryptokiException {
 	NativeLongByReference pulCount = new NativeLongByReference(new NativeLong(0));
-	try (LockedObject lo = lockInternal()) {
+	try (LockedObject lo = lockSlot(slotID)) {
 	    // get number
 	    check("C_GetMechanismList", () -> lib.C_GetMechanismList(new NativeLong(slotID), null, pulCount));
 	    // return number
@@ -326,7 +440,7 @@ public class MiddleWareWrapper {
 	    NativeLongArray pMechanismList = new NativeLongArray((int) cnt);
 	    NativeLongByReference pulCount = new NativeLongByReference(new NativeLong(cnt));
 
-	    try (LockedObject lo = lockInternal()) {
+	    try (LockedObject lo = lockSlot(slotID)) {
 		check("C_GetMechanismList", () -> lib.C_GetMechanismList(new NativeLong(slotID), pMechanismList.getReference(), pulCount));
 
 		// convert to array
@@ -345,21 +459,30 @@ public class MiddleWareWrapper {
 	NativeLongByReference session = new NativeLongByReference();
 	Pointer pApplication = new Memory(NativeLong.SIZE);
 
-	try (LockedObject lo = lockInternal()) {
+	try (LockedObject lo = lockSlot(slotID)) {
 	    // open session
 	    check("C_OpenSession", () -> lib.C_OpenSession(new NativeLong(slotID), new NativeLong(flags), pApplication, null, session));
 
-	    // return session id
-	    return session.getValue().longValue();
+	    // remember the slot, so that functions on the session use the slot lock
+	    long hSession = session.getValue().longValue();
+	    if (concurrent) {
+		synchronized (slotLocks) {
+		    sessionSlots.put(hSession, slotID);
+		}
+	    }
+	    return hSession;
 	} catch (InterruptedException ex) {
 	    throw new IllegalStateException("Failed to release lock for middleware access.");
 	}
     }
 
     public void closeSession(long session) throws CryptokiException {
-	try (LockedObject lo = lockInternal()) {
+	try (LockedObject lo = lockSession(session)) {
 	    // close session
 	    check("C_CloseSession", () -> lib.C_CloseSession(new NativeLong(session)));
+	    synchronized (slotLocks) {
+		sessionSlots.remove(session);
+	    }
 	} catch (InterruptedException ex) {
 	    throw new IllegalStateException("Failed to release lock for middleware access.");
 	}
@@ -369,7 +492,7 @@ public class MiddleWareWrapper {
 	// TODO: convert result to own struct
 	NativeLong sessionId = new NativeLong(session);
 	CK_SESSION_INFO sessionInfo = new CK_SESSION_INFO();
-	try (LockedObject lo = lockInternal()) {
+	try (LockedObject lo = lockSession(session)) {
 	    // close session
 	    check("C_CloseSession", () -> lib.C_GetSessionInfo(sessionId, sessionInfo));
 	    return sessionInfo;
@@ -387,7 +510,7 @@ public class MiddleWareWrapper {
 	} else {
 	    pinBytes = null;
 	}
-	try (LockedObject lo = lockInternal()) {
+	try (LockedObject lo = lockSession(hSession)) {
 	    // login to session with pin and usertype
 	    check("C_InitPIN", () -> lib.C_InitPIN(new NativeLong(hSession), pinBytes, pinLen));
 	} catch (InterruptedException ex) {
@@ -396,7 +519,7 @@ public class MiddleWareWrapper {
     }
 
     public void setPin(long hSession, @Nullable byte[] oldPin, @Nullable byte[] newPin) throws CryptokiException {
-	try (LockedObject lo = lockInternal()) {
+	try (LockedObject lo = lockSession(hSession)) {
 	    if (oldPin != null && oldPin.length > 0 && newPin != null && newPin.length > 0) {
 		NativeLong oldPinlen = new NativeLong(oldPin.length);
 		ByteBuffer oldPinBytes = ByteBuffer.wrap(oldPin);
@@ -423,7 +546,7 @@ public class MiddleWareWrapper {
 	}
 	final ByteBuffer pinBytes = pinBytesTmp;
 
-	try (LockedObject lo = lockInternal()) {
+	try (LockedObject lo = lockSession(hSession)) {
 	    FutureTask<Void> task = new FutureTask<>(() -> {
 		// login to session with pin and usertype
 		check("C_Login", () -> MiddleWareWrapper.this.lib.C_Login(new NativeLong(hSession),
@@ -458,7 +581,7 @@ public class MiddleWareWrapper {
     }
 
     public void logout(long hSession) throws CryptokiException {
-	try (LockedObject lo = lockInternal()) {
+	try (LockedObject lo = lockSession(hSession)) {
 	    // logout from session
 	    check("C_Logout", () -> lib.C_Logout(new NativeLong(hSession)));
 	} catch (InterruptedException ex) {
@@ -471,6 +594,29 @@ public class MiddleWareWrapper {
     }
 
     public List<CkAttribute> getAttributeValues(long hSession, long hObject, long... types) throws CryptokiException {
+	return getAttributeValues(hSession, hObject, types, (long) CryptokiLibrary.CKR_OK);
+    }
+
+    /**
+     * Reads several attributes of an object in one {@code C_GetAttributeValue} round trip.
+     * In contrast to {@link #getAttributeValues(long, long, long...)}, attributes which are not present in the object
+     * or which may not be revealed do not fail the whole call. Their entry in the result list is {@code null} instead.
+     *
+     * @param hSession Handle of the session used to access the object.
+     * @param hObject Handle of the object.
+     * @param types Types of the attributes to read.
+     * @return List containing the attributes in the same order as the requested types. Unavailable attributes are
+     *   represented by {@code null}.
+     * @throws CryptokiException Thrown in case the attributes could not be read at all.
+     */
+    public List<CkAttribute> getAttributeValuesChecked(long hSession, long hObject, long... types)
+	    throws CryptokiException {
+	return getAttributeValues(hSession, hObject, types, (long) CryptokiLibrary.CKR_OK,
+		(long) CryptokiLibrary.CKR_ATTRIBUTE_TYPE_INVALID, (long) CryptokiLibrary.CKR_ATTRIBUTE_SENSITIVE);
+    }
+
+    private List<CkAttribute> getAttributeValues(long hSession, long hObject, long[] types, Long... validResults)
+	    throws CryptokiException {
 	CK_ATTRIBUTE baseAttr = new CK_ATTRIBUTE();
 	CK_ATTRIBUTE[] attrs = (CK_ATTRIBUTE[]) baseAttr.toArray(types.length);
 	for (int i = 0; i < types.length; i++) {
@@ -479,27 +625,45 @@ public class MiddleWareWrapper {
 	    attr.setPValue(Pointer.NULL);
 	    attr.setUlValueLen(new NativeLong(0));
 	}
+	NativeLong session = new NativeLong(hSession);
+	NativeLong object = new NativeLong(hObject);
+	NativeLong count = new NativeLong(attrs.length);
 
-	try (LockedObject lo = lockInternal()) {
+	try (LockedObject lo = lockSession(hSession)) {
 	    // determine size of data to read and allocate space
-	    check("C_GetAttributeValue", () -> lib.C_GetAttributeValue(new NativeLong(hSession), new NativeLong(hObject),
-		    baseAttr, new NativeLong(attrs.length)));
+	    check("C_GetAttributeValue", () -> lib.C_GetAttributeValue(session, object, baseAttr, count), validResults);
+	    long totalLen = 0;
 	    for (CK_ATTRIBUTE next : attrs) {
 		long valueLen = next.getUlValueLen().longValue();
-		if (valueLen > 0) {
-		    Memory newMem = new Memory(valueLen);
-		    next.setPValue(newMem);
+		if (valueLen > 0 && valueLen != CryptokiLibrary.CK_UNAVAILABLE_INFORMATION) {
+		    totalLen += valueLen;
 		}
 	    }
 
-	    // read attributes
-	    check("C_GetAttributeValue", () -> lib.C_GetAttributeValue(new NativeLong(hSession), new NativeLong(hObject),
-		    baseAttr, new NativeLong(attrs.length)));
+	    // one block for all values is enough, the attributes get a slice each
+	    if (totalLen > 0) {
+		Memory mem = new Memory(totalLen);
+		long offset = 0;
+		for (CK_ATTRIBUTE next : attrs) {
+		    long valueLen = next.getUlValueLen().longValue();
+		    if (valueLen > 0 && valueLen != CryptokiLibrary.CK_UNAVAILABLE_INFORMATION) {
+			next.setPValue(mem.share(offset, valueLen));
+			offset += valueLen;
+		    }
+		}
 
-	    ArrayList<CkAttribute> result = new ArrayList<>();
+		// read attributes
+		check("C_GetAttributeValue", () -> lib.C_GetAttributeValue(session, object, baseAttr, count),
+			validResults);
+	    }
+
+	    ArrayList<CkAttribute> result = new ArrayList<>(attrs.length);
 	    for (CK_ATTRIBUTE next : attrs) {
-		CkAttribute resultAttr = new CkAttribute(next.getPValue(), next.getUlValueLen());
-		result.add(resultAttr);
+		if (next.getUlValueLen().longValue() == CryptokiLibrary.CK_UNAVAILABLE_INFORMATION) {
+		    result.add(null);
+		} else {
+		    result.add(new CkAttribute(next.getPValue(), next.getUlValueLen()));
+		}
 	    }
 	    return result;
 	} catch (InterruptedException ex) {
@@ -704,17 +868,57 @@ public class MiddleWareWrapper {
 
 
 
+    private static final class MwLock {
+
+	private final Semaphore sem = new Semaphore(1, true);
+	private final AtomicLong acquisitions = new AtomicLong();
+	private final AtomicLong contended = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	void acquire() throws InterruptedException {
+	    // the timed variant respects the fairness of the semaphore, in contrast to tryAcquire()
+	    if (! sem.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+		long start = System.nanoTime();
+		sem.acquire();
+		long waited = System.nanoTime() - start;
+		contended.incrementAndGet();
+		waitNanos.addAndGet(waited);
+		long max;
+		do {
+		    max = maxWaitNanos.get();
+		} while (waited > max && ! maxWaitNanos.compareAndSet(max, waited));
+	    }
+	    acquisitions.incrementAndGet();
+	}
+
+	void release() {
+	    sem.release();
+	}
+
+    }
+
     private class LockedObject implements Closeable {
 
+	private final MwLock lock;
+
+	LockedObject(MwLock lock) {
+	    this.lock = lock;
+	}
+
 	@Override
 	public void close() {
-	    threadLock.release();
+	    lock.release();
 	}
 
     }
 
     public class LockedMiddlewareWrapper extends LockedObject {
 
+	private LockedMiddlewareWrapper(MwLock lock) {
+	    super(lock);
+	}
+
 	public void findObjectsInit(long hSession, CK_ATTRIBUTE pTemplate, int ulCount) throws CryptokiException {
 	    NativeLong arraySizeRef = new NativeLong(ulCount);
 
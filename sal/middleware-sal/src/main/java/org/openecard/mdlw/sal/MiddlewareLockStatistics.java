@@ -0,0 +1,111 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.mdlw.sal;
+
+
+/**
+ * Snapshot of the lock counters of a {@link MiddleWareWrapper}.
+ *
+ * @author agent
+ */
+public class MiddlewareLockStatistics {
+
+    private final boolean concurrent;
+    private final int locks;
+    private final long acquisitions;
+    private final long contendedAcquisitions;
+    private final long waitTimeNanos;
+    private final long maxWaitTimeNanos;
+
+    MiddlewareLockStatistics(boolean concurrent, int locks, long acquisitions, long contendedAcquisitions,
+	    long waitTimeNanos, long maxWaitTimeNanos) {
+	this.concurrent = concurrent;
+	this.locks = locks;
+	this.acquisitions = acquisitions;
+	this.contendedAcquisitions = contendedAcquisitions;
+	this.waitTimeNanos = waitTimeNanos;
+	this.maxWaitTimeNanos = maxWaitTimeNanos;
+    }
+
+    /**
+     * Indicates whether the slots of the module are locked individually.
+     *
+     * @return {@code true} if slots are locked individually, {@code false} if one lock is used for the module.
+     */
+    public boolean isConcurrent() {
+	return concurrent;
+    }
+
+    /**
+     * Gets the number of locks in use, that is the module lock plus one lock per slot accessed so far.
+     *
+     * @return Number of locks.
+     */
+    public int getLocks() {
+	return locks;
+    }
+
+    /**
+     * Gets the number of times a lock has been acquired.
+     *
+     * @return Number of acquisitions.
+     */
+    public long getAcquisitions() {
+	return acquisitions;
+    }
+
+    /**
+     * Gets the number of times a thread had to wait for a lock held by another thread.
+     *
+     * @return Number of contended acquisitions.
+     */
+    public long getContendedAcquisitions() {
+	return contendedAcquisitions;
+    }
+
+    /**
+     * Gets the time all threads together spent waiting for locks.
+     *
+     * @return Wait time in nanoseconds.
+     */
+    public long getWaitTimeNanos() {
+	return waitTimeNanos;
+    }
+
+    /**
+     * Gets the longest time a single thread had to wait for a lock.
+     *
+     * @return Maximum wait time in nanoseconds.
+     */
+    public long getMaxWaitTimeNanos() {
+	return maxWaitTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+	return String.format("MiddlewareLockStatistics[concurrent=%b, locks=%d, acquisitions=%d, contended=%d, "
+		+ "waitTime=%dus, maxWaitTime=%dus]", concurrent, locks, acquisitions, contendedAcquisitions,
+		waitTimeNanos / 1000, maxWaitTimeNanos / 1000);
+    }
+
+}
@@ -22,6 +22,7 @@
 
 package org.openecard.mdlw.sal;
 
+import java.util.Arrays;
 import javax.annotation.Nullable;
 import org.openecard.common.util.Promise;
 import org.openecard.mdlw.sal.cryptoki.CryptokiLibrary;
@@ -39,28 +40,63 @@ public class MwAbstractKey {
 
     private static final Logger LOG = LoggerFactory.getLogger(MwAbstractKey.class);
 
+    private static final long[] KEY_ATTRIBUTES = {
+	CryptokiLibrary.CKA_KEY_TYPE, CryptokiLibrary.CKA_ID, CryptokiLibrary.CKA_LABEL,
+	CryptokiLibrary.CKA_ALLOWED_MECHANISMS
+    };
+
     protected final long objectHandle;
     protected final MiddleWareWrapper mw;
     protected final MwSession session;
+    private final MwObjectCache.ObjectEntry attributes;
 
     private final Promise<Long> keyType;
     private final Promise<byte[]> keyId;
     private final Promise<long[]> allowedMechanisms;
 
     public MwAbstractKey(long objectHandle, MiddleWareWrapper mw, MwSession session) throws CryptokiException {
+	this(objectHandle, mw, session, KEY_ATTRIBUTES);
+    }
+
+    /**
+     * Creates a key object which reads the given attributes in one call when the first attribute is requested.
+     *
+     * @param objectHandle Handle of the key object.
+     * @param mw Middleware wrapper used to access the object.
+     * @param session Session used to access the object.
+     * @param prefetchTypes Attributes which are read in bulk. The attributes of this class need not be included.
+     * @throws CryptokiException
+     */
+    protected MwAbstractKey(long objectHandle, MiddleWareWrapper mw, MwSession session, long... prefetchTypes)
+	    throws CryptokiException {
 	this.objectHandle = objectHandle;
 	this.mw = mw;
 	this.session = session;
+	long[] types = Arrays.copyOf(KEY_ATTRIBUTES, KEY_ATTRIBUTES.length + prefetchTypes.length);
+	System.arraycopy(prefetchTypes, 0, types, KEY_ATTRIBUTES.length, prefetchTypes.length);
+	this.attributes = session.getObjectEntry(objectHandle, types);
 
         this.keyType = new Promise<>();
 	this.keyId = new Promise<>();
 	this.allowedMechanisms = new Promise();
     }
 
+    /**
+     * Gets the given attribute of this key.
+     * The value is served from the object cache of the module if it has been read before.
+     *
+     * @param type Type of the attribute.
+     * @return The attribute value.
+     * @throws CryptokiException Thrown in case the attribute could not be read from the middleware.
+     */
+    protected CkAttribute getAttribute(int type) throws CryptokiException {
+	return attributes.getAttribute(session.getSessionId(), type);
+    }
+
     @Nullable
     protected CkAttribute getAttributeChecked(int type) throws CryptokiException {
 	try {
-	    return mw.getAttributeValue(session.getSessionId(), objectHandle, type);
+	    return getAttribute(type);
 	} catch (CryptokiException ex) {
 	    String ts = String.format("%#010x", type);
 	    switch ((int) ex.getErrorCode()) {
@@ -83,7 +119,7 @@ public class MwAbstractKey {
      * @throws CryptokiException
      */
     private long loadAttrValueKeyType() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_KEY_TYPE);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_KEY_TYPE);
 	return AttributeUtils.getLong(raw);
     }
 
@@ -94,7 +130,7 @@ public class MwAbstractKey {
      * @throws CryptokiException
      */
     private byte[] loadAttrValueKeyID() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_ID);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_ID);
 	return AttributeUtils.getBytes(raw);
     }
 
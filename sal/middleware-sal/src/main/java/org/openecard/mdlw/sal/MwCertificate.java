@@ -50,9 +50,16 @@ public class MwCertificate {
 
     private static final Logger LOG = LoggerFactory.getLogger(MwCertificate.class);
 
+    // the value is not part of the list, as it is only needed for the certificates actually used
+    private static final long[] CERT_ATTRIBUTES = {
+	CryptokiLibrary.CKA_LABEL, CryptokiLibrary.CKA_ID, CryptokiLibrary.CKA_SUBJECT, CryptokiLibrary.CKA_ISSUER,
+	CryptokiLibrary.CKA_CERTIFICATE_TYPE, CryptokiLibrary.CKA_TRUSTED, CryptokiLibrary.CKA_CERTIFICATE_CATEGORY
+    };
+
     private final long objectHandle;
     private final MiddleWareWrapper mw;
     private final MwSession session;
+    private final MwObjectCache.ObjectEntry attributes;
 
     private final Promise<byte[]> value;
     private final Promise<byte[]> id;
@@ -78,6 +85,7 @@ public class MwCertificate {
         this.objectHandle = objectHandle;
         this.mw = mw;
         this.session = mwSession;
+	this.attributes = mwSession.getObjectEntry(objectHandle, CERT_ATTRIBUTES);
         this.value = new Promise<>();
         this.id = new Promise<>();
 	this.subject = new Promise<>();
@@ -91,10 +99,14 @@ public class MwCertificate {
         this.label = new Promise<>();
     }
 
+    private CkAttribute getAttribute(int type) throws CryptokiException {
+	return attributes.getAttribute(session.getSessionId(), type);
+    }
+
     @Nullable
     private CkAttribute getAttributeChecked(int type) throws CryptokiException {
 	try {
-	    return mw.getAttributeValue(session.getSessionId(), objectHandle, type);
+	    return getAttribute(type);
 	} catch (CryptokiException ex) {
 	    switch ((int) ex.getErrorCode()) {
 		case CryptokiLibrary.CKR_ATTRIBUTE_TYPE_INVALID:
@@ -108,7 +120,7 @@ public class MwCertificate {
     }
 
     private byte[] loadByteArray(int type) throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, type);
+        CkAttribute raw = getAttribute(type);
 	return AttributeUtils.getBytes(raw);
     }
 
@@ -119,7 +131,7 @@ public class MwCertificate {
      * @throws CryptokiException
      */
     private byte[] loadAttrValValue() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_VALUE);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_VALUE);
 	return AttributeUtils.getBytes(raw);
     }
 
@@ -130,7 +142,7 @@ public class MwCertificate {
      * @throws CryptokiException
      */
     private String loadAttrValLabel() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_LABEL);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_LABEL);
 	String labelStr = AttributeUtils.getString(raw);
 
 	// find replacement if needed
@@ -156,7 +168,7 @@ public class MwCertificate {
      * @throws CryptokiException
      */
     private byte[] loadAttrValID() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_ID);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_ID);
 	return AttributeUtils.getBytes(raw);
     }
 
@@ -167,7 +179,7 @@ public class MwCertificate {
      * @throws CryptokiException
      */
     private long loadAttrValCertificateType() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_CERTIFICATE_TYPE);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_CERTIFICATE_TYPE);
 	return AttributeUtils.getLong(raw);
     }
 
@@ -47,10 +47,13 @@ public class MwModule {
 
     private final MiddlewareSALConfig mwSALConfig;
 
+    private final MwObjectCache objectCache;
+
     private MiddleWareWrapper mw;
 
     public MwModule(MiddlewareSALConfig mwSALConfig) {
         this.mwSALConfig = mwSALConfig;
+	this.objectCache = new MwObjectCache();
     }
 
     /**
@@ -61,6 +64,7 @@ public class MwModule {
      */
     public void initialize() throws UnsatisfiedLinkError, InitializationException {
 	try {
+	    objectCache.clear();
 	    mw = new MiddleWareWrapper(mwSALConfig);
 	    mw.initialize();
 	} catch (CryptokiException ex) {
@@ -75,6 +79,7 @@ public class MwModule {
      */
     public void destroy() throws FinalizationException {
 	try {
+	    objectCache.clear();
 	    mw.destroy();
 	} catch (CryptokiException ex) {
 	    throw new FinalizationException("Failed to shutdown PKCS#11 middleware.", ex.getErrorCode());
@@ -140,6 +145,15 @@ public class MwModule {
         return mwSALConfig;
     }
 
+    /**
+     * Gets the cache for the objects and attribute values read from the tokens of this module.
+     *
+     * @return The object cache of this module.
+     */
+    public MwObjectCache getObjectCache() {
+	return objectCache;
+    }
+
     /**
      * Waits for a slot event (token insertion, removal, etc.) to occur.
      *
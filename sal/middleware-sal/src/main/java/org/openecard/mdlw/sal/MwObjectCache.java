@@ -0,0 +1,197 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.mdlw.sal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.openecard.mdlw.sal.cryptoki.CryptokiLibrary;
+import org.openecard.mdlw.sal.exceptions.CryptokiException;
+import org.openecard.mdlw.sal.struct.CkAttribute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Cache for the object handles and attribute values read from the tokens of a middleware module.
+ * <p>The entries are kept per slot. Everything known about a slot must be dropped with {@link #invalidate(long)}
+ * whenever the token is removed or the login state of the token changes, as the set of visible objects depends on
+ * both.</p>
+ * <p>Attribute values are read in bulk on the first access to an object, so that the usual sequence of reading
+ * label, id, type and flags of all objects on a token needs only one middleware call per object.</p>
+ *
+ * @author agent
+ */
+public class MwObjectCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MwObjectCache.class);
+
+    private final HashMap<Long, SlotEntry> slots = new HashMap<>();
+
+    /**
+     * Removes all entries belonging to the given slot.
+     * Objects which are currently in use keep their values, but new lookups read the values from the middleware again.
+     *
+     * @param slotId Id of the slot whose entries are removed.
+     */
+    public synchronized void invalidate(long slotId) {
+	if (slots.remove(slotId) != null) {
+	    LOG.debug("Invalidated object cache of slot {}.", slotId);
+	}
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public synchronized void clear() {
+	slots.clear();
+    }
+
+    @Nonnull
+    synchronized SlotEntry getSlot(long slotId) {
+	SlotEntry entry = slots.get(slotId);
+	if (entry == null) {
+	    entry = new SlotEntry();
+	    slots.put(slotId, entry);
+	}
+	return entry;
+    }
+
+
+    /**
+     * Entries of one slot.
+     * Detached entries (after an invalidation of the slot) remain usable but are not reachable from the cache anymore.
+     */
+    static class SlotEntry {
+
+	private final HashMap<Long, List<Long>> handles = new HashMap<>();
+	private final HashMap<Long, ObjectEntry> objects = new HashMap<>();
+
+	@Nullable
+	synchronized List<Long> getHandles(long objectClass) {
+	    return handles.get(objectClass);
+	}
+
+	synchronized void putHandles(long objectClass, List<Long> objectHandles) {
+	    handles.put(objectClass, Collections.unmodifiableList(objectHandles));
+	}
+
+	@Nonnull
+	synchronized ObjectEntry getObject(MiddleWareWrapper mw, long objectHandle, long[] prefetchTypes) {
+	    ObjectEntry entry = objects.get(objectHandle);
+	    if (entry == null) {
+		entry = new ObjectEntry(mw, objectHandle, prefetchTypes);
+		objects.put(objectHandle, entry);
+	    }
+	    return entry;
+	}
+
+    }
+
+    /**
+     * Attribute values of one object.
+     */
+    static class ObjectEntry {
+
+	private final MiddleWareWrapper mw;
+	private final long objectHandle;
+	private final long[] prefetchTypes;
+	// values are either CkAttribute or CryptokiException instances
+	private final Map<Long, Object> values;
+	private boolean prefetched;
+
+	ObjectEntry(MiddleWareWrapper mw, long objectHandle, long[] prefetchTypes) {
+	    this.mw = mw;
+	    this.objectHandle = objectHandle;
+	    this.prefetchTypes = prefetchTypes;
+	    this.values = new HashMap<>();
+	}
+
+	/**
+	 * Gets the value of the given attribute.
+	 * The method behaves exactly like {@link MiddleWareWrapper#getAttributeValue(long, long, long)}, but only
+	 * accesses the middleware if the value is not known yet.
+	 *
+	 * @param hSession Session used in case the attribute must be read from the middleware.
+	 * @param type Type of the attribute.
+	 * @return The attribute value.
+	 * @throws CryptokiException Thrown in case the attribute can not be read.
+	 */
+	synchronized CkAttribute getAttribute(long hSession, long type) throws CryptokiException {
+	    if (! prefetched) {
+		prefetched = true;
+		prefetch(hSession);
+	    }
+
+	    Object value = values.get(type);
+	    if (value == null) {
+		value = load(hSession, type);
+	    }
+	    if (value instanceof CryptokiException) {
+		throw (CryptokiException) value;
+	    }
+	    return (CkAttribute) value;
+	}
+
+	private void prefetch(long hSession) {
+	    if (prefetchTypes.length == 0) {
+		return;
+	    }
+
+	    try {
+		List<CkAttribute> attrs = mw.getAttributeValuesChecked(hSession, objectHandle, prefetchTypes);
+		for (int i = 0; i < prefetchTypes.length; i++) {
+		    CkAttribute attr = attrs.get(i);
+		    // unavailable values are read individually to obtain the precise error
+		    if (attr != null) {
+			values.put(prefetchTypes[i], attr);
+		    }
+		}
+	    } catch (CryptokiException ex) {
+		LOG.debug("Bulk read of object attributes failed, reading attributes individually: {}", ex.getMessage());
+	    }
+	}
+
+	private Object load(long hSession, long type) throws CryptokiException {
+	    try {
+		CkAttribute attr = mw.getAttributeValue(hSession, objectHandle, type);
+		values.put(type, attr);
+		return attr;
+	    } catch (CryptokiException ex) {
+		switch ((int) ex.getErrorCode()) {
+		    // these errors are properties of the object, so there is no point in asking again
+		    case CryptokiLibrary.CKR_ATTRIBUTE_TYPE_INVALID:
+		    case CryptokiLibrary.CKR_ATTRIBUTE_SENSITIVE:
+			values.put(type, ex);
+			return ex;
+		}
+		throw ex;
+	    }
+	}
+
+    }
+
+}
@@ -70,7 +70,11 @@ public class MwPrivateKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     public MwPrivateKey(long objectHandle, MiddleWareWrapper mw, MwSession mwSession) throws CryptokiException {
-        super(objectHandle, mw, mwSession);
+        super(objectHandle, mw, mwSession, CryptokiLibrary.CKA_SENSITIVE, CryptokiLibrary.CKA_DECRYPT,
+		CryptokiLibrary.CKA_SIGN, CryptokiLibrary.CKA_SIGN_RECOVER, CryptokiLibrary.CKA_UNWRAP,
+		CryptokiLibrary.CKA_EXTRACTABLE, CryptokiLibrary.CKA_ALWAYS_SENSITIVE,
+		CryptokiLibrary.CKA_NEVER_EXTRACTABLE, CryptokiLibrary.CKA_WRAP_WITH_TRUSTED,
+		CryptokiLibrary.CKA_ALWAYS_AUTHENTICATE);
         this.keyLabel = new Promise<>();
         this.sensitive = new Promise<>();
         this.decrypt = new Promise<>();
@@ -125,7 +129,7 @@ public class MwPrivateKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private Boolean loadAttrValueNeverExtractable() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_NEVER_EXTRACTABLE);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_NEVER_EXTRACTABLE);
 	return AttributeUtils.getBool(raw);
     }
 
@@ -136,7 +140,7 @@ public class MwPrivateKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private Boolean loadAttrValueAlwaysSensitive() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_ALWAYS_SENSITIVE);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_ALWAYS_SENSITIVE);
 	return AttributeUtils.getBool(raw);
     }
 
@@ -147,7 +151,7 @@ public class MwPrivateKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private Boolean loadAttrValueExtractable() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_EXTRACTABLE);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_EXTRACTABLE);
 	return AttributeUtils.getBool(raw);
     }
 
@@ -158,7 +162,7 @@ public class MwPrivateKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private Boolean loadAttrValueUnwrap() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_UNWRAP);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_UNWRAP);
 	return AttributeUtils.getBool(raw);
     }
 
@@ -169,7 +173,7 @@ public class MwPrivateKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private Boolean loadAttrValueSignRecover() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_SIGN_RECOVER);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_SIGN_RECOVER);
 	return AttributeUtils.getBool(raw);
     }
 
@@ -180,7 +184,7 @@ public class MwPrivateKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private Boolean loadAttrValueSign() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_SIGN);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_SIGN);
 	return AttributeUtils.getBool(raw);
     }
 
@@ -191,7 +195,7 @@ public class MwPrivateKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private Boolean loadAttrValueDecrypt() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_DECRYPT);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_DECRYPT);
 	return AttributeUtils.getBool(raw);
     }
 
@@ -202,7 +206,7 @@ public class MwPrivateKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private Boolean loadAttrValueSensitive() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_SENSITIVE);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_SENSITIVE);
 	return AttributeUtils.getBool(raw);
     }
 
@@ -249,7 +253,7 @@ public class MwPrivateKey extends MwAbstractKey {
 
         CK_MECHANISM pMechanism = new CK_MECHANISM(new NativeLong(mechanism, true), paramsPtr, paramsPtrSize);
 
-	try (MiddleWareWrapper.LockedMiddlewareWrapper lmw = mw.lock()) {
+	try (MiddleWareWrapper.LockedMiddlewareWrapper lmw = mw.lock(session.getSessionId())) {
 	    lmw.signInit(session.getSessionId(), pMechanism, objectHandle);
 	    return lmw.sign(session.getSessionId(), data);
 	} catch (InterruptedException ex) {
@@ -327,7 +331,7 @@ public class MwPrivateKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private String loadAttrValueLabel() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_LABEL);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_LABEL);
 	return AttributeUtils.getString(raw);
     }
 
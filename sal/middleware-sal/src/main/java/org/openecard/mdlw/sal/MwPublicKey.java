@@ -55,7 +55,9 @@ public class MwPublicKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     public MwPublicKey(long objectHandle, MiddleWareWrapper mw, MwSession mwSession) throws CryptokiException {
-	super(objectHandle, mw, mwSession);
+	super(objectHandle, mw, mwSession, CryptokiLibrary.CKA_ENCRYPT, CryptokiLibrary.CKA_VERIFY,
+		CryptokiLibrary.CKA_VERIFY_RECOVER, CryptokiLibrary.CKA_WRAP, CryptokiLibrary.CKA_TRUSTED,
+		CryptokiLibrary.CKA_SUBJECT);
         this.encrypt = new Promise<>();
         this.verify = new Promise<>();
         this.verifyRecover = new Promise<>();
@@ -72,7 +74,7 @@ public class MwPublicKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private Boolean loadAttrValueEncrypt() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_ENCRYPT);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_ENCRYPT);
 	return AttributeUtils.getBool(raw);
     }
 
@@ -83,7 +85,7 @@ public class MwPublicKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private Boolean loadAttrValueVerify() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_VERIFY);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_VERIFY);
 	return AttributeUtils.getBool(raw);
     }
 
@@ -94,7 +96,7 @@ public class MwPublicKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private Boolean loadAttrValueVerifyRecover() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_VERIFY_RECOVER);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_VERIFY_RECOVER);
 	return AttributeUtils.getBool(raw);
     }
 
@@ -105,7 +107,7 @@ public class MwPublicKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private Boolean loadAttrValueWrap() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_WRAP);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_WRAP);
 	return AttributeUtils.getBool(raw);
     }
 
@@ -127,7 +129,7 @@ public class MwPublicKey extends MwAbstractKey {
      * @throws CryptokiException
      */
     private String loadAttrValueLabel() throws CryptokiException {
-        CkAttribute raw = mw.getAttributeValue(session.getSessionId(), objectHandle, CryptokiLibrary.CKA_LABEL);
+        CkAttribute raw = getAttribute(CryptokiLibrary.CKA_LABEL);
 	return AttributeUtils.getString(raw);
     }
 
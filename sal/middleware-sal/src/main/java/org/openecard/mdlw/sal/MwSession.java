@@ -86,6 +86,8 @@ public class MwSession {
      * @throws CryptokiException
      */
     public void closeSession() throws CryptokiException {
+	// closing the last session of a token also ends the login
+	invalidateObjectCache();
         mw.closeSession(sessionHandle);
     }
 
@@ -98,16 +100,7 @@ public class MwSession {
     public List<MwPrivateKey> getPrivateKeys() throws CryptokiException {
 	LOG.debug("Trying to get private key objects from middleware.");
 
-	NativeLong privkey = new NativeLong(CryptokiLibrary.CKO_PRIVATE_KEY, true);
-        NativeLongByReference temp = new NativeLongByReference(privkey);
-
-        CK_ATTRIBUTE pTemplate = new CK_ATTRIBUTE();
-
-        pTemplate.setType(CKA_CLASS);
-        pTemplate.setPValue(temp.getPointer());
-        pTemplate.setUlValueLen(new NativeLong(NativeLong.SIZE));
-
-	List<Long> res = findObjects(pTemplate);
+	List<Long> res = findObjects(CryptokiLibrary.CKO_PRIVATE_KEY);
 
 	List<MwPrivateKey> keyList = new ArrayList<>();
         for (long l : res) {
@@ -130,15 +123,7 @@ public class MwSession {
      * @throws CryptokiException
      */
     public List<MwData> getData() throws CryptokiException {
-        NativeLongByReference temp = new NativeLongByReference(new NativeLong(CryptokiLibrary.CKO_DATA, true));
-
-        CK_ATTRIBUTE pTemplate = new CK_ATTRIBUTE();
-
-        pTemplate.setType(CKA_CLASS);
-        pTemplate.setPValue(temp.getPointer());
-        pTemplate.setUlValueLen(new NativeLong(NativeLong.SIZE));
-
-	List<Long> res = findObjects(pTemplate);
+	List<Long> res = findObjects(CryptokiLibrary.CKO_DATA);
 
         List<MwData> dataList = new ArrayList<>();
         for (long l : res) {
@@ -159,15 +144,7 @@ public class MwSession {
      * @throws CryptokiException
      */
     public List<MwCertificate> getCertificates() throws CryptokiException {
-        NativeLongByReference temp = new NativeLongByReference(new NativeLong(CryptokiLibrary.CKO_CERTIFICATE, true));
-
-        CK_ATTRIBUTE pTemplate = new CK_ATTRIBUTE();
-
-        pTemplate.setType(CKA_CLASS);
-        pTemplate.setPValue(temp.getPointer());
-        pTemplate.setUlValueLen(new NativeLong(NativeLong.SIZE));
-
-        List<Long> res = findObjects(pTemplate);
+        List<Long> res = findObjects(CryptokiLibrary.CKO_CERTIFICATE);
 
         List<MwCertificate> cerList = new ArrayList<>();
         for (long l : res) {
@@ -189,15 +166,7 @@ public class MwSession {
      */
     public List<MwPublicKey> getPublicKeys() throws CryptokiException {
         List<MwPublicKey> keyList = new ArrayList<>();
-        NativeLongByReference temp = new NativeLongByReference(new NativeLong(CryptokiLibrary.CKO_PUBLIC_KEY, true));
-
-        CK_ATTRIBUTE pTemplate = new CK_ATTRIBUTE();
-
-        pTemplate.setType(CKA_CLASS);
-        pTemplate.setPValue(temp.getPointer());
-        pTemplate.setUlValueLen(new NativeLong(NativeLong.SIZE));
-
-        List<Long> res = findObjects(pTemplate);
+        List<Long> res = findObjects(CryptokiLibrary.CKO_PUBLIC_KEY);
 
         for (long l : res) {
 	    try {
@@ -263,6 +232,7 @@ public class MwSession {
 	}
 
 	try {
+	    invalidateObjectCache();
 	    mw.login(sessionHandle, userType.getValue(), pin);
 	} finally {
 	    if (pin != null) {
@@ -314,11 +284,48 @@ public class MwSession {
      * @throws CryptokiException
      */
     public void logout() throws CryptokiException {
+	invalidateObjectCache();
         mw.logout(sessionHandle);
     }
 
+    /**
+     * Gets the cache entry for the attributes of the given object.
+     *
+     * @param objectHandle Handle of the object.
+     * @param prefetchTypes Attribute types which are read together on the first access to the object.
+     * @return The cache entry of the object.
+     */
+    MwObjectCache.ObjectEntry getObjectEntry(long objectHandle, long[] prefetchTypes) {
+	return getSlotEntry().getObject(mw, objectHandle, prefetchTypes);
+    }
+
+    private MwObjectCache.SlotEntry getSlotEntry() {
+	return slot.getModule().getObjectCache().getSlot(slot.getSlotInfo().getSlotID());
+    }
+
+    private void invalidateObjectCache() {
+	slot.getModule().getObjectCache().invalidate(slot.getSlotInfo().getSlotID());
+    }
+
+    private List<Long> findObjects(long objectClass) throws CryptokiException {
+	MwObjectCache.SlotEntry entry = getSlotEntry();
+	List<Long> res = entry.getHandles(objectClass);
+	if (res == null) {
+	    NativeLongByReference temp = new NativeLongByReference(new NativeLong(objectClass, true));
+
+	    CK_ATTRIBUTE pTemplate = new CK_ATTRIBUTE();
+	    pTemplate.setType(CKA_CLASS);
+	    pTemplate.setPValue(temp.getPointer());
+	    pTemplate.setUlValueLen(new NativeLong(NativeLong.SIZE));
+
+	    res = findObjects(pTemplate);
+	    entry.putHandles(objectClass, res);
+	}
+	return res;
+    }
+
     private List<Long> findObjects(CK_ATTRIBUTE pTemplate) throws CryptokiException {
-	try (MiddleWareWrapper.LockedMiddlewareWrapper lmw = mw.lock()) {
+	try (MiddleWareWrapper.LockedMiddlewareWrapper lmw = mw.lock(sessionHandle)) {
 	    lmw.findObjectsInit(sessionHandle, pTemplate, 1);
 	    List<Long> res = lmw.findObjects(sessionHandle);
 	    lmw.findObjectsFinalize(sessionHandle);
@@ -61,6 +61,15 @@ public class MwSlot {
         return slotInfo;
     }
 
+    /**
+     * Gets the module this slot belongs to.
+     *
+     * @return The module of this slot.
+     */
+    MwModule getModule() {
+	return module;
+    }
+
     /**
      * Obtains information about a particular {@link MwToken}.
      * in the system.
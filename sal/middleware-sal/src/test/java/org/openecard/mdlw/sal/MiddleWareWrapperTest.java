@@ -0,0 +1,182 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.mdlw.sal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.openecard.mdlw.sal.cryptoki.CryptokiLibrary;
+import org.openecard.mdlw.sal.exceptions.CryptokiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests the locking of the {@link MiddleWareWrapper} against a simulated module with several tokens.
+ *
+ * @author agent
+ */
+public class MiddleWareWrapperTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MiddleWareWrapperTest.class);
+
+    private static final long FLAGS = CryptokiLibrary.CKF_RW_SESSION | CryptokiLibrary.CKF_SERIAL_SESSION;
+    // 2 ms per call, which is about the time a token needs to answer one APDU
+    private static final long LATENCY = 2_000_000;
+
+    private StubCryptoki stub;
+    private MiddleWareWrapper mw;
+    private long keyHandle;
+
+    private void setup(boolean threadSafe, long latencyNanos) throws CryptokiException {
+	stub = new StubCryptoki(latencyNanos);
+	stub.setThreadSafe(threadSafe);
+	keyHandle = stub.addObject(CryptokiLibrary.CKO_PRIVATE_KEY);
+	stub.setBytes(keyHandle, CryptokiLibrary.CKA_LABEL, "Key".getBytes(StandardCharsets.UTF_8));
+
+	mw = new MiddleWareWrapper(stub.getLibrary());
+	mw.initialize();
+    }
+
+    @Test
+    public void testModeFromLibrary() throws CryptokiException {
+	setup(true, 0);
+	assertTrue(mw.isConcurrent());
+	assertTrue(mw.getLockStatistics().isConcurrent());
+
+	setup(false, 0);
+	assertFalse(mw.isConcurrent());
+	assertFalse(mw.getLockStatistics().isConcurrent());
+    }
+
+    @Test
+    public void testSlotsAccessedConcurrently() throws Exception {
+	setup(true, LATENCY);
+	List<Long> sessions = new ArrayList<>();
+	sessions.add(mw.openSession(1, FLAGS));
+	sessions.add(mw.openSession(2, FLAGS));
+	stub.resetCalls();
+
+	readConcurrently(sessions, 10);
+	assertEquals(stub.getMaxRunningCalls(), 2);
+	assertEquals(stub.getMaxRunningSlotCalls(), 1);
+	// module lock and one lock per slot
+	assertEquals(mw.getLockStatistics().getLocks(), 3);
+    }
+
+    @Test
+    public void testSessionsOfOneSlotSerialized() throws Exception {
+	setup(true, LATENCY);
+	List<Long> sessions = new ArrayList<>();
+	sessions.add(mw.openSession(1, FLAGS));
+	sessions.add(mw.openSession(1, FLAGS));
+	stub.resetCalls();
+
+	readConcurrently(sessions, 10);
+	assertEquals(stub.getMaxRunningSlotCalls(), 1);
+	assertTrue(mw.getLockStatistics().getContendedAcquisitions() > 0);
+
+	// locks belong to slots, so sessions do not add locks
+	mw.closeSession(sessions.get(0));
+	mw.closeSession(sessions.get(1));
+	assertEquals(mw.getLockStatistics().getLocks(), 2);
+    }
+
+    @Test
+    public void testGlobalLockFallback() throws Exception {
+	setup(false, LATENCY);
+	List<Long> sessions = new ArrayList<>();
+	sessions.add(mw.openSession(1, FLAGS));
+	sessions.add(mw.openSession(2, FLAGS));
+	stub.resetCalls();
+
+	readConcurrently(sessions, 10);
+	assertEquals(stub.getMaxRunningCalls(), 1);
+	MiddlewareLockStatistics stats = mw.getLockStatistics();
+	assertEquals(stats.getLocks(), 1);
+	assertTrue(stats.getContendedAcquisitions() > 0);
+	assertTrue(stats.getWaitTimeNanos() >= stats.getMaxWaitTimeNanos());
+    }
+
+    @Test(groups = "benchmark")
+    public void benchmarkThroughput() throws Exception {
+	final int tokens = 4;
+	final int rounds = 50;
+
+	for (boolean threadSafe : new boolean[] { false, true }) {
+	    setup(threadSafe, LATENCY);
+	    List<Long> sessions = new ArrayList<>();
+	    for (int i = 0; i < tokens; i++) {
+		sessions.add(mw.openSession(i, FLAGS));
+	    }
+
+	    long time = readConcurrently(sessions, rounds);
+	    // each read consists of two calls
+	    long reads = (long) tokens * rounds;
+	    LOG.info("{} locking, {} tokens: {} reads/s, {}", threadSafe ? "per slot" : "global", tokens,
+		    reads * 1_000_000_000L / time, mw.getLockStatistics());
+	}
+    }
+
+    /**
+     * Reads an attribute with one thread per session.
+     *
+     * @return Time needed by all threads in nanoseconds.
+     */
+    private long readConcurrently(List<Long> sessions, int rounds) throws Exception {
+	CountDownLatch start = new CountDownLatch(1);
+	AtomicReference<Exception> error = new AtomicReference<>();
+	List<Thread> threads = new ArrayList<>();
+	for (long session : sessions) {
+	    Thread t = new Thread(() -> {
+		try {
+		    start.await();
+		    for (int i = 0; i < rounds; i++) {
+			mw.getAttributeValue(session, keyHandle, CryptokiLibrary.CKA_LABEL);
+		    }
+		} catch (CryptokiException | InterruptedException ex) {
+		    error.set(ex);
+		}
+	    });
+	    t.start();
+	    threads.add(t);
+	}
+
+	long startTime = System.nanoTime();
+	start.countDown();
+	for (Thread t : threads) {
+	    t.join();
+	}
+	long time = System.nanoTime() - startTime;
+
+	if (error.get() != null) {
+	    throw error.get();
+	}
+	return time;
+    }
+
+}
@@ -0,0 +1,231 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.mdlw.sal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.openecard.mdlw.sal.cryptoki.CK_SLOT_INFO;
+import org.openecard.mdlw.sal.cryptoki.CryptokiLibrary;
+import org.openecard.mdlw.sal.exceptions.CryptokiException;
+import org.openecard.mdlw.sal.struct.CkSlot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+
+/**
+ *
+ * @author agent
+ */
+public class MwObjectCacheTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MwObjectCacheTest.class);
+
+    private static final String GET_ATTR = "C_GetAttributeValue";
+    private static final String FIND_INIT = "C_FindObjectsInit";
+
+    private StubCryptoki stub;
+    private MiddleWareWrapper mw;
+    private MwModule module;
+    private MwSession session;
+
+    private void setup(long latencyNanos, int numKeys) throws CryptokiException {
+	stub = new StubCryptoki(latencyNanos);
+	for (int i = 0; i < numKeys; i++) {
+	    long cert = stub.addObject(CryptokiLibrary.CKO_CERTIFICATE);
+	    stub.setBytes(cert, CryptokiLibrary.CKA_LABEL, ("Cert " + i).getBytes(StandardCharsets.UTF_8));
+	    stub.setBytes(cert, CryptokiLibrary.CKA_ID, new byte[] { (byte) i });
+	    stub.setLong(cert, CryptokiLibrary.CKA_CERTIFICATE_TYPE, CryptokiLibrary.CKC_X_509);
+	    stub.setBytes(cert, CryptokiLibrary.CKA_VALUE, new byte[512]);
+
+	    long key = stub.addObject(CryptokiLibrary.CKO_PRIVATE_KEY);
+	    stub.setBytes(key, CryptokiLibrary.CKA_LABEL, ("Key " + i).getBytes(StandardCharsets.UTF_8));
+	    stub.setBytes(key, CryptokiLibrary.CKA_ID, new byte[] { (byte) i });
+	    stub.setLong(key, CryptokiLibrary.CKA_KEY_TYPE, CryptokiLibrary.CKK_RSA);
+	    stub.setBool(key, CryptokiLibrary.CKA_SIGN, true);
+	    stub.setBool(key, CryptokiLibrary.CKA_DECRYPT, false);
+	    stub.setBool(key, CryptokiLibrary.CKA_EXTRACTABLE, false);
+	}
+
+	mw = new MiddleWareWrapper(stub.getLibrary());
+	module = new MwModule(null);
+	MwSlot slot = new MwSlot(mw, module, new CkSlot(new CK_SLOT_INFO(), 0));
+	session = slot.openSession();
+	stub.resetCalls();
+    }
+
+    @Test
+    public void testKeyAttributesReadInBulk() throws CryptokiException {
+	setup(0, 1);
+	MwPrivateKey key = session.getPrivateKeys().get(0);
+
+	assertEquals(key.getKeyLabel(), "Key 0");
+	assertEquals(key.getKeyType(), CryptokiLibrary.CKK_RSA);
+	assertEquals(key.getKeyID(), new byte[] { 0 });
+	assertTrue(key.getSign());
+	assertFalse(key.getDecrypt());
+	assertFalse(key.getExtractable());
+	// bulk read needs two calls, nothing more is needed for the present attributes
+	assertEquals(stub.getCalls(GET_ATTR), 2);
+
+	// absent attributes are asked for individually to get the precise error
+	assertFalse(key.getAlwaysAuthenticate());
+	assertEquals(key.getAllowedMechanisms().length, 0);
+	assertEquals(stub.getCalls(GET_ATTR), 4);
+
+	// a new instance for the same object uses the cached values, including the absent ones
+	MwPrivateKey key2 = session.getPrivateKeys().get(0);
+	assertEquals(key2.getKeyLabel(), "Key 0");
+	assertFalse(key2.getAlwaysAuthenticate());
+	assertEquals(stub.getCalls(GET_ATTR), 4);
+    }
+
+    @Test
+    public void testSensitiveAttribute() throws CryptokiException {
+	setup(0, 1);
+	stub.setSensitive(CryptokiLibrary.CKA_DECRYPT);
+	MwPrivateKey key = session.getPrivateKeys().get(0);
+
+	assertEquals(key.getKeyLabel(), "Key 0");
+	try {
+	    key.getDecrypt();
+	    fail("Sensitive attribute must not be readable.");
+	} catch (CryptokiException ex) {
+	    assertEquals(ex.getErrorCode(), CryptokiLibrary.CKR_ATTRIBUTE_SENSITIVE);
+	}
+	int calls = stub.getCalls(GET_ATTR);
+
+	MwPrivateKey key2 = session.getPrivateKeys().get(0);
+	try {
+	    key2.getDecrypt();
+	    fail("Sensitive attribute must not be readable.");
+	} catch (CryptokiException ex) {
+	    assertEquals(ex.getErrorCode(), CryptokiLibrary.CKR_ATTRIBUTE_SENSITIVE);
+	}
+	assertEquals(stub.getCalls(GET_ATTR), calls);
+    }
+
+    @Test
+    public void testObjectListsCached() throws CryptokiException {
+	setup(0, 2);
+	List<MwCertificate> certs = session.getCertificates();
+	assertEquals(certs.size(), 2);
+	for (MwCertificate cert : certs) {
+	    assertTrue(cert.getLabel().startsWith("Cert "));
+	}
+	assertEquals(stub.getCalls(FIND_INIT), 1);
+	int calls = stub.getCalls(GET_ATTR);
+
+	for (MwCertificate cert : session.getCertificates()) {
+	    assertTrue(cert.getLabel().startsWith("Cert "));
+	}
+	assertEquals(stub.getCalls(FIND_INIT), 1);
+	assertEquals(stub.getCalls(GET_ATTR), calls);
+
+	// changing the login state makes the token read again
+	session.logout();
+	for (MwCertificate cert : session.getCertificates()) {
+	    assertTrue(cert.getLabel().startsWith("Cert "));
+	}
+	assertEquals(stub.getCalls(FIND_INIT), 2);
+	assertEquals(stub.getCalls(GET_ATTR), 2 * calls);
+
+	// same for card removal
+	module.getObjectCache().invalidate(0);
+	session.getCertificates();
+	assertEquals(stub.getCalls(FIND_INIT), 3);
+    }
+
+    @Test(groups = "benchmark")
+    public void benchmarkAttributeAccess() throws CryptokiException {
+	// 20 us per call is on the fast side of what PC/SC based middlewares achieve
+	setup(20_000, 4);
+	final int rounds = 200;
+
+	long start = System.nanoTime();
+	for (int i = 0; i < rounds; i++) {
+	    readPerAttribute();
+	}
+	long perAttrTime = System.nanoTime() - start;
+	int perAttrCalls = stub.getCalls(GET_ATTR) + stub.getCalls(FIND_INIT);
+	stub.resetCalls();
+
+	start = System.nanoTime();
+	for (int i = 0; i < rounds; i++) {
+	    module.getObjectCache().clear();
+	    readObjects();
+	}
+	long bulkTime = System.nanoTime() - start;
+	int bulkCalls = stub.getCalls(GET_ATTR) + stub.getCalls(FIND_INIT);
+	stub.resetCalls();
+
+	start = System.nanoTime();
+	for (int i = 0; i < rounds; i++) {
+	    readObjects();
+	}
+	long cachedTime = System.nanoTime() - start;
+	int cachedCalls = stub.getCalls(GET_ATTR) + stub.getCalls(FIND_INIT);
+
+	LOG.info("per attribute: {} us/op ({} calls), bulk: {} us/op ({} calls), cached: {} us/op ({} calls).",
+		perAttrTime / rounds / 1000, perAttrCalls / rounds, bulkTime / rounds / 1000, bulkCalls / rounds,
+		cachedTime / rounds / 1000, cachedCalls / rounds);
+    }
+
+    /**
+     * Reads the attributes used by the SAL the way it was done before the bulk read was added.
+     */
+    private void readPerAttribute() throws CryptokiException {
+	module.getObjectCache().clear();
+	long s = session.getSessionId();
+	for (MwCertificate cert : session.getCertificates()) {
+	    for (long t : new long[] { CryptokiLibrary.CKA_LABEL, CryptokiLibrary.CKA_ID,
+		CryptokiLibrary.CKA_CERTIFICATE_TYPE }) {
+		mw.getAttributeValue(s, cert.getObjectHandle(), t);
+	    }
+	}
+	for (MwPrivateKey key : session.getPrivateKeys()) {
+	    for (long t : new long[] { CryptokiLibrary.CKA_LABEL, CryptokiLibrary.CKA_ID, CryptokiLibrary.CKA_KEY_TYPE,
+		CryptokiLibrary.CKA_SIGN, CryptokiLibrary.CKA_DECRYPT, CryptokiLibrary.CKA_EXTRACTABLE }) {
+		mw.getAttributeValue(s, key.getObjectHandle(), t);
+	    }
+	}
+    }
+
+    private void readObjects() throws CryptokiException {
+	for (MwCertificate cert : session.getCertificates()) {
+	    cert.getLabel();
+	    cert.getID();
+	    cert.getCertificateType();
+	}
+	for (MwPrivateKey key : session.getPrivateKeys()) {
+	    key.getKeyLabel();
+	    key.getKeyID();
+	    key.getKeyType();
+	    key.getSign();
+	    key.getDecrypt();
+	    key.getExtractable();
+	}
+    }
+
+}
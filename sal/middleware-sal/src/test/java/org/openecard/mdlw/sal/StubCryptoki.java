@@ -0,0 +1,289 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.mdlw.sal;
+
+import com.sun.jna.Memory;
+import com.sun.jna.NativeLong;
+import com.sun.jna.ptr.NativeLongByReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.openecard.mdlw.sal.cryptoki.CK_ATTRIBUTE;
+import org.openecard.mdlw.sal.cryptoki.CryptokiLibrary;
+
+
+/**
+ * Cryptoki library implemented in Java, holding its objects in memory.
+ * Only the functions needed to open sessions, find objects and read attributes are implemented, all other functions
+ * just return {@code CKR_OK}. Each call can be delayed to model the round trip to a real middleware and token.
+ * The stub records how many calls were running at the same time, overall and on one slot.
+ *
+ * @author agent
+ */
+class StubCryptoki implements InvocationHandler {
+
+    private final Map<Long, Map<Long, byte[]>> objects = new HashMap<>();
+    private final Set<Long> sensitiveTypes = new HashSet<>();
+    private final Map<String, AtomicInteger> calls = new HashMap<>();
+    private final Map<Long, Long> sessionSlots = new HashMap<>();
+    private final Map<Long, List<Long>> searchResults = new HashMap<>();
+    private final Map<Long, AtomicInteger> slotCalls = new HashMap<>();
+    private final AtomicInteger runningCalls = new AtomicInteger();
+    private final long latencyNanos;
+
+    private boolean threadSafe = true;
+    private int maxRunningCalls;
+    private int maxRunningSlotCalls;
+
+    StubCryptoki(long latencyNanos) {
+	this.latencyNanos = latencyNanos;
+    }
+
+    CryptokiLibrary getLibrary() {
+	ClassLoader cl = CryptokiLibrary.class.getClassLoader();
+	return (CryptokiLibrary) Proxy.newProxyInstance(cl, new Class<?>[] { CryptokiLibrary.class }, this);
+    }
+
+    long addObject(long objectClass) {
+	long handle = objects.size() + 1;
+	Map<Long, byte[]> attrs = new HashMap<>();
+	objects.put(handle, attrs);
+	setLong(handle, CryptokiLibrary.CKA_CLASS, objectClass);
+	return handle;
+    }
+
+    void setBytes(long handle, long type, byte[] value) {
+	objects.get(handle).put(type, value);
+    }
+
+    void setLong(long handle, long type, long value) {
+	Memory mem = new Memory(NativeLong.SIZE);
+	mem.setNativeLong(0, new NativeLong(value));
+	setBytes(handle, type, mem.getByteArray(0, NativeLong.SIZE));
+    }
+
+    void setBool(long handle, long type, boolean value) {
+	setBytes(handle, type, new byte[] { (byte) (value ? 1 : 0) });
+    }
+
+    void setSensitive(long type) {
+	sensitiveTypes.add(type);
+    }
+
+    void setThreadSafe(boolean threadSafe) {
+	this.threadSafe = threadSafe;
+    }
+
+    synchronized int getMaxRunningCalls() {
+	return maxRunningCalls;
+    }
+
+    synchronized int getMaxRunningSlotCalls() {
+	return maxRunningSlotCalls;
+    }
+
+    synchronized int getCalls(String function) {
+	AtomicInteger count = calls.get(function);
+	return count == null ? 0 : count.get();
+    }
+
+    synchronized void resetCalls() {
+	calls.clear();
+	maxRunningCalls = 0;
+	maxRunningSlotCalls = 0;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+	if (method.getDeclaringClass() == Object.class) {
+	    return method.invoke(this, args);
+	}
+
+	AtomicInteger slotCount;
+	synchronized (this) {
+	    AtomicInteger count = calls.get(method.getName());
+	    if (count == null) {
+		count = new AtomicInteger();
+		calls.put(method.getName(), count);
+	    }
+	    count.incrementAndGet();
+
+	    slotCount = getSlotCalls(method.getName(), args);
+	    maxRunningCalls = Math.max(maxRunningCalls, runningCalls.incrementAndGet());
+	    if (slotCount != null) {
+		maxRunningSlotCalls = Math.max(maxRunningSlotCalls, slotCount.incrementAndGet());
+	    }
+	}
+
+	try {
+	    delay();
+	    return call(method, args);
+	} finally {
+	    runningCalls.decrementAndGet();
+	    if (slotCount != null) {
+		slotCount.decrementAndGet();
+	    }
+	}
+    }
+
+    private Object call(Method method, Object[] args) {
+	switch (method.getName()) {
+	    case "C_Initialize":
+		// thread safety is requested with the initialization arguments
+		boolean withArgs = args[0] != null;
+		return rv(withArgs && ! threadSafe ? CryptokiLibrary.CKR_CANT_LOCK : CryptokiLibrary.CKR_OK);
+	    case "C_OpenSession":
+		return openSession(((NativeLong) args[0]).longValue(), (NativeLongByReference) args[4]);
+	    case "C_FindObjectsInit":
+		return findObjectsInit(((NativeLong) args[0]).longValue(), (CK_ATTRIBUTE) args[1]);
+	    case "C_FindObjects":
+		return findObjects(((NativeLong) args[0]).longValue(), (Memory) args[1],
+			((NativeLong) args[2]).intValue(), (NativeLongByReference) args[3]);
+	    case "C_GetAttributeValue":
+		return getAttributeValue(((NativeLong) args[1]).longValue(), (CK_ATTRIBUTE) args[2],
+			((NativeLong) args[3]).intValue());
+	    default:
+		return method.getReturnType() == NativeLong.class ? rv(CryptokiLibrary.CKR_OK) : null;
+	}
+    }
+
+    private AtomicInteger getSlotCalls(String function, Object[] args) {
+	if (args == null || args.length == 0 || ! (args[0] instanceof NativeLong)) {
+	    return null;
+	}
+	long id = ((NativeLong) args[0]).longValue();
+	Long slot;
+	if (function.startsWith("C_GetSlot") || function.startsWith("C_GetToken") || function.startsWith("C_GetMech")
+		|| function.equals("C_OpenSession")) {
+	    slot = id;
+	} else {
+	    slot = sessionSlots.get(id);
+	}
+	if (slot == null) {
+	    return null;
+	}
+
+	AtomicInteger count = slotCalls.get(slot);
+	if (count == null) {
+	    count = new AtomicInteger();
+	    slotCalls.put(slot, count);
+	}
+	return count;
+    }
+
+    private void delay() {
+	if (latencyNanos >= 1_000_000) {
+	    // long latencies model waiting for the token, which leaves the CPU to other threads
+	    LockSupport.parkNanos(latencyNanos);
+	} else {
+	    long end = System.nanoTime() + latencyNanos;
+	    while (System.nanoTime() < end) {
+		// busy wait, sleeping is too coarse for the modelled latencies
+	    }
+	}
+    }
+
+    private static NativeLong rv(long code) {
+	return new NativeLong(code);
+    }
+
+    private synchronized NativeLong openSession(long slot, NativeLongByReference session) {
+	long handle = sessionSlots.size() + 1;
+	sessionSlots.put(handle, slot);
+	session.setValue(new NativeLong(handle));
+	return rv(CryptokiLibrary.CKR_OK);
+    }
+
+    private NativeLong findObjectsInit(long session, CK_ATTRIBUTE template) {
+	long type = template.getType().longValue();
+	byte[] value = template.getPValue().getByteArray(0, template.getUlValueLen().intValue());
+	List<Long> searchResult = new ArrayList<>();
+	for (Map.Entry<Long, Map<Long, byte[]>> next : objects.entrySet()) {
+	    if (Arrays.equals(value, next.getValue().get(type))) {
+		searchResult.add(next.getKey());
+	    }
+	}
+	synchronized (this) {
+	    searchResults.put(session, searchResult);
+	}
+	return rv(CryptokiLibrary.CKR_OK);
+    }
+
+    private NativeLong findObjects(long session, Memory handles, int max, NativeLongByReference count) {
+	List<Long> searchResult;
+	synchronized (this) {
+	    searchResult = searchResults.get(session);
+	}
+	int num = Math.min(max, searchResult.size());
+	for (int i = 0; i < num; i++) {
+	    handles.setNativeLong(i * NativeLong.SIZE, new NativeLong(searchResult.get(i)));
+	}
+	count.setValue(new NativeLong(num));
+	return rv(CryptokiLibrary.CKR_OK);
+    }
+
+    private NativeLong getAttributeValue(long handle, CK_ATTRIBUTE template, int num) {
+	Map<Long, byte[]> attrs = objects.get(handle);
+	if (attrs == null) {
+	    return rv(CryptokiLibrary.CKR_OBJECT_HANDLE_INVALID);
+	}
+
+	// work on the native memory of the template array, just like a native library would
+	template.autoWrite();
+	long result = CryptokiLibrary.CKR_OK;
+	for (int i = 0; i < num; i++) {
+	    CK_ATTRIBUTE attr = new CK_ATTRIBUTE(template.getPointer().share(i * template.size()));
+	    attr.read();
+	    long type = attr.getType().longValue();
+	    byte[] value = attrs.get(type);
+	    if (value == null) {
+		attr.setUlValueLen(new NativeLong(CryptokiLibrary.CK_UNAVAILABLE_INFORMATION));
+		result = CryptokiLibrary.CKR_ATTRIBUTE_TYPE_INVALID;
+	    } else if (sensitiveTypes.contains(type)) {
+		attr.setUlValueLen(new NativeLong(CryptokiLibrary.CK_UNAVAILABLE_INFORMATION));
+		result = CryptokiLibrary.CKR_ATTRIBUTE_SENSITIVE;
+	    } else if (attr.getPValue() == null) {
+		attr.setUlValueLen(new NativeLong(value.length));
+	    } else if (attr.getUlValueLen().longValue() >= value.length) {
+		attr.getPValue().write(0, value, 0, value.length);
+		attr.setUlValueLen(new NativeLong(value.length));
+	    } else {
+		attr.setUlValueLen(new NativeLong(CryptokiLibrary.CK_UNAVAILABLE_INFORMATION));
+		result = CryptokiLibrary.CKR_BUFFER_TOO_SMALL;
+	    }
+	    attr.write();
+	}
+	template.autoRead();
+	return rv(result);
+    }
+
+}
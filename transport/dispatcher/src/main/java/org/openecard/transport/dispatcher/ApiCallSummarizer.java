@@ -0,0 +1,150 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.transport.dispatcher;
+
+import iso.std.iso_iec._24727.tech.schema.RequestType;
+import iso.std.iso_iec._24727.tech.schema.ResponseType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import oasis.names.tc.dss._1_0.core.schema.Result;
+import org.openecard.common.ECardConstants;
+import org.openecard.common.event.ApiCallSummaryEventObject;
+import org.openecard.common.event.EventType;
+import org.openecard.common.interfaces.EventDispatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Collects the API calls of the {@link MessageDispatcher} and emits one {@link EventType#API_CALL_SUMMARY} event per
+ * time window.
+ * A window starts with the first call recorded after the previous summary has been emitted, so no timer is running
+ * while there is no activity.
+ *
+ * @author agent
+ */
+final class ApiCallSummarizer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ApiCallSummarizer.class);
+
+    /**
+     * Default length of the summary time window in milliseconds.
+     */
+    static final long DEFAULT_WINDOW_MILLIS = 1000;
+
+    private final long windowMillis;
+
+    // guarded by this
+    private HashMap<String, Integer> callCounts;
+    private HashMap<String, Integer> errorCounts;
+    private long windowStart;
+    private EventDispatcher target;
+
+    ApiCallSummarizer(long windowMillis) {
+	this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Records a finished API call.
+     *
+     * @param disp Event dispatcher which receives the summary.
+     * @param req The request of the call.
+     * @param res The response of the call, or {@code null} if the call failed with an exception.
+     */
+    void record(EventDispatcher disp, RequestType req, @Nullable Object res) {
+	String name = req.getClass().getSimpleName();
+	boolean error = ! (res instanceof ResponseType) || isError(((ResponseType) res).getResult());
+
+	boolean startWindow;
+	synchronized (this) {
+	    startWindow = callCounts == null;
+	    if (startWindow) {
+		callCounts = new HashMap<>();
+		errorCounts = new HashMap<>();
+		windowStart = System.currentTimeMillis();
+	    }
+	    target = disp;
+	    increment(callCounts, name);
+	    if (error) {
+		increment(errorCounts, name);
+	    }
+	}
+
+	if (startWindow) {
+	    SchedulerHolder.SCHEDULER.schedule(new Runnable() {
+		@Override
+		public void run() {
+		    flush();
+		}
+	    }, windowMillis, TimeUnit.MILLISECONDS);
+	}
+    }
+
+    private static boolean isError(@Nullable Result r) {
+	return r != null && ECardConstants.Major.ERROR.equals(r.getResultMajor());
+    }
+
+    private static void increment(Map<String, Integer> counts, String name) {
+	Integer old = counts.get(name);
+	counts.put(name, old == null ? 1 : old + 1);
+    }
+
+    private void flush() {
+	ApiCallSummaryEventObject summary;
+	EventDispatcher disp;
+	synchronized (this) {
+	    summary = new ApiCallSummaryEventObject(windowStart, System.currentTimeMillis(), callCounts, errorCounts);
+	    disp = target;
+	    callCounts = null;
+	    errorCounts = null;
+	    target = null;
+	}
+
+	LOG.debug("Sending API_CALL_SUMMARY event.");
+	disp.notify(EventType.API_CALL_SUMMARY, summary);
+    }
+
+
+    private static class SchedulerHolder {
+
+	private static final ScheduledExecutorService SCHEDULER;
+
+	static {
+	    SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+		    Thread t = new Thread(r, "API Call Summary");
+		    t.setDaemon(true);
+		    return t;
+		}
+	    });
+	}
+
+    }
+
+}
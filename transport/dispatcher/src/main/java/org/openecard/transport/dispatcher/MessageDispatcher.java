@@ -30,6 +30,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -49,7 +50,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Implementation of the {@code Dispatcher} interface.
- * This implementation defers its actual reflection work to the {@link Service} class.
+ * This implementation defers its actual reflection work to the {@link Service} class. The methods needed to deliver a
+ * request are resolved only once when the definitions are loaded and kept in a {@link ServiceInvoker} per request
+ * class.
  *
  * @author Tobias Wich
  * @author Hans-Martin Haase
@@ -63,10 +66,14 @@ public class MessageDispatcher implements Dispatcher {
     private final TreeMap<String, Service> serviceMap;
     /** Key is service interface classname */
     private final TreeMap<String, Method> serviceInstMap;
+    /** Key is parameter class, the table is only modified while loading the definitions */
+    private final HashMap<Class<?>, ServiceInvoker> invokerMap;
+    private final ApiCallSummarizer apiCallSummarizer;
 
     private final List<String> availableServiceNames;
 
     private final boolean isFilter;
+    private final boolean useHandles;
 
     /**
      * Creates a new MessageDispatcher instance and loads all definitions from the webservice interfaces in the
@@ -75,20 +82,24 @@ public class MessageDispatcher implements Dispatcher {
      * @param environment The environment with the webservice interface getters.
      */
     public MessageDispatcher(Environment environment) {
-	this.environment = environment;
-	isFilter = false;
-	serviceMap = new TreeMap<>();
-	serviceInstMap = new TreeMap<>();
-	initDefinitions();
-	availableServiceNames = new ArrayList<>();
-	createServiceList();
+	this(environment, false, true);
     }
 
-    private MessageDispatcher(Environment environment, boolean isFilter) {
+    /**
+     * Creates a new MessageDispatcher instance with a selectable invocation path for the webservice methods.
+     *
+     * @param environment The environment with the webservice interface getters.
+     * @param isFilter {@code true} if the dispatcher only forwards to the filtered service list.
+     * @param useHandles {@code true} to invoke the services with method handles, {@code false} to use reflection.
+     */
+    MessageDispatcher(Environment environment, boolean isFilter, boolean useHandles) {
 	this.environment = environment;
 	this.isFilter = isFilter;
+	this.useHandles = useHandles;
 	serviceMap = new TreeMap<>();
 	serviceInstMap = new TreeMap<>();
+	invokerMap = new HashMap<>();
+	apiCallSummarizer = new ApiCallSummarizer(ApiCallSummarizer.DEFAULT_WINDOW_MILLIS);
 	initDefinitions();
 	availableServiceNames = new ArrayList<>();
 	createServiceList();
@@ -98,25 +109,35 @@ public class MessageDispatcher implements Dispatcher {
     @Override
     public Object deliver(Object req) throws DispatcherException, InvocationTargetException {
 	EventDispatcher disp = environment.getEventDispatcher();
-	// send API CALL STARTED event
-	ConnectionHandleType handle = HandlerUtils.extractHandle(req);
-	if (disp != null && req instanceof RequestType) {
+	boolean isApiCall = disp != null && req instanceof RequestType;
+	// send API CALL STARTED event, the event copies the request, so only create it when somebody is listening
+	if (isApiCall && disp.hasSubscribers(EventType.API_CALL_STARTED)) {
+	    ConnectionHandleType handle = HandlerUtils.extractHandle(req);
 	    ApiCallEventObject startEvt = new ApiCallEventObject(handle, (RequestType) req);
 	    LOG.debug("Sending API_CALL_STARTED event.");
 	    disp.notify(EventType.API_CALL_STARTED, startEvt);
 	}
 
+	Object result = null;
 	try {
 	    Class<?> reqClass = req.getClass();
-	    Service s = getService(reqClass);
-	    Object serviceImpl = getServiceImpl(s);
-
-	    LOG.debug("Delivering message of type: {}", req.getClass().getName());
-
-	    Object result =  s.invoke(serviceImpl, req);
+	    ServiceInvoker invoker = invokerMap.get(reqClass);
+	    if (invoker != null) {
+		LOG.debug("Delivering message of type: {}", reqClass.getName());
+		result = invoker.invoke(req);
+	    } else {
+		// fall back to the reflective path, which also yields the appropriate error if no service is present
+		Service s = getService(reqClass);
+		Object serviceImpl = getServiceImpl(s);
+
+		LOG.debug("Delivering message of type: {}", reqClass.getName());
+
+		result = s.invoke(serviceImpl, req);
+	    }
 
 	    // send API CALL FINISHED event
-	    if (disp != null && req instanceof RequestType && result instanceof ResponseType) {
+	    if (isApiCall && result instanceof ResponseType && disp.hasSubscribers(EventType.API_CALL_FINISHED)) {
+		ConnectionHandleType handle = HandlerUtils.extractHandle(req);
 		ApiCallEventObject finEvt = new ApiCallEventObject(handle, (RequestType) req);
 		finEvt.setResponse((ResponseType) result);
 		LOG.debug("Sending API_CALL_FINISHED event.");
@@ -126,6 +147,11 @@ public class MessageDispatcher implements Dispatcher {
 	    return result;
 	} catch (IllegalAccessException | IllegalArgumentException ex) {
 	    throw new DispatcherException(ex);
+	} finally {
+	    // add the call to the API CALL SUMMARY event of the current time window
+	    if (isApiCall && disp.hasSubscribers(EventType.API_CALL_SUMMARY)) {
+		apiCallSummarizer.record(disp, (RequestType) req, result);
+	    }
 	}
     }
 
@@ -214,12 +240,20 @@ public class MessageDispatcher implements Dispatcher {
 			LOG.warn(msg, reqClass.getName(), returnType.getName());
 		    } else {
 			serviceMap.put(reqClass.getName(), service);
+			addInvoker(reqClass, service, nextAccessor);
 		    }
 		}
 	    }
 	}
     }
 
+    private void addInvoker(Class<?> reqClass, Service service, Method implAccessor) {
+	Method method = service.getRequestMethod(reqClass);
+	if (method != null) {
+	    invokerMap.put(reqClass, new ServiceInvoker(service, environment, implAccessor, method, useHandles));
+	}
+    }
+
     @Override
     public List<String> getServiceList() {
 	return Collections.unmodifiableList(availableServiceNames);
@@ -230,7 +264,7 @@ public class MessageDispatcher implements Dispatcher {
 	if (isFilter) {
 	    return this;
 	}
-	return new MessageDispatcher(this.environment, true);
+	return new MessageDispatcher(this.environment, true, useHandles);
     }
 
     private void createServiceList() {
@@ -0,0 +1,176 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.transport.dispatcher;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.xml.transform.TransformerException;
+import org.openecard.ws.marshal.WSMarshaller;
+import org.openecard.ws.marshal.WSMarshallerException;
+import org.openecard.ws.marshal.WSMarshallerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Writes request and response objects of the {@link MessageDispatcher} to the trace log.
+ * The objects are enqueued by reference and marshalled on a background thread, so that the dispatching thread is not
+ * slowed down by the serialization. The number of traced messages per second and the length of each message are
+ * limited. Messages exceeding the rate limit or the capacity of the queue are dropped and the number of dropped
+ * messages is reported in the log.
+ * <p>
+ * As the objects are marshalled after they have been enqueued, modifications made to them in the meantime may be
+ * visible in the log.
+ *
+ * @author agent
+ */
+final class MessageTracer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MessageTracer.class);
+
+    /**
+     * Default number of messages waiting to be marshalled.
+     */
+    static final int DEFAULT_QUEUE_SIZE = 64;
+    /**
+     * Default number of messages traced per second.
+     */
+    static final int DEFAULT_MAX_PER_SECOND = 20;
+    /**
+     * Default maximum number of characters of a traced message.
+     */
+    static final int DEFAULT_MAX_CHARS = 64 * 1024;
+
+    private final int maxPerSecond;
+    private final int maxChars;
+    private final ThreadPoolExecutor worker;
+
+    // guarded by this
+    private long windowStart;
+    private int windowCount;
+    private int dropped;
+
+    // only accessed by the worker thread
+    private WSMarshaller marshaller;
+
+    MessageTracer(int queueSize, int maxPerSecond, int maxChars) {
+	this.maxPerSecond = maxPerSecond;
+	this.maxChars = maxChars;
+
+	ThreadFactory tf = new ThreadFactory() {
+	    @Override
+	    public Thread newThread(Runnable r) {
+		Thread t = new Thread(r, "Message Tracer");
+		t.setDaemon(true);
+		return t;
+	    }
+	};
+	RejectedExecutionHandler dropHandler = new RejectedExecutionHandler() {
+	    @Override
+	    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+		synchronized (MessageTracer.this) {
+		    dropped++;
+		}
+	    }
+	};
+	// the thread terminates when there is nothing to trace
+	worker = new ThreadPoolExecutor(0, 1, 10, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueSize), tf,
+		dropHandler);
+    }
+
+    /**
+     * Enqueues the given object for tracing in the given logger.
+     * The caller must check that trace logging is enabled for the logger.
+     *
+     * @param target Logger receiving the marshalled object.
+     * @param msg Message preceding the marshalled object.
+     * @param msgObj JAXB object to trace.
+     */
+    void trace(final Logger target, final String msg, final Object msgObj) {
+	if (acquire(target)) {
+	    worker.execute(new Runnable() {
+		@Override
+		public void run() {
+		    write(target, msg, msgObj);
+		}
+	    });
+	}
+    }
+
+    /**
+     * Takes one message from the budget of the current second.
+     *
+     * @param target Logger receiving the report about dropped messages.
+     * @return {@code true} if the message may be traced, {@code false} if it must be dropped.
+     */
+    boolean acquire(Logger target) {
+	int lost;
+	boolean accepted;
+	synchronized (this) {
+	    long now = System.currentTimeMillis();
+	    lost = 0;
+	    if (now - windowStart >= 1000) {
+		lost = dropped;
+		windowStart = now;
+		windowCount = 0;
+		dropped = 0;
+	    }
+	    accepted = windowCount < maxPerSecond;
+	    if (accepted) {
+		windowCount++;
+	    } else {
+		dropped++;
+	    }
+	}
+
+	if (lost > 0) {
+	    target.trace("{} messages have not been traced due to the rate limit.", lost);
+	}
+	return accepted;
+    }
+
+    private void write(Logger target, String msg, Object msgObj) {
+	try {
+	    if (marshaller == null) {
+		marshaller = WSMarshallerFactory.createInstance();
+	    }
+	    String msgObjStr = marshaller.doc2str(marshaller.marshal(msgObj));
+	    target.trace("{}\n{}", msg, truncate(msgObjStr, maxChars));
+	} catch (TransformerException | WSMarshallerException | RuntimeException ex) {
+	    LOG.error("Failed to log message.", ex);
+	}
+    }
+
+    static String truncate(String msgStr, int maxChars) {
+	if (msgStr.length() <= maxChars) {
+	    return msgStr;
+	} else {
+	    int omitted = msgStr.length() - maxChars;
+	    return msgStr.substring(0, maxChars) + String.format("%n[... %d characters omitted]", omitted);
+	}
+    }
+
+}
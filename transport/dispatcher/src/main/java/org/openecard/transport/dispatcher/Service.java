@@ -31,13 +31,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.TreeMap;
+import javax.annotation.Nullable;
 import javax.jws.WebMethod;
-import javax.xml.transform.TransformerException;
 import org.openecard.common.interfaces.DispatcherException;
 import org.openecard.common.interfaces.Publish;
-import org.openecard.ws.marshal.WSMarshaller;
-import org.openecard.ws.marshal.WSMarshallerException;
-import org.openecard.ws.marshal.WSMarshallerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +48,8 @@ import org.slf4j.LoggerFactory;
 class Service implements Comparable<Service> {
 
     private static final Logger logger = LoggerFactory.getLogger(Service.class);
+    private static final MessageTracer TRACER = new MessageTracer(MessageTracer.DEFAULT_QUEUE_SIZE,
+	    MessageTracer.DEFAULT_MAX_PER_SECOND, MessageTracer.DEFAULT_MAX_CHARS);
 
     private final Class<?> iface;
     private final Class<?> impl;
@@ -160,7 +159,7 @@ class Service implements Comparable<Service> {
      * @param ifaceImpl Implementation for which the logger is requested.
      * @return The requested logger.
      */
-    private MessageLogger getLogger(Object ifaceImpl) {
+    MessageLogger getLogger(Object ifaceImpl) {
 	Class<?> implClass = ifaceImpl.getClass();
 	if (objectLoggers.containsKey(implClass)) {
 	    return objectLoggers.get(implClass);
@@ -198,6 +197,17 @@ class Service implements Comparable<Service> {
     }
 
 
+    /**
+     * Gets the webservice method taking the given request class.
+     *
+     * @param reqClass The class of the request object.
+     * @return The method, or {@code null} if no method for the request class exists.
+     */
+    @Nullable
+    Method getRequestMethod(Class<?> reqClass) {
+	return requestMethods.get(reqClass.getName());
+    }
+
     private Class<?> getReqParamClass(Method m) {
 	// get parameters of this method
 	Class[] params = m.getParameterTypes();
@@ -240,9 +250,10 @@ class Service implements Comparable<Service> {
 
     /**
      * Internal logger class for request and response objects.
-     * It only logs
+     * It only logs when trace logging is enabled for the receiver class or the dispatcher. The messages are marshalled
+     * asynchronously by the {@link MessageTracer}.
      */
-    private class MessageLogger {
+    class MessageLogger {
 
 	private final Logger l;
 
@@ -264,19 +275,11 @@ class Service implements Comparable<Service> {
 	}
 
 	private void logObject(Logger l, String msg, Object msgObj) {
-	    try {
-		if (l.isTraceEnabled()) {
-		    WSMarshaller m = WSMarshallerFactory.createInstance();
-		    String msgObjStr = m.doc2str(m.marshal(msgObj));
-		    l.trace("{}\n{}", msg, msgObjStr);
-		} else if (logger.isTraceEnabled()) {
-		    // check if the message needs to be logged in the dispatcher class
-		    WSMarshaller m = WSMarshallerFactory.createInstance();
-		    String msgObjStr = m.doc2str(m.marshal(msgObj));
-		    logger.trace("{}\n{}", msg, msgObjStr);
-		}
-	    } catch (TransformerException | WSMarshallerException ex) {
-		logger.error("Failed to log message.", ex);
+	    if (l.isTraceEnabled()) {
+		TRACER.trace(l, msg, msgObj);
+	    } else if (logger.isTraceEnabled()) {
+		// check if the message needs to be logged in the dispatcher class
+		TRACER.trace(logger, msg, msgObj);
 	    }
 	}
 
@@ -0,0 +1,199 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.transport.dispatcher;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import javax.annotation.Nullable;
+import org.openecard.common.interfaces.DispatcherException;
+import org.openecard.common.interfaces.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Pre-resolved invocation path for one request type of a {@link Service}.
+ * Instances are created once when the {@link MessageDispatcher} loads its definitions. The accessor of the service
+ * implementation in the environment and the webservice method are looked up at that time, so that a delivery only
+ * needs a single table lookup keyed by the request class and two direct invocations.
+ * <p>The methods are converted into method handles, the accessor is bound to the environment. If the platform does
+ * not support method handles, as older Android versions, the reflective methods with suppressed access checks are
+ * used instead.</p>
+ * <p>The service implementation itself is not cached, because the environment may replace it at any time after the
+ * dispatcher has been created.</p>
+ *
+ * @author agent
+ */
+final class ServiceInvoker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceInvoker.class);
+
+    private final Service service;
+    private final Environment environment;
+    private final Method implAccessor;
+    private final Method method;
+    @Nullable
+    private final MethodHandle implAccessorHandle;
+    @Nullable
+    private final MethodHandle methodHandle;
+
+    /**
+     * Creates a new ServiceInvoker instance using method handles if they are supported by the platform.
+     *
+     * @param service The service the webservice method belongs to.
+     * @param environment The environment containing the service implementation.
+     * @param implAccessor Method of the environment returning the service implementation.
+     * @param method The webservice method which is invoked for the request type.
+     */
+    ServiceInvoker(Service service, Environment environment, Method implAccessor, Method method) {
+	this(service, environment, implAccessor, method, true);
+    }
+
+    /**
+     * Creates a new ServiceInvoker instance.
+     *
+     * @param service The service the webservice method belongs to.
+     * @param environment The environment containing the service implementation.
+     * @param implAccessor Method of the environment returning the service implementation.
+     * @param method The webservice method which is invoked for the request type.
+     * @param useHandles {@code true} if method handles should be used, {@code false} to use reflection.
+     */
+    ServiceInvoker(Service service, Environment environment, Method implAccessor, Method method, boolean useHandles) {
+	this.service = service;
+	this.environment = environment;
+	this.implAccessor = makeAccessible(implAccessor);
+	this.method = makeAccessible(method);
+
+	MethodHandle accessorHandle = null;
+	MethodHandle invokeHandle = null;
+	if (useHandles) {
+	    try {
+		accessorHandle = Handles.accessor(this.implAccessor, environment);
+		invokeHandle = Handles.method(this.method);
+	    } catch (IllegalAccessException | LinkageError | UnsupportedOperationException ex) {
+		LOG.debug("Method handles for method {} can not be created, using reflection instead.", method);
+		accessorHandle = null;
+		invokeHandle = null;
+	    }
+	}
+	this.implAccessorHandle = accessorHandle;
+	this.methodHandle = invokeHandle;
+    }
+
+    private static Method makeAccessible(Method m) {
+	try {
+	    m.setAccessible(true);
+	} catch (SecurityException ex) {
+	    LOG.debug("Access checks for method {} can not be suppressed.", m);
+	}
+	return m;
+    }
+
+    /**
+     * Checks whether this instance invokes the methods with method handles.
+     *
+     * @return {@code true} if method handles are used, {@code false} if reflection is used.
+     */
+    boolean usesHandles() {
+	return methodHandle != null;
+    }
+
+    /**
+     * Invokes the webservice method with the given request object.
+     *
+     * @param req The request object to dispatch.
+     * @return The result of the method invocation.
+     * @throws DispatcherException In case the environment does not contain an implementation of the service, or the
+     *   methods can not be invoked.
+     * @throws InvocationTargetException In case the environment accessor or the dispatched method throws an exception.
+     */
+    public Object invoke(Object req) throws DispatcherException, InvocationTargetException {
+	Object ifaceImpl = getImplementation();
+	if (ifaceImpl == null) {
+	    String msg = "The environment does not contain an instance of service ";
+	    msg += service.getServiceInterface().getName() + ".";
+	    throw new DispatcherException(msg);
+	}
+
+	Service.MessageLogger l = service.getLogger(ifaceImpl);
+	l.logRequest(req);
+	Object res;
+	if (methodHandle != null) {
+	    try {
+		res = (Object) methodHandle.invokeExact(ifaceImpl, req);
+	    } catch (Throwable ex) {
+		// same contract as the reflective invocation
+		throw new InvocationTargetException(ex);
+	    }
+	} else {
+	    try {
+		res = method.invoke(ifaceImpl, req);
+	    } catch (IllegalAccessException | IllegalArgumentException ex) {
+		throw new DispatcherException(ex);
+	    }
+	}
+	l.logResponse(res);
+	return res;
+    }
+
+    @Nullable
+    private Object getImplementation() throws DispatcherException, InvocationTargetException {
+	if (implAccessorHandle != null) {
+	    try {
+		return (Object) implAccessorHandle.invokeExact();
+	    } catch (Throwable ex) {
+		throw new InvocationTargetException(ex);
+	    }
+	} else {
+	    try {
+		return implAccessor.invoke(environment);
+	    } catch (IllegalAccessException | IllegalArgumentException ex) {
+		throw new DispatcherException(ex);
+	    }
+	}
+    }
+
+    /**
+     * Factory for the method handles.
+     * The java.lang.invoke types are only referenced from here, so that platforms without them fail when the handles
+     * are created and not when this class is loaded.
+     */
+    private static final class Handles {
+
+	private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class);
+	private static final MethodType METHOD_TYPE = MethodType.methodType(Object.class, Object.class, Object.class);
+
+	static MethodHandle accessor(Method implAccessor, Environment environment) throws IllegalAccessException {
+	    return MethodHandles.lookup().unreflect(implAccessor).bindTo(environment).asType(ACCESSOR_TYPE);
+	}
+
+	static MethodHandle method(Method method) throws IllegalAccessException {
+	    return MethodHandles.lookup().unreflect(method).asType(METHOD_TYPE);
+	}
+
+    }
+
+}
@@ -0,0 +1,63 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.transport.dispatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ *
+ * @author agent
+ */
+public class MessageTracerTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MessageTracerTest.class);
+
+    @Test
+    public void testRateLimit() throws InterruptedException {
+	MessageTracer tracer = new MessageTracer(10, 3, 100);
+	int accepted = 0;
+	for (int i = 0; i < 10; i++) {
+	    if (tracer.acquire(LOG)) {
+		accepted++;
+	    }
+	}
+	assertEquals(accepted, 3);
+
+	// next window
+	Thread.sleep(1100);
+	assertTrue(tracer.acquire(LOG));
+    }
+
+    @Test
+    public void testTruncate() {
+	assertEquals(MessageTracer.truncate("abcdef", 6), "abcdef");
+	String truncated = MessageTracer.truncate("abcdefgh", 3);
+	assertTrue(truncated.startsWith("abc"));
+	assertTrue(truncated.endsWith("[... 5 characters omitted]"));
+    }
+
+}
@@ -0,0 +1,109 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.transport.dispatcher;
+
+import iso.std.iso_iec._24727.tech.schema.EstablishContext;
+import iso.std.iso_iec._24727.tech.schema.EstablishContextResponse;
+import iso.std.iso_iec._24727.tech.schema.Transmit;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import org.openecard.common.interfaces.Environment;
+import org.openecard.ws.IFD;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+
+/**
+ * Test of the method handle and the reflective invocation path of the ServiceInvoker.
+ *
+ * @author agent
+ */
+public class ServiceInvokerTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceInvokerTest.class);
+
+    @DataProvider(name = "paths")
+    public Object[][] paths() {
+	return new Object[][] { { true }, { false } };
+    }
+
+    @Test(dataProvider = "paths")
+    public void testDispatch(boolean useHandles) throws Exception {
+	Environment env = new TestEnv1();
+	MessageDispatcher disp = new MessageDispatcher(env, false, useHandles);
+	env.setIFD(new TestIFD());
+
+	Object res = disp.deliver(new EstablishContext());
+	assertTrue(res instanceof EstablishContextResponse);
+
+	try {
+	    disp.deliver(new Transmit());
+	    fail("Service exception not propagated.");
+	} catch (InvocationTargetException ex) {
+	    assertTrue(ex.getCause() instanceof UnsupportedOperationException);
+	}
+    }
+
+    @Test
+    public void testHandlesUsed() throws Exception {
+	assertTrue(createInvoker(new TestEnv1(), true).usesHandles());
+	assertFalse(createInvoker(new TestEnv1(), false).usesHandles());
+    }
+
+    @Test(groups = "benchmark")
+    public void benchmarkInvocation() throws Exception {
+	Environment env = new TestEnv1();
+	env.setIFD(new TestIFD());
+	ServiceInvoker reflection = createInvoker(env, false);
+	ServiceInvoker handles = createInvoker(env, true);
+	EstablishContext req = new EstablishContext();
+
+	final int iterations = 2_000_000;
+	// warm up both paths before measuring
+	for (int round = 0; round < 3; round++) {
+	    long reflectionNanos = run(reflection, req, iterations);
+	    long handleNanos = run(handles, req, iterations);
+	    LOG.info("Reflection: {} ops/ms, method handles: {} ops/ms.",
+		    iterations * 1_000_000L / reflectionNanos, iterations * 1_000_000L / handleNanos);
+	}
+    }
+
+    private static long run(ServiceInvoker invoker, Object req, int iterations) throws Exception {
+	long start = System.nanoTime();
+	for (int i = 0; i < iterations; i++) {
+	    assertNotNull(invoker.invoke(req));
+	}
+	return Math.max(1, System.nanoTime() - start);
+    }
+
+    private static ServiceInvoker createInvoker(Environment env, boolean useHandles) throws Exception {
+	Service service = new Service(IFD.class, IFD.class);
+	Method accessor = env.getClass().getMethod("getIFD");
+	Method method = service.getRequestMethod(EstablishContext.class);
+	return new ServiceInvoker(service, env, accessor, method, useHandles);
+    }
+
+}
@@ -24,6 +24,8 @@ package org.openecard.transport.dispatcher;
 
 import iso.std.iso_iec._24727.tech.schema.EstablishContext;
 import iso.std.iso_iec._24727.tech.schema.EstablishContextResponse;
+import iso.std.iso_iec._24727.tech.schema.Transmit;
+import java.lang.reflect.InvocationTargetException;
 import org.openecard.common.interfaces.Environment;
 import org.openecard.ws.IFD;
 import org.testng.annotations.Test;
@@ -78,4 +80,47 @@ public class TestDispatcher {
 	assertTrue(res instanceof EstablishContextResponse);
     }
 
+    /**
+     * Test if the dispatcher picks up service implementations which are replaced in the environment after the
+     * dispatcher has been created.
+     *
+     * @throws Exception If the test is a failure.
+     */
+    @Test
+    public void testReplacedImplementation() throws Exception {
+	Environment env = new TestEnv1();
+	MessageDispatcher disp = new MessageDispatcher(env);
+
+	env.setIFD(new TestIFD());
+	assertTrue(disp.deliver(new EstablishContext()) instanceof EstablishContextResponse);
+
+	final EstablishContextResponse expected = new EstablishContextResponse();
+	env.setIFD(new TestIFD() {
+	    @Override
+	    public EstablishContextResponse establishContext(EstablishContext parameters) {
+		return expected;
+	    }
+	});
+	assertSame(disp.deliver(new EstablishContext()), expected);
+    }
+
+    /**
+     * Test if exceptions of the invoked service are wrapped in an InvocationTargetException.
+     *
+     * @throws Exception If the test is a failure.
+     */
+    @Test
+    public void testServiceException() throws Exception {
+	Environment env = new TestEnv1();
+	MessageDispatcher disp = new MessageDispatcher(env);
+	env.setIFD(new TestIFD());
+
+	try {
+	    disp.deliver(new Transmit());
+	    fail("Service exception not propagated.");
+	} catch (InvocationTargetException ex) {
+	    assertTrue(ex.getCause() instanceof UnsupportedOperationException);
+	}
+    }
+
 }
@@ -107,6 +107,11 @@ public class TestEnv1 implements Environment {
 	    @Override
 	    public void notify(EventType t, EventObject o) {
 	    }
+
+	    @Override
+	    public boolean hasSubscribers(EventType t) {
+		return false;
+	    }
 	};
     }
 
@@ -25,8 +25,10 @@ package org.openecard.ws.jaxb;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.util.concurrent.ArrayBlockingQueue;
 import javax.xml.XMLConstants;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
@@ -48,6 +50,8 @@ import org.openecard.ws.soap.MessageFactory;
 import org.openecard.ws.soap.SOAPBody;
 import org.openecard.ws.soap.SOAPException;
 import org.openecard.ws.soap.SOAPMessage;
+import org.openecard.ws.soap.SOAPStreamCodec;
+import org.openecard.ws.soap.StreamedSOAPMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -59,21 +63,26 @@ import org.xml.sax.SAXException;
 
 /**
  * Implementation of a WSMarshaller utilizing JAXB and Javas default XML facilities.
+ * The instance can be used by multiple threads at the same time. The XML facilities, which are not thread safe, are
+ * handed to one call at a time and kept in a bounded set of idle instances for reuse by later calls. No state is bound
+ * to the calling threads, so nothing remains in pooled threads when the marshaller is no longer used.
+ * <p>
+ * Besides the DOM based functions, SOAP messages can be read and written directly from and to streams with the
+ * functions of the {@link SOAPStreamCodec} interface.
  *
  * @author Tobias Wich
  */
-public final class JAXBMarshaller implements WSMarshaller {
+public final class JAXBMarshaller implements WSMarshaller, SOAPStreamCodec {
 
     private static final Logger LOG = LoggerFactory.getLogger(JAXBMarshaller.class);
 
     // Marshaller and Unmarshaller
     private final MarshallerImpl marshaller;
-    // w3 factory
+    // w3 factories, access must be synchronized on the instance
     private final DocumentBuilderFactory w3Factory;
-    private final DocumentBuilder w3Builder;
-    private final Transformer serializer;
-    // soap
-    private final MessageFactory soapFactory;
+    private final TransformerFactory transformerFactory;
+    // idle instances, each one is used by one call at a time
+    private final ArrayBlockingQueue<XmlTools> idleTools;
 
     /**
      * Creates a JAXBMarshaller capable of marshalling und unmarshalling all JAXB element types found in the classpath
@@ -82,9 +91,8 @@ public final class JAXBMarshaller implements WSMarshaller {
     public JAXBMarshaller() {
 	MarshallerImpl tmpMarshaller;
 	DocumentBuilderFactory tmpW3Factory;
-	DocumentBuilder tmpW3Builder;
-	Transformer tmpSerializer;
-	MessageFactory tmpSoapFactory;
+	TransformerFactory tmpTransformerFactory;
+	XmlTools tmpTools;
 
 	try {
 	    tmpMarshaller = new MarshallerImpl();
@@ -106,27 +114,19 @@ public final class JAXBMarshaller implements WSMarshaller {
 	    tmpW3Factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
 	    tmpW3Factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
 
-	    tmpW3Builder = tmpW3Factory.newDocumentBuilder();
-
-	    TransformerFactory tfactory = TransformerFactory.newInstance();
-	    tfactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+	    tmpTransformerFactory = TransformerFactory.newInstance();
+	    tmpTransformerFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
 	    // XXE countermeasures
-	    tfactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
-	    tfactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+	    tmpTransformerFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+	    tmpTransformerFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
 	    try {
-		tfactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+		tmpTransformerFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
 	    } catch (TransformerConfigurationException ex) {
 		//LOG.debug("Failed to disallow DTDs entirely.");
 	    }
 
-	    tmpSerializer = tfactory.newTransformer();
-	    tmpSerializer.setOutputProperty(OutputKeys.INDENT, "yes");
-	    tmpSerializer.setOutputProperty(OutputKeys.STANDALONE, "yes");
-	    tmpSerializer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-	    tmpSerializer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-
-	    // instantiate soap stuff
-	    tmpSoapFactory = MessageFactory.newInstance();
+	    // create the first instance right away, so that configuration errors surface here
+	    tmpTools = new XmlTools(tmpW3Factory, tmpTransformerFactory);
 	} catch (ParserConfigurationException | TransformerConfigurationException | IllegalArgumentException | SOAPException ex) {
 	    LOG.error("Failed to initialize XML components.", ex);
 	    System.exit(1); // non recoverable
@@ -135,9 +135,27 @@ public final class JAXBMarshaller implements WSMarshaller {
 
 	marshaller = tmpMarshaller;
 	w3Factory = tmpW3Factory;
-	w3Builder = tmpW3Builder;
-	serializer = tmpSerializer;
-	soapFactory = tmpSoapFactory;
+	transformerFactory = tmpTransformerFactory;
+	idleTools = new ArrayBlockingQueue<>(MarshallerImpl.MAX_IDLE);
+	idleTools.offer(tmpTools);
+    }
+
+    private XmlTools acquireTools() {
+	XmlTools t = idleTools.poll();
+	if (t == null) {
+	    try {
+		t = new XmlTools(w3Factory, transformerFactory);
+	    } catch (ParserConfigurationException | TransformerConfigurationException | SOAPException ex) {
+		// the same configuration worked in the constructor
+		throw new IllegalStateException("Failed to initialize XML components.", ex);
+	    }
+	}
+	return t;
+    }
+
+    private void releaseTools(XmlTools t) {
+	// surplus instances are left to the garbage collector
+	idleTools.offer(t);
     }
 
 
@@ -158,35 +176,48 @@ public final class JAXBMarshaller implements WSMarshaller {
 
 
     @Override
-    public synchronized Document str2doc(String docStr) throws SAXException {
+    public Document str2doc(String docStr) throws SAXException {
+	XmlTools t = acquireTools();
 	try {
 	    // read dom as w3
 	    StringReader strReader = new StringReader(docStr);
 	    InputSource inSrc = new InputSource(strReader);
-	    Document doc = w3Builder.parse(inSrc);
+	    Document doc = t.w3Builder.parse(inSrc);
 
 	    WhitespaceFilter.filter(doc);
 
 	    return doc;
 	} catch (IOException ex) {
 	    throw new SAXException(ex);
+	} finally {
+	    releaseTools(t);
 	}
     }
 
     @Override
-    public synchronized Document str2doc(InputStream docStr) throws SAXException, IOException {
-	// read dom as w3
-	Document doc = w3Builder.parse(docStr);
+    public Document str2doc(InputStream docStr) throws SAXException, IOException {
+	XmlTools t = acquireTools();
+	try {
+	    // read dom as w3
+	    Document doc = t.w3Builder.parse(docStr);
 
-	WhitespaceFilter.filter(doc);
+	    WhitespaceFilter.filter(doc);
 
-	return doc;
+	    return doc;
+	} finally {
+	    releaseTools(t);
+	}
     }
 
     @Override
-    public synchronized String doc2str(Node doc) throws TransformerException {
+    public String doc2str(Node doc) throws TransformerException {
 	ByteArrayOutputStream out = new ByteArrayOutputStream();
-	serializer.transform(new DOMSource(doc), new StreamResult(out));
+	XmlTools t = acquireTools();
+	try {
+	    t.serializer.transform(new DOMSource(doc), new StreamResult(out));
+	} finally {
+	    releaseTools(t);
+	}
 	String result;
 	try {
 	    result = out.toString("UTF-8");
@@ -197,26 +228,38 @@ public final class JAXBMarshaller implements WSMarshaller {
     }
 
     @Override
-    public synchronized Object unmarshal(Node n) throws MarshallingTypeException, WSMarshallerException {
+    public Object unmarshal(Node n) throws MarshallingTypeException, WSMarshallerException {
 	Document newDoc = createDoc(n);
 	Object result;
+	MarshallerImpl.Instances inst = null;
 	try {
-	    result = marshaller.getUnmarshaller().unmarshal(newDoc); //NOI18N
+	    inst = marshaller.acquire();
+	    result = inst.unmarshaller.unmarshal(newDoc); //NOI18N
 	} catch (JAXBException ex) {
 	    throw new MarshallingTypeException(ex);
+	} finally {
+	    if (inst != null) {
+		marshaller.release(inst);
+	    }
 	}
 	return result;
     }
 
     @Override
-    public synchronized <T> JAXBElement<T> unmarshal(Node n, Class<T> c) throws MarshallingTypeException,
+    public <T> JAXBElement<T> unmarshal(Node n, Class<T> c) throws MarshallingTypeException,
 	    WSMarshallerException {
 	Document newDoc = createDoc(n);
 	JAXBElement<T> result;
+	MarshallerImpl.Instances inst = null;
 	try {
-	    result = marshaller.getUnmarshaller().unmarshal(newDoc, c); //NOI18N
+	    inst = marshaller.acquire();
+	    result = inst.unmarshaller.unmarshal(newDoc, c); //NOI18N
 	} catch (JAXBException ex) {
 	    throw new MarshallingTypeException(ex);
+	} finally {
+	    if (inst != null) {
+		marshaller.release(inst);
+	    }
 	}
 	return result;
     }
@@ -226,7 +269,7 @@ public final class JAXBMarshaller implements WSMarshaller {
 	if (n instanceof Document) {
 	    newDoc = (Document) n;
 	} else if (n instanceof Element) {
-	    newDoc = w3Builder.newDocument();
+	    newDoc = newDocument();
 	    Node root = newDoc.importNode(n, true);
 	    newDoc.appendChild(root);
 	} else {
@@ -235,30 +278,121 @@ public final class JAXBMarshaller implements WSMarshaller {
 	return newDoc;
     }
 
+    private Document newDocument() {
+	XmlTools t = acquireTools();
+	try {
+	    return t.w3Builder.newDocument();
+	} finally {
+	    releaseTools(t);
+	}
+    }
+
     @Override
-    public synchronized Document marshal(Object o) throws MarshallingTypeException {
+    public Document marshal(Object o) throws MarshallingTypeException {
+	MarshallerImpl.Instances inst = null;
 	try {
-	    Document d = w3Builder.newDocument();
-	    marshaller.getMarshaller().marshal(o, d);
+	    Document d = newDocument();
+	    inst = marshaller.acquire();
+	    inst.marshaller.marshal(o, d);
 	    return d;
 	} catch (JAXBException ex) {
 	    throw new MarshallingTypeException(ex);
+	} finally {
+	    if (inst != null) {
+		marshaller.release(inst);
+	    }
 	}
     }
 
     @Override
-    public synchronized SOAPMessage doc2soap(Document envDoc) throws SOAPException {
-	SOAPMessage msg = soapFactory.createMessage(envDoc);
-	return msg;
+    public SOAPMessage doc2soap(Document envDoc) throws SOAPException {
+	XmlTools t = acquireTools();
+	try {
+	    SOAPMessage msg = t.soapFactory.createMessage(envDoc);
+	    return msg;
+	} finally {
+	    releaseTools(t);
+	}
     }
 
     @Override
-    public synchronized SOAPMessage add2soap(Document content) throws SOAPException {
-	SOAPMessage msg = soapFactory.createMessage();
+    public SOAPMessage add2soap(Document content) throws SOAPException {
+	SOAPMessage msg;
+	XmlTools t = acquireTools();
+	try {
+	    msg = t.soapFactory.createMessage();
+	} finally {
+	    releaseTools(t);
+	}
 	SOAPBody body = msg.getSOAPBody();
 	body.addDocument(content);
 
 	return msg;
     }
 
+    @Override
+    public StreamedSOAPMessage readSOAP(InputStream in) throws SOAPException, MarshallingTypeException, IOException {
+	XmlTools t = acquireTools();
+	MarshallerImpl.Instances inst = null;
+	try {
+	    inst = marshaller.acquire();
+	    return t.soapCodec.read(in, inst.unmarshaller);
+	} catch (JAXBException ex) {
+	    throw new MarshallingTypeException(ex);
+	} finally {
+	    if (inst != null) {
+		marshaller.release(inst);
+	    }
+	    releaseTools(t);
+	}
+    }
+
+    @Override
+    public void writeSOAP(SOAPMessage msg, Object content, OutputStream out) throws SOAPException,
+	    MarshallingTypeException, IOException {
+	XmlTools t = acquireTools();
+	MarshallerImpl.Instances inst = null;
+	try {
+	    inst = marshaller.acquire();
+	    t.soapCodec.write(msg, content, out, inst.marshaller);
+	} catch (JAXBException ex) {
+	    throw new MarshallingTypeException(ex);
+	} finally {
+	    if (inst != null) {
+		marshaller.release(inst);
+	    }
+	    releaseTools(t);
+	}
+    }
+
+
+    /**
+     * XML facilities which must not be used by multiple threads at the same time.
+     */
+    private static class XmlTools {
+	private final DocumentBuilder w3Builder;
+	private final Transformer serializer;
+	private final MessageFactory soapFactory;
+	private final StAXSOAPCodec soapCodec;
+
+	XmlTools(DocumentBuilderFactory w3Factory, TransformerFactory tfactory)
+		throws ParserConfigurationException, TransformerConfigurationException, SOAPException {
+	    // the factories are not thread safe
+	    synchronized (w3Factory) {
+		w3Builder = w3Factory.newDocumentBuilder();
+	    }
+	    synchronized (tfactory) {
+		serializer = tfactory.newTransformer();
+	    }
+	    serializer.setOutputProperty(OutputKeys.INDENT, "yes");
+	    serializer.setOutputProperty(OutputKeys.STANDALONE, "yes");
+	    serializer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+	    serializer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+
+	    // instantiate soap stuff
+	    soapFactory = MessageFactory.newInstance(w3Builder);
+	    soapCodec = new StAXSOAPCodec(w3Builder, soapFactory);
+	}
+    }
+
 }
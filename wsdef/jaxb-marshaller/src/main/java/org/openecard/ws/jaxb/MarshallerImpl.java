@@ -36,6 +36,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
@@ -66,8 +67,16 @@ public class MarshallerImpl {
     private boolean userOverride;
     private final TreeSet<Class<?>> userClasses;
 
-    private Marshaller marshaller;
-    private Unmarshaller unmarshaller;
+    /**
+     * Maximum number of idle (un)marshaller pairs kept for reuse.
+     */
+    static final int MAX_IDLE = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private volatile JAXBContext context;
+    // incremented whenever the supported types change, instances of older generations are discarded
+    private volatile int generation;
+    // marshaller and unmarshaller are not thread safe, so each caller borrows a pair exclusively
+    private final ArrayBlockingQueue<Instances> idle = new ArrayBlockingQueue<>(MAX_IDLE);
 
     static {
 	// load predefined classes
@@ -103,7 +112,7 @@ public class MarshallerImpl {
 
     /**
      * Adds the specified JAXB element types class to the list of supported JAXB types.
-     * This method triggers a recreation of the wrapped marshaller and unmarshaller.
+     * This method triggers a recreation of the wrapped marshallers and unmarshallers.
      *
      * @param c Class of the JAXB element type.
      */
@@ -137,38 +146,52 @@ public class MarshallerImpl {
 
 
     /**
-     * Gets the wrapped JAXB marshaller instance.
+     * Borrows a JAXB marshaller and unmarshaller pair for exclusive use by the caller.
+     * The pair must be returned with {@link #release(Instances)} after use and must not be used afterwards.
      *
-     * @return The wrapped JAXB marshaller instance.
-     * @throws JAXBException If the marshaller could not be created.
+     * @return A marshaller and unmarshaller pair supporting the current JAXB types.
+     * @throws JAXBException If the marshaller or unmarshaller could not be created.
      */
-    public Marshaller getMarshaller() throws JAXBException {
-	if (marshaller == null) {
-	    loadInstances();
+    Instances acquire() throws JAXBException {
+	// read the generation before the context, so a concurrent reset at worst discards a current pair
+	int gen = generation;
+	Instances inst;
+	while ((inst = idle.poll()) != null) {
+	    if (inst.generation == gen) {
+		return inst;
+	    }
 	}
-	return marshaller;
+
+	JAXBContext ctx = context;
+	if (ctx == null) {
+	    ctx = loadContext();
+	}
+	return new Instances(ctx, gen);
     }
 
     /**
-     * Gets the wrapped JAXB unmarshaller instance.
+     * Returns a pair obtained by {@link #acquire()}.
+     * The pair is kept for reuse if it still supports the current JAXB types and the idle limit is not reached.
      *
-     * @return The wrapped JAXB unmarshaller instance.
-     * @throws JAXBException If the unmarshaller could not be created.
+     * @param inst The pair to return.
      */
-    public Unmarshaller getUnmarshaller() throws JAXBException {
-	if (unmarshaller == null) {
-	    loadInstances();
+    void release(Instances inst) {
+	if (inst.generation == generation) {
+	    idle.offer(inst);
 	}
-	return unmarshaller;
     }
 
-
     private void resetMarshaller() {
-	marshaller = null;
-	unmarshaller = null;
+	generation++;
+	context = null;
+	idle.clear();
     }
 
-    private synchronized void loadInstances() throws JAXBException {
+    private synchronized JAXBContext loadContext() throws JAXBException {
+	if (context != null) {
+	    return context;
+	}
+
 	JAXBContext jaxbCtx;
 	if (userOverride) {
 	    String classHash = calculateClassesHash();
@@ -191,8 +214,8 @@ public class MarshallerImpl {
 		throw new RuntimeException("Thread interrupted during waiting on the creation of the JAXBContext.");
 	    }
 	}
-	marshaller = jaxbCtx.createMarshaller();
-	unmarshaller = jaxbCtx.createUnmarshaller();
+	context = jaxbCtx;
+	return jaxbCtx;
     }
 
 
@@ -261,4 +284,20 @@ public class MarshallerImpl {
 	return writer.toString();
     }
 
+
+    /**
+     * JAXB marshaller and unmarshaller pair, which must only be used by one thread at a time.
+     */
+    static final class Instances {
+	private final int generation;
+	final Marshaller marshaller;
+	final Unmarshaller unmarshaller;
+
+	Instances(JAXBContext context, int generation) throws JAXBException {
+	    this.generation = generation;
+	    this.marshaller = context.createMarshaller();
+	    this.unmarshaller = context.createUnmarshaller();
+	}
+    }
+
 }
@@ -0,0 +1,364 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ws.jaxb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import org.openecard.ws.marshal.MarshallingTypeException;
+import org.openecard.ws.marshal.WhitespaceFilter;
+import org.openecard.ws.soap.MessageFactory;
+import org.openecard.ws.soap.SOAPException;
+import org.openecard.ws.soap.SOAPMessage;
+import org.openecard.ws.soap.StreamedSOAPMessage;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+
+/**
+ * StAX based reader and writer for SOAP messages.
+ * Envelope, Header and Body are processed by this class, the body content is handed directly to the JAXB
+ * (un)marshaller. Header elements are converted from and to DOM, so that they can be processed with the {@link
+ * SOAPMessage} API.
+ * <p>
+ * Instances of this class are not thread safe.
+ *
+ * @author agent
+ */
+final class StAXSOAPCodec {
+
+    private static final String ENVELOPE = "Envelope";
+    private static final String HEADER = "Header";
+    private static final String BODY = "Body";
+    private static final String SOAP_PREFIX = "soap";
+
+    private final DocumentBuilder w3Builder;
+    private final MessageFactory soapFactory;
+    private final XMLInputFactory inFactory;
+    private final XMLOutputFactory outFactory;
+
+    StAXSOAPCodec(DocumentBuilder w3Builder, MessageFactory soapFactory) {
+	this.w3Builder = w3Builder;
+	this.soapFactory = soapFactory;
+
+	inFactory = XMLInputFactory.newInstance();
+	inFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+	inFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+	// XXE countermeasures, a DTD makes the reader fail when looking for the envelope element
+	inFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+	inFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+	outFactory = XMLOutputFactory.newInstance();
+    }
+
+
+    StreamedSOAPMessage read(InputStream in, Unmarshaller unmarshaller) throws SOAPException, MarshallingTypeException,
+	    IOException {
+	XMLStreamReader r = null;
+	try {
+	    r = inFactory.createXMLStreamReader(in);
+	    Document doc = w3Builder.newDocument();
+
+	    r.nextTag();
+	    if (! ENVELOPE.equals(r.getLocalName())) {
+		throw new SOAPException("No Envelope element in SOAP message.");
+	    }
+	    String ns = r.getNamespaceURI();
+	    Element env = createElement(doc, r);
+	    doc.appendChild(env);
+
+	    r.nextTag();
+	    if (isSOAPElement(r, ns, HEADER)) {
+		Element head = createElement(doc, r);
+		env.appendChild(head);
+		readSubtree(doc, r, head);
+		WhitespaceFilter.filter(head);
+		r.nextTag();
+	    }
+	    if (! isSOAPElement(r, ns, BODY)) {
+		throw new SOAPException("No Body element present in SOAP message.");
+	    }
+	    env.appendChild(createElement(doc, r));
+	    // the message constructor checks the namespace and the structure of the envelope
+	    SOAPMessage msg = soapFactory.createMessage(doc);
+
+	    if (r.nextTag() != XMLStreamConstants.START_ELEMENT) {
+		throw new SOAPException("No content in SOAP body.");
+	    }
+	    Object content = unmarshaller.unmarshal(r);
+
+	    // consume the remainder, so the document is checked for well-formedness and the stream can be reused
+	    while (r.hasNext()) {
+		r.next();
+	    }
+
+	    return new StreamedSOAPMessage(msg, content);
+	} catch (XMLStreamException ex) {
+	    throw new SOAPException(ex);
+	} catch (JAXBException ex) {
+	    throw new MarshallingTypeException(ex);
+	} finally {
+	    if (r != null) {
+		try {
+		    r.close();
+		} catch (XMLStreamException ex) {
+		    // the underlying stream is not closed by the reader, so there is nothing to release
+		}
+	    }
+	}
+    }
+
+    void write(SOAPMessage msg, Object content, OutputStream out, Marshaller m) throws SOAPException,
+	    MarshallingTypeException, IOException {
+	try {
+	    String ns = msg.getDocument().getDocumentElement().getNamespaceURI();
+	    XMLStreamWriter w = outFactory.createXMLStreamWriter(out, "UTF-8");
+	    w.writeStartDocument("UTF-8", "1.0");
+	    w.writeStartElement(SOAP_PREFIX, ENVELOPE, ns);
+	    w.writeNamespace(SOAP_PREFIX, ns);
+
+	    w.writeStartElement(SOAP_PREFIX, HEADER, ns);
+	    for (Element e : msg.getSOAPHeader().getChildElements()) {
+		writeElement(w, e);
+	    }
+	    w.writeEndElement();
+
+	    w.writeStartElement(SOAP_PREFIX, BODY, ns);
+	    m.setProperty(Marshaller.JAXB_FRAGMENT, true);
+	    try {
+		m.marshal(content, w);
+	    } finally {
+		m.setProperty(Marshaller.JAXB_FRAGMENT, false);
+	    }
+	    w.writeEndElement();
+
+	    w.writeEndElement();
+	    w.writeEndDocument();
+	    w.close();
+	    out.flush();
+	} catch (XMLStreamException ex) {
+	    throw new SOAPException(ex);
+	} catch (JAXBException ex) {
+	    throw new MarshallingTypeException(ex);
+	}
+    }
+
+
+    private static boolean isSOAPElement(XMLStreamReader r, String ns, String name) {
+	return r.isStartElement() && ns.equals(r.getNamespaceURI()) && name.equals(r.getLocalName());
+    }
+
+    /**
+     * Creates a DOM element for the start element the reader is positioned on.
+     * Namespace declarations and attributes are copied, child nodes are not read.
+     */
+    private static Element createElement(Document doc, XMLStreamReader r) {
+	Element e = doc.createElementNS(emptyToNull(r.getNamespaceURI()), qName(r.getPrefix(), r.getLocalName()));
+	for (int i = 0; i < r.getNamespaceCount(); i++) {
+	    String prefix = r.getNamespacePrefix(i);
+	    String qName = isEmpty(prefix) ? XMLConstants.XMLNS_ATTRIBUTE : qName(XMLConstants.XMLNS_ATTRIBUTE, prefix);
+	    e.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, qName, r.getNamespaceURI(i));
+	}
+	for (int i = 0; i < r.getAttributeCount(); i++) {
+	    String qName = qName(r.getAttributePrefix(i), r.getAttributeLocalName(i));
+	    e.setAttributeNS(emptyToNull(r.getAttributeNamespace(i)), qName, r.getAttributeValue(i));
+	}
+	return e;
+    }
+
+    /**
+     * Reads the content of the element the reader is positioned on into the given DOM element.
+     * The content is read iteratively, so that deeply nested input can not exhaust the stack. When this method
+     * returns, the reader is positioned on the end element of the given element.
+     */
+    private static void readSubtree(Document doc, XMLStreamReader r, Element root) throws XMLStreamException {
+	Node cur = root;
+	while (true) {
+	    switch (r.next()) {
+		case XMLStreamConstants.START_ELEMENT:
+		    cur = cur.appendChild(createElement(doc, r));
+		    break;
+		case XMLStreamConstants.END_ELEMENT:
+		    if (cur == root) {
+			return;
+		    }
+		    cur = cur.getParentNode();
+		    break;
+		case XMLStreamConstants.CHARACTERS:
+		case XMLStreamConstants.SPACE:
+		    cur.appendChild(doc.createTextNode(r.getText()));
+		    break;
+		case XMLStreamConstants.CDATA:
+		    cur.appendChild(doc.createCDATASection(r.getText()));
+		    break;
+		default:
+		    // comments and processing instructions are dropped like in the DOM parser
+		    break;
+	    }
+	}
+    }
+
+    /**
+     * Writes the given DOM element including its content to the stream writer.
+     * Namespace declarations are added where the bindings of the writer do not match the DOM element.
+     */
+    private static void writeElement(XMLStreamWriter w, Element root) throws XMLStreamException {
+	writeStartElement(w, root);
+	Node n = root.getFirstChild();
+	while (n != null) {
+	    switch (n.getNodeType()) {
+		case Node.ELEMENT_NODE:
+		    writeStartElement(w, (Element) n);
+		    if (n.hasChildNodes()) {
+			n = n.getFirstChild();
+			continue;
+		    }
+		    w.writeEndElement();
+		    break;
+		case Node.TEXT_NODE:
+		    w.writeCharacters(n.getNodeValue());
+		    break;
+		case Node.CDATA_SECTION_NODE:
+		    w.writeCData(n.getNodeValue());
+		    break;
+		default:
+		    break;
+	    }
+	    // go to the next sibling and close all elements which are finished on the way up
+	    while (n != root && n.getNextSibling() == null) {
+		n = n.getParentNode();
+		if (n != root) {
+		    w.writeEndElement();
+		}
+	    }
+	    n = n == root ? null : n.getNextSibling();
+	}
+	w.writeEndElement();
+    }
+
+    private static void writeStartElement(XMLStreamWriter w, Element e) throws XMLStreamException {
+	String ns = e.getNamespaceURI();
+	String prefix = nullToEmpty(e.getPrefix());
+	String localName = e.getLocalName() != null ? e.getLocalName() : e.getNodeName();
+	// the writer binds the prefix of the element when it is started, so the check must be performed before
+	String boundNs = nullToEmpty(w.getNamespaceContext().getNamespaceURI(prefix));
+
+	if (isEmpty(ns)) {
+	    w.writeStartElement(localName);
+	    if (! boundNs.isEmpty()) {
+		w.writeDefaultNamespace(XMLConstants.NULL_NS_URI);
+	    }
+	} else {
+	    w.writeStartElement(prefix, localName, ns);
+	    if (! ns.equals(boundNs)) {
+		if (prefix.isEmpty()) {
+		    w.writeDefaultNamespace(ns);
+		} else {
+		    w.writeNamespace(prefix, ns);
+		}
+	    }
+	}
+
+	NamedNodeMap attrs = e.getAttributes();
+	// explicit namespace declarations first, so that attributes can use them
+	for (int i = 0; i < attrs.getLength(); i++) {
+	    Attr a = (Attr) attrs.item(i);
+	    if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(a.getNamespaceURI())) {
+		String nsPrefix = XMLConstants.XMLNS_ATTRIBUTE.equals(a.getNodeName()) ? "" : a.getLocalName();
+		declareNamespace(w, nsPrefix, a.getValue());
+	    }
+	}
+	for (int i = 0; i < attrs.getLength(); i++) {
+	    Attr a = (Attr) attrs.item(i);
+	    String attrNs = a.getNamespaceURI();
+	    String attrName = a.getLocalName() != null ? a.getLocalName() : a.getNodeName();
+	    if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attrNs)) {
+		continue;
+	    } else if (isEmpty(attrNs)) {
+		w.writeAttribute(attrName, a.getValue());
+	    } else {
+		// attributes without prefix are not in a namespace, so find or declare a prefix for the namespace
+		String attrPrefix = a.getPrefix();
+		if (isEmpty(attrPrefix)) {
+		    attrPrefix = w.getNamespaceContext().getPrefix(attrNs);
+		    if (isEmpty(attrPrefix)) {
+			attrPrefix = freePrefix(w.getNamespaceContext());
+		    }
+		}
+		declareNamespace(w, attrPrefix, attrNs);
+		w.writeAttribute(attrPrefix, attrNs, attrName, a.getValue());
+	    }
+	}
+    }
+
+    private static void declareNamespace(XMLStreamWriter w, String prefix, String ns) throws XMLStreamException {
+	if (! ns.equals(w.getNamespaceContext().getNamespaceURI(prefix))) {
+	    if (prefix.isEmpty()) {
+		w.writeDefaultNamespace(ns);
+	    } else {
+		w.writeNamespace(prefix, ns);
+	    }
+	}
+    }
+
+    private static String freePrefix(NamespaceContext ctx) {
+	for (int i = 0; ; i++) {
+	    String prefix = "ns" + i;
+	    if (isEmpty(ctx.getNamespaceURI(prefix))) {
+		return prefix;
+	    }
+	}
+    }
+
+    private static String qName(String prefix, String localName) {
+	return isEmpty(prefix) ? localName : prefix + ":" + localName;
+    }
+
+    private static boolean isEmpty(String s) {
+	return s == null || s.isEmpty();
+    }
+
+    private static String nullToEmpty(String s) {
+	return s == null ? "" : s;
+    }
+
+    private static String emptyToNull(String s) {
+	return isEmpty(s) ? null : s;
+    }
+
+}
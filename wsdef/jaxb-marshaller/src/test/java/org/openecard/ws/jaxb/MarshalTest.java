@@ -26,7 +26,18 @@ import de.bund.bsi.ecard.api._1.InitializeFrameworkResponse;
 import de.bund.bsi.ecard.api._1.InitializeFrameworkResponse.Version;
 import iso.std.iso_iec._24727.tech.schema.DIDAuthenticateResponse;
 import iso.std.iso_iec._24727.tech.schema.EAC2OutputType;
+import iso.std.iso_iec._24727.tech.schema.StartPAOS;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -39,6 +50,9 @@ import org.openecard.ws.soap.MessageFactory;
 import org.openecard.ws.soap.SOAPBody;
 import org.openecard.ws.soap.SOAPException;
 import org.openecard.ws.soap.SOAPMessage;
+import org.openecard.ws.soap.StreamedSOAPMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -52,6 +66,8 @@ import static org.testng.Assert.*;
  */
 public class MarshalTest {
 
+    private static final Logger LOG = LoggerFactory.getLogger(MarshalTest.class);
+
     String xmlStr
 	= "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
 	+ "<soap11:Envelope xmlns:soap11=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:addr=\"http://www.w3.org/2005/03/addressing\" xmlns:paos20=\"urn:liberty:paos:2006-08\">\n"
@@ -195,4 +211,250 @@ public class MarshalTest {
 	System.out.println(m.doc2str(msg.getDocument()));
     }
 
+    @Test(timeOut = 60000)
+    public void testConcurrentUse() throws Exception {
+	final JAXBMarshaller m = new JAXBMarshaller();
+	final String expected = roundTrip(m);
+
+	List<Callable<Void>> tasks = new ArrayList<>();
+	for (int i = 0; i < 8; i++) {
+	    tasks.add(new Callable<Void>() {
+		@Override
+		public Void call() throws Exception {
+		    for (int j = 0; j < 50; j++) {
+			assertEquals(roundTrip(m), expected);
+		    }
+		    return null;
+		}
+	    });
+	}
+	ExecutorService exec = Executors.newFixedThreadPool(tasks.size());
+	try {
+	    for (Future<Void> f : exec.invokeAll(tasks)) {
+		f.get();
+	    }
+	} finally {
+	    exec.shutdown();
+	}
+    }
+
+    @Test(timeOut = 60000)
+    public void testConcurrentStreamUse() throws Exception {
+	final JAXBMarshaller m = new JAXBMarshaller();
+	final String expected = streamRoundTrip(m);
+
+	List<Callable<Void>> tasks = new ArrayList<>();
+	for (int i = 0; i < 8; i++) {
+	    final boolean stream = i % 2 == 0;
+	    tasks.add(new Callable<Void>() {
+		@Override
+		public Void call() throws Exception {
+		    for (int j = 0; j < 50; j++) {
+			// mix both codecs, so that the DOM and the stream functions share the JAXB instances
+			assertEquals(stream ? streamRoundTrip(m) : m.doc2str(m.marshal(unmarshalBody(m))), expected);
+		    }
+		    return null;
+		}
+	    });
+	}
+	ExecutorService exec = Executors.newFixedThreadPool(tasks.size());
+	try {
+	    for (Future<Void> f : exec.invokeAll(tasks)) {
+		f.get();
+	    }
+	} finally {
+	    exec.shutdown();
+	}
+    }
+
+    @Test
+    public void testRemovedTypesInvalidateInstances() throws Exception {
+	JAXBMarshaller m = new JAXBMarshaller();
+	Object content = unmarshalBody(m);
+	m.doc2str(m.marshal(content));
+
+	// idle instances created for the previous types must not be used anymore
+	m.removeAllTypeClasses();
+	try {
+	    m.marshal(content);
+	    fail("Marshalling succeeded without known types.");
+	} catch (MarshallingTypeException ex) {
+	    // expected
+	}
+
+	m.addXmlTypeClass(StartPAOS.class);
+	assertNotNull(m.marshal(content));
+    }
+
+    /**
+     * Measures the throughput of one marshaller shared by multiple threads. The old behaviour, where every method of
+     * the marshaller was synchronized, is emulated by locking the marshaller around each round trip.
+     * The test is not part of the regular test run, enable the group {@code benchmark} to run it.
+     *
+     * @throws Exception
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkConcurrentUse() throws Exception {
+	final JAXBMarshaller m = new JAXBMarshaller();
+	final int numThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+	final int numOps = 2000;
+	ExecutorService exec = Executors.newFixedThreadPool(numThreads);
+	try {
+	    for (final boolean locked : new boolean[] { true, false, true, false }) {
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int i = 0; i < numThreads; i++) {
+		    tasks.add(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+			    for (int j = 0; j < numOps; j++) {
+				if (locked) {
+				    synchronized (m) {
+					roundTrip(m);
+				    }
+				} else {
+				    roundTrip(m);
+				}
+			    }
+			    return null;
+			}
+		    });
+		}
+		long start = System.nanoTime();
+		for (Future<Void> f : exec.invokeAll(tasks)) {
+		    f.get();
+		}
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		long total = (long) numThreads * numOps;
+		LOG.info("{} round trips on {} threads ({}): {} ms ({} ops/s).", total, numThreads,
+			locked ? "synchronized" : "concurrent", millis, total * 1000 / Math.max(1, millis));
+	    }
+	} finally {
+	    exec.shutdown();
+	}
+    }
+
+    @Test
+    public void testStreamRead() throws Exception {
+	JAXBMarshaller m = new JAXBMarshaller();
+	StreamedSOAPMessage result = m.readSOAP(new ByteArrayInputStream(xmlStr.getBytes(StandardCharsets.UTF_8)));
+
+	StartPAOS content = (StartPAOS) result.getContent();
+	assertEquals(content.getSessionIdentifier(), "0123456789");
+	assertEquals(content.getConnectionHandle().size(), 2);
+
+	List<Element> headers = result.getMessage().getSOAPHeader().getChildElements();
+	assertEquals(headers.size(), 2);
+	Element paos = headers.get(0);
+	assertEquals(paos.getNamespaceURI(), "urn:liberty:paos:2006-08");
+	assertEquals(paos.getAttributeNS("http://schemas.xmlsoap.org/soap/envelope/", "mustUnderstand"), "1");
+	assertEquals(paos.getChildNodes().getLength(), 1);
+	Element msgId = headers.get(1);
+	assertEquals(msgId.getLocalName(), "MessageID");
+	assertEquals(msgId.getTextContent(), "urn:uuid:00dcda36-bc0b-11df-b497-0a0027000000");
+	assertTrue(result.getMessage().getSOAPBody().getChildElements().isEmpty());
+    }
+
+    @Test
+    public void testStreamWrite() throws Exception {
+	JAXBMarshaller m = new JAXBMarshaller();
+	SOAPMessage domMsg = m.doc2soap(m.str2doc(xmlStr));
+	Object content = m.unmarshal(domMsg.getSOAPBody().getChildElements().get(0));
+
+	// header built like in PAOS, the actor attribute has a namespace but no prefix
+	SOAPMessage msg = MessageFactory.newInstance().createMessage();
+	Element paos = msg.getSOAPHeader().addHeaderElement(new QName("urn:liberty:paos:2006-08", "PAOS"));
+	paos.setAttributeNS("http://schemas.xmlsoap.org/soap/envelope/", "actor", "http://schemas.xmlsoap.org/soap/actor/next");
+	Element version = msg.getSOAPHeader().addChildElement(paos, new QName("urn:liberty:paos:2006-08", "Version"));
+	version.setTextContent("urn:liberty:paos:2006-08");
+	Element relates = msg.getSOAPHeader().addHeaderElement(new QName("http://www.w3.org/2005/03/addressing", "RelatesTo"));
+	relates.setTextContent("urn:uuid:00dcda36-bc0b-11df-b497-0a0027000000");
+
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	m.writeSOAP(msg, content, out);
+
+	// the written message must be readable by the DOM path and contain the same data
+	SOAPMessage written = m.doc2soap(m.str2doc(new ByteArrayInputStream(out.toByteArray())));
+	List<Element> headers = written.getSOAPHeader().getChildElements();
+	assertEquals(headers.size(), 2);
+	assertEquals(headers.get(0).getAttributeNS("http://schemas.xmlsoap.org/soap/envelope/", "actor"),
+		"http://schemas.xmlsoap.org/soap/actor/next");
+	assertEquals(headers.get(0).getTextContent(), "urn:liberty:paos:2006-08");
+	assertEquals(headers.get(1).getNamespaceURI(), "http://www.w3.org/2005/03/addressing");
+	assertEquals(headers.get(1).getTextContent(), "urn:uuid:00dcda36-bc0b-11df-b497-0a0027000000");
+	Object writtenContent = m.unmarshal(written.getSOAPBody().getChildElements().get(0));
+	assertEquals(m.doc2str(m.marshal(writtenContent)), m.doc2str(m.marshal(content)));
+    }
+
+    @Test(expectedExceptions = SOAPException.class)
+    public void testStreamReadRejectsDoctype() throws Exception {
+	JAXBMarshaller m = new JAXBMarshaller();
+	String doctype = "<!DOCTYPE foo [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>\n";
+	String evil = xmlStr.replaceFirst("\n", "\n" + doctype);
+	m.readSOAP(new ByteArrayInputStream(evil.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Compares reading and writing a large SOAP message with the DOM based functions against the stream codec.
+     * The test is not part of the regular test run, enable the group {@code benchmark} to run it.
+     *
+     * @throws Exception
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkStreamCodec() throws Exception {
+	JAXBMarshaller m = new JAXBMarshaller();
+	SOAPMessage domMsg = m.doc2soap(m.str2doc(xmlStr));
+	StartPAOS content = (StartPAOS) m.unmarshal(domMsg.getSOAPBody().getChildElements().get(0));
+	for (int i = 0; i < 200; i++) {
+	    content.getConnectionHandle().add(content.getConnectionHandle().get(i % 2));
+	}
+	SOAPMessage head = MessageFactory.newInstance().createMessage();
+	head.getSOAPHeader().addHeaderElement(new QName("http://www.w3.org/2005/03/addressing", "MessageID"))
+		.setTextContent("urn:uuid:00dcda36-bc0b-11df-b497-0a0027000000");
+	ByteArrayOutputStream tmp = new ByteArrayOutputStream();
+	m.writeSOAP(head, content, tmp);
+	byte[] msgBytes = tmp.toByteArray();
+
+	final int numOps = 500;
+	for (int round = 0; round < 3; round++) {
+	    long start = System.nanoTime();
+	    for (int i = 0; i < numOps; i++) {
+		SOAPMessage msg = m.doc2soap(m.str2doc(new ByteArrayInputStream(msgBytes)));
+		Object o = m.unmarshal(msg.getSOAPBody().getChildElements().get(0));
+		SOAPMessage resp = m.add2soap(m.marshal(o));
+		m.doc2str(resp.getDocument()).getBytes(StandardCharsets.UTF_8);
+	    }
+	    long domNanos = System.nanoTime() - start;
+
+	    start = System.nanoTime();
+	    for (int i = 0; i < numOps; i++) {
+		StreamedSOAPMessage msg = m.readSOAP(new ByteArrayInputStream(msgBytes));
+		m.writeSOAP(msg.getMessage(), msg.getContent(), new ByteArrayOutputStream());
+	    }
+	    long streamNanos = System.nanoTime() - start;
+
+	    LOG.info("Round trip of {} byte message: DOM {} us, stream {} us.", msgBytes.length,
+		    TimeUnit.NANOSECONDS.toMicros(domNanos / numOps), TimeUnit.NANOSECONDS.toMicros(streamNanos / numOps));
+	}
+    }
+
+    private Object unmarshalBody(JAXBMarshaller m) throws Exception {
+	SOAPMessage msg = m.doc2soap(m.str2doc(xmlStr));
+	return m.unmarshal(msg.getSOAPBody().getChildElements().get(0));
+    }
+
+    private String streamRoundTrip(JAXBMarshaller m) throws Exception {
+	StreamedSOAPMessage read = m.readSOAP(new ByteArrayInputStream(xmlStr.getBytes(StandardCharsets.UTF_8)));
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	m.writeSOAP(read.getMessage(), read.getContent(), out);
+	StreamedSOAPMessage written = m.readSOAP(new ByteArrayInputStream(out.toByteArray()));
+	return m.doc2str(m.marshal(written.getContent()));
+    }
+
+    private String roundTrip(JAXBMarshaller m) throws Exception {
+	Document doc = m.str2doc(xmlStr);
+	SOAPMessage msg = m.doc2soap(doc);
+	Object o = m.unmarshal(msg.getSOAPBody().getChildElements().get(0));
+	return m.doc2str(m.add2soap(m.marshal(o)).getDocument());
+    }
+
 }
@@ -36,7 +36,7 @@ import org.openecard.ws.common.GenericFactoryException;
  */
 public class WSMarshallerFactory {
 
-    private GenericFactory<WSMarshaller> factory;
+    private final GenericFactory<WSMarshaller> factory;
 
     private WSMarshallerFactory() throws WSMarshallerException {
 	try {
@@ -48,7 +48,7 @@ public class WSMarshallerFactory {
     }
 
 
-    private static WSMarshallerFactory inst;
+    private static volatile WSMarshallerFactory inst;
 
     /**
      * Gets an new instance of the selected WSMarshaller implementation.
@@ -56,13 +56,20 @@ public class WSMarshallerFactory {
      * @return WSMarshaller implementation instance.
      * @throws WSMarshallerException In case the WSMarshaller instance could not be created.
      */
-    public static synchronized WSMarshaller createInstance() throws WSMarshallerException {
-	if (inst == null) {
-	    inst = new WSMarshallerFactory();
+    public static WSMarshaller createInstance() throws WSMarshallerException {
+	WSMarshallerFactory f = inst;
+	if (f == null) {
+	    synchronized (WSMarshallerFactory.class) {
+		f = inst;
+		if (f == null) {
+		    f = new WSMarshallerFactory();
+		    inst = f;
+		}
+	    }
 	}
 
 	try {
-	    return inst.factory.getInstance();
+	    return f.factory.getInstance();
 	} catch (GenericFactoryException ex) {
 	    throw new WSMarshallerException(ex);
 	}
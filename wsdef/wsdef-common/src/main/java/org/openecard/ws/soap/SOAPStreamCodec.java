@@ -0,0 +1,70 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ws.soap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.openecard.ws.marshal.MarshallingTypeException;
+
+
+/**
+ * Codec reading and writing SOAP messages directly from and to streams.
+ * In contrast to the DOM based functions of {@link org.openecard.ws.marshal.WSMarshaller}, the body content is
+ * unmarshalled from the stream and marshalled into the stream without building an intermediate document. Only the
+ * SOAP header, which is usually small, is converted to DOM, so that the header processing code can be shared with the
+ * DOM based path.
+ * <p>
+ * This interface is optional. Marshallers which do not implement it must be used with the DOM based functions.
+ *
+ * @author agent
+ */
+public interface SOAPStreamCodec {
+
+    /**
+     * Reads a SOAP message from the given stream and unmarshals the first element of its body.
+     * The stream is read until the end of the XML document, but it is not closed.
+     *
+     * @param in Stream containing the SOAP envelope.
+     * @return The message containing the SOAP header and an empty body, as well as the unmarshalled content.
+     * @throws SOAPException If the stream does not contain a well formed SOAP message.
+     * @throws MarshallingTypeException If the body content is an unsupported JAXB type.
+     * @throws IOException If the stream produced an error while reading.
+     */
+    StreamedSOAPMessage readSOAP(InputStream in) throws SOAPException, MarshallingTypeException, IOException;
+
+    /**
+     * Writes a SOAP message with the header of the given message and the given JAXB object as body content.
+     * The body of the given message is ignored. The stream is flushed, but not closed.
+     *
+     * @param msg Message providing the SOAP namespace and the header elements.
+     * @param content JAXB object to marshal into the SOAP body.
+     * @param out Stream the SOAP envelope is written to.
+     * @throws SOAPException If the message could not be serialized.
+     * @throws MarshallingTypeException If the given object is an unsupported JAXB type.
+     * @throws IOException If the stream produced an error while writing.
+     */
+    void writeSOAP(SOAPMessage msg, Object content, OutputStream out) throws SOAPException, MarshallingTypeException,
+	    IOException;
+
+}
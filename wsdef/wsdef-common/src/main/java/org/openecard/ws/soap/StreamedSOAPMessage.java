@@ -0,0 +1,60 @@
+/****************************************************************************
+ * Copyright (C) 2026 ecsec GmbH.
+ * All rights reserved.
+ * Contact: ecsec GmbH (info@ecsec.de)
+ *
+ * This file is part of the Open eCard App.
+ *
+ * GNU General Public License Usage
+ * This file may be used under the terms of the GNU General Public
+ * License version 3.0 as published by the Free Software Foundation
+ * and appearing in the file LICENSE.GPL included in the packaging of
+ * this file. Please review the following information to ensure the
+ * GNU General Public License version 3.0 requirements will be met:
+ * http://www.gnu.org/copyleft/gpl.html.
+ *
+ * Other Usage
+ * Alternatively, this file may be used in accordance with the terms
+ * and conditions contained in a signed written agreement between
+ * you and ecsec GmbH.
+ *
+ ***************************************************************************/
+
+package org.openecard.ws.soap;
+
+
+/**
+ * Result of reading a SOAP message with a {@link SOAPStreamCodec}.
+ * The message contains the SOAP header and an empty body, the unmarshalled body content is available separately.
+ *
+ * @author agent
+ */
+public final class StreamedSOAPMessage {
+
+    private final SOAPMessage msg;
+    private final Object content;
+
+    public StreamedSOAPMessage(SOAPMessage msg, Object content) {
+	this.msg = msg;
+	this.content = content;
+    }
+
+    /**
+     * Gets the SOAP message containing the header of the read message.
+     *
+     * @return The message with all header elements and an empty body.
+     */
+    public SOAPMessage getMessage() {
+	return msg;
+    }
+
+    /**
+     * Gets the unmarshalled content of the SOAP body.
+     *
+     * @return JAXB object representing the first element of the SOAP body.
+     */
+    public Object getContent() {
+	return content;
+    }
+
+}